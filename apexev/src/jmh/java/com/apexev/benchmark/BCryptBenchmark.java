@@ -0,0 +1,37 @@
+package com.apexev.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+// Thời gian 1 lần hash / so khớp theo cost factor, dùng để chọn com.apexev.bcryptStrength
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class BCryptBenchmark {
+    @Param({"4", "8", "10", "12"})
+    public int cost;
+
+    private BCryptPasswordEncoder encoder;
+    private String encoded;
+
+    @Setup
+    public void setup() {
+        encoder = new BCryptPasswordEncoder(cost);
+        encoded = encoder.encode("Password@123");
+    }
+
+    @Benchmark
+    public String encode() {
+        return encoder.encode("Password@123");
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return encoder.matches("Password@123", encoded);
+    }
+}
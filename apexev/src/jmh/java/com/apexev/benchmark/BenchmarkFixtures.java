@@ -0,0 +1,83 @@
+package com.apexev.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.apexev.entity.User;
+import com.apexev.enums.UserRole;
+import com.apexev.repository.userAndVehicle.RevokedTokenRepository;
+import com.apexev.repository.userAndVehicle.UserRepository;
+import com.apexev.security.jwt.JwtUtils;
+import com.apexev.security.jwt.RefreshTokenRevocationIndex;
+import com.apexev.security.services.UserDetailsImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mockito;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+// Dựng các bean của luồng xác thực ngoài Spring context (không cần MySQL) cho các benchmark
+final class BenchmarkFixtures {
+    static final String JWT_SECRET = "HanhTrinhLenMayCungFCJ123456789012";
+    static final long ACCESS_EXPIRY_MS = 86_400_000L;
+    static final long REFRESH_EXPIRY_MS = 604_800_000L;
+
+    static {
+        quietLogging();
+    }
+
+    private BenchmarkFixtures() {
+    }
+
+    // logback mặc định ở mức DEBUG -> log của filter/JwtUtils/Hibernate sẽ chiếm phần lớn thời gian đo
+    static void quietLogging() {
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+    }
+
+    static JwtUtils jwtUtils(boolean claimsAuthEnabled, long verifiedCacheSize) {
+        JwtUtils jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecretString", JWT_SECRET);
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpiryTime", ACCESS_EXPIRY_MS);
+        ReflectionTestUtils.setField(jwtUtils, "jwtRefreshExpiryTime", REFRESH_EXPIRY_MS);
+        ReflectionTestUtils.setField(jwtUtils, "claimsAuthEnabled", claimsAuthEnabled);
+        ReflectionTestUtils.setField(jwtUtils, "verifiedCacheSize", verifiedCacheSize);
+        ReflectionTestUtils.setField(jwtUtils, "meterRegistry", new SimpleMeterRegistry());
+        jwtUtils.init();
+        return jwtUtils;
+    }
+
+    static RefreshTokenRevocationIndex revocationIndex() {
+        RevokedTokenRepository revokedTokenRepository = Mockito.mock(RevokedTokenRepository.class);
+        UserRepository userRepository = Mockito.mock(UserRepository.class);
+        Mockito.when(revokedTokenRepository.findByExpiresAtAfter(Mockito.any())).thenReturn(List.of());
+        Mockito.when(userRepository.findTokenCutoffsAfter(Mockito.any())).thenReturn(List.of());
+
+        RefreshTokenRevocationIndex index = new RefreshTokenRevocationIndex();
+        ReflectionTestUtils.setField(index, "revokedTokenRepository", revokedTokenRepository);
+        ReflectionTestUtils.setField(index, "userRepository", userRepository);
+        ReflectionTestUtils.setField(index, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(index, "expectedInsertions", 100_000);
+        ReflectionTestUtils.setField(index, "jwtRefreshExpiryTime", REFRESH_EXPIRY_MS);
+        index.init();
+        return index;
+    }
+
+    static User user() {
+        User user = new User();
+        user.setUserId(42);
+        user.setFullName("Nguyễn Văn Benchmark");
+        user.setEmail("benchmark@apexev.com");
+        user.setPhone("0900000042");
+        user.setPasswordHash("$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z0VqOZ2Jmn/yvE6qFLtvXVi6");
+        user.setRole(UserRole.TECHNICIAN);
+        user.setActive(true);
+        return user;
+    }
+
+    static Authentication authentication(User user) {
+        UserDetailsImpl principal = UserDetailsImpl.build(user);
+        return new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+    }
+}
@@ -0,0 +1,98 @@
+package com.apexev.benchmark;
+
+import com.apexev.dto.response.coreBussinessResponse.AppointmentResponse;
+import com.apexev.dto.response.userAndVehicleResponse.VehicleResponse;
+import com.apexev.entity.Appointment;
+import com.apexev.entity.User;
+import com.apexev.entity.Vehicle;
+import com.apexev.enums.AppointmentStatus;
+import com.apexev.enums.UserRole;
+import com.apexev.mapper.AppointmentMapper;
+import com.apexev.mapper.AppointmentMapperImpl;
+import com.apexev.mapper.VehicleMapper;
+import com.apexev.mapper.VehicleMapperImpl;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// ModelMapper (dò property bằng reflection lúc chạy) so với mapper MapStruct sinh lúc compile, trên 1 trang danh sách lịch hẹn
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DtoMappingBenchmark {
+    @Param({"1", "50"})
+    private int pageSize;
+
+    private List<Appointment> appointments;
+    private Vehicle vehicle;
+    private ModelMapper modelMapper;
+    private AppointmentMapper appointmentMapper;
+    private VehicleMapper vehicleMapper;
+
+    @Setup
+    public void setup() {
+        User customer = BenchmarkFixtures.user();
+        customer.setRole(UserRole.CUSTOMER);
+        User advisor = BenchmarkFixtures.user();
+        advisor.setUserId(7);
+        advisor.setRole(UserRole.SERVICE_ADVISOR);
+
+        vehicle = new Vehicle();
+        vehicle.setId(3L);
+        vehicle.setLicensePlate("51K-123.45");
+        vehicle.setVinNumber("VF8BENCHMARK00001");
+        vehicle.setBrand("VinFast");
+        vehicle.setModel("VF 8");
+        vehicle.setYearManufactured(2024);
+        vehicle.setCustomer(customer);
+
+        appointments = new ArrayList<>(pageSize);
+        LocalDateTime start = LocalDateTime.of(2025, 1, 6, 8, 0);
+        for (int i = 0; i < pageSize; i++) {
+            Appointment appointment = new Appointment();
+            appointment.setId((long) i + 1);
+            appointment.setAppointmentTime(start.plusHours(i));
+            appointment.setStatus(AppointmentStatus.CONFIRMED);
+            appointment.setRequestedService("Bảo dưỡng định kỳ");
+            appointment.setNotes("Kiểm tra pin");
+            appointment.setCustomer(customer);
+            appointment.setVehicle(vehicle);
+            appointment.setServiceAdvisor(advisor);
+            appointments.add(appointment);
+        }
+
+        // dùng chung 1 instance như bean cũ -> TypeMap đã được cache sau lần map đầu
+        modelMapper = new ModelMapper();
+        appointmentMapper = new AppointmentMapperImpl();
+        vehicleMapper = new VehicleMapperImpl();
+    }
+
+    @Benchmark
+    public List<AppointmentResponse> appointmentsModelMapper() {
+        return appointments.stream()
+                .map(appointment -> modelMapper.map(appointment, AppointmentResponse.class))
+                .toList();
+    }
+
+    @Benchmark
+    public List<AppointmentResponse> appointmentsMapStruct() {
+        return appointmentMapper.toResponses(appointments);
+    }
+
+    @Benchmark
+    public VehicleResponse vehicleModelMapper() {
+        return modelMapper.map(vehicle, VehicleResponse.class);
+    }
+
+    @Benchmark
+    public VehicleResponse vehicleMapStruct() {
+        return vehicleMapper.toResponse(vehicle);
+    }
+}
@@ -0,0 +1,183 @@
+package com.apexev.benchmark;
+
+import com.apexev.entity.*;
+import com.apexev.enums.OrderItemType;
+import com.apexev.enums.UserRole;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Số dòng INSERT / giây khi ghi hàng loạt item báo giá, phân ca và thông báo,
+ * so sánh id IDENTITY (cũ, ghi đè bằng META-INF/identity-ids-orm.xml) với id_sequences pooled (mới).
+ * <p>
+ * Mặc định chạy trên H2 in-memory nên chỉ thấy phần chi phí của Hibernate/JDBC; trên MySQL thật mỗi
+ * INSERT lẻ còn tốn thêm 1 round-trip mạng. Đo trên MySQL (schema trống, benchmark tự tạo và xóa bảng):
+ * {@code -Djmh.args="IdGeneration -jvmArgs -Dbench.jdbcUrl=jdbc:mysql://...?rewriteBatchedStatements=true -jvmArgs -Dbench.jdbcUser=... -jvmArgs -Dbench.jdbcPassword=..."}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IdGenerationBenchmark {
+    private static final int ROWS = 200;
+
+    @Param({"identity", "pooled"})
+    public String idStrategy;
+
+    private HikariDataSource dataSource;
+    private EntityManagerFactory entityManagerFactory;
+    private EntityManager entityManager;
+
+    private Long orderId;
+    private Integer recipientId;
+    private final List<Integer> staffIds = new ArrayList<>();
+    private int shiftSeq;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        BenchmarkFixtures.quietLogging();
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getProperty("bench.jdbcUrl", "jdbc:h2:mem:idbench;MODE=MySQL;NON_KEYWORDS=USER,VALUE"));
+        dataSource.setUsername(System.getProperty("bench.jdbcUser", "sa"));
+        dataSource.setPassword(System.getProperty("bench.jdbcPassword", ""));
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("hibernate.hbm2ddl.auto", "create-drop");
+        properties.put("hibernate.jdbc.batch_size", 50);
+        properties.put("hibernate.order_inserts", true);
+        properties.put("hibernate.order_updates", true);
+
+        LocalContainerEntityManagerFactoryBean factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setPackagesToScan("com.apexev.entity");
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setJpaPropertyMap(properties);
+        if ("identity".equals(idStrategy)) {
+            factoryBean.setMappingResources("META-INF/identity-ids-orm.xml");
+        }
+        factoryBean.afterPropertiesSet();
+        entityManagerFactory = factoryBean.getObject();
+        entityManager = entityManagerFactory.createEntityManager();
+
+        entityManager.getTransaction().begin();
+        User advisor = user(UserRole.SERVICE_ADVISOR, 0);
+        User customer = user(UserRole.CUSTOMER, 1);
+        Vehicle vehicle = new Vehicle();
+        vehicle.setLicensePlate("51A-00001");
+        vehicle.setModel("VF8");
+        vehicle.setBrand("VinFast");
+        vehicle.setCustomer(customer);
+        entityManager.persist(vehicle);
+        ServiceOrder order = new ServiceOrder();
+        order.setCustomer(customer);
+        order.setVehicle(vehicle);
+        order.setServiceAdvisor(advisor);
+        entityManager.persist(order);
+        for (int i = 0; i < ROWS; i++) {
+            staffIds.add(user(UserRole.TECHNICIAN, 10 + i).getUserId());
+        }
+        entityManager.getTransaction().commit();
+        entityManager.clear();
+        orderId = order.getId();
+        recipientId = customer.getUserId();
+    }
+
+    // Xóa dòng đã ghi sau mỗi iteration để kích thước bảng không ảnh hưởng kết quả
+    @TearDown(Level.Iteration)
+    public void cleanup() {
+        entityManager.getTransaction().begin();
+        entityManager.createQuery("DELETE FROM ServiceOrderItem").executeUpdate();
+        entityManager.createQuery("DELETE FROM ShiftAssignment").executeUpdate();
+        entityManager.createQuery("DELETE FROM Shift").executeUpdate();
+        entityManager.createQuery("DELETE FROM Notification").executeUpdate();
+        entityManager.getTransaction().commit();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        entityManager.close();
+        entityManagerFactory.close();
+        dataSource.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void quotationLines() {
+        entityManager.getTransaction().begin();
+        ServiceOrder order = entityManager.getReference(ServiceOrder.class, orderId);
+        for (int i = 0; i < ROWS; i++) {
+            ServiceOrderItem item = new ServiceOrderItem();
+            item.setServiceOrder(order);
+            item.setItemType(i % 2 == 0 ? OrderItemType.SERVICE : OrderItemType.PART);
+            item.setItemRefId((long) i);
+            item.setQuantity(1 + i % 3);
+            item.setUnitPrice(BigDecimal.valueOf(100));
+            entityManager.persist(item);
+        }
+        commitAndClear();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void shiftAssignments() {
+        entityManager.getTransaction().begin();
+        Shift shift = new Shift();
+        shift.setName("Ca " + (++shiftSeq));
+        shift.setStartTime(LocalDateTime.of(2026, 1, 1, 8, 0));
+        shift.setEndTime(LocalDateTime.of(2026, 1, 1, 17, 0));
+        entityManager.persist(shift);
+        for (Integer staffId : staffIds) {
+            ShiftAssignment assignment = new ShiftAssignment();
+            assignment.setShift(shift);
+            assignment.setStaff(entityManager.getReference(User.class, staffId));
+            entityManager.persist(assignment);
+        }
+        commitAndClear();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void notifications() {
+        entityManager.getTransaction().begin();
+        User recipient = entityManager.getReference(User.class, recipientId);
+        ServiceOrder order = entityManager.getReference(ServiceOrder.class, orderId);
+        for (int i = 0; i < ROWS; i++) {
+            Notification notification = new Notification();
+            notification.setUser(recipient);
+            notification.setRelatedOrder(order);
+            notification.setMessage("Đơn #" + orderId + " đã cập nhật (" + i + ")");
+            entityManager.persist(notification);
+        }
+        commitAndClear();
+    }
+
+    private void commitAndClear() {
+        entityManager.getTransaction().commit();
+        entityManager.clear();
+    }
+
+    private User user(UserRole role, int seq) {
+        User user = new User();
+        user.setFullName("User " + seq);
+        user.setEmail("user" + seq + "@apexev.com");
+        user.setPhone(String.format("09%08d", seq));
+        user.setPasswordHash("hash");
+        user.setRole(role);
+        entityManager.persist(user);
+        return user;
+    }
+}
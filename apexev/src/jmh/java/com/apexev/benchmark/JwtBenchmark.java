@@ -0,0 +1,59 @@
+package com.apexev.benchmark;
+
+import com.apexev.security.jwt.JwtUtils;
+import com.apexev.security.services.UserDetailsImpl;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.Authentication;
+
+import java.util.concurrent.TimeUnit;
+
+// Chi phí phát hành / verify JWT: verify có cache (token lặp lại) và không có cache (token mới)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+    private JwtUtils cachedJwtUtils;
+    private JwtUtils uncachedJwtUtils;
+    private Authentication authentication;
+    private String accessToken;
+    private Claims claims;
+
+    @Setup
+    public void setup() {
+        cachedJwtUtils = BenchmarkFixtures.jwtUtils(true, 10_000);
+        // maximumSize = 0 -> mọi lần verify đều phải tính HMAC + parse
+        uncachedJwtUtils = BenchmarkFixtures.jwtUtils(true, 0);
+        authentication = BenchmarkFixtures.authentication(BenchmarkFixtures.user());
+        accessToken = cachedJwtUtils.generateJwtToken(authentication);
+        claims = cachedJwtUtils.verifyJwtToken(accessToken);
+    }
+
+    @Benchmark
+    public String generateAccessToken() {
+        return cachedJwtUtils.generateJwtToken(authentication);
+    }
+
+    @Benchmark
+    public String generateRefreshToken() {
+        return cachedJwtUtils.generateRefreshToken(authentication);
+    }
+
+    @Benchmark
+    public Claims verifyCached() {
+        return cachedJwtUtils.verifyJwtToken(accessToken);
+    }
+
+    @Benchmark
+    public Claims verifyUncached() {
+        return uncachedJwtUtils.verifyJwtToken(accessToken);
+    }
+
+    @Benchmark
+    public UserDetailsImpl principalFromClaims() {
+        return cachedJwtUtils.getUserDetailsFromClaims(claims);
+    }
+}
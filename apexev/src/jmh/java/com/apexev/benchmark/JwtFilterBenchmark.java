@@ -0,0 +1,103 @@
+package com.apexev.benchmark;
+
+import com.apexev.config.JwtAuthenticationFilter;
+import com.apexev.entity.User;
+import com.apexev.security.jwt.JwtUtils;
+import com.apexev.security.services.UserDetailsImpl;
+import com.apexev.security.services.UserDetailsServiceImpl;
+import jakarta.servlet.FilterChain;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chi phí JwtAuthenticationFilter cho 1 request:
+ * <ul>
+ *     <li>protectedRoute: verify token + dựng principal (từ claim hoặc từ UserDetailsService mock)</li>
+ *     <li>protectedRouteVaryingIds: như trên nhưng mỗi request 1 id khác trong path (/service-orders/{id}/track)</li>
+ *     <li>publicRoute: route public, bỏ qua qua shouldNotFilter (match PathPattern đã compile sẵn)</li>
+ *     <li>legacyPublicRouteCheck: cách cũ (AntPathMatcher tạo mới mỗi request) để so sánh</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtFilterBenchmark {
+    private static final String[] LEGACY_PERMIT_ALL_PATHS = {
+            "/api/auth/**",
+            "/swagger-ui/**",
+            "/v3/api-docs/**",
+            "/error"
+    };
+
+    // claims: principal dựng từ claim trong token, database: principal lấy từ UserDetailsService (mock)
+    @Param({"claims", "database"})
+    public String principalSource;
+
+    private JwtAuthenticationFilter filter;
+    private MockHttpServletRequest protectedRequest;
+    private MockHttpServletRequest[] protectedRequestsById;
+    private int next;
+    private MockHttpServletRequest publicRequest;
+    private MockHttpServletResponse response;
+    // cuối request thì xóa SecurityContext, như SecurityContextHolderFilter làm trong chain thật
+    private final FilterChain chain = (request, response) -> SecurityContextHolder.clearContext();
+
+    @Setup
+    public void setup() {
+        JwtUtils jwtUtils = BenchmarkFixtures.jwtUtils("claims".equals(principalSource), 10_000);
+        User user = BenchmarkFixtures.user();
+        UserDetailsServiceImpl userDetailsService = Mockito.mock(UserDetailsServiceImpl.class);
+        Mockito.when(userDetailsService.loadUserByUsername(Mockito.anyString())).thenReturn(UserDetailsImpl.build(user));
+
+        filter = new JwtAuthenticationFilter();
+        ReflectionTestUtils.setField(filter, "jwtUtils", jwtUtils);
+        ReflectionTestUtils.setField(filter, "userDetailsService", userDetailsService);
+        ReflectionTestUtils.setField(filter, "revocationIndex", BenchmarkFixtures.revocationIndex());
+
+        String token = jwtUtils.generateJwtToken(BenchmarkFixtures.authentication(user));
+        protectedRequest = new MockHttpServletRequest("GET", "/api/service-orders/my-orders");
+        protectedRequest.addHeader("Authorization", "Bearer " + token);
+        protectedRequestsById = new MockHttpServletRequest[4096];
+        for (int i = 0; i < protectedRequestsById.length; i++) {
+            protectedRequestsById[i] = new MockHttpServletRequest("GET", "/api/service-advisor/service-orders/" + (100_000 + i) + "/track");
+            protectedRequestsById[i].addHeader("Authorization", "Bearer " + token);
+        }
+        publicRequest = new MockHttpServletRequest("POST", "/api/auth/login");
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public void protectedRoute() throws Exception {
+        filter.doFilter(protectedRequest, response, chain);
+    }
+
+    @Benchmark
+    public void protectedRouteVaryingIds() throws Exception {
+        next = (next + 1) & (protectedRequestsById.length - 1);
+        filter.doFilter(protectedRequestsById[next], response, chain);
+    }
+
+    @Benchmark
+    public void publicRoute() throws Exception {
+        filter.doFilter(publicRequest, response, chain);
+    }
+
+    @Benchmark
+    public boolean legacyPublicRouteCheck() {
+        AntPathMatcher pathMatcher = new AntPathMatcher();
+        String path = publicRequest.getRequestURI();
+        return Arrays.stream(LEGACY_PERMIT_ALL_PATHS)
+                .anyMatch(p -> pathMatcher.match(p, path));
+    }
+}
@@ -0,0 +1,34 @@
+package com.apexev.benchmark;
+
+import com.apexev.entity.User;
+import com.apexev.enums.UserRole;
+import com.apexev.security.services.UserDetailsImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserDetailsBenchmark {
+    private User user;
+
+    @Setup
+    public void setup() {
+        user = BenchmarkFixtures.user();
+    }
+
+    @Benchmark
+    public UserDetailsImpl buildFromEntity() {
+        return UserDetailsImpl.build(user);
+    }
+
+    @Benchmark
+    public UserDetailsImpl buildFromClaims() {
+        return UserDetailsImpl.build(42, "0900000042", "benchmark@apexev.com", "Nguyễn Văn Benchmark",
+                UserRole.TECHNICIAN, true);
+    }
+}
@@ -0,0 +1,70 @@
+package com.apexev.config;
+
+import com.apexev.entity.IdGenerators;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Các bảng chuyển từ IDENTITY sang id_sequences đã có sẵn dữ liệu (id do auto_increment sinh).
+ * Trước khi app nhận request, đẩy next_val của từng bảng lên trên MAX(id) hiện có
+ * để khối id đầu tiên Hibernate cấp không trùng với dòng cũ.
+ */
+@Component
+public class IdSequenceInitializer implements SmartInitializingSingleton {
+    private static final Logger logger = LoggerFactory.getLogger(IdSequenceInitializer.class);
+
+    // bảng (= pkColumnValue của @TableGenerator) -> cột id
+    private static final Map<String, String> TABLES = Map.of(
+            "service_order_items", "item_id",
+            "review_kpis", "review_kpi_id",
+            "shift_assignments", "assignment_id",
+            "notifications", "notification_id",
+            "chat_messages", "message_id",
+            "service_checklist_results", "result_id",
+            "mail_outbox", "mail_id",
+            "service_order_events", "event_id"
+    );
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        TABLES.forEach(this::seed);
+    }
+
+    private void seed(String table, String idColumn) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(" + idColumn + "), 0) FROM " + table, Long.class);
+        if (maxId == null || maxId == 0) {
+            return; // bảng trống -> để Hibernate tự tạo dòng sequence
+        }
+        // pooled optimizer cấp khối id ngay dưới next_val (rộng allocationSize) -> next_val phải >= MAX(id) + allocationSize
+        long nextVal = maxId + IdGenerators.ALLOCATION_SIZE;
+        String update = "UPDATE " + IdGenerators.TABLE + " SET " + IdGenerators.VALUE_COLUMN + " = ? WHERE "
+                + IdGenerators.PK_COLUMN + " = ? AND " + IdGenerators.VALUE_COLUMN + " < ?";
+        if (jdbcTemplate.update(update, nextVal, table, nextVal) > 0 || sequenceExists(table)) {
+            return;
+        }
+        try {
+            jdbcTemplate.update("INSERT INTO " + IdGenerators.TABLE + " (" + IdGenerators.PK_COLUMN + ", "
+                    + IdGenerators.VALUE_COLUMN + ") VALUES (?, ?)", table, nextVal);
+            logger.info("Seeded id sequence {} at {}", table, nextVal);
+        } catch (DuplicateKeyException e) {
+            // instance khác vừa tạo dòng này -> chỉ cần nâng giá trị nếu còn thấp
+            jdbcTemplate.update(update, nextVal, table, nextVal);
+        }
+    }
+
+    private boolean sequenceExists(String table) {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + IdGenerators.TABLE + " WHERE "
+                + IdGenerators.PK_COLUMN + " = ?", Integer.class, table);
+        return count != null && count > 0;
+    }
+}
@@ -1,7 +1,10 @@
 package com.apexev.config;
 
 import com.apexev.security.jwt.JwtUtils;
+import com.apexev.security.jwt.RefreshTokenRevocationIndex;
+import com.apexev.security.services.UserDetailsImpl;
 import com.apexev.security.services.UserDetailsServiceImpl;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -9,15 +12,18 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.PathContainer;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
-import org.springframework.util.AntPathMatcher;
 import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
 
 import java.io.IOException;
-import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
@@ -28,25 +34,45 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     @Autowired
     private UserDetailsServiceImpl userDetailsService;
-//
-//    @Override
-//    protected boolean shouldNotFilter(HttpServletRequest request) throws ServletException {
-//        // Danh sách các đường dẫn muốn bộ lọc này BỎ QUA
-//        String[] permitAllPaths = {
-//                "/api/auth/**",
-//                "/swagger-ui/**", // Swagger UI
-//                "/v3/api-docs/**", // Swagger JSON
-//                "/error"
-//        };
-//
-//        AntPathMatcher pathMatcher = new AntPathMatcher();
-//        String path = request.getRequestURI();
-//
-//        // Nếu request path khớp với bất kỳ đường dẫn nào trong danh sách
-//        // -> trả về true (nghĩa là "không filter")
-//        return Arrays.stream(permitAllPaths)
-//                .anyMatch(p -> pathMatcher.match(p, path));
-//    }
+
+    @Autowired
+    private RefreshTokenRevocationIndex revocationIndex;
+
+    // Các route public không cần xác thực -> bỏ qua toàn bộ phần xử lý token.
+    // Không đưa /api/auth/** vào vì /register-staff, /check-auth, /logout-all cần principal,
+    // /api/chat/chatbox cũng vậy (có đăng nhập thì lưu lịch sử chat theo user).
+    private static final List<PathPattern> PUBLIC_PATHS = Stream.of(
+                    "/api/auth/login",
+                    "/api/auth/register",
+                    "/api/auth/refresh",
+                    "/api/auth/logout",
+                    "/api/appointments/calendar/*.ics", // feed token trong URL thay cho JWT
+                    "/swagger-ui/**", // Swagger UI
+                    "/v3/api-docs/**", // Swagger JSON
+                    "/error"
+            )
+            .map(PathPatternParser.defaultInstance::parse)
+            .toList();
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) throws ServletException {
+        if (HttpMethod.OPTIONS.matches(request.getMethod())) {
+            return true; // CORS preflight không mang token
+        }
+        // match thẳng vài pattern đã compile sẵn: không cache theo URI vì route có id (/orders/{id}) làm cache phình / trượt liên tục
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return isPublicPath(path);
+    }
+
+    private static boolean isPublicPath(String path) {
+        PathContainer pathContainer = PathContainer.parsePath(path);
+        for (PathPattern pattern : PUBLIC_PATHS) {
+            if (pattern.matches(pathContainer)) {
+                return true;
+            }
+        }
+        return false;
+    }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
@@ -55,26 +81,43 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             throws ServletException, IOException {
         String authHeader = request.getHeader("Authorization");
         String token = null;
-        String username = null;
 
         logger.debug("Processing request to: {}", request.getRequestURI());
 
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             token = authHeader.substring(7);
-            username = jwtUtils.getUsernameFromJwtToken(token);
-            logger.debug("Token found for user: {}", username);
         } else {
             logger.debug("No valid Authorization header found");
         }
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-            if (jwtUtils.validateJwtToken(token)) {
-                UsernamePasswordAuthenticationToken authentication =
-                        new UsernamePasswordAuthenticationToken(
-                                userDetails, null, userDetails.getAuthorities());
-                SecurityContextHolder.getContext().setAuthentication(authentication);
-                logger.debug("User authenticated successfully with roles: {}", userDetails.getAuthorities());
+        if (token != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            // Verify 1 lần duy nhất (có cache) -> dùng lại claims cho toàn bộ request
+            Claims claims = jwtUtils.verifyJwtToken(token);
+            if (claims != null && jwtUtils.isRefreshToken(claims)) {
+                logger.debug("Refresh token cannot be used as access token");
+            } else if (claims != null) {
+                UserDetailsImpl userDetails = null;
+                // Dựng principal trực tiếp từ claim đã ký -> bỏ 1 lần query DB cho mỗi request
+                if (jwtUtils.isClaimsAuthEnabled()) {
+                    userDetails = jwtUtils.getUserDetailsFromClaims(claims);
+                }
+                if (userDetails == null) {
+                    userDetails = (UserDetailsImpl) userDetailsService.loadUserByUsername(claims.getSubject());
+                }
+                logger.debug("Token found for user: {}", userDetails.getUsername());
+
+                // Đăng xuất mọi nơi / bị khóa sau khi token được phát hành -> tra mốc trong RAM, không query DB
+                if (revocationIndex.isCutOff(userDetails.getId(), claims.getIssuedAt())) {
+                    logger.debug("Token was issued before the user's sessions were revoked");
+                } else if (userDetails.isEnabled()) {
+                    UsernamePasswordAuthenticationToken authentication =
+                            new UsernamePasswordAuthenticationToken(
+                                    userDetails, null, userDetails.getAuthorities());
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                    logger.debug("User authenticated successfully with roles: {}", userDetails.getAuthorities());
+                } else {
+                    logger.debug("User account is disabled");
+                }
             } else {
                 logger.debug("Token validation failed");
             }
@@ -1,8 +1,12 @@
 package com.apexev.config;
 
 
+import com.apexev.security.crypto.BoundedPasswordEncoder;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
@@ -10,13 +14,12 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import jakarta.servlet.DispatcherType;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
-import org.modelmapper.ModelMapper;
 import java.util.Arrays;
 
 @Configuration
@@ -25,8 +28,29 @@ import java.util.Arrays;
 public class SecurityConfig {
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BoundedPasswordEncoder passwordEncoder(
+            MeterRegistry meterRegistry,
+            @Value("${com.apexev.bcryptStrength:10}") int strength,
+            @Value("${com.apexev.passwordHashing.threads:4}") int threads,
+            @Value("${com.apexev.passwordHashing.queueCapacity:64}") int queueCapacity,
+            @Value("${com.apexev.passwordHashing.waitTimeoutMs:10000}") long waitTimeoutMs,
+            @Value("${com.apexev.passwordHashing.retryAfterSeconds:2}") int retryAfterSeconds
+    ) {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(strength) {
+            // Hash có cost khác cost đang cấu hình (tăng hoặc giảm) -> hash lại khi user login thành công
+            @Override
+            public boolean upgradeEncoding(String encodedPassword) {
+                if (encodedPassword == null || encodedPassword.length() < 7 || encodedPassword.charAt(0) != '$') {
+                    return false;
+                }
+                try {
+                    return Integer.parseInt(encodedPassword.substring(4, 6)) != strength;
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        };
+        return new BoundedPasswordEncoder(bcrypt, threads, queueCapacity, waitTimeoutMs, retryAfterSeconds, meterRegistry);
     }
 
     @Bean
@@ -44,7 +68,11 @@ public class SecurityConfig {
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        // dispatch ASYNC của SSE đã được xác thực ở request gốc, lúc này không còn token trong context
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/api/auth/**","/api/chat/**", "/swagger-ui/**", "/v3/api-docs/**", "/error").permitAll()
+                        // lịch .ics đăng ký bằng feed token trong URL (ứng dụng lịch không gửi Bearer token)
+                        .requestMatchers(HttpMethod.GET, "/api/appointments/calendar/*.ics").permitAll()
                         .anyRequest().authenticated()
                 )
                 .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
@@ -64,8 +92,4 @@ public class SecurityConfig {
         source.registerCorsConfiguration("/**", configuration);
         return source;
     }
-    @Bean
-    public ModelMapper modelMapper() { // để spring boot biết khi gọi modelMapper ở service dưới dạng yêu cầu private final -> nếu ko có -> lỗi ko dùng được mapper
-        return new ModelMapper();
-    }
 }
@@ -3,23 +3,38 @@ package com.apexev.controller.coreBussinessController;
 import com.apexev.dto.request.coreBussinessRequest.AppointmentRequest;
 import com.apexev.dto.request.coreBussinessRequest.RescheduleAppointmentRequest;
 import com.apexev.dto.response.coreBussinessResponse.AppointmentResponse;
+import com.apexev.dto.response.coreBussinessResponse.AvailabilityResponse;
 import com.apexev.entity.User;
+import com.apexev.security.services.UserDetailsImpl;
+import com.apexev.service.service_Interface.AppointmentCalendarService;
 import com.apexev.service.service_Interface.AppointmentService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/appointments")
 @RequiredArgsConstructor
 public class AppointmentController {
     private final AppointmentService appointmentService;
+    private final AppointmentCalendarService appointmentCalendarService;
     // Đặt lịch
     @PostMapping ("/create")
     public ResponseEntity<AppointmentResponse> createAppointment (
@@ -51,6 +66,28 @@ public class AppointmentController {
         return ResponseEntity.ok(cancelledAppointment);
     }
 
+    // các giờ còn trống gần nhất (theo ca KTV và số khoang) để khách chọn trước khi đặt
+    @GetMapping("/free-slots")
+    public ResponseEntity<List<LocalDateTime>> getFreeSlots (
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(value = "limit", defaultValue = "10") int limit
+    ) {
+        List<LocalDateTime> freeSlots = appointmentService.getFreeSlots(
+                from != null ? from : LocalDateTime.now(), Math.max(1, Math.min(limit, 50)));
+        return ResponseEntity.ok(freeSlots);
+    }
+
+    // giờ trống theo ngày trong [from, to] (mặc định 7 ngày từ hôm nay)
+    @GetMapping("/availability")
+    public ResponseEntity<AvailabilityResponse> getAvailability (
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        LocalDate start = from != null ? from : LocalDate.now();
+        AvailabilityResponse availability = appointmentService.getAvailability(start, to != null ? to : start.plusDays(6));
+        return ResponseEntity.ok(availability);
+    }
+
     //confirm lịch hẹn bởi cố vấn
     @PatchMapping("/{id}/confirm")
     @PreAuthorize("hasRole('SERVICE_ADVISOR')")
@@ -111,4 +148,73 @@ public class AppointmentController {
         return ResponseEntity.ok(myAppoinment);
     }
 
+    // lịch .ics để thêm vào Google Calendar / Outlook, ứng dụng lịch gửi lại ETag / Last-Modified -> thường nhận 304
+    @GetMapping("/my-appointment-advisor.ics")
+    @PreAuthorize("hasRole('SERVICE_ADVISOR')")
+    public void getMyAdvisorCalendar (
+            @AuthenticationPrincipal UserDetailsImpl userDetails,
+            ServletWebRequest webRequest,
+            HttpServletResponse response
+    ) throws IOException {
+        writeCalendar(AppointmentCalendarService.Owner.ADVISOR, userDetails.getId(), webRequest, response);
+    }
+
+    @GetMapping("/my-appointment-customer.ics")
+    @PreAuthorize("hasRole('CUSTOMER')")
+    public void getMyCustomerCalendar (
+            @AuthenticationPrincipal UserDetailsImpl userDetails,
+            ServletWebRequest webRequest,
+            HttpServletResponse response
+    ) throws IOException {
+        writeCalendar(AppointmentCalendarService.Owner.CUSTOMER, userDetails.getId(), webRequest, response);
+    }
+
+    // URL đăng ký lịch cho Google Calendar / Outlook / Apple: cấp mới thì URL cũ hết hiệu lực, chỉ trả về 1 lần
+    @PostMapping("/calendar-feed")
+    @PreAuthorize("hasAnyRole('SERVICE_ADVISOR', 'CUSTOMER')")
+    public ResponseEntity<Map<String, String>> issueCalendarFeed (
+            @AuthenticationPrincipal UserDetailsImpl userDetails
+    ) {
+        String feedToken = appointmentCalendarService.issueFeedToken(userDetails.getId());
+        String feedUrl = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/appointments/calendar/{feedToken}.ics")
+                .buildAndExpand(feedToken)
+                .toUriString();
+        return ResponseEntity.ok(Map.of("feedUrl", feedUrl));
+    }
+
+    @DeleteMapping("/calendar-feed")
+    @PreAuthorize("hasAnyRole('SERVICE_ADVISOR', 'CUSTOMER')")
+    public ResponseEntity<Void> revokeCalendarFeed (
+            @AuthenticationPrincipal UserDetailsImpl userDetails
+    ) {
+        appointmentCalendarService.revokeFeedToken(userDetails.getId());
+        return ResponseEntity.noContent().build();
+    }
+
+    // ứng dụng lịch gọi không kèm Authorization: token trong URL xác định lịch của ai (public trong SecurityConfig)
+    @GetMapping("/calendar/{feedToken}.ics")
+    public void getSubscribedCalendar (
+            @PathVariable("feedToken") String feedToken,
+            ServletWebRequest webRequest,
+            HttpServletResponse response
+    ) throws IOException {
+        AppointmentCalendarService.FeedOwner feedOwner = appointmentCalendarService.resolveFeedToken(feedToken)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Calendar feed not found"));
+        writeCalendar(feedOwner.owner(), feedOwner.userId(), webRequest, response);
+    }
+
+    private void writeCalendar(AppointmentCalendarService.Owner owner, Integer userId,
+                               ServletWebRequest webRequest, HttpServletResponse response) throws IOException {
+        AppointmentCalendarService.Version version = appointmentCalendarService.getVersion(owner, userId);
+        // khớp If-None-Match / If-Modified-Since -> Spring đặt 304, không đọc dòng nào
+        if (webRequest.checkNotModified(version.etag(), version.lastModified())) {
+            return;
+        }
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+        response.setContentType("text/calendar;charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"apexev-appointments.ics\"");
+        appointmentCalendarService.writeCalendar(owner, userId, response.getWriter());
+    }
+
 }
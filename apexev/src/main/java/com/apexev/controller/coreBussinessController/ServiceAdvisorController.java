@@ -2,11 +2,15 @@ package com.apexev.controller.coreBussinessController;
 
 import com.apexev.dto.request.*;
 import com.apexev.dto.response.AppointmentResponse;
+import com.apexev.dto.response.BulkServiceOrderResponse;
+import com.apexev.dto.response.CursorPageResponse;
 import com.apexev.dto.response.QuotationResponse;
+import com.apexev.dto.response.ServiceOrderEventResponse;
 import com.apexev.dto.response.ServiceOrderResponse;
 import com.apexev.enums.AppointmentStatus;
 import com.apexev.enums.OrderStatus;
 import com.apexev.security.services.UserDetailsImpl;
+import com.apexev.service.serviceImpl.ServiceOrderProgressStream;
 import com.apexev.service.service_Interface.ServiceAdvisorService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -14,11 +18,13 @@ import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -34,6 +40,9 @@ public class ServiceAdvisorController {
     @Autowired
     private ServiceAdvisorService serviceAdvisorService;
 
+    @Autowired
+    private ServiceOrderProgressStream serviceOrderProgressStream;
+
 
 
     @GetMapping("/appointments/my-appointments")
@@ -48,18 +57,23 @@ public class ServiceAdvisorController {
     @GetMapping("/appointments/status/{status}")
     @PreAuthorize("hasAnyRole('SERVICE_ADVISOR', 'ADMIN', 'BUSINESS_MANAGER')")
     @Operation(summary = "Lấy danh sách lịch hẹn theo trạng thái")
-    public ResponseEntity<List<AppointmentResponse>> getAppointmentsByStatus(@PathVariable AppointmentStatus status) {
-        List<AppointmentResponse> appointments = serviceAdvisorService.getAppointmentsByStatus(status);
+    public ResponseEntity<CursorPageResponse<AppointmentResponse>> getAppointmentsByStatus(
+            @PathVariable AppointmentStatus status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        CursorPageResponse<AppointmentResponse> appointments = serviceAdvisorService.getAppointmentsByStatus(status, cursor, size);
         return ResponseEntity.ok(appointments);
     }
 
     @GetMapping("/appointments/date-range")
     @PreAuthorize("hasAnyRole('SERVICE_ADVISOR', 'ADMIN', 'BUSINESS_MANAGER')")
     @Operation(summary = "Lấy danh sách lịch hẹn trong khoảng thời gian")
-    public ResponseEntity<List<AppointmentResponse>> getAppointmentsByDateRange(
+    public ResponseEntity<CursorPageResponse<AppointmentResponse>> getAppointmentsByDateRange(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
-        List<AppointmentResponse> appointments = serviceAdvisorService.getAppointmentsByDateRange(start, end);
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        CursorPageResponse<AppointmentResponse> appointments = serviceAdvisorService.getAppointmentsByDateRange(start, end, cursor, size);
         return ResponseEntity.ok(appointments);
     }
 
@@ -134,17 +148,23 @@ public class ServiceAdvisorController {
     @GetMapping("/service-orders/my-orders")
     @PreAuthorize("hasRole('SERVICE_ADVISOR')")
     @Operation(summary = "Lấy danh sách đơn dịch vụ được phân công cho cố vấn")
-    public ResponseEntity<List<ServiceOrderResponse>> getMyServiceOrders(Authentication authentication) {
+    public ResponseEntity<CursorPageResponse<ServiceOrderResponse>> getMyServiceOrders(
+            Authentication authentication,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
         UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
-        List<ServiceOrderResponse> orders = serviceAdvisorService.getServiceOrdersByAdvisor(userDetails.getId().longValue());
+        CursorPageResponse<ServiceOrderResponse> orders = serviceAdvisorService.getServiceOrdersByAdvisor(userDetails.getId().longValue(), cursor, size);
         return ResponseEntity.ok(orders);
     }
 
     @GetMapping("/service-orders/status/{status}")
     @PreAuthorize("hasAnyRole('SERVICE_ADVISOR', 'ADMIN', 'BUSINESS_MANAGER')")
     @Operation(summary = "Lấy danh sách đơn dịch vụ theo trạng thái")
-    public ResponseEntity<List<ServiceOrderResponse>> getServiceOrdersByStatus(@PathVariable OrderStatus status) {
-        List<ServiceOrderResponse> orders = serviceAdvisorService.getServiceOrdersByStatus(status);
+    public ResponseEntity<CursorPageResponse<ServiceOrderResponse>> getServiceOrdersByStatus(
+            @PathVariable OrderStatus status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        CursorPageResponse<ServiceOrderResponse> orders = serviceAdvisorService.getServiceOrdersByStatus(status, cursor, size);
         return ResponseEntity.ok(orders);
     }
 
@@ -206,17 +226,29 @@ public class ServiceAdvisorController {
 
     @PostMapping("/service-orders/{orderId}/status")
     @PreAuthorize("hasRole('SERVICE_ADVISOR')")
-    @Operation(summary = "Cập nhật trạng thái đơn dịch vụ")
+    @Operation(summary = "Cập nhật trạng thái đơn dịch vụ (theo bảng chuyển trạng thái; gửi kèm version để phát hiện sửa chồng)")
     public ResponseEntity<ServiceOrderResponse> updateServiceOrderStatus(
             @PathVariable Long orderId,
             @RequestBody Map<String, String> request,
             Authentication authentication) {
         UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
         OrderStatus status = OrderStatus.valueOf(request.get("status"));
-        ServiceOrderResponse order = serviceAdvisorService.updateServiceOrderStatus(orderId, status, userDetails.getId().longValue());
+        Long version = request.get("version") != null ? Long.valueOf(request.get("version")) : null;
+        ServiceOrderResponse order = serviceAdvisorService.updateServiceOrderStatus(orderId, status, userDetails.getId().longValue(), version);
         return ResponseEntity.ok(order);
     }
 
+    @PostMapping("/service-orders/bulk")
+    @PreAuthorize("hasRole('SERVICE_ADVISOR')")
+    @Operation(summary = "Cập nhật trạng thái / phân công KTV cho nhiều đơn trong 1 lần gọi (tối đa 500 thao tác)")
+    public ResponseEntity<BulkServiceOrderResponse> applyBulkOperations(
+            @Valid @RequestBody BulkServiceOrderRequest request,
+            Authentication authentication) {
+        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
+        BulkServiceOrderResponse result = serviceAdvisorService.applyBulkOperations(request, userDetails.getId().longValue());
+        return ResponseEntity.ok(result);
+    }
+
     @PostMapping("/service-orders/{orderId}/assign-technician")
     @PreAuthorize("hasRole('SERVICE_ADVISOR')")
     @Operation(summary = "Phân công kỹ thuật viên cho đơn dịch vụ")
@@ -238,11 +270,21 @@ public class ServiceAdvisorController {
         return ResponseEntity.ok(order);
     }
 
+    @GetMapping(value = "/service-orders/{orderId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAnyRole('SERVICE_ADVISOR', 'CUSTOMER', 'ADMIN')")
+    @Operation(summary = "Theo dõi tiến độ dịch vụ theo thời gian thực (SSE): snapshot rồi progress mỗi khi trạng thái, kỹ thuật viên, báo giá thay đổi")
+    public SseEmitter streamServiceProgress(@PathVariable Long orderId) {
+        return serviceOrderProgressStream.subscribe(orderId);
+    }
+
     @GetMapping("/service-orders/{orderId}/history")
     @PreAuthorize("hasAnyRole('SERVICE_ADVISOR', 'ADMIN', 'BUSINESS_MANAGER')")
     @Operation(summary = "Xem lịch sử thay đổi đơn dịch vụ")
-    public ResponseEntity<List<String>> getServiceOrderHistory(@PathVariable Long orderId) {
-        List<String> history = serviceAdvisorService.getServiceOrderHistory(orderId);
+    public ResponseEntity<CursorPageResponse<ServiceOrderEventResponse>> getServiceOrderHistory(
+            @PathVariable Long orderId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        CursorPageResponse<ServiceOrderEventResponse> history = serviceAdvisorService.getServiceOrderHistory(orderId, cursor, size);
         return ResponseEntity.ok(history);
     }
 
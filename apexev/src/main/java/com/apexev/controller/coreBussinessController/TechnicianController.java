@@ -0,0 +1,44 @@
+package com.apexev.controller.coreBussinessController;
+
+import com.apexev.dto.response.TechnicianQueueResponse;
+import com.apexev.security.services.UserDetailsImpl;
+import com.apexev.service.service_Interface.TechnicianQueueService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/technician")
+@RequiredArgsConstructor
+@Tag(name = "Technician", description = "Hàng đợi công việc của kỹ thuật viên")
+public class TechnicianController {
+
+    private final TechnicianQueueService technicianQueueService;
+
+    @GetMapping("/queue")
+    @PreAuthorize("hasRole('TECHNICIAN')")
+    @Operation(summary = "Hàng đợi công việc của tôi", description = "Gửi If-None-Match với ETag lần trước -> 304 nếu không đổi")
+    public ResponseEntity<TechnicianQueueResponse> getMyQueue(@AuthenticationPrincipal UserDetailsImpl userDetails) {
+        return toResponse(technicianQueueService.getQueue(userDetails.getId().longValue()));
+    }
+
+    @GetMapping("/{technicianId}/queue")
+    @PreAuthorize("hasAnyRole('SERVICE_ADVISOR', 'ADMIN')")
+    @Operation(summary = "Hàng đợi công việc của 1 kỹ thuật viên")
+    public ResponseEntity<TechnicianQueueResponse> getQueue(@PathVariable Long technicianId) {
+        return toResponse(technicianQueueService.getQueue(technicianId));
+    }
+
+    // ETag khớp If-None-Match -> Spring trả 304, không serialize body
+    private static ResponseEntity<TechnicianQueueResponse> toResponse(TechnicianQueueService.Queue queue) {
+        return ResponseEntity.ok()
+                .eTag(queue.etag())
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(queue.response());
+    }
+}
@@ -1,18 +1,22 @@
 package com.apexev.controller.userAndVehicleController;
 
 
-import com.apexev.dto.request.RegisterStaffRequest;
+import com.apexev.dto.request.BulkRegisterStaffRequest;
 
 import com.apexev.dto.request.userAndVehicleRequest.LoginRequest;
 import com.apexev.dto.request.userAndVehicleRequest.RefreshRequest;
 import com.apexev.dto.request.userAndVehicleRequest.RegisterRequest;
+import com.apexev.dto.response.coreBussinessResponse.BulkImportResponse;
 import com.apexev.dto.response.userAndVehicleResponse.LoginSuccessResponse;
 import com.apexev.enums.UserRole;
 import com.apexev.security.jwt.JwtUtils;
+import com.apexev.security.jwt.RefreshTokenRevocationIndex;
 import com.apexev.security.services.UserDetailsImpl;
 import com.apexev.security.services.UserDetailsServiceImpl;
 
+import com.apexev.service.service_Interface.EmployeeService;
 import com.apexev.service.service_Interface.UserService;
+import io.jsonwebtoken.Claims;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -23,6 +27,7 @@ import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
@@ -40,6 +45,9 @@ public class AuthController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private EmployeeService employeeService;
+
     @Autowired
     private AuthenticationManager authenticationManager;
 
@@ -48,22 +56,13 @@ public class AuthController {
     @Autowired
     private UserDetailsServiceImpl userDetailsServiceImpl;
 
+    @Autowired
+    private RefreshTokenRevocationIndex revocationIndex;
+
     @PostMapping("/register-staff")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<?> registerStaff(@RequestBody @Valid RegisterStaffRequest request) {
-        int number = request.getNumbers();
-        while(number>0){
-            UserRole role = UserRole.valueOf(request.getRole());
-            userService.registerUser(
-                    request.getFullName(),
-                    String.valueOf(number)+ request.getEmail(),
-                    request.getPhone(),
-                    request.getPassword(),
-                    role
-            );
-        }
-
-        return ResponseEntity.ok(Map.of("message", "Đăng ký thành công!"));
+    public ResponseEntity<BulkImportResponse> registerStaff(@RequestBody @Valid BulkRegisterStaffRequest request) {
+        return ResponseEntity.ok(employeeService.registerStaffBatch(request.getStaff()));
     }
     @GetMapping("/check-auth")
     public String checkAuth() {
@@ -118,20 +117,55 @@ public class AuthController {
 
     @PostMapping("/refresh")
     public ResponseEntity<?> refreshAccessToken(@RequestBody RefreshRequest req) {
-        String refreshToken = req.getRefreshToken();
-        if (jwtUtils.validateJwtToken(refreshToken)) {
-            Integer userId = jwtUtils.getUserIdFromJwtToken(refreshToken);
-            // Lấy UserDetails từ username
-            UserDetailsImpl userDetails = (UserDetailsImpl) userDetailsServiceImpl.loadUserById(userId);
-
-            Authentication authentication = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-            String newAccessToken = jwtUtils.generateJwtToken(authentication);
-
-            return ResponseEntity.ok(Map.of("accessToken", newAccessToken, "type", "Bearer"));
-        } else {
+        Claims claims = jwtUtils.verifyJwtToken(req.getRefreshToken());
+        if (claims == null || !jwtUtils.isRefreshToken(claims) || claims.getId() == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(Map.of("error", "Invalid refresh token"));
         }
+        Integer userId = Integer.valueOf(claims.getSubject());
+        // Kiểm tra thu hồi hoàn toàn trong RAM, không query DB
+        if (revocationIndex.isRevoked(claims.getId()) || revocationIndex.isCutOff(userId, claims.getIssuedAt())) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "Refresh token has been revoked"));
+        }
+        // principal lấy từ cache của UserDetailsServiceImpl, bị evict ngay khi user đổi trạng thái
+        UserDetailsImpl userDetails = (UserDetailsImpl) userDetailsServiceImpl.loadUserById(userId);
+        if (!userDetails.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "Tài khoản đã bị khóa"));
+        }
+        // Rotation: mỗi refresh token chỉ dùng được 1 lần, 2 request cùng dùng 1 token thì chỉ 1 request thắng
+        if (!revocationIndex.revoke(claims.getId(), userId, claims.getExpiration())) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "Refresh token has been revoked"));
+        }
+
+        Authentication authentication = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+        String newAccessToken = jwtUtils.generateJwtToken(authentication);
+        String newRefreshToken = jwtUtils.generateRefreshToken(authentication);
+
+        return ResponseEntity.ok(Map.of(
+                "accessToken", newAccessToken,
+                "refreshToken", newRefreshToken,
+                "type", "Bearer"
+        ));
+    }
+
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestBody RefreshRequest req) {
+        Claims claims = jwtUtils.verifyJwtToken(req.getRefreshToken());
+        // token không hợp lệ / đã thu hồi thì coi như đã đăng xuất
+        if (claims != null && jwtUtils.isRefreshToken(claims) && claims.getId() != null) {
+            revocationIndex.revoke(claims.getId(), Integer.valueOf(claims.getSubject()), claims.getExpiration());
+        }
+        return ResponseEntity.ok(Map.of("message", "Đăng xuất thành công!"));
+    }
+
+    @PostMapping("/logout-all")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> logoutAll(@AuthenticationPrincipal UserDetailsImpl principal) {
+        userService.revokeAllSessions(principal.getId());
+        return ResponseEntity.ok(Map.of("message", "Đã đăng xuất khỏi tất cả thiết bị!"));
     }
 
 }
\ No newline at end of file
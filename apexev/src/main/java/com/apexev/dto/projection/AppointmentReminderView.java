@@ -0,0 +1,8 @@
+package com.apexev.dto.projection;
+
+import java.time.LocalDateTime;
+
+// Dữ liệu cho 1 email nhắc lịch: lịch hẹn + khách + xe, đọc bằng 1 query
+public record AppointmentReminderView(Long id, LocalDateTime appointmentTime, String customerName, String customerEmail,
+                                      String vehicleLicensePlate, String vehicleModel, String requestedService) {
+}
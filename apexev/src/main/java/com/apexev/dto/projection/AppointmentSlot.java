@@ -0,0 +1,7 @@
+package com.apexev.dto.projection;
+
+import java.time.LocalDateTime;
+
+// 1 lịch hẹn còn chiếm chỗ (chưa hủy) trong xưởng
+public record AppointmentSlot(Long id, LocalDateTime appointmentTime) {
+}
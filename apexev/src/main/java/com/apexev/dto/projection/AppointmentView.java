@@ -0,0 +1,28 @@
+package com.apexev.dto.projection;
+
+import com.apexev.enums.AppointmentStatus;
+
+import java.time.LocalDateTime;
+
+// Đúng các cột AppointmentResponse cần, select thẳng bằng JPQL "SELECT new ..." -> không hydrate entity
+public record AppointmentView(
+        Long id,
+        Integer customerId,
+        String customerName,
+        String customerEmail,
+        String customerPhone,
+        Long vehicleId,
+        String vehicleLicensePlate,
+        String vehicleModel,
+        String vehicleBrand,
+        String requestedService,
+        LocalDateTime appointmentTime,
+        AppointmentStatus status,
+        String notes,
+        Integer serviceAdvisorId,
+        String serviceAdvisorName,
+        LocalDateTime createdAt,
+        Long serviceOrderId,
+        LocalDateTime lastModified // lần tạo / sửa gần nhất (updatedAt, chưa sửa thì createdAt)
+) {
+}
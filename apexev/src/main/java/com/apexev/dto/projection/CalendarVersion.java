@@ -0,0 +1,7 @@
+package com.apexev.dto.projection;
+
+import java.time.LocalDateTime;
+
+// Phiên bản của 1 lịch .ics: số lịch hẹn và lần tạo / sửa gần nhất (null nếu chưa có lịch nào)
+public record CalendarVersion(long count, LocalDateTime lastModified) {
+}
@@ -0,0 +1,9 @@
+package com.apexev.dto.projection;
+
+// Dấu vân tay của 1 bảng catalog: thêm dòng đổi count/maxId, sửa dòng đổi tổng version, xóa dòng đổi count
+public record CatalogFingerprint(
+        Long count,
+        Long versionSum,
+        Long maxId
+) {
+}
@@ -0,0 +1,12 @@
+package com.apexev.dto.projection;
+
+import java.math.BigDecimal;
+
+// 1 dòng catalog (phụ tùng hoặc gói dịch vụ) dùng để định giá báo giá
+public record CatalogItemView(
+        Long id,
+        String name,
+        String description,
+        BigDecimal price
+) {
+}
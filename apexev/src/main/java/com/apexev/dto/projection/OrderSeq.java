@@ -0,0 +1,5 @@
+package com.apexev.dto.projection;
+
+// seq lớn nhất đã ghi của 1 đơn
+public record OrderSeq(Long orderId, Long seq) {
+}
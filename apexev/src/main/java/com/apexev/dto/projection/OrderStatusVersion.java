@@ -0,0 +1,7 @@
+package com.apexev.dto.projection;
+
+import com.apexev.enums.OrderStatus;
+
+// Trạng thái + version + KTV hiện tại của đơn, đủ để kiểm tra 1 lần chuyển trạng thái / đổi KTV
+public record OrderStatusVersion(Long id, OrderStatus status, Long version, Integer technicianId) {
+}
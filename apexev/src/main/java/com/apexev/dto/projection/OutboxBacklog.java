@@ -0,0 +1,10 @@
+package com.apexev.dto.projection;
+
+import java.time.Instant;
+
+// Số email đang chờ và thời điểm tạo của email chờ lâu nhất (null nếu không còn email chờ)
+public record OutboxBacklog(
+        Long pending,
+        Instant oldestCreatedAt
+) {
+}
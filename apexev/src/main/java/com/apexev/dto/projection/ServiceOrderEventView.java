@@ -0,0 +1,17 @@
+package com.apexev.dto.projection;
+
+import com.apexev.enums.ServiceOrderChangeType;
+
+import java.time.LocalDateTime;
+
+// 1 dòng timeline của đơn, kèm tên người thao tác
+public record ServiceOrderEventView(
+        Long seq,
+        ServiceOrderChangeType eventType,
+        String fromValue,
+        String toValue,
+        Integer actorId,
+        String actorName,
+        LocalDateTime occurredAt
+) {
+}
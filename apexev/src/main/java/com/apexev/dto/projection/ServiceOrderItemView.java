@@ -0,0 +1,17 @@
+package com.apexev.dto.projection;
+
+import com.apexev.enums.OrderItemStatus;
+import com.apexev.enums.OrderItemType;
+
+import java.math.BigDecimal;
+
+public record ServiceOrderItemView(
+        Long serviceOrderId,
+        Long id,
+        OrderItemType itemType,
+        Long itemRefId,
+        int quantity,
+        BigDecimal unitPrice,
+        OrderItemStatus status
+) {
+}
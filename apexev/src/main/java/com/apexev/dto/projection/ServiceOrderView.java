@@ -0,0 +1,31 @@
+package com.apexev.dto.projection;
+
+import com.apexev.enums.OrderStatus;
+
+import java.time.LocalDateTime;
+
+// Đúng các cột ServiceOrderResponse cần (trừ item), select thẳng bằng JPQL "SELECT new ..."
+public record ServiceOrderView(
+        Long id,
+        Integer customerId,
+        String customerName,
+        String customerEmail,
+        String customerPhone,
+        Long vehicleId,
+        String vehicleLicensePlate,
+        String vehicleModel,
+        String vehicleBrand,
+        OrderStatus status,
+        String customerDescription,
+        String advisorNotes,
+        String technicianNotes,
+        Integer serviceAdvisorId,
+        String serviceAdvisorName,
+        Integer technicianId,
+        String technicianName,
+        Long appointmentId,
+        LocalDateTime createdAt,
+        LocalDateTime completedAt,
+        Long version
+) {
+}
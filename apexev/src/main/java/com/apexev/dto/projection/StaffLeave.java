@@ -0,0 +1,7 @@
+package com.apexev.dto.projection;
+
+import java.time.LocalDate;
+
+// 1 đơn nghỉ phép đã duyệt
+public record StaffLeave(Integer staffId, LocalDate startDate, LocalDate endDate) {
+}
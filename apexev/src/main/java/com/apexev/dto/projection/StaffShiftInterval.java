@@ -0,0 +1,7 @@
+package com.apexev.dto.projection;
+
+import java.time.LocalDateTime;
+
+// 1 ca làm đã phân cho 1 nhân viên
+public record StaffShiftInterval(Integer staffId, LocalDateTime startTime, LocalDateTime endTime) {
+}
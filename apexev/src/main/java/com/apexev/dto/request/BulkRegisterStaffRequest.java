@@ -0,0 +1,18 @@
+package com.apexev.dto.request;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class BulkRegisterStaffRequest {
+
+    // Từng dòng được validate riêng trong service -> dòng lỗi không làm hỏng cả lô
+    @NotEmpty(message = "Danh sách nhân viên không được để trống")
+    @Size(max = 500, message = "Tối đa 500 nhân viên mỗi lần")
+    private List<RegisterStaffRequest> staff;
+}
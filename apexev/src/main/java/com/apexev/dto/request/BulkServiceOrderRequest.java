@@ -0,0 +1,37 @@
+package com.apexev.dto.request;
+
+import com.apexev.enums.BulkOrderOperationType;
+import com.apexev.enums.OrderStatus;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class BulkServiceOrderRequest {
+
+    @NotEmpty(message = "Operations cannot be empty")
+    @Size(max = 500, message = "At most 500 operations per request")
+    private List<@Valid Operation> operations;
+
+    @Getter
+    @Setter
+    public static class Operation {
+        @NotNull
+        private Long orderId;
+
+        @NotNull
+        private BulkOrderOperationType type;
+
+        private OrderStatus status; // STATUS
+
+        private Long technicianId; // ASSIGN_TECHNICIAN
+
+        private Long version; // version client đang xem (không bắt buộc)
+    }
+}
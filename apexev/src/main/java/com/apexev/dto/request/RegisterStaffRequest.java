@@ -29,10 +29,7 @@ public class RegisterStaffRequest {
     @Size(min = 6, max = 128, message = "Mật khẩu phải từ 6 đến 128 ký tự")
     private String password;
 
-    @NotBlank
+    @NotBlank(message = "Vai trò không được để trống")
     private String role;
 
-    @NotBlank
-    private Integer numbers;
-
 }
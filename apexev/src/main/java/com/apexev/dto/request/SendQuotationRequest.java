@@ -23,6 +23,6 @@ public class SendQuotationRequest {
         private String itemName;
         private String itemDescription;
         private Integer quantity;
-        private Double unitPrice;
+        private Double unitPrice; // bỏ trống -> dùng giá niêm yết của Part / MaintenanceService
     }
 }
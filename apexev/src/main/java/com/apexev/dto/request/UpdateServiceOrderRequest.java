@@ -17,4 +17,6 @@ public class UpdateServiceOrderRequest {
     private OrderStatus status;
     
     private Long technicianId;
+
+    private Long version; // version client đang xem (không bắt buộc); khác version hiện tại -> 409
 }
@@ -0,0 +1,38 @@
+package com.apexev.dto.response;
+
+import com.apexev.enums.BulkOrderOperationType;
+import com.apexev.enums.BulkOrderOutcome;
+import com.apexev.enums.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+// Kết quả gọn cho từng thao tác (cùng thứ tự với request), không dựng lại cả ServiceOrderResponse
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkServiceOrderResponse {
+
+    private int succeeded;
+
+    private int failed;
+
+    private List<Result> results;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Result {
+        private Long orderId;
+        private BulkOrderOperationType type;
+        private BulkOrderOutcome outcome;
+        private String message;
+        private OrderStatus status; // trạng thái của đơn sau cả lô
+        private Long version;       // version của đơn sau cả lô
+    }
+}
@@ -0,0 +1,55 @@
+package com.apexev.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * 1 trang kết quả phân trang theo keyset (seek), không dùng OFFSET.
+ * nextCursor mã hóa (thời gian, id) của dòng cuối trang, client gửi lại nguyên chuỗi để lấy trang kế tiếp.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageResponse<T> {
+
+    private List<T> items;
+
+    private String nextCursor; // null khi đã là trang cuối
+
+    private boolean hasMore;
+
+    private int size;
+
+    // Vị trí dòng cuối của trang trước: sắp xếp theo (time, id)
+    public record Cursor(LocalDateTime time, Long id) {
+    }
+
+    public static String encodeCursor(LocalDateTime time, Long id) {
+        String raw = time + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Cursor decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new Cursor(LocalDateTime.parse(raw.substring(0, separator)), Long.valueOf(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | StringIndexOutOfBoundsException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cursor không hợp lệ");
+        }
+    }
+}
@@ -5,6 +5,7 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -28,11 +29,11 @@ public class QuotationResponse {
     
     private List<QuotationItemResponse> items;
     
-    private Double subtotal;
+    private BigDecimal subtotal;
     
-    private Double tax;
+    private BigDecimal tax;
     
-    private Double totalAmount;
+    private BigDecimal totalAmount;
     
     private String additionalNotes;
     
@@ -52,8 +53,8 @@ public class QuotationResponse {
         private String itemName;
         private String itemDescription;
         private Integer quantity;
-        private Double unitPrice;
-        private Double lineTotal;
+        private BigDecimal unitPrice;
+        private BigDecimal lineTotal;
         private String status;
     }
 }
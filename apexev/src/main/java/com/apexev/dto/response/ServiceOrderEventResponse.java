@@ -0,0 +1,30 @@
+package com.apexev.dto.response;
+
+import com.apexev.enums.ServiceOrderChangeType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ServiceOrderEventResponse {
+
+    private Long seq;
+
+    private ServiceOrderChangeType eventType;
+
+    private String fromValue;
+
+    private String toValue;
+
+    private Long actorId;
+
+    private String actorName;
+
+    private LocalDateTime occurredAt;
+}
@@ -0,0 +1,21 @@
+package com.apexev.dto.response;
+
+import com.apexev.enums.ServiceOrderChangeType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Set;
+
+// 1 event SSE của luồng tiến độ: phần nào vừa đổi + trạng thái đầy đủ của đơn (giống /track)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ServiceOrderProgressResponse {
+
+    private Set<ServiceOrderChangeType> changes; // rỗng với event snapshot đầu tiên
+
+    private ServiceOrderResponse order;
+}
@@ -6,6 +6,7 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -57,7 +58,9 @@ public class ServiceOrderResponse {
     
     private List<ServiceOrderItemResponse> orderItems;
     
-    private Double estimatedTotal;
+    private BigDecimal estimatedTotal; // tổng báo giá (đã gồm thuế)
+
+    private Long version; // gửi lại khi cập nhật để phát hiện sửa chồng
     
     @Getter
     @Setter
@@ -69,7 +72,8 @@ public class ServiceOrderResponse {
         private Long itemRefId;
         private String itemName;
         private Integer quantity;
-        private Double unitPrice;
+        private BigDecimal unitPrice;
+        private BigDecimal lineTotal;
         private String status;
     }
 }
@@ -0,0 +1,19 @@
+package com.apexev.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TechnicianQueueResponse {
+
+    private Long technicianId;
+
+    private List<ServiceOrderResponse> orders; // đơn chưa đóng, cũ nhất trước
+}
@@ -0,0 +1,33 @@
+package com.apexev.dto.response.coreBussinessResponse;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvailabilityResponse {
+
+    private int slotMinutes; // các giờ trống cách nhau slotMinutes
+
+    private int appointmentMinutes; // 1 lịch hẹn chiếm xưởng bao lâu
+
+    private List<Day> days; // mọi ngày trong khoảng, kể cả ngày đã kín
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Day {
+        private LocalDate date;
+
+        private List<LocalTime> slots; // giờ bắt đầu còn trống, tăng dần
+    }
+}
@@ -8,11 +8,16 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.Nationalized;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "appointments")
+@Table(name = "appointments", indexes = {
+        // phân trang keyset: ORDER BY appointment_time, appointment_id (lọc theo status / khoảng thời gian)
+        @Index(name = "idx_appointments_status_time", columnList = "status, appointment_time, appointment_id"),
+        @Index(name = "idx_appointments_time", columnList = "appointment_time, appointment_id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -41,6 +46,13 @@ public class Appointment {
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
 
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt; // Last-Modified / ETag của lịch .ics
+
+    @Column(name = "reminder_sent_at")
+    private LocalDateTime reminderSentAt; // lúc email nhắc lịch được ghi vào outbox (null = chưa nhắc)
+
     // --- Relationships ---
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -17,7 +17,10 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 public class ChatMessage {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "chat_messages_seq")
+    @TableGenerator(name = "chat_messages_seq", table = IdGenerators.TABLE,
+            pkColumnName = IdGenerators.PK_COLUMN, valueColumnName = IdGenerators.VALUE_COLUMN,
+            pkColumnValue = "chat_messages", allocationSize = IdGenerators.ALLOCATION_SIZE)
     @Column(name = "message_id")
     private Long id;
 
@@ -0,0 +1,19 @@
+package com.apexev.entity;
+
+/**
+ * Cấu hình chung cho các entity sinh id bằng bảng id_sequences (pooled, mỗi lần lấy 1 khối id).
+ * <p>
+ * IDENTITY buộc Hibernate INSERT từng dòng để lấy id về, nên không gom batch được.
+ * Các bảng ghi nhiều dòng 1 lúc (item báo giá, phân ca, thông báo, tin nhắn, kết quả checklist, mail outbox)
+ * lấy id từ bảng này để Hibernate gom INSERT thành batch JDBC.
+ */
+public final class IdGenerators {
+    public static final String TABLE = "id_sequences";
+    public static final String PK_COLUMN = "sequence_name";
+    public static final String VALUE_COLUMN = "next_val";
+    // Mỗi instance giữ sẵn 1 khối 50 id trong RAM, chỉ chạm bảng id_sequences 1 lần / 50 INSERT
+    public static final int ALLOCATION_SIZE = 50;
+
+    private IdGenerators() {
+    }
+}
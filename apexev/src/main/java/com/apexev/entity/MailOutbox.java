@@ -0,0 +1,58 @@
+package com.apexev.entity;
+
+import com.apexev.enums.MailOutboxStatus;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.Nationalized;
+
+import java.time.Instant;
+
+// Email chờ gửi, ghi cùng transaction với nghiệp vụ; MailOutboxDispatcher gửi nền sau khi commit
+@Entity
+@Table(name = "mail_outbox", indexes = {
+        @Index(name = "idx_mail_outbox_status_next", columnList = "status, next_attempt_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class MailOutbox {
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "mail_outbox_seq")
+    @TableGenerator(name = "mail_outbox_seq", table = IdGenerators.TABLE,
+            pkColumnName = IdGenerators.PK_COLUMN, valueColumnName = IdGenerators.VALUE_COLUMN,
+            pkColumnValue = "mail_outbox", allocationSize = IdGenerators.ALLOCATION_SIZE)
+    @Column(name = "mail_id")
+    private Long id;
+
+    @Column(length = 500, nullable = false)
+    private String recipient; // 1 hoặc nhiều địa chỉ, cách nhau bằng dấu phẩy
+
+    @Nationalized
+    @Column(length = 255, nullable = false)
+    private String subject;
+
+    @Nationalized
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String body;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20, nullable = false)
+    private MailOutboxStatus status = MailOutboxStatus.PENDING;
+
+    @Column(nullable = false)
+    private int attempts; // số lần đã thử gửi
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(name = "sent_at")
+    private Instant sentAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+}
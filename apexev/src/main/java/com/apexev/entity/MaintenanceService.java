@@ -29,4 +29,9 @@ public class MaintenanceService {
 
     @Column(name = "base_price", precision = 10, scale = 2)
     private BigDecimal basePrice; //giá niêm yết, kiểu tiền công của thợ
+
+    // tăng mỗi lần sửa -> bảng giá trong RAM (PricingService) biết khi nào phải nạp lại
+    @Version
+    @Column(nullable = false)
+    private long version;
 }
\ No newline at end of file
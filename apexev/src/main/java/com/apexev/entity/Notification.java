@@ -17,7 +17,10 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 public class Notification {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "notifications_seq")
+    @TableGenerator(name = "notifications_seq", table = IdGenerators.TABLE,
+            pkColumnName = IdGenerators.PK_COLUMN, valueColumnName = IdGenerators.VALUE_COLUMN,
+            pkColumnValue = "notifications", allocationSize = IdGenerators.ALLOCATION_SIZE)
     @Column(name = "notification_id")
     private Long id;
 
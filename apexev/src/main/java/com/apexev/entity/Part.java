@@ -36,4 +36,9 @@ public class Part {
 
     @Column(precision = 10, scale = 2, nullable = false)
     private BigDecimal price; // giá bán lẻ, chưa tính công thợ
+
+    // tăng mỗi lần sửa -> bảng giá trong RAM (PricingService) biết khi nào phải nạp lại
+    @Version
+    @Column(nullable = false)
+    private long version;
 }
\ No newline at end of file
@@ -14,7 +14,10 @@ import lombok.Setter;
 public class ReviewKPI {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "review_kpis_seq")
+    @TableGenerator(name = "review_kpis_seq", table = IdGenerators.TABLE,
+            pkColumnName = IdGenerators.PK_COLUMN, valueColumnName = IdGenerators.VALUE_COLUMN,
+            pkColumnValue = "review_kpis", allocationSize = IdGenerators.ALLOCATION_SIZE)
     @Column(name = "review_kpi_id")
     private Integer reviewKpiId;
 
@@ -0,0 +1,33 @@
+package com.apexev.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "revoked_tokens", indexes = {
+        @Index(name = "idx_revoked_tokens_expires_at", columnList = "expires_at"),
+        @Index(name = "idx_revoked_tokens_revoked_at", columnList = "revoked_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class RevokedToken {
+    @Id
+    @Column(name = "jti", length = 36)
+    private String jti; // id (claim jti) của refresh token đã bị thu hồi
+
+    @Column(name = "user_id", nullable = false)
+    private Integer userId;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt; // hết hạn rồi thì xóa được, token cũng không dùng được nữa
+
+    @CreationTimestamp
+    @Column(name = "revoked_at", updatable = false)
+    private Instant revokedAt;
+}
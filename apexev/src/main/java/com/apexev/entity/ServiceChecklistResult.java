@@ -15,7 +15,10 @@ import org.hibernate.annotations.Nationalized;
 @NoArgsConstructor
 public class ServiceChecklistResult {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "service_checklist_results_seq")
+    @TableGenerator(name = "service_checklist_results_seq", table = IdGenerators.TABLE,
+            pkColumnName = IdGenerators.PK_COLUMN, valueColumnName = IdGenerators.VALUE_COLUMN,
+            pkColumnValue = "service_checklist_results", allocationSize = IdGenerators.ALLOCATION_SIZE)
     @Column(name = "result_id")
     private Long id;
 
@@ -13,7 +13,13 @@ import java.time.LocalDateTime;
 import java.util.Set;
 
 @Entity
-@Table(name = "service_orders")
+@Table(name = "service_orders", indexes = {
+        // phân trang keyset: WHERE status / service_advisor_id = ? ORDER BY created_at DESC, order_id DESC
+        @Index(name = "idx_service_orders_status_created", columnList = "status, created_at, order_id"),
+        @Index(name = "idx_service_orders_advisor_created", columnList = "service_advisor_id, created_at, order_id"),
+        // hàng đợi KTV: WHERE technician_id = ? AND status IN (đơn chưa đóng)
+        @Index(name = "idx_service_orders_technician_status", columnList = "technician_id, status")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -45,6 +51,11 @@ public class ServiceOrder {
     @Column(name = "completed_at")
     private LocalDateTime completedAt;
 
+    // advisor / KTV cùng sửa 1 đơn: ai ghi sau trên bản cũ thì bị từ chối (409) thay vì ghi đè
+    @Version
+    @Column(nullable = false)
+    private long version;
+
     // --- Relationships ---
 
     @OneToOne(fetch = FetchType.LAZY)
@@ -0,0 +1,53 @@
+package com.apexev.entity;
+
+import com.apexev.enums.ServiceOrderChangeType;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.Nationalized;
+
+import java.time.LocalDateTime;
+
+// Timeline của đơn dịch vụ: chỉ INSERT, không sửa / xóa; seq tăng dần trong từng đơn
+@Entity
+@Table(name = "service_order_events", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_service_order_events_order_seq", columnNames = {"order_id", "seq"})
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class ServiceOrderEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "service_order_events_seq")
+    @TableGenerator(name = "service_order_events_seq", table = IdGenerators.TABLE,
+            pkColumnName = IdGenerators.PK_COLUMN, valueColumnName = IdGenerators.VALUE_COLUMN,
+            pkColumnValue = "service_order_events", allocationSize = IdGenerators.ALLOCATION_SIZE)
+    @Column(name = "event_id")
+    private Long id;
+
+    // chỉ lưu id, không map quan hệ: ghi event không cần nạp đơn
+    @Column(name = "order_id", nullable = false, updatable = false)
+    private Long orderId;
+
+    @Column(nullable = false, updatable = false)
+    private long seq;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", length = 20, nullable = false, updatable = false)
+    private ServiceOrderChangeType eventType;
+
+    @Nationalized
+    @Column(name = "from_value", length = 500, updatable = false)
+    private String fromValue;
+
+    @Nationalized
+    @Column(name = "to_value", length = 500, updatable = false)
+    private String toValue;
+
+    @Column(name = "actor_id", updatable = false)
+    private Integer actorId;
+
+    @Column(name = "occurred_at", nullable = false, updatable = false)
+    private LocalDateTime occurredAt;
+}
@@ -0,0 +1,52 @@
+package com.apexev.entity;
+
+import com.apexev.enums.ServiceOrderChangeType;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.Nationalized;
+
+import java.time.LocalDateTime;
+
+// Thay đổi của đơn chờ ghi vào timeline, ghi cùng transaction với thao tác trên đơn; ServiceOrderTimelineWriter
+// chuyển sang service_order_events (cấp seq) rồi xóa
+// Không ràng buộc gì thêm ngoài order_id: ghi outbox lỗi sẽ rollback luôn thao tác trên đơn
+@Entity
+@Table(name = "service_order_event_outbox", indexes = {
+        @Index(name = "idx_service_order_event_outbox_occurred", columnList = "occurred_at, outbox_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class ServiceOrderEventOutbox {
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "service_order_event_outbox_seq")
+    @TableGenerator(name = "service_order_event_outbox_seq", table = IdGenerators.TABLE,
+            pkColumnName = IdGenerators.PK_COLUMN, valueColumnName = IdGenerators.VALUE_COLUMN,
+            pkColumnValue = "service_order_event_outbox", allocationSize = IdGenerators.ALLOCATION_SIZE)
+    @Column(name = "outbox_id")
+    private Long id;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", length = 20)
+    private ServiceOrderChangeType eventType;
+
+    // giữ nguyên giá trị, cắt còn 500 ký tự lúc ghi timeline
+    @Nationalized
+    @Column(name = "from_value", columnDefinition = "TEXT")
+    private String fromValue;
+
+    @Nationalized
+    @Column(name = "to_value", columnDefinition = "TEXT")
+    private String toValue;
+
+    @Column(name = "actor_id")
+    private Long actorId;
+
+    @Column(name = "occurred_at", nullable = false)
+    private LocalDateTime occurredAt;
+}
@@ -16,7 +16,10 @@ import java.math.BigDecimal;
 @NoArgsConstructor
 public class ServiceOrderItem {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "service_order_items_seq")
+    @TableGenerator(name = "service_order_items_seq", table = IdGenerators.TABLE,
+            pkColumnName = IdGenerators.PK_COLUMN, valueColumnName = IdGenerators.VALUE_COLUMN,
+            pkColumnValue = "service_order_items", allocationSize = IdGenerators.ALLOCATION_SIZE)
     @Column(name = "item_id")
     private Long id;
 
@@ -18,7 +18,10 @@ import java.time.LocalDateTime;
 public class ShiftAssignment {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "shift_assignments_seq")
+    @TableGenerator(name = "shift_assignments_seq", table = IdGenerators.TABLE,
+            pkColumnName = IdGenerators.PK_COLUMN, valueColumnName = IdGenerators.VALUE_COLUMN,
+            pkColumnValue = "shift_assignments", allocationSize = IdGenerators.ALLOCATION_SIZE)
     @Column(name = "assignment_id")
     private Integer assignmentId;
 
@@ -8,6 +8,7 @@ import lombok.Setter;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.Nationalized;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.Set;
 
@@ -47,6 +48,14 @@ public class User {
     @Column(name = "is_active")
     private boolean isActive = true;
 
+    // Mọi token phát hành trước thời điểm này bị coi là đã thu hồi (đăng xuất mọi nơi / khóa tài khoản)
+    @Column(name = "tokens_valid_after")
+    private Instant tokensValidAfter;
+
+    // SHA-256 (hex) của token trong URL lịch .ics; ứng dụng lịch không gửi được Bearer token. null = chưa bật / đã thu hồi
+    @Column(name = "calendar_feed_token_hash", length = 64, unique = true)
+    private String calendarFeedTokenHash;
+
     // --- Relationships ---
 
     // 1-1 với Hồ sơ nhân viên (chỉ nhân viên mới có)
@@ -0,0 +1,19 @@
+package com.apexev.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+@Entity
+@Table(name = "workshop_day_locks")
+@Getter
+@Setter
+@NoArgsConstructor
+public class WorkshopDayLock {
+    @Id
+    @Column(name = "booking_date")
+    private LocalDate bookingDate; // transaction đặt lịch khóa dòng của ngày (FOR UPDATE) tới khi commit / rollback
+}
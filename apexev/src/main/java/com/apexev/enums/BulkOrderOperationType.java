@@ -0,0 +1,6 @@
+package com.apexev.enums;
+
+public enum BulkOrderOperationType {
+    STATUS,
+    ASSIGN_TECHNICIAN
+}
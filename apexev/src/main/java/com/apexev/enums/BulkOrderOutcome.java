@@ -0,0 +1,8 @@
+package com.apexev.enums;
+
+public enum BulkOrderOutcome {
+    OK,
+    NOT_FOUND,
+    INVALID,
+    CONFLICT // sai bảng chuyển trạng thái / version cũ / bị người khác đổi cùng lúc
+}
@@ -0,0 +1,7 @@
+package com.apexev.enums;
+
+public enum MailOutboxStatus {
+    PENDING, // chờ gửi (kể cả đang chờ gửi lại sau lỗi)
+    SENT,
+    FAILED   // hết số lần thử, không gửi nữa
+}
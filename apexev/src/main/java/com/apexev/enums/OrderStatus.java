@@ -1,10 +1,45 @@
 package com.apexev.enums;
 
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
 public enum OrderStatus {
     RECEPTION,
     INSPECTION,
     WAITING_FOR_PARTS, //chờ phụ tùng
     IN_PROGRESS,
     COMPLETED,
-    CANCELLED
+    CANCELLED;
+
+    // RECEPTION -> INSPECTION -> WAITING_FOR_PARTS / IN_PROGRESS -> COMPLETED; hủy được khi chưa xong
+    private static final Map<OrderStatus, Set<OrderStatus>> TRANSITIONS = new EnumMap<>(OrderStatus.class);
+
+    static {
+        TRANSITIONS.put(RECEPTION, EnumSet.of(INSPECTION, CANCELLED));
+        TRANSITIONS.put(INSPECTION, EnumSet.of(WAITING_FOR_PARTS, IN_PROGRESS, CANCELLED));
+        TRANSITIONS.put(WAITING_FOR_PARTS, EnumSet.of(IN_PROGRESS, CANCELLED));
+        TRANSITIONS.put(IN_PROGRESS, EnumSet.of(WAITING_FOR_PARTS, COMPLETED, CANCELLED));
+        TRANSITIONS.put(COMPLETED, EnumSet.noneOf(OrderStatus.class));
+        TRANSITIONS.put(CANCELLED, EnumSet.noneOf(OrderStatus.class));
+    }
+
+    private static final Set<OrderStatus> FINAL_STATUSES = EnumSet.copyOf(TRANSITIONS.entrySet().stream()
+            .filter(entry -> entry.getValue().isEmpty())
+            .map(Map.Entry::getKey)
+            .toList());
+
+    public boolean canTransitionTo(OrderStatus next) {
+        return TRANSITIONS.get(this).contains(next);
+    }
+
+    // COMPLETED / CANCELLED: đơn đã đóng, không còn trong hàng đợi của KTV
+    public boolean isFinal() {
+        return TRANSITIONS.get(this).isEmpty();
+    }
+
+    public static Set<OrderStatus> finalStatuses() {
+        return FINAL_STATUSES;
+    }
 }
@@ -0,0 +1,10 @@
+package com.apexev.enums;
+
+public enum ServiceOrderChangeType {
+    CREATED,
+    STATUS,
+    TECHNICIAN,
+    ITEMS,
+    QUOTATION_SENT,
+    NOTES
+}
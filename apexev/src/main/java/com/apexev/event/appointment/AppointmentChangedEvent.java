@@ -0,0 +1,30 @@
+package com.apexev.event.appointment;
+
+import java.time.LocalDateTime;
+
+// Bắn ra khi lịch hẹn được đặt / dời / hủy -> chỉ mục sức chứa xưởng chốt hoặc hoàn tác chỗ đã giữ
+public class AppointmentChangedEvent {
+    private final Long appointmentId;
+    // giờ hẹn trước / sau thay đổi, null = không chiếm chỗ (lịch mới tạo / đã hủy)
+    private final LocalDateTime previousTime;
+    private final LocalDateTime appointmentTime;
+
+    public AppointmentChangedEvent(Long appointmentId, LocalDateTime previousTime,
+                                   LocalDateTime appointmentTime) {
+        this.appointmentId = appointmentId;
+        this.previousTime = previousTime;
+        this.appointmentTime = appointmentTime;
+    }
+
+    public Long getAppointmentId() {
+        return appointmentId;
+    }
+
+    public LocalDateTime getPreviousTime() {
+        return previousTime;
+    }
+
+    public LocalDateTime getAppointmentTime() {
+        return appointmentTime;
+    }
+}
@@ -0,0 +1,32 @@
+package com.apexev.event.appointment.listener;
+
+import com.apexev.event.appointment.AppointmentChangedEvent;
+import com.apexev.service.service_Interface.WorkshopCapacityService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+@Component
+public class AppointmentChangedEventListener {
+    @Autowired
+    WorkshopCapacityService workshopCapacityService;
+
+    // chỗ đã giữ trong transaction thành chỗ chính thức; lịch hủy chỉ nhả chỗ khi đã commit
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onAppointmentCommitted(AppointmentChangedEvent event) {
+        if (event == null || event.getAppointmentId() == null) {
+            return;
+        }
+        workshopCapacityService.onCommitted(event);
+    }
+
+    // không fallbackExecution: ngoài transaction thì không có gì để hoàn tác
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_ROLLBACK)
+    public void onAppointmentRolledBack(AppointmentChangedEvent event) {
+        if (event == null || event.getAppointmentId() == null) {
+            return;
+        }
+        workshopCapacityService.onRolledBack(event);
+    }
+}
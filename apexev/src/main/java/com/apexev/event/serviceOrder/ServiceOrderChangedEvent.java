@@ -0,0 +1,49 @@
+package com.apexev.event.serviceOrder;
+
+import com.apexev.enums.ServiceOrderChangeType;
+
+import java.time.LocalDateTime;
+
+// Bắn ra khi đơn dịch vụ thay đổi -> ghi timeline của đơn và đẩy tiến độ mới cho client đang theo dõi
+public class ServiceOrderChangedEvent {
+    private final Long orderId;
+    private final ServiceOrderChangeType changeType;
+    private final Long actorId; // null khi hệ thống tự đổi
+    // giá trị trước / sau, ý nghĩa tùy changeType (trạng thái, id kỹ thuật viên, tổng tiền báo giá...)
+    private final String fromValue;
+    private final String toValue;
+    private final LocalDateTime occurredAt = LocalDateTime.now();
+
+    public ServiceOrderChangedEvent(Long orderId, ServiceOrderChangeType changeType, Long actorId,
+                                    String fromValue, String toValue) {
+        this.orderId = orderId;
+        this.changeType = changeType;
+        this.actorId = actorId;
+        this.fromValue = fromValue;
+        this.toValue = toValue;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public ServiceOrderChangeType getChangeType() {
+        return changeType;
+    }
+
+    public Long getActorId() {
+        return actorId;
+    }
+
+    public String getFromValue() {
+        return fromValue;
+    }
+
+    public String getToValue() {
+        return toValue;
+    }
+
+    public LocalDateTime getOccurredAt() {
+        return occurredAt;
+    }
+}
@@ -0,0 +1,41 @@
+package com.apexev.event.serviceOrder.listener;
+
+import com.apexev.event.serviceOrder.ServiceOrderChangedEvent;
+import com.apexev.service.serviceImpl.ServiceOrderProgressStream;
+import com.apexev.service.serviceImpl.ServiceOrderTimelineWriter;
+import com.apexev.service.service_Interface.TechnicianQueueService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+@Component
+public class ServiceOrderChangedEventListener {
+    @Autowired
+    ServiceOrderTimelineWriter timelineWriter;
+
+    @Autowired
+    ServiceOrderProgressStream progressStream;
+
+    @Autowired
+    TechnicianQueueService technicianQueueService;
+
+    // ghi outbox timeline trong chính transaction của thao tác: commit cùng nhau, rollback thì không có dòng nào
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void recordTimeline(ServiceOrderChangedEvent event) {
+        if (event == null || event.getOrderId() == null) {
+            return;
+        }
+        timelineWriter.append(event);
+    }
+
+    // chỉ báo ra ngoài khi đã commit: rollback thì client không thấy thay đổi chưa từng tồn tại
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onServiceOrderChangedEvent(ServiceOrderChangedEvent event) {
+        if (event == null || event.getOrderId() == null) {
+            return;
+        }
+        progressStream.publish(event.getOrderId(), event.getChangeType());
+        technicianQueueService.onOrderChanged(event);
+    }
+}
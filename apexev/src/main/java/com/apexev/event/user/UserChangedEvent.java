@@ -0,0 +1,27 @@
+package com.apexev.event.user;
+
+import java.time.Instant;
+
+// Bắn ra mỗi khi thông tin đăng nhập / trạng thái của user thay đổi -> xóa principal đã cache
+public class UserChangedEvent {
+    private final Integer userId;
+    // khác null khi mọi token cũ của user bị thu hồi (khóa tài khoản, đăng xuất mọi nơi)
+    private final Instant tokensValidAfter;
+
+    public UserChangedEvent(Integer userId) {
+        this(userId, null);
+    }
+
+    public UserChangedEvent(Integer userId, Instant tokensValidAfter) {
+        this.userId = userId;
+        this.tokensValidAfter = tokensValidAfter;
+    }
+
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public Instant getTokensValidAfter() {
+        return tokensValidAfter;
+    }
+}
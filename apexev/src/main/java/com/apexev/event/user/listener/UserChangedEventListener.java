@@ -0,0 +1,29 @@
+package com.apexev.event.user.listener;
+
+import com.apexev.event.user.UserChangedEvent;
+import com.apexev.security.jwt.RefreshTokenRevocationIndex;
+import com.apexev.security.services.UserDetailsServiceImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+@Component
+public class UserChangedEventListener {
+    @Autowired
+    UserDetailsServiceImpl userDetailsService;
+
+    @Autowired
+    RefreshTokenRevocationIndex revocationIndex;
+
+    @EventListener
+    public void onUserChangedEvent(UserChangedEvent event) {
+        if (event == null || event.getUserId() == null) {
+            return;
+        }
+        // khóa tài khoản / đổi mật khẩu / đổi email, sđt phải có hiệu lực ngay -> bỏ principal cũ khỏi cache
+        userDetailsService.evictUser(event.getUserId());
+        if (event.getTokensValidAfter() != null) {
+            revocationIndex.applyCutoff(event.getUserId(), event.getTokensValidAfter());
+        }
+    }
+}
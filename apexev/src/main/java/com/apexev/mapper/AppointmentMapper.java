@@ -0,0 +1,28 @@
+package com.apexev.mapper;
+
+import com.apexev.dto.response.coreBussinessResponse.AppointmentResponse;
+import com.apexev.entity.Appointment;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.ReportingPolicy;
+
+import java.util.List;
+
+/**
+ * Appointment -> AppointmentResponse, code sinh lúc compile (AppointmentMapperImpl), không reflection.
+ * Đọc customer / vehicle / serviceAdvisor -> nơi gọi phải nạp sẵn các quan hệ này (EntityGraph),
+ * nếu không mỗi dòng sẽ kéo thêm query lazy.
+ */
+@Mapper(componentModel = "spring", unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface AppointmentMapper {
+
+    @Mapping(target = "customerId", source = "customer.userId")
+    @Mapping(target = "customerFullName", source = "customer.fullName")
+    @Mapping(target = "vehicleId", source = "vehicle.id")
+    @Mapping(target = "vehicleLicensePlate", source = "vehicle.licensePlate")
+    @Mapping(target = "serviceAdvisorId", source = "serviceAdvisor.userId")
+    @Mapping(target = "serviceAdvisorName", source = "serviceAdvisor.fullName")
+    AppointmentResponse toResponse(Appointment appointment);
+
+    List<AppointmentResponse> toResponses(List<Appointment> appointments);
+}
@@ -0,0 +1,35 @@
+package com.apexev.mapper;
+
+import com.apexev.dto.request.userAndVehicleRequest.VehicleRequest;
+import com.apexev.dto.response.userAndVehicleResponse.VehicleResponse;
+import com.apexev.entity.Vehicle;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
+import org.mapstruct.ReportingPolicy;
+
+import java.util.List;
+
+/**
+ * Vehicle <-> DTO, code sinh lúc compile (VehicleMapperImpl), không reflection.
+ * Chỉ đọc customer.userId (id của proxy) -> không làm nạp chủ xe.
+ */
+@Mapper(componentModel = "spring", unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface VehicleMapper {
+
+    @Mapping(target = "customerId", source = "customer.userId")
+    VehicleResponse toResponse(Vehicle vehicle);
+
+    List<VehicleResponse> toResponses(List<Vehicle> vehicles);
+
+    // id / chủ xe / lịch sử đơn không lấy từ request
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "customer", ignore = true)
+    @Mapping(target = "serviceOrders", ignore = true)
+    Vehicle toEntity(VehicleRequest request);
+
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "customer", ignore = true)
+    @Mapping(target = "serviceOrders", ignore = true)
+    void update(VehicleRequest request, @MappingTarget Vehicle vehicle);
+}
@@ -1,25 +1,136 @@
 package com.apexev.repository.coreBussiness;
 
+import com.apexev.dto.projection.AppointmentReminderView;
+import com.apexev.dto.projection.AppointmentSlot;
+import com.apexev.dto.projection.AppointmentView;
+import com.apexev.dto.projection.CalendarVersion;
 import com.apexev.entity.Appointment;
 import com.apexev.enums.AppointmentStatus;
-import org.springframework.data.jpa.repository.JpaRepository;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
+    // Projection cho màn hình đọc: chỉ select các cột AppointmentResponse cần, không đưa entity vào persistence context
+    String APPOINTMENT_VIEW = "SELECT new com.apexev.dto.projection.AppointmentView(" +
+            "a.id, c.userId, c.fullName, c.email, c.phone, " +
+            "v.id, v.licensePlate, v.model, v.brand, " +
+            "a.requestedService, a.appointmentTime, a.status, a.notes, " +
+            "sa.userId, sa.fullName, a.createdAt, so.id, COALESCE(a.updatedAt, a.createdAt)) " +
+            "FROM Appointment a JOIN a.customer c JOIN a.vehicle v " +
+            "LEFT JOIN a.serviceAdvisor sa LEFT JOIN a.serviceOrder so ";
+
     // Dùng cho Khách hàng
+    // các quan hệ AppointmentMapper đọc được JOIN luôn (serviceOrder là OneToOne phía mappedBy -> luôn bị nạp,
+    // không JOIN thì mỗi dòng 1 query)
+    @EntityGraph(attributePaths = {"customer", "vehicle", "serviceAdvisor", "serviceOrder"})
     List<Appointment> findByCustomerUserIdOrderByAppointmentTimeDesc(Integer customerId);
 
 
     // Dùng cho Cố vấn
+    @EntityGraph(attributePaths = {"customer", "vehicle", "serviceAdvisor", "serviceOrder"})
     List<Appointment> findByServiceAdvisorUserIdOrderByAppointmentTimeAsc(Integer advisorId);
 
-    // Dùng cho Quản lý (xem lịch)
-    List<Appointment> findByStatusOrderByAppointmentTimeAsc(AppointmentStatus status);
-    List<Appointment> findByAppointmentTimeBetween(LocalDateTime start, LocalDateTime end);
+    // 1 lịch hẹn kèm các quan hệ AppointmentMapper đọc, trong 1 query
+    @EntityGraph(attributePaths = {"customer", "vehicle", "serviceAdvisor", "serviceOrder"})
+    Optional<Appointment> findDetailedById(Long id);
+
+    @Query(APPOINTMENT_VIEW + "WHERE sa.userId = :advisorId ORDER BY a.appointmentTime ASC, a.id ASC")
+    List<AppointmentView> findViewsByAdvisor(@Param("advisorId") Integer advisorId);
+
+    @Query(APPOINTMENT_VIEW + "WHERE a.id = :id")
+    Optional<AppointmentView> findViewById(@Param("id") Long id);
+
+    // Lịch .ics: đọc dần từng dòng từ cursor (fetch size + useCursorFetch trên MySQL), không nạp cả danh sách
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query(APPOINTMENT_VIEW + "WHERE sa.userId = :advisorId AND a.appointmentTime >= :since " +
+            "ORDER BY a.appointmentTime ASC, a.id ASC")
+    Stream<AppointmentView> streamViewsByAdvisor(@Param("advisorId") Integer advisorId,
+                                                 @Param("since") LocalDateTime since);
+
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query(APPOINTMENT_VIEW + "WHERE c.userId = :customerId AND a.appointmentTime >= :since " +
+            "ORDER BY a.appointmentTime ASC, a.id ASC")
+    Stream<AppointmentView> streamViewsByCustomer(@Param("customerId") Integer customerId,
+                                                  @Param("since") LocalDateTime since);
+
+    // số dòng + lần sửa cuối của đúng tập dòng lịch .ics trả về -> 304 chỉ tốn 1 query gộp, không đọc dòng nào
+    @Query("SELECT new com.apexev.dto.projection.CalendarVersion(COUNT(a), MAX(COALESCE(a.updatedAt, a.createdAt))) " +
+            "FROM Appointment a WHERE a.serviceAdvisor.userId = :advisorId AND a.appointmentTime >= :since")
+    CalendarVersion findCalendarVersionByAdvisor(@Param("advisorId") Integer advisorId,
+                                                 @Param("since") LocalDateTime since);
+
+    @Query("SELECT new com.apexev.dto.projection.CalendarVersion(COUNT(a), MAX(COALESCE(a.updatedAt, a.createdAt))) " +
+            "FROM Appointment a WHERE a.customer.userId = :customerId AND a.appointmentTime >= :since")
+    CalendarVersion findCalendarVersionByCustomer(@Param("customerId") Integer customerId,
+                                                  @Param("since") LocalDateTime since);
+
+    // Dùng cho Quản lý (xem lịch): phân trang keyset theo (appointmentTime ASC, id ASC),
+    // dùng index (status, appointment_time, appointment_id) / (appointment_time, appointment_id).
+    @Query(APPOINTMENT_VIEW + "WHERE a.status = :status " +
+            "ORDER BY a.appointmentTime ASC, a.id ASC")
+    List<AppointmentView> findPageByStatusFirst(@Param("status") AppointmentStatus status, Limit limit);
+
+    @Query(APPOINTMENT_VIEW + "WHERE a.status = :status " +
+            "AND (a.appointmentTime > :time OR (a.appointmentTime = :time AND a.id > :id)) " +
+            "ORDER BY a.appointmentTime ASC, a.id ASC")
+    List<AppointmentView> findPageByStatusAfter(@Param("status") AppointmentStatus status,
+                                                @Param("time") LocalDateTime time,
+                                                @Param("id") Long id,
+                                                Limit limit);
+
+    @Query(APPOINTMENT_VIEW + "WHERE a.appointmentTime BETWEEN :start AND :end " +
+            "ORDER BY a.appointmentTime ASC, a.id ASC")
+    List<AppointmentView> findPageByTimeRangeFirst(@Param("start") LocalDateTime start,
+                                                   @Param("end") LocalDateTime end,
+                                                   Limit limit);
+
+    @Query(APPOINTMENT_VIEW + "WHERE a.appointmentTime <= :end " +
+            "AND (a.appointmentTime > :time OR (a.appointmentTime = :time AND a.id > :id)) " +
+            "ORDER BY a.appointmentTime ASC, a.id ASC")
+    List<AppointmentView> findPageByTimeRangeAfter(@Param("end") LocalDateTime end,
+                                                   @Param("time") LocalDateTime time,
+                                                   @Param("id") Long id,
+                                                   Limit limit);
+
+    // lịch còn chiếm chỗ trong khoảng [start, end) -> nạp chỉ mục sức chứa xưởng (index appointment_time)
+    @Query("SELECT new com.apexev.dto.projection.AppointmentSlot(a.id, a.appointmentTime) FROM Appointment a " +
+            "WHERE a.appointmentTime >= :start AND a.appointmentTime < :end " +
+            "AND a.status <> com.apexev.enums.AppointmentStatus.CANCELLED")
+    List<AppointmentSlot> findSlotsBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    // Nhắc lịch: lịch CONFIRMED chưa nhắc trong [start, end), keyset theo (appointmentTime, id) trên
+    // index (status, appointment_time, appointment_id). FOR UPDATE SKIP LOCKED -> nhiều instance không nhắc trùng
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT new com.apexev.dto.projection.AppointmentSlot(a.id, a.appointmentTime) FROM Appointment a " +
+            "WHERE a.status = com.apexev.enums.AppointmentStatus.CONFIRMED AND a.reminderSentAt IS NULL " +
+            "AND a.appointmentTime < :end " +
+            "AND (a.appointmentTime > :time OR (a.appointmentTime = :time AND a.id > :id)) " +
+            "ORDER BY a.appointmentTime ASC, a.id ASC")
+    List<AppointmentSlot> lockDueReminders(@Param("end") LocalDateTime end,
+                                           @Param("time") LocalDateTime time,
+                                           @Param("id") Long id,
+                                           Limit limit);
+
+    @Query("SELECT new com.apexev.dto.projection.AppointmentReminderView(" +
+            "a.id, a.appointmentTime, c.fullName, c.email, v.licensePlate, v.model, a.requestedService) " +
+            "FROM Appointment a JOIN a.customer c JOIN a.vehicle v WHERE a.id IN :ids")
+    List<AppointmentReminderView> findReminderViews(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("UPDATE Appointment a SET a.reminderSentAt = :sentAt WHERE a.id IN :ids")
+    int markReminderSent(@Param("ids") Collection<Long> ids, @Param("sentAt") LocalDateTime sentAt);
 
     // ktra xe đó đã có cuộc hẹn nào chưa -> đang pending hoặc đang confirm
     boolean existsByVehicleIdAndStatusIn(Long vehicleId, List<AppointmentStatus> statuses);
@@ -1,10 +1,25 @@
 package com.apexev.repository.coreBussiness;
 
+import com.apexev.dto.projection.CatalogFingerprint;
+import com.apexev.dto.projection.CatalogItemView;
 import com.apexev.entity.MaintenanceService;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface MaintenanceServiceRepository extends JpaRepository<MaintenanceService, Long> {
     // (Admin sẽ dùng cái này để CRUD)
+
+    @Query("SELECT new com.apexev.dto.projection.CatalogItemView(s.id, s.serviceName, s.description, s.basePrice) " +
+            "FROM MaintenanceService s WHERE s.id IN :ids")
+    List<CatalogItemView> findCatalogViewsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT new com.apexev.dto.projection.CatalogFingerprint(COUNT(s), COALESCE(SUM(s.version), 0L), COALESCE(MAX(s.id), 0L)) " +
+            "FROM MaintenanceService s")
+    CatalogFingerprint catalogFingerprint();
 }
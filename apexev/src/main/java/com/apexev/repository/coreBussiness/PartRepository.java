@@ -1,12 +1,26 @@
 package com.apexev.repository.coreBussiness;
 
+import com.apexev.dto.projection.CatalogFingerprint;
+import com.apexev.dto.projection.CatalogItemView;
 import com.apexev.entity.Part;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface PartRepository extends JpaRepository<Part, Long> {
     Optional<Part> findBySku(String sku);
+
+    @Query("SELECT new com.apexev.dto.projection.CatalogItemView(p.id, p.partName, p.description, p.price) " +
+            "FROM Part p WHERE p.id IN :ids")
+    List<CatalogItemView> findCatalogViewsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT new com.apexev.dto.projection.CatalogFingerprint(COUNT(p), COALESCE(SUM(p.version), 0L), COALESCE(MAX(p.id), 0L)) " +
+            "FROM Part p")
+    CatalogFingerprint catalogFingerprint();
 }
@@ -0,0 +1,28 @@
+package com.apexev.repository.coreBussiness;
+
+import com.apexev.entity.ServiceOrderEventOutbox;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ServiceOrderEventOutboxRepository extends JpaRepository<ServiceOrderEventOutbox, Long> {
+
+    @Query("SELECT o.id FROM ServiceOrderEventOutbox o ORDER BY o.occurredAt, o.id")
+    List<Long> findOldestIds(Limit limit);
+
+    // không SKIP LOCKED: instance khác đang ghi cùng các dòng thì chờ, dòng nó đã xóa sẽ không còn trong kết quả
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Query("SELECT o FROM ServiceOrderEventOutbox o WHERE o.id IN :ids ORDER BY o.occurredAt, o.id")
+    List<ServiceOrderEventOutbox> lockAll(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,27 @@
+package com.apexev.repository.coreBussiness;
+
+import com.apexev.dto.projection.OrderSeq;
+import com.apexev.dto.projection.ServiceOrderEventView;
+import com.apexev.entity.ServiceOrderEvent;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ServiceOrderEventRepository extends JpaRepository<ServiceOrderEvent, Long> {
+
+    // đi theo unique index (order_id, seq), không sort thêm
+    @Query("SELECT new com.apexev.dto.projection.ServiceOrderEventView(e.seq, e.eventType, e.fromValue, e.toValue, " +
+            "e.actorId, u.fullName, e.occurredAt) FROM ServiceOrderEvent e LEFT JOIN User u ON u.userId = e.actorId " +
+            "WHERE e.orderId = :orderId AND e.seq > :afterSeq ORDER BY e.seq")
+    List<ServiceOrderEventView> findPage(@Param("orderId") Long orderId, @Param("afterSeq") long afterSeq, Limit limit);
+
+    @Query("SELECT new com.apexev.dto.projection.OrderSeq(e.orderId, MAX(e.seq)) FROM ServiceOrderEvent e " +
+            "WHERE e.orderId IN :orderIds GROUP BY e.orderId")
+    List<OrderSeq> findLastSeqs(@Param("orderIds") Collection<Long> orderIds);
+}
@@ -1,12 +1,22 @@
 package com.apexev.repository.coreBussiness;
 
+import com.apexev.dto.projection.ServiceOrderItemView;
 import com.apexev.entity.ServiceOrderItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface ServiceOrderItemRepository extends JpaRepository<ServiceOrderItem, Long> {
     List<ServiceOrderItem> findByServiceOrderId(Long serviceOrderId);
+
+    // Lấy item của cả danh sách đơn bằng 1 query IN (...) thay vì 1 query cho mỗi đơn (projection, không hydrate entity)
+    @Query("SELECT new com.apexev.dto.projection.ServiceOrderItemView(" +
+            "i.serviceOrder.id, i.id, i.itemType, i.itemRefId, i.quantity, i.unitPrice, i.status) " +
+            "FROM ServiceOrderItem i WHERE i.serviceOrder.id IN :serviceOrderIds")
+    List<ServiceOrderItemView> findViewsByServiceOrderIdIn(@Param("serviceOrderIds") Collection<Long> serviceOrderIds);
 }
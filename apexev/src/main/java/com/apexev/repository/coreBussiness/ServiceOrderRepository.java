@@ -1,24 +1,126 @@
-// ServiceOrderRepository.java
 package com.apexev.repository.coreBussiness;
 
+import com.apexev.dto.projection.OrderStatusVersion;
+import com.apexev.dto.projection.ServiceOrderView;
 import com.apexev.entity.ServiceOrder;
+import com.apexev.entity.User;
 import com.apexev.enums.OrderStatus;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ServiceOrderRepository extends JpaRepository<ServiceOrder, Long> {
+    // Các query danh sách join luôn khách hàng, xe, cố vấn, KTV trong 1 câu SELECT
+    // -> không phát sinh thêm 1 query cho mỗi association khi map sang ServiceOrderResponse.
+    // invoice và *.staffProfile là phía mappedBy của @OneToOne: Hibernate không lazy được (không biết null hay không)
+    // nên nếu không join sẵn sẽ bắn 1 query cho mỗi đơn / mỗi user.
+
     // Dùng cho Khách hàng
+    @EntityGraph(attributePaths = {"customer.staffProfile", "vehicle", "serviceAdvisor.staffProfile", "technician.staffProfile", "invoice"})
     List<ServiceOrder> findByCustomerUserIdOrderByCreatedAtDesc(Long customerId);
 
     // Dùng cho KTV
+    @EntityGraph(attributePaths = {"customer.staffProfile", "vehicle", "serviceAdvisor.staffProfile", "technician.staffProfile", "invoice"})
     List<ServiceOrder> findByTechnicianUserIdAndStatusNot(Long technicianId, OrderStatus status);
 
+    // Projection cho màn hình đọc: chỉ select các cột ServiceOrderResponse cần, không đưa entity vào persistence context
+    String SERVICE_ORDER_VIEW = "SELECT new com.apexev.dto.projection.ServiceOrderView(" +
+            "o.id, c.userId, c.fullName, c.email, c.phone, " +
+            "v.id, v.licensePlate, v.model, v.brand, " +
+            "o.status, o.customerDescription, o.advisorNotes, o.technicianNotes, " +
+            "sa.userId, sa.fullName, t.userId, t.fullName, ap.id, o.createdAt, o.completedAt, o.version) " +
+            "FROM ServiceOrder o JOIN o.customer c JOIN o.vehicle v JOIN o.serviceAdvisor sa " +
+            "LEFT JOIN o.technician t LEFT JOIN o.appointment ap ";
+
+    @Query(SERVICE_ORDER_VIEW + "WHERE o.id = :id")
+    Optional<ServiceOrderView> findViewById(@Param("id") Long id);
+
+    // so trên cột technician_id của đơn (không qua join) -> đi theo index (technician_id, status)
+    @Query(SERVICE_ORDER_VIEW + "WHERE o.technician.userId = :technicianId AND o.status IN :statuses " +
+            "ORDER BY o.createdAt, o.id")
+    List<ServiceOrderView> findViewsByTechnicianAndStatusIn(@Param("technicianId") Integer technicianId,
+                                                            @Param("statuses") Collection<OrderStatus> statuses);
+
+    @Query("SELECT o.technician.userId FROM ServiceOrder o WHERE o.id = :id")
+    Optional<Integer> findTechnicianIdById(@Param("id") Long id);
+
+    @Query("SELECT new com.apexev.dto.projection.OrderStatusVersion(o.id, o.status, o.version, t.userId) " +
+            "FROM ServiceOrder o LEFT JOIN o.technician t WHERE o.id = :id")
+    Optional<OrderStatusVersion> findStatusVersionById(@Param("id") Long id);
+
+    @Query("SELECT new com.apexev.dto.projection.OrderStatusVersion(o.id, o.status, o.version, t.userId) " +
+            "FROM ServiceOrder o LEFT JOIN o.technician t WHERE o.id IN :ids")
+    List<OrderStatusVersion> findStatusVersionsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Chuyển trạng thái bằng 1 câu UPDATE có điều kiện (optimistic lock, không khóa dòng):
+    // trả về 0 khi đơn đã bị người khác đổi từ lúc đọc (status hoặc version khác)
+    @Modifying
+    @Query("UPDATE ServiceOrder o SET o.status = :to, o.version = o.version + 1, " +
+            "o.completedAt = COALESCE(:completedAt, o.completedAt) " +
+            "WHERE o.id = :id AND o.status = :from AND o.version = :version")
+    int transitionStatus(@Param("id") Long id, @Param("from") OrderStatus from, @Param("to") OrderStatus to,
+                         @Param("version") long version, @Param("completedAt") LocalDateTime completedAt);
+
+    // Thao tác hàng loạt: 1 câu cho mọi đơn cùng (from, to); đơn đã bị đổi trạng thái từ lúc đọc thì không khớp WHERE
+    @Modifying
+    @Query("UPDATE ServiceOrder o SET o.status = :to, o.version = o.version + 1, " +
+            "o.completedAt = COALESCE(:completedAt, o.completedAt) " +
+            "WHERE o.id IN :ids AND o.status = :from")
+    int transitionStatuses(@Param("ids") Collection<Long> ids, @Param("from") OrderStatus from,
+                           @Param("to") OrderStatus to, @Param("completedAt") LocalDateTime completedAt);
+
+    // Đổi KTV hàng loạt, so khớp KTV cũ như chuyển trạng thái so khớp status: 1 câu cho mọi đơn cùng (KTV cũ, KTV mới);
+    // đơn đã bị người khác đổi KTV hoặc đã đóng từ lúc đọc thì không khớp WHERE
+    @Modifying
+    @Query("UPDATE ServiceOrder o SET o.technician = :technician, o.version = o.version + 1 " +
+            "WHERE o.id IN :ids AND o.technician = :from AND o.status NOT IN :closed")
+    int reassignTechnician(@Param("ids") Collection<Long> ids, @Param("from") User from,
+                           @Param("technician") User technician, @Param("closed") Collection<OrderStatus> closed);
+
+    // như trên cho các đơn chưa có KTV
+    @Modifying
+    @Query("UPDATE ServiceOrder o SET o.technician = :technician, o.version = o.version + 1 " +
+            "WHERE o.id IN :ids AND o.technician IS NULL AND o.status NOT IN :closed")
+    int assignTechnician(@Param("ids") Collection<Long> ids, @Param("technician") User technician,
+                         @Param("closed") Collection<OrderStatus> closed);
+
+    // Phân trang keyset theo (createdAt DESC, id DESC), dùng index (service_advisor_id, created_at, order_id)
+    // / (status, created_at, order_id): chỉ đọc đúng `limit` dòng dù bảng có bao nhiêu đơn.
+    // Trang đầu không có cursor -> gọi bản *First.
+
     // Dùng cho Cố vấn
-    List<ServiceOrder> findByServiceAdvisorUserIdOrderByCreatedAtDesc(Long advisorId);
+    @Query(SERVICE_ORDER_VIEW + "WHERE sa.userId = :advisorId " +
+            "ORDER BY o.createdAt DESC, o.id DESC")
+    List<ServiceOrderView> findPageByAdvisorFirst(@Param("advisorId") Integer advisorId, Limit limit);
+
+    @Query(SERVICE_ORDER_VIEW + "WHERE sa.userId = :advisorId " +
+            "AND (o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) " +
+            "ORDER BY o.createdAt DESC, o.id DESC")
+    List<ServiceOrderView> findPageByAdvisorAfter(@Param("advisorId") Integer advisorId,
+                                                  @Param("createdAt") LocalDateTime createdAt,
+                                                  @Param("id") Long id,
+                                                  Limit limit);
 
     // Dùng cho Quản lý
-    List<ServiceOrder> findByStatus(OrderStatus status);
-}
\ No newline at end of file
+    @Query(SERVICE_ORDER_VIEW + "WHERE o.status = :status " +
+            "ORDER BY o.createdAt DESC, o.id DESC")
+    List<ServiceOrderView> findPageByStatusFirst(@Param("status") OrderStatus status, Limit limit);
+
+    @Query(SERVICE_ORDER_VIEW + "WHERE o.status = :status " +
+            "AND (o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) " +
+            "ORDER BY o.createdAt DESC, o.id DESC")
+    List<ServiceOrderView> findPageByStatusAfter(@Param("status") OrderStatus status,
+                                                 @Param("createdAt") LocalDateTime createdAt,
+                                                 @Param("id") Long id,
+                                                 Limit limit);
+}
@@ -0,0 +1,32 @@
+package com.apexev.repository.coreBussiness;
+
+import com.apexev.entity.WorkshopDayLock;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface WorkshopDayLockRepository extends JpaRepository<WorkshopDayLock, LocalDate> {
+
+    // khóa theo khóa chính (không khóa khoảng trống) tới hết transaction đặt lịch -> phải chạy trong transaction đó
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Query("SELECT d FROM WorkshopDayLock d WHERE d.bookingDate IN :days ORDER BY d.bookingDate")
+    List<WorkshopDayLock> lockAll(@Param("days") Collection<LocalDate> days);
+
+    // 2 instance cùng tạo dòng cho 1 ngày -> bản sau bỏ qua
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT IGNORE INTO workshop_day_locks (booking_date) VALUES (:day)", nativeQuery = true)
+    void insertIgnore(@Param("day") LocalDate day);
+}
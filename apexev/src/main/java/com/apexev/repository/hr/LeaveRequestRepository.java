@@ -1,5 +1,6 @@
 package com.apexev.repository.hr;
 
+import com.apexev.dto.projection.StaffLeave;
 import com.apexev.entity.LeaveRequest;
 import com.apexev.enums.LeaveStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -23,5 +24,12 @@ public interface LeaveRequestRepository extends JpaRepository<LeaveRequest, Inte
     List<LeaveRequest> findApprovedLeavesInTimeRange(@Param("staffId") Integer staffId,
                                                       @Param("startDate") LocalDate startDate,
                                                       @Param("endDate") LocalDate endDate);
+
+    // mọi đơn nghỉ đã duyệt giao với [startDate, endDate] -> trừ khỏi sức chứa xưởng
+    @Query("SELECT new com.apexev.dto.projection.StaffLeave(lr.staff.userId, lr.startDate, lr.endDate) " +
+           "FROM LeaveRequest lr WHERE lr.status = 'APPROVED' " +
+           "AND lr.startDate <= :endDate AND lr.endDate >= :startDate")
+    List<StaffLeave> findApprovedLeaves(@Param("startDate") LocalDate startDate,
+                                        @Param("endDate") LocalDate endDate);
 }
 
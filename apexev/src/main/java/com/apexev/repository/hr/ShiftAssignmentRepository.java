@@ -1,5 +1,6 @@
 package com.apexev.repository.hr;
 
+import com.apexev.dto.projection.StaffShiftInterval;
 import com.apexev.entity.ShiftAssignment;
 import com.apexev.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -22,5 +23,15 @@ public interface ShiftAssignmentRepository extends JpaRepository<ShiftAssignment
     List<ShiftAssignment> findStaffAssignmentsInTimeRange(@Param("staffId") Integer staffId,
                                                            @Param("startTime") LocalDateTime startTime,
                                                            @Param("endTime") LocalDateTime endTime);
+
+    // ca của kỹ thuật viên giao với [startTime, endTime) -> sức chứa xưởng theo giờ
+    @Query("SELECT new com.apexev.dto.projection.StaffShiftInterval(u.userId, s.startTime, s.endTime) " +
+           "FROM ShiftAssignment sa JOIN sa.shift s JOIN sa.staff u " +
+           "WHERE u.role = com.apexev.enums.UserRole.TECHNICIAN " +
+           "AND s.status <> com.apexev.enums.ShiftStatus.CANCELLED " +
+           "AND sa.status <> com.apexev.enums.ShiftStatus.CANCELLED " +
+           "AND s.startTime < :endTime AND s.endTime > :startTime")
+    List<StaffShiftInterval> findTechnicianIntervals(@Param("startTime") LocalDateTime startTime,
+                                                     @Param("endTime") LocalDateTime endTime);
 }
 
@@ -0,0 +1,41 @@
+package com.apexev.repository.supportAndSystem;
+
+import com.apexev.dto.projection.OutboxBacklog;
+import com.apexev.entity.MailOutbox;
+import com.apexev.enums.MailOutboxStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface MailOutboxRepository extends JpaRepository<MailOutbox, Long> {
+
+    // FOR UPDATE SKIP LOCKED (lock.timeout = -2): nhiều instance cùng quét thì mỗi email chỉ 1 instance nhận
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT m FROM MailOutbox m WHERE m.status = com.apexev.enums.MailOutboxStatus.PENDING " +
+            "AND m.nextAttemptAt <= :now ORDER BY m.nextAttemptAt, m.id")
+    List<MailOutbox> lockDue(@Param("now") Instant now, Limit limit);
+
+    @Modifying
+    @Query("UPDATE MailOutbox m SET m.status = com.apexev.enums.MailOutboxStatus.SENT, m.sentAt = :sentAt, " +
+            "m.attempts = m.attempts + 1, m.lastError = null WHERE m.id IN :ids")
+    int markSent(@Param("ids") Collection<Long> ids, @Param("sentAt") Instant sentAt);
+
+    @Modifying
+    @Query("UPDATE MailOutbox m SET m.status = :status, m.attempts = :attempts, m.nextAttemptAt = :nextAttemptAt, " +
+            "m.lastError = :lastError WHERE m.id = :id")
+    int markFailed(@Param("id") Long id, @Param("status") MailOutboxStatus status, @Param("attempts") int attempts,
+                   @Param("nextAttemptAt") Instant nextAttemptAt, @Param("lastError") String lastError);
+
+    @Query("SELECT new com.apexev.dto.projection.OutboxBacklog(COUNT(m), MIN(m.createdAt)) FROM MailOutbox m " +
+            "WHERE m.status = com.apexev.enums.MailOutboxStatus.PENDING")
+    OutboxBacklog pendingBacklog();
+}
@@ -0,0 +1,34 @@
+package com.apexev.repository.userAndVehicle;
+
+import com.apexev.entity.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, String> {
+    // nạp index trong RAM lúc khởi động: chỉ những token chưa hết hạn
+    List<RevokedToken> findByExpiresAtAfter(Instant now);
+
+    // đồng bộ các token bị thu hồi ở instance khác
+    List<RevokedToken> findByRevokedAtAfter(Instant since);
+
+    // INSERT thẳng (save() với @Id tự gán là merge): jti đã có thì DB báo trùng khóa -> token đã bị dùng ở nơi khác
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO revoked_tokens (jti, user_id, expires_at, revoked_at) VALUES (:jti, :userId, :expiresAt, :revokedAt)",
+            nativeQuery = true)
+    void insert(@Param("jti") String jti, @Param("userId") Integer userId,
+                @Param("expiresAt") Instant expiresAt, @Param("revokedAt") Instant revokedAt);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RevokedToken r WHERE r.expiresAt <= :now")
+    int deleteExpired(@Param("now") Instant now);
+}
@@ -6,9 +6,14 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,7 +30,28 @@ public interface UserRepository extends JpaRepository<User, Integer> {
 
     boolean existsByPhone(String phone);
 
+    // Kiểm tra trùng cho cả lô đăng ký bằng 1 query: [email, phone] của các user đã tồn tại
+    @Query("SELECT u.email, u.phone FROM User u WHERE u.email IN :emails OR u.phone IN :phones")
+    List<Object[]> findEmailsAndPhonesIn(@Param("emails") Collection<String> emails,
+                                         @Param("phones") Collection<String> phones);
+
     List<User> findByRole(UserRole role);
 
+    @Query("SELECT u.userId FROM User u WHERE u.userId IN :ids AND u.role = :role")
+    List<Integer> findIdsByIdInAndRole(@Param("ids") Collection<Integer> ids, @Param("role") UserRole role);
+
     Page<User> findAll(Specification<User> spec, Pageable pageable);
+
+    // [userId, tokensValidAfter] của những user đã "đăng xuất mọi nơi" sau thời điểm since
+    @Query("SELECT u.userId, u.tokensValidAfter FROM User u WHERE u.tokensValidAfter > :since")
+    List<Object[]> findTokenCutoffsAfter(@Param("since") Instant since);
+
+    // chủ của URL lịch .ics (tra theo hash, cột unique)
+    Optional<User> findByCalendarFeedTokenHash(String calendarFeedTokenHash);
+
+    // đặt token mới (URL cũ hết hiệu lực) hoặc null để thu hồi
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.calendarFeedTokenHash = :hash WHERE u.userId = :id")
+    int updateCalendarFeedTokenHash(@Param("id") Integer id, @Param("hash") String hash);
 }
@@ -1,6 +1,7 @@
 package com.apexev.repository.userAndVehicle;
 
 import com.apexev.entity.Vehicle;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -16,5 +17,8 @@ public interface VehicleRepository extends JpaRepository<Vehicle, Long> {
     Optional<Vehicle> findByLicensePlate(String licensePlate);
     //lấy xe theo số khung
     Optional<Vehicle> findByVinNumber(String vinNumber);
+    // xe kèm chủ xe trong 1 query (đặt lịch cần cả 2)
+    @EntityGraph(attributePaths = "customer")
+    Optional<Vehicle> findWithCustomerById(Long id);
 
 }
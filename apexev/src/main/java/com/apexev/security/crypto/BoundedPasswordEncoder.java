@@ -0,0 +1,158 @@
+package com.apexev.security.crypto;
+
+import com.apexev.exception.ServiceBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Chạy BCrypt trên 1 pool riêng có giới hạn số thread và độ dài hàng đợi.
+ * Khi hàng đợi đầy -> trả 503 + Retry-After ngay, không để 1 đợt login dồn dập chiếm hết thread của Tomcat.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private static final Logger logger = LoggerFactory.getLogger(BoundedPasswordEncoder.class);
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final long waitTimeoutMs;
+    private final int retryAfterSeconds;
+
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejectedCounter;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity,
+                                  long waitTimeoutMs, int retryAfterSeconds, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.waitTimeoutMs = waitTimeoutMs;
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                threads, threads,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("password.hashing.queue.depth", executor, e -> e.getQueue().size())
+                .description("Số yêu cầu hash đang chờ trong hàng đợi")
+                .register(meterRegistry);
+        Gauge.builder("password.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+        this.encodeTimer = Timer.builder("password.hashing.latency").tag("operation", "encode").register(meterRegistry);
+        this.matchesTimer = Timer.builder("password.hashing.latency").tag("operation", "matches").register(meterRegistry);
+        this.rejectedCounter = Counter.builder("password.hashing.rejected").register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return submit(() -> encodeTimer.recordCallable(() -> delegate.encode(rawPassword)));
+    }
+
+    /**
+     * Hash cả 1 lô mật khẩu (đăng ký nhân viên hàng loạt), giữ nguyên thứ tự.
+     * Lô được chia thành tối đa số thread của pool, mỗi phần chỉ chiếm 1 chỗ trong hàng đợi
+     * nên không đẩy các request login ra ngoài; phần nào không vào được hàng đợi thì chạy luôn trên thread gọi.
+     */
+    public List<String> encodeAll(List<? extends CharSequence> rawPasswords) {
+        int size = rawPasswords.size();
+        String[] encoded = new String[size];
+        int chunks = Math.max(1, Math.min(executor.getCorePoolSize(), size));
+        int chunkSize = (size + chunks - 1) / chunks;
+
+        List<Future<?>> futures = new ArrayList<>();
+        // phần đầu tiên luôn chạy trên thread gọi, các phần còn lại đẩy sang pool
+        for (int start = chunkSize; start < size; start += chunkSize) {
+            Runnable chunk = encodeRange(rawPasswords, encoded, start, Math.min(start + chunkSize, size));
+            try {
+                futures.add(executor.submit(chunk));
+            } catch (RejectedExecutionException e) {
+                chunk.run();
+            }
+        }
+        encodeRange(rawPasswords, encoded, 0, Math.min(chunkSize, size)).run();
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                futures.forEach(f -> f.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new ServiceBusyException("Hệ thống đang bận, vui lòng thử lại sau", retryAfterSeconds);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw new IllegalStateException("Password hashing failed", e.getCause());
+            }
+        }
+        return Arrays.asList(encoded);
+    }
+
+    private Runnable encodeRange(List<? extends CharSequence> rawPasswords, String[] encoded, int from, int to) {
+        return () -> {
+            for (int i = from; i < to; i++) {
+                CharSequence rawPassword = rawPasswords.get(i);
+                encoded[i] = encodeTimer.record(() -> delegate.encode(rawPassword));
+            }
+        };
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(() -> matchesTimer.recordCallable(() -> delegate.matches(rawPassword, encodedPassword)));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T submit(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            logger.warn("Password hashing queue is full ({} waiting)", executor.getQueue().size());
+            throw new ServiceBusyException("Hệ thống đang bận, vui lòng thử lại sau", retryAfterSeconds);
+        }
+        try {
+            return future.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejectedCounter.increment();
+            throw new ServiceBusyException("Hệ thống đang bận, vui lòng thử lại sau", retryAfterSeconds);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException("Hệ thống đang bận, vui lòng thử lại sau", retryAfterSeconds);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    // Spring tự gọi khi đóng context (destroy method được suy ra từ tên "shutdown")
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -1,18 +1,31 @@
 package com.apexev.security.jwt;
 
+import com.apexev.enums.UserRole;
 import com.apexev.security.services.UserDetailsImpl;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.security.SignatureException;
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtUtils {
@@ -20,6 +33,18 @@ public class JwtUtils {
 
     private static final Logger logger = LoggerFactory.getLogger(JwtUtils.class);
 
+    // Các claim nhúng vào access token để filter dựng principal mà không cần query DB
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_ACTIVE = "active";
+    public static final String CLAIM_EMAIL = "email";
+    public static final String CLAIM_FULL_NAME = "name";
+
+    // Phân biệt access / refresh token: refresh token không được dùng để gọi API và ngược lại
+    public static final String CLAIM_TOKEN_TYPE = "typ";
+    public static final String TOKEN_TYPE_ACCESS = "access";
+    public static final String TOKEN_TYPE_REFRESH = "refresh";
+
     @Value("${com.apexev.jwtSecret}")
     private String jwtSecretString;
 
@@ -30,18 +55,67 @@ public class JwtUtils {
     @Value("${com.apexev.jwtRefreshExpirationMs}")
     private Long jwtRefreshExpiryTime;
 
+    // true -> JwtAuthenticationFilter dựng UserDetailsImpl từ claim, false -> luôn load user từ DB
+    @Value("${com.apexev.jwtClaimsAuthEnabled:true}")
+    private boolean claimsAuthEnabled;
+
+    // Số token đã verify được giữ lại, mỗi entry hết hạn đúng lúc token hết hạn (exp)
+    @Value("${com.apexev.jwtVerifiedCacheSize:10000}")
+    private long verifiedCacheSize;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     private SecretKey secretKey;
 
+    // JwtParser của jjwt là immutable, thread-safe -> build 1 lần, dùng cho mọi request
+    private JwtParser jwtParser;
+
+    // key = SHA-256 của token (không giữ token gốc trong RAM), value = claims đã verify chữ ký
+    private Cache<String, Claims> verifiedTokenCache;
+
     @PostConstruct
     public void init() {
         this.secretKey = Keys.hmacShaKeyFor(jwtSecretString.getBytes());
+        this.jwtParser = Jwts.parser()
+                .verifyWith(secretKey)
+                .build();
+        this.verifiedTokenCache = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheSize)
+                .expireAfter(new Expiry<String, Claims>() {
+                    @Override
+                    public long expireAfterCreate(String key, Claims claims, long currentTime) {
+                        long remainingMs = claims.getExpiration().getTime() - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMs, 0));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokenCache, "verifiedTokenCache");
     }
 
     public String generateJwtToken(Authentication authentication) {
         UserDetailsImpl userPrincipal = (UserDetailsImpl) authentication.getPrincipal();
+        String role = userPrincipal.getAuthorities().iterator().next().getAuthority().substring("ROLE_".length());
 
         return Jwts.builder()
                 .setSubject(userPrincipal.getUsername())
+                .claim(CLAIM_USER_ID, userPrincipal.getId())
+                .claim(CLAIM_ROLE, role)
+                .claim(CLAIM_ACTIVE, userPrincipal.isEnabled())
+                .claim(CLAIM_EMAIL, userPrincipal.getEmail())
+                .claim(CLAIM_FULL_NAME, userPrincipal.getFullName())
+                .claim(CLAIM_TOKEN_TYPE, TOKEN_TYPE_ACCESS)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date((new Date()).getTime() + jwtExpiryTime))
                 .signWith(secretKey, SignatureAlgorithm.HS256)
@@ -52,13 +126,17 @@ public class JwtUtils {
         // setExpiration: đặt thời gian hết hạn cho token
         // signWith: sử dụng khóa bí mật để ký token
         // compact: tạo ra token dưới dạng chuỗi
+        // claim uid/role/active/email/name: đủ để dựng lại UserDetailsImpl ở filter mà không cần query DB
     }
 
     public String generateRefreshToken(Authentication authentication) {
         UserDetailsImpl userPrincipal = (UserDetailsImpl) authentication.getPrincipal();
 
+        // jti riêng cho từng refresh token -> thu hồi được từng token (logout, rotation)
         return Jwts.builder()
+                .setId(UUID.randomUUID().toString())
                 .setSubject(String.valueOf(userPrincipal.getId()))
+                .claim(CLAIM_TOKEN_TYPE, TOKEN_TYPE_REFRESH)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date((new Date()).getTime() + jwtRefreshExpiryTime))
                 .signWith(secretKey, SignatureAlgorithm.HS256)
@@ -68,37 +146,43 @@ public class JwtUtils {
     public String generateTokenFromUsername(String username) {
         return Jwts.builder()
                 .setSubject(username)
+                .claim(CLAIM_TOKEN_TYPE, TOKEN_TYPE_ACCESS)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date((new Date()).getTime() + jwtExpiryTime))
                 .signWith(secretKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    public String getUsernameFromJwtToken(String token) {
-        return Jwts.parser()
-                .setSigningKey(secretKey)
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+    public boolean isRefreshToken(Claims claims) {
+        return TOKEN_TYPE_REFRESH.equals(claims.get(CLAIM_TOKEN_TYPE, String.class));
     }
 
-    public Integer getUserIdFromJwtToken(String token) {
-        return Integer.valueOf(Jwts.parser()
-                .setSigningKey(secretKey)
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject());
+    public boolean isClaimsAuthEnabled() {
+        return claimsAuthEnabled;
     }
 
-    public boolean validateJwtToken(String authToken) {
+    /**
+     * Verify chữ ký + hạn của token đúng 1 lần và trả về claims.
+     * Token đã verify trước đó (client poll liên tục cùng 1 token) được lấy từ cache -> bỏ qua HMAC, Base64, parse JSON.
+     *
+     * @return claims nếu token hợp lệ, null nếu không hợp lệ / hết hạn
+     */
+    public Claims verifyJwtToken(String token) {
+        if (token == null || token.isBlank()) {
+            logger.error("JWT claims string is empty");
+            return null;
+        }
+        String cacheKey = hashToken(token);
+        Claims cached = verifiedTokenCache.getIfPresent(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
         try {
-            Jwts.parser()
-                    .setSigningKey(secretKey)
-                    .build()
-                    .parseClaimsJws(authToken);
-            return true;
+            Claims claims = jwtParser.parseSignedClaims(token).getPayload();
+            if (claims.getExpiration() != null) {
+                verifiedTokenCache.put(cacheKey, claims);
+            }
+            return claims;
         } catch (SignatureException e) {
             logger.error("Invalid JWT signature: {}", e.getMessage());
         } catch (MalformedJwtException e) {
@@ -109,7 +193,50 @@ public class JwtUtils {
             logger.error("JWT token is unsupported: {}", e.getMessage());
         } catch (IllegalArgumentException e) {
             logger.error("JWT claims string is empty: {}", e.getMessage());
+        } catch (JwtException e) {
+            logger.error("JWT token is invalid: {}", e.getMessage());
+        }
+        return null;
+    }
+
+    private static String hashToken(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
-        return false;
     }
-}
\ No newline at end of file
+
+    // Trả về null nếu token được phát hành trước khi có claim (token cũ) -> filter sẽ fallback về DB
+    public UserDetailsImpl getUserDetailsFromClaims(Claims claims) {
+        Integer userId = claims.get(CLAIM_USER_ID, Integer.class);
+        String role = claims.get(CLAIM_ROLE, String.class);
+        Boolean active = claims.get(CLAIM_ACTIVE, Boolean.class);
+        if (userId == null || role == null || active == null) {
+            return null;
+        }
+        return UserDetailsImpl.build(
+                userId,
+                claims.getSubject(),
+                claims.get(CLAIM_EMAIL, String.class),
+                claims.get(CLAIM_FULL_NAME, String.class),
+                UserRole.valueOf(role),
+                active
+        );
+    }
+
+    public String getUsernameFromJwtToken(String token) {
+        Claims claims = verifyJwtToken(token);
+        return claims != null ? claims.getSubject() : null;
+    }
+
+    public Integer getUserIdFromJwtToken(String token) {
+        Claims claims = verifyJwtToken(token);
+        return claims != null ? Integer.valueOf(claims.getSubject()) : null;
+    }
+
+    public boolean validateJwtToken(String authToken) {
+        return verifyJwtToken(authToken) != null;
+    }
+}
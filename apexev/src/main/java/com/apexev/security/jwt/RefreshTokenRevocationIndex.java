@@ -0,0 +1,241 @@
+package com.apexev.security.jwt;
+
+import com.apexev.entity.RevokedToken;
+import com.apexev.repository.userAndVehicle.RevokedTokenRepository;
+import com.apexev.repository.userAndVehicle.UserRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Danh sách refresh token đã thu hồi, giữ trong RAM để kiểm tra mà không cần query DB.
+ * <ul>
+ *     <li>Bloom filter: trả lời nhanh "chắc chắn chưa bị thu hồi" cho phần lớn token</li>
+ *     <li>Tập chính xác jti -> exp: xác nhận lại khi Bloom filter báo "có thể"</li>
+ *     <li>Mốc thời gian theo user (đăng xuất mọi nơi / khóa tài khoản): token phát hành trước mốc này bị từ chối</li>
+ * </ul>
+ * Bảng revoked_tokens là nguồn dữ liệu gốc, index được nạp lại lúc khởi động và đồng bộ định kỳ
+ * để các instance khác cũng thấy token bị thu hồi.
+ */
+@Component
+public class RefreshTokenRevocationIndex {
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenRevocationIndex.class);
+
+    // tỉ lệ dương tính giả của Bloom filter, dương tính giả chỉ tốn thêm 1 lần tra map
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    // lùi mốc đồng bộ 1 chút để không sót bản ghi ghi cùng lúc với lần đồng bộ trước
+    private static final long SYNC_OVERLAP_MS = 5000;
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${com.apexev.refreshRevocation.expectedInsertions:100000}")
+    private int expectedInsertions;
+
+    @Value("${com.apexev.jwtRefreshExpirationMs}")
+    private long jwtRefreshExpiryTime;
+
+    private final Map<String, Instant> revokedTokens = new ConcurrentHashMap<>();
+    private final Map<Integer, Instant> userCutoffs = new ConcurrentHashMap<>();
+
+    // revoke() và rebuild Bloom filter dùng chung lock, đọc (isRevoked) thì không cần lock
+    private final Object lock = new Object();
+
+    private int numBits;
+    private int numHashes;
+    private volatile AtomicLongArray bloomBits;
+    private volatile Instant lastSync;
+
+    @PostConstruct
+    public void init() {
+        int n = Math.max(expectedInsertions, 1);
+        this.numBits = (int) Math.max(64, Math.ceil(-n * Math.log(FALSE_POSITIVE_RATE) / (Math.log(2) * Math.log(2))));
+        this.numHashes = Math.max(1, (int) Math.round((double) numBits / n * Math.log(2)));
+        this.bloomBits = new AtomicLongArray((numBits + 63) / 64);
+
+        Instant now = Instant.now();
+        for (RevokedToken token : revokedTokenRepository.findByExpiresAtAfter(now)) {
+            revokedTokens.put(token.getJti(), token.getExpiresAt());
+            addToBloom(bloomBits, token.getJti());
+        }
+        // mốc cũ hơn thời hạn refresh token thì mọi token phát hành trước đó đều đã hết hạn
+        for (Object[] row : userRepository.findTokenCutoffsAfter(now.minusMillis(jwtRefreshExpiryTime))) {
+            userCutoffs.put((Integer) row[0], (Instant) row[1]);
+        }
+        this.lastSync = now;
+
+        Gauge.builder("jwt.revocation.tokens", revokedTokens, Map::size).register(meterRegistry);
+        Gauge.builder("jwt.revocation.user_cutoffs", userCutoffs, Map::size).register(meterRegistry);
+        logger.info("Loaded {} revoked refresh tokens and {} user cutoffs", revokedTokens.size(), userCutoffs.size());
+    }
+
+    /**
+     * Kiểm tra jti đã bị thu hồi chưa, không chạm DB.
+     */
+    public boolean isRevoked(String jti) {
+        if (jti == null) {
+            return false;
+        }
+        if (!mightContain(bloomBits, jti)) {
+            return false;
+        }
+        return revokedTokens.containsKey(jti);
+    }
+
+    /**
+     * Token phát hành tại issuedAt có bị vô hiệu bởi "đăng xuất mọi nơi" / khóa tài khoản không.
+     * iat của JWT chỉ chính xác tới giây nên token phát hành cùng giây với mốc cũng bị từ chối.
+     */
+    public boolean isCutOff(Integer userId, Date issuedAt) {
+        if (userId == null) {
+            return false;
+        }
+        Instant cutoff = userCutoffs.get(userId);
+        if (cutoff == null) {
+            return false;
+        }
+        return issuedAt == null || !issuedAt.toInstant().isAfter(cutoff);
+    }
+
+    /**
+     * Thu hồi 1 refresh token (ghi DB + index). Bảng revoked_tokens quyết định ai thắng:
+     * 2 instance cùng thu hồi 1 jti thì chỉ 1 INSERT thành công, instance còn lại nhận false.
+     * Hàm trả về sau khi bản ghi đã commit nên được phép cấp cặp token mới ngay.
+     *
+     * @return false nếu jti đã bị thu hồi trước đó -> token đã được dùng rồi, không được cấp token mới
+     */
+    public boolean revoke(String jti, Integer userId, Date expiresAt) {
+        Instant expiry = expiresAt.toInstant();
+        synchronized (lock) {
+            if (revokedTokens.putIfAbsent(jti, expiry) != null) {
+                return false;
+            }
+            addToBloom(bloomBits, jti);
+        }
+        try {
+            revokedTokenRepository.insert(jti, userId, expiry, Instant.now());
+        } catch (DataIntegrityViolationException e) {
+            // instance khác đã thu hồi jti này, index chưa kịp đồng bộ -> giữ trong index, từ chối
+            logger.debug("Refresh token {} was already revoked by another instance", jti);
+            return false;
+        } catch (RuntimeException e) {
+            // không ghi được DB thì bỏ khỏi tập chính xác, Bloom filter dư 1 bit không sao
+            revokedTokens.remove(jti, expiry);
+            throw e;
+        }
+        return true;
+    }
+
+    public void applyCutoff(Integer userId, Instant tokensValidAfter) {
+        userCutoffs.merge(userId, tokensValidAfter, (oldValue, newValue) -> newValue.isAfter(oldValue) ? newValue : oldValue);
+    }
+
+    // Lấy các token / mốc thu hồi do instance khác ghi vào DB
+    @Scheduled(fixedDelayString = "${com.apexev.refreshRevocation.syncIntervalMs:30000}",
+            initialDelayString = "${com.apexev.refreshRevocation.syncIntervalMs:30000}")
+    public void syncFromDatabase() {
+        Instant now = Instant.now();
+        Instant since = lastSync.minusMillis(SYNC_OVERLAP_MS);
+        for (RevokedToken token : revokedTokenRepository.findByRevokedAtAfter(since)) {
+            synchronized (lock) {
+                if (revokedTokens.putIfAbsent(token.getJti(), token.getExpiresAt()) == null) {
+                    addToBloom(bloomBits, token.getJti());
+                }
+            }
+        }
+        for (Object[] row : userRepository.findTokenCutoffsAfter(since)) {
+            applyCutoff((Integer) row[0], (Instant) row[1]);
+        }
+        lastSync = now;
+    }
+
+    // Bloom filter không xóa được phần tử -> bỏ token hết hạn khỏi tập chính xác rồi dựng lại filter
+    @Scheduled(fixedDelayString = "${com.apexev.refreshRevocation.purgeIntervalMs:3600000}",
+            initialDelayString = "${com.apexev.refreshRevocation.purgeIntervalMs:3600000}")
+    public void purgeExpired() {
+        Instant now = Instant.now();
+        synchronized (lock) {
+            revokedTokens.values().removeIf(expiry -> !expiry.isAfter(now));
+            AtomicLongArray rebuilt = new AtomicLongArray(bloomBits.length());
+            revokedTokens.keySet().forEach(jti -> addToBloom(rebuilt, jti));
+            bloomBits = rebuilt;
+        }
+        Instant oldestLiveToken = now.minusMillis(jwtRefreshExpiryTime).truncatedTo(ChronoUnit.SECONDS);
+        userCutoffs.values().removeIf(cutoff -> cutoff.isBefore(oldestLiveToken));
+        int deleted = revokedTokenRepository.deleteExpired(now);
+        logger.debug("Purged {} expired revoked tokens", deleted);
+    }
+
+    private void addToBloom(AtomicLongArray bits, String jti) {
+        long[] hashes = hash(jti);
+        for (int i = 0; i < numHashes; i++) {
+            int bit = bitIndex(hashes, i);
+            long mask = 1L << (bit & 63);
+            int word = bit >>> 6;
+            long current;
+            do {
+                current = bits.get(word);
+                if ((current & mask) != 0) {
+                    break;
+                }
+            } while (!bits.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    private boolean mightContain(AtomicLongArray bits, String jti) {
+        long[] hashes = hash(jti);
+        for (int i = 0; i < numHashes; i++) {
+            int bit = bitIndex(hashes, i);
+            if ((bits.get(bit >>> 6) & (1L << (bit & 63))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // double hashing (Kirsch-Mitzenmacher): bit thứ i = h1 + i * h2
+    private int bitIndex(long[] hashes, int i) {
+        long combined = hashes[0] + i * hashes[1];
+        return (int) Math.floorMod(combined, (long) numBits);
+    }
+
+    // jti là UUID ngẫu nhiên nên 2 nửa 64 bit đã phân bố đều, chuỗi khác thì trộn từ hashCode
+    private static long[] hash(String jti) {
+        try {
+            UUID uuid = UUID.fromString(jti);
+            return new long[]{mix(uuid.getMostSignificantBits()), mix(uuid.getLeastSignificantBits()) | 1};
+        } catch (IllegalArgumentException e) {
+            long h1 = mix(jti.hashCode());
+            long h2 = mix(h1 ^ jti.length());
+            return new long[]{h1, h2 | 1};
+        }
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+}
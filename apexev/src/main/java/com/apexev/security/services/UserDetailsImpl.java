@@ -1,6 +1,7 @@
 package com.apexev.security.services;
 
 import com.apexev.entity.User;
+import com.apexev.enums.UserRole;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
@@ -46,6 +47,15 @@ public class UserDetailsImpl implements UserDetails {
         );
     }
 
+    // Dựng principal từ các claim đã ký trong access token -> không cần query DB, không có password
+    public static UserDetailsImpl build(Integer id, String phone, String email, String fullName, UserRole role, boolean isActive) {
+        List<GrantedAuthority> authorities = List.of(
+                new org.springframework.security.core.authority.SimpleGrantedAuthority("ROLE_" + role.name())
+        );
+
+        return new UserDetailsImpl(id, phone, email, phone, fullName, null, isActive, authorities);
+    }
+
     public Integer getId() {
         return id;
     }
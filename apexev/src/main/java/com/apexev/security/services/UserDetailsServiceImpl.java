@@ -2,38 +2,134 @@ package com.apexev.security.services;
 
 import com.apexev.entity.User;
 import com.apexev.service.service_Interface.UserService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
 
 @Service
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
+
+    private static final String ID_KEY = "id:";
+    private static final String EMAIL_KEY = "email:";
+    private static final String PHONE_KEY = "phone:";
 
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${com.apexev.principalCacheSize:10000}")
+    private long principalCacheSize;
+
+    @Value("${com.apexev.principalCacheTtlMs:300000}")
+    private long principalCacheTtlMs;
+
+    // Cache principal theo id, email và sđt -> cùng 1 UserDetailsImpl được lưu dưới cả 3 key
+    private Cache<String, UserDetailsImpl> principalCache;
+
+    @PostConstruct
+    public void init() {
+        this.principalCache = Caffeine.newBuilder()
+                .maximumSize(principalCacheSize)
+                .expireAfterWrite(Duration.ofMillis(principalCacheTtlMs))
+                // key id bị đẩy ra (hết chỗ / hết hạn) -> bỏ luôn key email, sđt để evictUser luôn tìm được chúng
+                .removalListener((String key, UserDetailsImpl details, RemovalCause cause) -> {
+                    if (cause.wasEvicted() && key != null && key.startsWith(ID_KEY) && details != null) {
+                        invalidateAliases(details);
+                    }
+                })
+                .recordStats()
+                .build();
+        // xem hit-rate tại /actuator/metrics/cache.gets?tag=cache:principalCache
+        CaffeineCacheMetrics.monitor(meterRegistry, principalCache, "principalCache");
+    }
 
     @Override
-    @Transactional
     public UserDetails loadUserByUsername(String usernameOrEmailOrPhone) throws UsernameNotFoundException {
+        boolean isEmail = usernameOrEmailOrPhone.contains("@");
+        String key = (isEmail ? EMAIL_KEY : PHONE_KEY) + usernameOrEmailOrPhone;
+        UserDetailsImpl cached = principalCache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
         User user;
-        if (usernameOrEmailOrPhone.contains("@")) {
+        if (isEmail) {
             user = userService.getUserByEmail(usernameOrEmailOrPhone)
                     .orElseThrow(() -> new UsernameNotFoundException("User not found"));
         } else {
             user = userService.getUserByPhone(usernameOrEmailOrPhone)
                     .orElseThrow(() -> new UsernameNotFoundException("User not found"));
         }
-        return UserDetailsImpl.build(user);
+        return cache(UserDetailsImpl.build(user));
     }
 
-    @Transactional
     public UserDetails loadUserById(Integer userId) {
+        UserDetailsImpl cached = principalCache.getIfPresent(ID_KEY + userId);
+        if (cached != null) {
+            return cached;
+        }
         User user = userService.getUserById(userId)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with id: " + userId));
-        return UserDetailsImpl.build(user);
+        return cache(UserDetailsImpl.build(user));
+    }
+
+    // DaoAuthenticationProvider gọi sau khi login thành công nếu hash cũ có cost khác cost cấu hình
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newEncodedPassword) {
+        Integer userId = ((UserDetailsImpl) user).getId();
+        userService.updatePasswordHash(userId, newEncodedPassword);
+        return loadUserById(userId);
+    }
+
+    // Xóa mọi key (id, email, sđt) đang trỏ tới user này: email, sđt lấy từ principal lưu dưới key id
+    public void evictUser(Integer userId) {
+        evictKeys(userId);
+        // request đọc chen giữa lúc ghi và commit có thể cache lại principal cũ -> xóa thêm lần nữa sau commit
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictKeys(userId);
+                }
+            });
+        }
+    }
+
+    private void evictKeys(Integer userId) {
+        UserDetailsImpl cached = principalCache.asMap().remove(ID_KEY + userId);
+        if (cached != null) {
+            invalidateAliases(cached);
+        }
+    }
+
+    private void invalidateAliases(UserDetailsImpl details) {
+        if (details.getEmail() != null) {
+            principalCache.invalidate(EMAIL_KEY + details.getEmail());
+        }
+        principalCache.invalidate(PHONE_KEY + details.getPhone());
+    }
+
+    private UserDetailsImpl cache(UserDetailsImpl details) {
+        principalCache.put(ID_KEY + details.getId(), details);
+        if (details.getEmail() != null) {
+            principalCache.put(EMAIL_KEY + details.getEmail(), details);
+        }
+        principalCache.put(PHONE_KEY + details.getPhone(), details);
+        return details;
     }
 }
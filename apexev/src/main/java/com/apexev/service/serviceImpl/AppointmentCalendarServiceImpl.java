@@ -0,0 +1,250 @@
+package com.apexev.service.serviceImpl;
+
+import com.apexev.dto.projection.AppointmentView;
+import com.apexev.dto.projection.CalendarVersion;
+import com.apexev.entity.User;
+import com.apexev.enums.AppointmentStatus;
+import com.apexev.repository.coreBussiness.AppointmentRepository;
+import com.apexev.repository.userAndVehicle.UserRepository;
+import com.apexev.service.service_Interface.AppointmentCalendarService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Lịch hẹn dạng iCalendar cho cố vấn / khách hàng (ứng dụng lịch thường hỏi lại mỗi 15 phút).
+ * <ul>
+ *     <li>Version = số lịch hẹn + lần tạo / sửa gần nhất trong cửa sổ, 1 query gộp -> 304 không đọc dòng nào</li>
+ *     <li>Nội dung đọc dần từ cursor (Stream) và ghi thẳng ra writer của response, không dựng danh sách trong RAM</li>
+ *     <li>Chỉ gồm lịch từ pastDays ngày trước trở đi; giờ hẹn (giờ địa phương timeZone) ghi dạng UTC nên không cần VTIMEZONE</li>
+ *     <li>Ứng dụng lịch chỉ đăng ký được 1 URL, không gửi Bearer token -> mỗi user có 1 feed token ngẫu nhiên trong URL,
+ *     DB chỉ lưu SHA-256, cấp lại / thu hồi là URL cũ hết hiệu lực</li>
+ * </ul>
+ * Đổi tên khách / biển số xe không làm đổi version -> lịch cập nhật ở lần lịch hẹn kế tiếp thay đổi.
+ */
+@Service
+@RequiredArgsConstructor
+public class AppointmentCalendarServiceImpl implements AppointmentCalendarService {
+
+    private static final DateTimeFormatter UTC_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+    private static final int MAX_LINE_OCTETS = 75; // RFC 5545: dòng dài hơn phải gấp
+    private static final int FEED_TOKEN_BYTES = 32;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final AppointmentRepository appointmentRepository;
+    private final UserRepository userRepository;
+
+    @Value("${com.apexev.calendar.pastDays:90}")
+    private int pastDays;
+
+    @Value("${com.apexev.calendar.timeZone:Asia/Ho_Chi_Minh}")
+    private ZoneId timeZone;
+
+    @Value("${com.apexev.capacity.appointmentMinutes:60}")
+    private int appointmentMinutes;
+
+    @Override
+    @Transactional(readOnly = true)
+    public Version getVersion(Owner owner, Integer userId) {
+        LocalDateTime since = since();
+        CalendarVersion version = owner == Owner.ADVISOR
+                ? appointmentRepository.findCalendarVersionByAdvisor(userId, since)
+                : appointmentRepository.findCalendarVersionByCustomer(userId, since);
+        if (version.lastModified() == null) {
+            return new Version("\"" + owner.name().toLowerCase() + "-" + userId + "-0\"", -1);
+        }
+        // createdAt / updatedAt do JVM sinh -> theo múi giờ hệ thống
+        Instant modified = version.lastModified().atZone(ZoneId.systemDefault()).toInstant();
+        String etag = "\"" + owner.name().toLowerCase() + "-" + userId + "-" + version.count() + "-"
+                + modified.getEpochSecond() + "." + modified.getNano() + "\"";
+        return new Version(etag, modified.toEpochMilli());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void writeCalendar(Owner owner, Integer userId, Writer writer) throws IOException {
+        writeLine(writer, "BEGIN:VCALENDAR");
+        writeLine(writer, "VERSION:2.0");
+        writeLine(writer, "PRODID:-//ApexEV//Appointments//VI");
+        writeLine(writer, "CALSCALE:GREGORIAN");
+        writeLine(writer, "METHOD:PUBLISH");
+        writeLine(writer, "X-WR-CALNAME:" + escape(owner == Owner.ADVISOR ? "ApexEV - Lịch tư vấn" : "ApexEV - Lịch hẹn của tôi"));
+        writeLine(writer, "REFRESH-INTERVAL;VALUE=DURATION:PT15M");
+        LocalDateTime since = since();
+        try (Stream<AppointmentView> rows = owner == Owner.ADVISOR
+                ? appointmentRepository.streamViewsByAdvisor(userId, since)
+                : appointmentRepository.streamViewsByCustomer(userId, since)) {
+            Iterator<AppointmentView> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                writeEvent(writer, owner, iterator.next());
+            }
+        }
+        writeLine(writer, "END:VCALENDAR");
+        writer.flush();
+    }
+
+    private void writeEvent(Writer writer, Owner owner, AppointmentView appointment) throws IOException {
+        LocalDateTime start = appointment.appointmentTime();
+        writeLine(writer, "BEGIN:VEVENT");
+        writeLine(writer, "UID:appointment-" + appointment.id() + "@apexev");
+        // lần sửa gần nhất của lịch hẹn (do JVM sinh -> múi giờ hệ thống): dời lịch / hủy thì ứng dụng lịch thấy event đã đổi,
+        // cùng version thì cùng nội dung
+        String modified = appointment.lastModified() != null
+                ? utc(appointment.lastModified(), ZoneId.systemDefault())
+                : utc(start, timeZone);
+        writeLine(writer, "DTSTAMP:" + modified);
+        writeLine(writer, "LAST-MODIFIED:" + modified);
+        writeLine(writer, "DTSTART:" + utc(start, timeZone));
+        writeLine(writer, "DTEND:" + utc(start.plusMinutes(appointmentMinutes), timeZone));
+        writeLine(writer, "SUMMARY:" + escape(owner == Owner.ADVISOR
+                ? appointment.vehicleLicensePlate() + " - " + appointment.customerName()
+                : "Bảo dưỡng xe " + appointment.vehicleLicensePlate()));
+        StringBuilder description = new StringBuilder();
+        appendLine(description, "Dịch vụ", appointment.requestedService());
+        appendLine(description, "Xe", join(appointment.vehicleBrand(), appointment.vehicleModel()));
+        if (owner == Owner.ADVISOR) {
+            appendLine(description, "Khách hàng", join(appointment.customerName(), appointment.customerPhone()));
+        } else {
+            appendLine(description, "Cố vấn", appointment.serviceAdvisorName());
+        }
+        appendLine(description, "Ghi chú", appointment.notes());
+        if (!description.isEmpty()) {
+            writeLine(writer, "DESCRIPTION:" + escape(description.toString()));
+        }
+        writeLine(writer, "STATUS:" + status(appointment.status()));
+        writeLine(writer, "END:VEVENT");
+    }
+
+    @Override
+    public String issueFeedToken(Integer userId) {
+        byte[] bytes = new byte[FEED_TOKEN_BYTES];
+        RANDOM.nextBytes(bytes);
+        // base64url không padding: an toàn trong path, không có dấu '.'
+        String feedToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        if (userRepository.updateCalendarFeedTokenHash(userId, hash(feedToken)) == 0) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found");
+        }
+        return feedToken;
+    }
+
+    @Override
+    public void revokeFeedToken(Integer userId) {
+        userRepository.updateCalendarFeedTokenHash(userId, null);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<FeedOwner> resolveFeedToken(String feedToken) {
+        if (feedToken == null || feedToken.isBlank()) {
+            return Optional.empty();
+        }
+        return userRepository.findByCalendarFeedTokenHash(hash(feedToken))
+                .filter(User::isActive)
+                .flatMap(user -> switch (user.getRole()) {
+                    case SERVICE_ADVISOR -> Optional.of(new FeedOwner(Owner.ADVISOR, user.getUserId()));
+                    case CUSTOMER -> Optional.of(new FeedOwner(Owner.CUSTOMER, user.getUserId()));
+                    default -> Optional.empty();
+                });
+    }
+
+    private static String hash(String feedToken) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(feedToken.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // ngày làm mốc cửa sổ -> version / nội dung ổn định trong ngày
+    private LocalDateTime since() {
+        return LocalDate.now(timeZone).minusDays(pastDays).atStartOfDay();
+    }
+
+    private static String utc(LocalDateTime time, ZoneId zone) {
+        return time.atZone(zone).withZoneSameInstant(ZoneOffset.UTC).format(UTC_FORMAT);
+    }
+
+    private static String status(AppointmentStatus status) {
+        return switch (status) {
+            case PENDING -> "TENTATIVE";
+            case CANCELLED -> "CANCELLED";
+            case CONFIRMED, COMPLETED -> "CONFIRMED";
+        };
+    }
+
+    private static void appendLine(StringBuilder sb, String label, String value) {
+        if (value == null || value.isBlank()) {
+            return;
+        }
+        if (!sb.isEmpty()) {
+            sb.append('\n');
+        }
+        sb.append(label).append(": ").append(value);
+    }
+
+    private static String join(String first, String second) {
+        if (first == null || first.isBlank()) {
+            return second;
+        }
+        return second == null || second.isBlank() ? first : first + " " + second;
+    }
+
+    // TEXT trong iCalendar: escape \ ; , và xuống dòng
+    private static String escape(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 8);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> sb.append("\\\\");
+                case ';' -> sb.append("\\;");
+                case ',' -> sb.append("\\,");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> {
+                }
+                default -> sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    // dòng kết thúc bằng CRLF, quá 75 byte UTF-8 thì gấp sang dòng sau bắt đầu bằng 1 dấu cách (không cắt giữa ký tự)
+    private static void writeLine(Writer writer, String line) throws IOException {
+        int octets = 0;
+        int i = 0;
+        while (i < line.length()) {
+            int codePoint = line.codePointAt(i);
+            int chars = Character.charCount(codePoint);
+            int length = codePoint < 0x80 ? 1 : codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+            if (octets + length > MAX_LINE_OCTETS) {
+                writer.write("\r\n ");
+                octets = 1;
+            }
+            writer.write(line, i, chars);
+            octets += length;
+            i += chars;
+        }
+        writer.write("\r\n");
+    }
+}
@@ -0,0 +1,142 @@
+package com.apexev.service.serviceImpl;
+
+import com.apexev.dto.projection.AppointmentReminderView;
+import com.apexev.dto.projection.AppointmentSlot;
+import com.apexev.repository.coreBussiness.AppointmentRepository;
+import com.apexev.service.service_Interface.MailService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Nhắc lịch hẹn qua email.
+ * <ul>
+ *     <li>Mỗi lượt quét các lịch CONFIRMED trong [now, now + leadHours) chưa nhắc, theo từng khúc chunkSize
+ *     (keyset (appointmentTime, id), không findAll) -> bộ nhớ không phụ thuộc số lịch</li>
+ *     <li>Mỗi khúc 1 transaction: khóa dòng (SKIP LOCKED), ghi email vào mail_outbox và đặt reminderSentAt cùng commit
+ *     -> chết giữa chừng thì khúc đó rollback, chạy lại không gửi trùng; MailOutboxDispatcher gửi theo lô sau commit</li>
+ *     <li>Mẫu tiêu đề / nội dung được tách sẵn 1 lần (MailTemplate)</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AppointmentReminderJob {
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm 'ngày' dd/MM/yyyy");
+
+    private static final MailTemplate SUBJECT = MailTemplate.text("Nhắc lịch hẹn bảo dưỡng lúc {{time}}");
+    private static final MailTemplate BODY = MailTemplate.html(
+            "<p>Xin chào {{customerName}},</p>" +
+            "<p>ApexEV xin nhắc bạn có lịch hẹn bảo dưỡng lúc <b>{{time}}</b> cho xe {{vehicleModel}} ({{licensePlate}}).</p>" +
+            "<p>Dịch vụ yêu cầu: {{requestedService}}</p>" +
+            "<p>Nếu không thể đến, vui lòng dời hoặc hủy lịch trên ứng dụng để nhường chỗ cho khách khác.</p>" +
+            "<p>Trân trọng,<br>ApexEV Service Team</p>");
+
+    private final AppointmentRepository appointmentRepository;
+    private final MailService mailService;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${com.apexev.appointmentReminder.leadHours:24}")
+    private long leadHours;
+
+    @Value("${com.apexev.appointmentReminder.chunkSize:200}")
+    private int chunkSize;
+
+    private Counter queuedCounter;
+    private Counter skippedCounter;
+    private Timer runTimer;
+
+    @PostConstruct
+    public void init() {
+        queuedCounter = meterRegistry.counter("appointment.reminder.queued");
+        // khách không có email -> vẫn đánh dấu để lượt sau không quét lại
+        skippedCounter = meterRegistry.counter("appointment.reminder.skipped");
+        runTimer = Timer.builder("appointment.reminder.run").register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${com.apexev.appointmentReminder.intervalMs:300000}")
+    public void remind() {
+        remind(LocalDateTime.now());
+    }
+
+    /**
+     * 1 lượt nhắc tại thời điểm now.
+     *
+     * @return số email nhắc đã ghi vào outbox
+     */
+    int remind(LocalDateTime now) {
+        return runTimer.record(() -> {
+            LocalDateTime end = now.plusHours(leadHours);
+            // con trỏ keyset: (appointmentTime, id) của dòng cuối khúc trước
+            LocalDateTime cursorTime = now;
+            long cursorId = 0;
+            int queued = 0;
+            while (true) {
+                LocalDateTime time = cursorTime;
+                long id = cursorId;
+                ChunkResult chunk = transactionTemplate.execute(status -> remindChunk(end, time, id, now));
+                queued += chunk.queued();
+                if (chunk.last() == null) {
+                    break;
+                }
+                cursorTime = chunk.last().appointmentTime();
+                cursorId = chunk.last().id();
+                if (chunk.size() < chunkSize) {
+                    break;
+                }
+            }
+            if (queued > 0) {
+                log.info("Queued {} appointment reminders up to {}", queued, end);
+            }
+            return queued;
+        });
+    }
+
+    private ChunkResult remindChunk(LocalDateTime end, LocalDateTime time, long id, LocalDateTime now) {
+        List<AppointmentSlot> due = appointmentRepository.lockDueReminders(end, time, id, Limit.of(chunkSize));
+        if (due.isEmpty()) {
+            return new ChunkResult(0, 0, null);
+        }
+        List<Long> ids = due.stream().map(AppointmentSlot::id).toList();
+        int queued = 0;
+        for (AppointmentReminderView reminder : appointmentRepository.findReminderViews(ids)) {
+            if (reminder.customerEmail() == null || reminder.customerEmail().isBlank()) {
+                skippedCounter.increment();
+                continue;
+            }
+            Map<String, String> values = Map.of(
+                    "customerName", reminder.customerName(),
+                    "time", reminder.appointmentTime().format(TIME_FORMAT),
+                    "vehicleModel", nullToEmpty(reminder.vehicleModel()),
+                    "licensePlate", reminder.vehicleLicensePlate(),
+                    "requestedService", nullToEmpty(reminder.requestedService()));
+            mailService.enqueueEmail(reminder.customerEmail(), SUBJECT.render(values), BODY.render(values));
+            queued++;
+        }
+        appointmentRepository.markReminderSent(ids, now);
+        queuedCounter.increment(queued);
+        return new ChunkResult(due.size(), queued, due.get(due.size() - 1));
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    private record ChunkResult(int size, int queued, AppointmentSlot last) {
+    }
+}
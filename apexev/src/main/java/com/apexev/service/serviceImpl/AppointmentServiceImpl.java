@@ -3,37 +3,55 @@ package com.apexev.service.serviceImpl;
 import com.apexev.dto.request.coreBussinessRequest.AppointmentRequest;
 import com.apexev.dto.request.coreBussinessRequest.RescheduleAppointmentRequest;
 import com.apexev.dto.response.coreBussinessResponse.AppointmentResponse;
+import com.apexev.dto.response.coreBussinessResponse.AvailabilityResponse;
 import com.apexev.entity.Appointment;
 import com.apexev.entity.User;
 import com.apexev.entity.Vehicle;
 import com.apexev.enums.AppointmentStatus;
 import com.apexev.enums.UserRole;
+import com.apexev.event.appointment.AppointmentChangedEvent;
+import com.apexev.mapper.AppointmentMapper;
 import com.apexev.repository.coreBussiness.AppointmentRepository;
 import com.apexev.repository.userAndVehicle.UserRepository;
 import com.apexev.repository.userAndVehicle.VehicleRepository;
 import com.apexev.service.service_Interface.AppointmentService;
+import com.apexev.service.service_Interface.WorkshopCapacityService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
-import org.modelmapper.ModelMapper;
-import java.util.stream.Collectors;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 
 @Service
 @RequiredArgsConstructor
 public class AppointmentServiceImpl implements AppointmentService {
+    private static final int MAX_AVAILABILITY_DAYS = 31;
+
     private final AppointmentRepository appointmentRepository;
     private final VehicleRepository vehicleRepository;
     private final UserRepository userRepository; // gắn cố vấn dịch vụ
-    //setup tự động chuyển Entity -> DTO
-    private final ModelMapper modelMapper;
+    // Entity -> DTO, code sinh lúc compile (MapStruct)
+    private final AppointmentMapper appointmentMapper;
+    private final WorkshopCapacityService workshopCapacityService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // xem giờ trống chỉ trong khoảng nhận đặt lịch của xưởng
+    @Value("${com.apexev.capacity.horizonDays:60}")
+    private int horizonDays;
 
     @Override
+    @Transactional
     public AppointmentResponse createAppointment(AppointmentRequest request, User loggedInUser) {
         // 1. tìm xe - nếu họ chưa điền info xe của họ (tức là lần đầu dùng app) thì họ phải vào profile và điền thông tin tương thích với bảng vehice
-        Vehicle vehicle = vehicleRepository.findById(request.getVehicleId())
+        Vehicle vehicle = vehicleRepository.findWithCustomerById(request.getVehicleId())
                 .orElseThrow(() -> new EntityNotFoundException("Không tìm thấy xe với ID: " + request.getVehicleId()));
         // 2. lấy chủ xe - phục vụ cho logic bảo mật
         User customer = vehicle.getCustomer();
@@ -54,23 +72,22 @@ public class AppointmentServiceImpl implements AppointmentService {
         newAppointment.setNotes(request.getNotes());
         // 6. set trạng thái ban đầu là pending
         newAppointment.setStatus(AppointmentStatus.PENDING);
-        // 7. lưu và trả về
+        // 7. lưu, giữ chỗ trong xưởng (kín lịch -> 409, rollback bản ghi vừa lưu) và trả về
         Appointment savedAppointment = appointmentRepository.save(newAppointment);
-        return modelMapper.map(savedAppointment, AppointmentResponse.class);
+        workshopCapacityService.hold(savedAppointment.getId(), savedAppointment.getAppointmentTime());
+        eventPublisher.publishEvent(new AppointmentChangedEvent(savedAppointment.getId(), null, savedAppointment.getAppointmentTime()));
+        return appointmentMapper.toResponse(savedAppointment);
         // giải thích
         /*
         thay vì chuyển đổi thủ công bằng convertDTO thông thường
-        -> hãy để mapper làm nó -> model Mapper là thư viện hỗ trợ việc convert
-        => thêm dependence vào
-        <dependency>
-            <groupId>org.modelmapper</groupId>
-            <artifactId>modelmapper</artifactId>
-            <version>3.1.0</version>
-        </dependency>
+        -> hãy để mapper làm nó -> AppointmentMapper (MapStruct) sinh code set từng field lúc compile,
+        không dò property bằng reflection như ModelMapper
+        => mapper đọc customer / vehicle / serviceAdvisor nên các quan hệ này phải được nạp sẵn (EntityGraph)
          */
     }
 
     @Override
+    @Transactional
     public AppointmentResponse rescheduleAppointment(Long appointmentId, RescheduleAppointmentRequest request, User loggedInUser) {
         // 1. tìm lịch hẹn
         Appointment appointment = findAppointmentByIdInternal(appointmentId);
@@ -80,16 +97,22 @@ public class AppointmentServiceImpl implements AppointmentService {
         if (appointment.getStatus() == AppointmentStatus.COMPLETED || appointment.getStatus() == AppointmentStatus.CANCELLED) {
             throw new IllegalStateException("Không thể dời lịch hẹn đã " + appointment.getStatus());
         }
-        // 4. Cập nhật thời gian mới
+        // 4. Giữ chỗ ở giờ mới (kín lịch -> 409) rồi cập nhật thời gian
+        LocalDateTime previousTime = appointment.getAppointmentTime();
+        workshopCapacityService.hold(appointmentId, request.getNewAppointmentTime());
         appointment.setAppointmentTime(request.getNewAppointmentTime());
         // 5. Khi dời lịch -> trạng thái quay lại pending -> chờ cố vấn duyệt
         appointment.setStatus(AppointmentStatus.PENDING);
+        // giờ mới -> nhắc lại khi lịch được duyệt lần nữa
+        appointment.setReminderSentAt(null);
         // 6. Lưu và trả về
         Appointment savedAppointment = appointmentRepository.save(appointment);
-        return modelMapper.map(savedAppointment, AppointmentResponse.class);
+        eventPublisher.publishEvent(new AppointmentChangedEvent(appointmentId, previousTime, savedAppointment.getAppointmentTime()));
+        return appointmentMapper.toResponse(savedAppointment);
     }
 
     @Override
+    @Transactional
     public AppointmentResponse cancelAppointment(Long appointmentId, User loggedInUser) {
         // 1. tìm lịch hẹn
         Appointment appointment = findAppointmentByIdInternal(appointmentId);
@@ -101,9 +124,31 @@ public class AppointmentServiceImpl implements AppointmentService {
         }
         // 4. set trạng thái đã hủy
         appointment.setStatus(AppointmentStatus.CANCELLED);
-        // 5. lưu và trả về
+        // 5. lưu, nhả chỗ trong xưởng sau khi commit và trả về
         Appointment savedAppointment = appointmentRepository.save(appointment);
-        return modelMapper.map(savedAppointment, AppointmentResponse.class);
+        eventPublisher.publishEvent(new AppointmentChangedEvent(appointmentId, savedAppointment.getAppointmentTime(), null));
+        return appointmentMapper.toResponse(savedAppointment);
+    }
+
+    @Override
+    public List<LocalDateTime> getFreeSlots(LocalDateTime from, int limit) {
+        return workshopCapacityService.findFreeSlots(from, limit);
+    }
+
+    @Override
+    public AvailabilityResponse getAvailability(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Ngày kết thúc phải sau ngày bắt đầu");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_AVAILABILITY_DAYS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Chỉ xem được tối đa " + MAX_AVAILABILITY_DAYS + " ngày");
+        }
+        LocalDate today = LocalDate.now();
+        if (from.isBefore(today) || from.isAfter(today.plusDays(horizonDays))) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Ngày bắt đầu phải từ hôm nay đến " + horizonDays + " ngày tới");
+        }
+        return workshopCapacityService.getAvailability(from, to);
     }
 
     @Override
@@ -123,7 +168,7 @@ public class AppointmentServiceImpl implements AppointmentService {
         appointment.setServiceAdvisor(loggedInUser);
         // 5. lưu và trả về
         Appointment savedAppointment = appointmentRepository.save(appointment);
-        return modelMapper.map(savedAppointment, AppointmentResponse.class);
+        return appointmentMapper.toResponse(savedAppointment);
     }
 
     @Override
@@ -133,7 +178,7 @@ public class AppointmentServiceImpl implements AppointmentService {
         // 2. ktra quyền
         checkOwnership(appointment, loggedInUser);
         // 3. trả về
-        return modelMapper.map(appointment, AppointmentResponse.class);
+        return appointmentMapper.toResponse(appointment);
     }
 
     @Override
@@ -143,10 +188,8 @@ public class AppointmentServiceImpl implements AppointmentService {
                 .orElseThrow(() -> new EntityNotFoundException("Không tìm thấy khách hàng với ID: " + customerId));
         // 2. lấy ds và sắp xếp lịch gần nhất lên đầu
         List<Appointment> appointments = appointmentRepository.findByCustomerUserIdOrderByAppointmentTimeDesc(customerId);
-        // 3. Dùng Stream để map cả danh sách sang List<AppointmentResponse>
-        return appointments.stream() // stream kiểu như dây chuyền để đóng gói hàng loạt các appointment bên dưới thành 1 list
-                .map(appointment -> modelMapper.map(appointment, AppointmentResponse.class))
-                .collect(Collectors.toList()); // đóng gói các appointment lại thành 1 list
+        // 3. map cả danh sách sang List<AppointmentResponse> (quan hệ đã nạp cùng query -> không N+1)
+        return appointmentMapper.toResponses(appointments);
     }
 
     @Override
@@ -161,13 +204,11 @@ public class AppointmentServiceImpl implements AppointmentService {
         // 3. lấy ds và sắp xếp lịch gần nhất lên đầu
         List<Appointment> appointments = appointmentRepository.findByServiceAdvisorUserIdOrderByAppointmentTimeAsc(advisorId);
         // 4. Map cả danh sách sang List<AppointmentResponse>
-        return appointments.stream()
-                .map(appointment -> modelMapper.map(appointment, AppointmentResponse.class))
-                .collect(Collectors.toList());
+        return appointmentMapper.toResponses(appointments);
     }
     // hàm tìm kiếm
     private Appointment findAppointmentByIdInternal(Long appointmentId) {
-        return appointmentRepository.findById(appointmentId)
+        return appointmentRepository.findDetailedById(appointmentId)
                 .orElseThrow(() -> new EntityNotFoundException("Không tìm thấy lịch hẹn với ID: " + appointmentId));
     }
     //Hàm kiểm tra quyền sở hữu (Customer chỉ được sửa/xóa/xem lịch của mình) -> ko làm với user khác
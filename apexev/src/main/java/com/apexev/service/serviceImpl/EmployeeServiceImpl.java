@@ -1,26 +1,54 @@
 package com.apexev.service.serviceImpl;
 
+import com.apexev.dto.request.RegisterStaffRequest;
 import com.apexev.dto.request.UpdateStaffProfileRequest;
+import com.apexev.dto.response.coreBussinessResponse.BulkImportResponse;
 import com.apexev.dto.response.StaffProfileResponse;
 import com.apexev.entity.StaffProfile;
 import com.apexev.entity.User;
+import com.apexev.enums.UserRole;
 import com.apexev.exception.ResourceNotFoundException;
 import com.apexev.repository.userAndVehicle.StaffRepository;
 import com.apexev.repository.userAndVehicle.UserRepository;
+import com.apexev.security.crypto.BoundedPasswordEncoder;
 import com.apexev.service.service_Interface.EmployeeService;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-
-import java.util.List;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class EmployeeServiceImpl implements EmployeeService {
 
+    private static final String INSERT_USER_SQL =
+            "INSERT INTO `user` (full_name, email, phone, password_hash, role, is_active, created_at) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_STAFF_PROFILE_SQL =
+            "INSERT INTO staff_profiles (staff_id, employee_code, annual_leave_balance, sick_leave_balance, is_active) VALUES (?, ?, ?, ?, ?)";
+
     private final StaffRepository staffRepository;
     private final UserRepository userRepository;
+    private final BoundedPasswordEncoder passwordEncoder;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
 
     public List<StaffProfileResponse> getAllStaff() {
         return staffRepository.findAll().stream()
@@ -58,6 +86,146 @@ public class EmployeeServiceImpl implements EmployeeService {
         return mapToResponse(saved);
     }
 
+    /**
+     * Đăng ký nhân viên hàng loạt (mở chi nhánh mới).
+     * Dòng không hợp lệ / trùng email, sđt được trả về trong errors, các dòng còn lại vẫn được tạo.
+     * Trùng lặp kiểm tra bằng 1 query, mật khẩu hash song song, user + staff_profiles insert bằng JDBC batch.
+     */
+    public BulkImportResponse registerStaffBatch(List<RegisterStaffRequest> rows) {
+        List<BulkImportResponse.ImportError> errors = new ArrayList<>();
+        List<Integer> validRows = new ArrayList<>();
+        List<UserRole> roles = new ArrayList<>();
+        Set<String> batchEmails = new HashSet<>();
+        Set<String> batchPhones = new HashSet<>();
+
+        for (int i = 0; i < rows.size(); i++) {
+            RegisterStaffRequest row = rows.get(i);
+            int rowNumber = i + 1;
+            if (row == null) {
+                errors.add(new BulkImportResponse.ImportError(rowNumber, "general", "", "Thiếu dữ liệu bắt buộc"));
+                continue;
+            }
+            Set<ConstraintViolation<RegisterStaffRequest>> violations = validator.validate(row);
+            if (!violations.isEmpty()) {
+                ConstraintViolation<RegisterStaffRequest> violation = violations.iterator().next();
+                errors.add(new BulkImportResponse.ImportError(rowNumber, violation.getPropertyPath().toString(),
+                        String.valueOf(violation.getInvalidValue()), violation.getMessage()));
+                continue;
+            }
+            UserRole role = parseStaffRole(row.getRole());
+            if (role == null) {
+                errors.add(new BulkImportResponse.ImportError(rowNumber, "role", row.getRole(), "Vai trò nhân viên không hợp lệ"));
+                continue;
+            }
+            if (!batchEmails.add(row.getEmail().toLowerCase())) {
+                errors.add(new BulkImportResponse.ImportError(rowNumber, "email", row.getEmail(), "Email bị trùng trong danh sách"));
+                continue;
+            }
+            if (!batchPhones.add(row.getPhone())) {
+                errors.add(new BulkImportResponse.ImportError(rowNumber, "phone", row.getPhone(), "Số điện thoại bị trùng trong danh sách"));
+                continue;
+            }
+            validRows.add(i);
+            roles.add(role);
+        }
+
+        // 1 query cho cả lô thay vì existsByEmail + existsByPhone cho từng người
+        Set<String> existingEmails = new HashSet<>();
+        Set<String> existingPhones = new HashSet<>();
+        if (!validRows.isEmpty()) {
+            for (Object[] existing : userRepository.findEmailsAndPhonesIn(batchEmails, batchPhones)) {
+                if (existing[0] != null) {
+                    existingEmails.add(((String) existing[0]).toLowerCase());
+                }
+                existingPhones.add((String) existing[1]);
+            }
+        }
+
+        List<RegisterStaffRequest> toCreate = new ArrayList<>();
+        List<UserRole> toCreateRoles = new ArrayList<>();
+        for (int k = 0; k < validRows.size(); k++) {
+            int index = validRows.get(k);
+            RegisterStaffRequest row = rows.get(index);
+            if (existingEmails.contains(row.getEmail().toLowerCase())) {
+                errors.add(new BulkImportResponse.ImportError(index + 1, "email", row.getEmail(), "User with this email already exists"));
+            } else if (existingPhones.contains(row.getPhone())) {
+                errors.add(new BulkImportResponse.ImportError(index + 1, "phone", row.getPhone(), "User with this phone already exists"));
+            } else {
+                toCreate.add(row);
+                toCreateRoles.add(roles.get(k));
+            }
+        }
+
+        List<String> successUsers = new ArrayList<>();
+        if (!toCreate.isEmpty()) {
+            // hash ngoài transaction -> không giữ connection DB trong lúc chạy BCrypt
+            List<String> passwordHashes = passwordEncoder.encodeAll(
+                    toCreate.stream().map(RegisterStaffRequest::getPassword).toList());
+            try {
+                transactionTemplate.executeWithoutResult(status -> insertStaff(toCreate, toCreateRoles, passwordHashes));
+            } catch (DuplicateKeyException e) {
+                // có người khác vừa đăng ký cùng email / sđt giữa lúc kiểm tra và lúc insert
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Email hoặc số điện thoại vừa được đăng ký, vui lòng thử lại");
+            }
+            toCreate.forEach(row -> successUsers.add(row.getEmail()));
+        }
+
+        errors.sort(Comparator.comparingInt(BulkImportResponse.ImportError::getRow));
+        BulkImportResponse result = new BulkImportResponse();
+        result.setTotalRecords(rows.size());
+        result.setSuccessCount(successUsers.size());
+        result.setErrorCount(errors.size());
+        result.setSuccessUsers(successUsers);
+        result.setErrors(errors);
+        return result;
+    }
+
+    private void insertStaff(List<RegisterStaffRequest> rows, List<UserRole> roles, List<String> passwordHashes) {
+        // created_at ghi theo UTC giống hibernate.jdbc.time_zone
+        Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now());
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(INSERT_USER_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        RegisterStaffRequest row = rows.get(i);
+                        ps.setString(1, row.getFullName());
+                        ps.setString(2, row.getEmail());
+                        ps.setString(3, row.getPhone());
+                        ps.setString(4, passwordHashes.get(i));
+                        ps.setString(5, roles.get(i).name());
+                        ps.setBoolean(6, true);
+                        ps.setTimestamp(7, createdAt, utc);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return rows.size();
+                    }
+                },
+                keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        List<Object[]> profiles = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            int userId = ((Number) keys.get(i).values().iterator().next()).intValue();
+            // cùng quy ước mã nhân viên với UserRegisterEventListener: ROLE + id
+            profiles.add(new Object[]{userId, roles.get(i).name() + userId, 12, 7, true});
+        }
+        jdbcTemplate.batchUpdate(INSERT_STAFF_PROFILE_SQL, profiles);
+    }
+
+    private UserRole parseStaffRole(String role) {
+        try {
+            UserRole parsed = UserRole.valueOf(role.trim().toUpperCase());
+            return parsed == UserRole.CUSTOMER ? null : parsed;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     private StaffProfileResponse mapToResponse(StaffProfile profile) {
         StaffProfileResponse response = new StaffProfileResponse();
         response.setUserId(profile.getId());
@@ -16,6 +16,7 @@ import com.apexev.repository.hr.ShiftAssignmentRepository;
 import com.apexev.repository.userAndVehicle.StaffRepository;
 import com.apexev.repository.userAndVehicle.UserRepository;
 import com.apexev.service.service_Interface.LeaveService;
+import com.apexev.service.service_Interface.WorkshopCapacityService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -34,6 +35,7 @@ public class LeaveServiceImpl implements LeaveService {
     private final UserRepository userRepository;
     private final StaffRepository staffRepository;
     private final ShiftAssignmentRepository assignmentRepository;
+    private final WorkshopCapacityService workshopCapacityService;
 
     @Transactional
     public LeaveRequestResponse createLeaveRequest(CreateLeaveRequestRequest request) {
@@ -106,6 +108,9 @@ public class LeaveServiceImpl implements LeaveService {
                 profile.setSickLeaveBalance(profile.getSickLeaveBalance() - leaveRequest.getTotalDays());
             }
             staffRepository.save(profile);
+            // KTV nghỉ -> sức chứa xưởng những ngày đó giảm
+            workshopCapacityService.onShiftsChanged(leaveRequest.getStartDate().atStartOfDay(),
+                    leaveRequest.getEndDate().atStartOfDay());
         } else {
             leaveRequest.setStatus(LeaveStatus.REJECTED);
             leaveRequest.setRejectionReason(request.getRejectionReason());
@@ -0,0 +1,217 @@
+package com.apexev.service.serviceImpl;
+
+import com.apexev.dto.projection.OutboxBacklog;
+import com.apexev.entity.MailOutbox;
+import com.apexev.enums.MailOutboxStatus;
+import com.apexev.repository.supportAndSystem.MailOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.mail.internet.AddressException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gửi nền các email trong bảng mail_outbox.
+ * <ul>
+ *     <li>Mỗi lượt nhận tối đa batchSize email đến hạn (SKIP LOCKED), đẩy nextAttemptAt lên leaseMs để instance
+ *     khác không nhận lại; instance chết giữa chừng thì hết lease email được gửi lại</li>
+ *     <li>Cả lô gửi qua 1 kết nối SMTP (JavaMailSender.send(MimeMessage...))</li>
+ *     <li>Lỗi thì thử lại với backoff lũy thừa (có jitter), quá maxAttempts hoặc địa chỉ sai thì FAILED</li>
+ * </ul>
+ * Không giữ transaction/kết nối DB trong lúc nói chuyện với SMTP.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MailOutboxDispatcher {
+
+    private final MailOutboxRepository mailOutboxRepository;
+    private final MailServiceImpl mailService;
+    private final JavaMailSender mailSender;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${com.apexev.mailOutbox.batchSize:50}")
+    private int batchSize;
+
+    @Value("${com.apexev.mailOutbox.maxAttempts:8}")
+    private int maxAttempts;
+
+    @Value("${com.apexev.mailOutbox.initialBackoffMs:30000}")
+    private long initialBackoffMs;
+
+    @Value("${com.apexev.mailOutbox.maxBackoffMs:3600000}")
+    private long maxBackoffMs;
+
+    @Value("${com.apexev.mailOutbox.leaseMs:300000}")
+    private long leaseMs;
+
+    // giới hạn số lô mỗi lượt để 1 lượt không chạy mãi khi outbox bị dồn nhiều
+    @Value("${com.apexev.mailOutbox.maxBatchesPerRun:20}")
+    private int maxBatchesPerRun;
+
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong lagMs = new AtomicLong();
+
+    private Counter sentCounter;
+    private Counter retryCounter;
+    private Counter failedCounter;
+    private Timer deliveryTimer;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("mail.outbox.pending", pending, AtomicLong::get)
+                .description("Emails waiting in the outbox")
+                .register(meterRegistry);
+        TimeGauge.builder("mail.outbox.lag", lagMs, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("Age of the oldest pending email")
+                .register(meterRegistry);
+        sentCounter = meterRegistry.counter("mail.outbox.sent");
+        retryCounter = meterRegistry.counter("mail.outbox.retried");
+        failedCounter = meterRegistry.counter("mail.outbox.failed");
+        // từ lúc ghi outbox tới lúc SMTP nhận
+        deliveryTimer = Timer.builder("mail.outbox.delivery").register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${com.apexev.mailOutbox.pollIntervalMs:2000}")
+    public void dispatch() {
+        dispatch(Instant.now());
+    }
+
+    /**
+     * 1 lượt gửi tại thời điểm now.
+     *
+     * @return số email đã xử lý (gửi được hoặc lỗi)
+     */
+    int dispatch(Instant now) {
+        int processed = 0;
+        for (int i = 0; i < maxBatchesPerRun; i++) {
+            List<MailOutbox> batch = claim(now);
+            if (batch.isEmpty()) {
+                break;
+            }
+            Map<Long, Exception> failures = send(batch);
+            record(batch, failures, Instant.now());
+            processed += batch.size();
+            if (batch.size() < batchSize) {
+                break;
+            }
+        }
+        refreshBacklog(Instant.now());
+        return processed;
+    }
+
+    private List<MailOutbox> claim(Instant now) {
+        return transactionTemplate.execute(status -> {
+            List<MailOutbox> due = mailOutboxRepository.lockDue(now, Limit.of(batchSize));
+            Instant leaseUntil = now.plusMillis(leaseMs);
+            due.forEach(mail -> mail.setNextAttemptAt(leaseUntil));
+            return due;
+        });
+    }
+
+    // id -> lỗi của các email gửi không được
+    private Map<Long, Exception> send(List<MailOutbox> batch) {
+        Map<Long, Exception> failures = new HashMap<>();
+        // MimeMessage không override equals/hashCode -> so theo tham chiếu; LinkedHashMap giữ thứ tự gửi theo outbox
+        Map<MimeMessage, Long> idByMessage = new LinkedHashMap<>();
+        for (MailOutbox mail : batch) {
+            try {
+                idByMessage.put(mailService.createMessage(mail.getRecipient(), mail.getSubject(), mail.getBody(), null),
+                        mail.getId());
+            } catch (Exception e) {
+                failures.put(mail.getId(), e);
+            }
+        }
+        if (idByMessage.isEmpty()) {
+            return failures;
+        }
+        try {
+            mailSender.send(idByMessage.keySet().toArray(new MimeMessage[0]));
+        } catch (MailSendException e) {
+            // lỗi kết nối -> mọi message nằm trong failedMessages; lỗi từng người nhận -> chỉ message đó
+            e.getFailedMessages().forEach((message, error) -> {
+                Long id = idByMessage.get(message);
+                if (id != null) {
+                    failures.put(id, error);
+                }
+            });
+            if (e.getFailedMessages().isEmpty()) {
+                idByMessage.values().forEach(id -> failures.put(id, e));
+            }
+        } catch (MailException e) {
+            idByMessage.values().forEach(id -> failures.put(id, e));
+        }
+        return failures;
+    }
+
+    private void record(List<MailOutbox> batch, Map<Long, Exception> failures, Instant now) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Long> sentIds = new ArrayList<>();
+            for (MailOutbox mail : batch) {
+                Exception error = failures.get(mail.getId());
+                if (error == null) {
+                    sentIds.add(mail.getId());
+                    deliveryTimer.record(Duration.between(mail.getCreatedAt(), now));
+                    continue;
+                }
+                int attempts = mail.getAttempts() + 1;
+                boolean giveUp = attempts >= maxAttempts || error instanceof AddressException;
+                mailOutboxRepository.markFailed(mail.getId(),
+                        giveUp ? MailOutboxStatus.FAILED : MailOutboxStatus.PENDING,
+                        attempts,
+                        giveUp ? mail.getNextAttemptAt() : now.plusMillis(backoffMs(attempts)),
+                        truncate(error.getMessage()));
+                (giveUp ? failedCounter : retryCounter).increment();
+                log.warn("Email {} to {} failed (attempt {}{}): {}", mail.getId(), mail.getRecipient(), attempts,
+                        giveUp ? ", giving up" : "", error.getMessage());
+            }
+            if (!sentIds.isEmpty()) {
+                mailOutboxRepository.markSent(sentIds, now);
+                sentCounter.increment(sentIds.size());
+            }
+        });
+    }
+
+    // initial * 2^(attempts-1), tối đa maxBackoffMs; lấy ngẫu nhiên trong [1/2, 1] để các email lỗi cùng lúc không dồn lại
+    long backoffMs(int attempts) {
+        long delay = initialBackoffMs << Math.min(attempts - 1, 30);
+        if (delay <= 0 || delay > maxBackoffMs) {
+            delay = maxBackoffMs;
+        }
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    private void refreshBacklog(Instant now) {
+        OutboxBacklog backlog = mailOutboxRepository.pendingBacklog();
+        pending.set(backlog.pending());
+        lagMs.set(backlog.oldestCreatedAt() == null ? 0 : Math.max(0, Duration.between(backlog.oldestCreatedAt(), now).toMillis()));
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() <= 1000 ? message : message.substring(0, 1000);
+    }
+}
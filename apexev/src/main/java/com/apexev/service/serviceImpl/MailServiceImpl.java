@@ -1,6 +1,9 @@
 package com.apexev.service.serviceImpl;
 
+import com.apexev.entity.MailOutbox;
+import com.apexev.repository.supportAndSystem.MailOutboxRepository;
 import com.apexev.service.service_Interface.MailService;
+import jakarta.mail.MessagingException;
 import jakarta.mail.internet.InternetAddress;
 import jakarta.mail.internet.MimeMessage;
 import lombok.RequiredArgsConstructor;
@@ -9,34 +12,26 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
+
+import java.io.UnsupportedEncodingException;
+import java.time.Instant;
+
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class MailServiceImpl implements MailService {
 
     private final JavaMailSender mailSender;
+    private final MailOutboxRepository mailOutboxRepository;
     @Value("${spring.mail.from}")
     private String emailFrom;
 
     public String sendEmail(String toWho, String subject, String body, MultipartFile[] files) {
         try {
             log.info("Sending email to: {}...", toWho);
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-            helper.setFrom(emailFrom, "Dịch vụ bảo dưỡng ô tô điện ApexEV");
-            if(toWho.contains(",")) {
-                helper.setTo(InternetAddress.parse(toWho));
-            } else {
-                helper.setTo(toWho);
-            }
-            if(files != null) {
-                for (MultipartFile file : files) {
-                    helper.addAttachment(file.getOriginalFilename(), file);
-                }
-            }
-            helper.setSubject(subject);
-            helper.setText(body, true);
+            MimeMessage message = createMessage(toWho, subject, body, files);
             mailSender.send(message);
             log.info("Email sent to: {}", toWho);
             return "sent";
@@ -45,6 +40,41 @@ public class MailServiceImpl implements MailService {
             return "failed";
         }
     }
+
+    @Override
+    @Transactional
+    public void enqueueEmail(String toWho, String subject, String body) {
+        Instant now = Instant.now();
+        MailOutbox mail = new MailOutbox();
+        mail.setRecipient(toWho);
+        mail.setSubject(subject);
+        mail.setBody(body);
+        mail.setCreatedAt(now);
+        mail.setNextAttemptAt(now);
+        mailOutboxRepository.save(mail);
+        log.debug("Queued email to: {}", toWho);
+    }
+
+    // Dùng chung cho gửi trực tiếp và MailOutboxDispatcher
+    MimeMessage createMessage(String toWho, String subject, String body, MultipartFile[] files)
+            throws MessagingException, UnsupportedEncodingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+        helper.setFrom(emailFrom, "Dịch vụ bảo dưỡng ô tô điện ApexEV");
+        if(toWho.contains(",")) {
+            helper.setTo(InternetAddress.parse(toWho));
+        } else {
+            helper.setTo(toWho);
+        }
+        if(files != null) {
+            for (MultipartFile file : files) {
+                helper.addAttachment(file.getOriginalFilename(), file);
+            }
+        }
+        helper.setSubject(subject);
+        helper.setText(body, true);
+        return message;
+    }
     // Viết comment giải thích toàn bộ code sendMail này đi
     /**
      * Gửi email với các thông tin đã cho.
@@ -0,0 +1,69 @@
+package com.apexev.service.serviceImpl;
+
+import org.springframework.web.util.HtmlUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mẫu email dạng "Xin chào {{customerName}}": tách sẵn thành các đoạn chữ + tên biến 1 lần lúc khởi tạo,
+ * mỗi lần render chỉ nối chuỗi vào StringBuilder (không parse / regex lại).
+ * Mẫu html(...) escape giá trị (body gửi đi dạng HTML), mẫu text(...) giữ nguyên (tiêu đề).
+ */
+final class MailTemplate {
+    private final String[] literals; // literals.length == names.length + 1
+    private final String[] names;
+    private final boolean escapeHtml;
+    private final int literalLength;
+
+    private MailTemplate(String[] literals, String[] names, boolean escapeHtml) {
+        this.literals = literals;
+        this.names = names;
+        this.escapeHtml = escapeHtml;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    static MailTemplate html(String source) {
+        return compile(source, true);
+    }
+
+    static MailTemplate text(String source) {
+        return compile(source, false);
+    }
+
+    private static MailTemplate compile(String source, boolean escapeHtml) {
+        List<String> literals = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        int from = 0;
+        int open;
+        while ((open = source.indexOf("{{", from)) >= 0) {
+            int close = source.indexOf("}}", open + 2);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed placeholder at " + open + ": " + source);
+            }
+            literals.add(source.substring(from, open));
+            names.add(source.substring(open + 2, close).trim());
+            from = close + 2;
+        }
+        literals.add(source.substring(from));
+        return new MailTemplate(literals.toArray(new String[0]), names.toArray(new String[0]), escapeHtml);
+    }
+
+    String render(Map<String, String> values) {
+        StringBuilder sb = new StringBuilder(literalLength + names.length * 16);
+        sb.append(literals[0]);
+        for (int i = 0; i < names.length; i++) {
+            String value = values.get(names[i]);
+            if (value != null) {
+                sb.append(escapeHtml ? HtmlUtils.htmlEscape(value) : value);
+            }
+            sb.append(literals[i + 1]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,237 @@
+package com.apexev.service.serviceImpl;
+
+import com.apexev.dto.projection.CatalogFingerprint;
+import com.apexev.dto.projection.CatalogItemView;
+import com.apexev.entity.ServiceOrderItem;
+import com.apexev.enums.OrderItemType;
+import com.apexev.repository.coreBussiness.MaintenanceServiceRepository;
+import com.apexev.repository.coreBussiness.PartRepository;
+import com.apexev.repository.coreBussiness.ServiceOrderItemRepository;
+import com.apexev.service.service_Interface.PricingService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import static com.apexev.service.service_Interface.PricingService.money;
+
+/**
+ * Định giá báo giá từ catalog phụ tùng / dịch vụ.
+ * <ul>
+ *     <li>Catalog giữ trong RAM, dòng nào chưa có thì nạp theo lô (1 query IN cho mỗi loại)</li>
+ *     <li>Mỗi catalogCheckIntervalMs so dấu vân tay (count, tổng version, max id) của bảng,
+ *     khác thì bỏ catalog cũ và mọi báo giá đã định giá</li>
+ *     <li>Báo giá đã định giá được cache theo đơn, bị xóa khi item của đơn thay đổi</li>
+ * </ul>
+ * Tiền tính bằng BigDecimal, làm tròn 2 chữ số (HALF_UP); thuế tính trên tổng từng loại item theo cấu hình.
+ */
+@Service
+public class PricingServiceImpl implements PricingService {
+    private static final Logger logger = LoggerFactory.getLogger(PricingServiceImpl.class);
+
+    @Autowired
+    private PartRepository partRepository;
+
+    @Autowired
+    private MaintenanceServiceRepository maintenanceServiceRepository;
+
+    @Autowired
+    private ServiceOrderItemRepository serviceOrderItemRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${com.apexev.pricing.partTaxRate:${com.apexev.pricing.defaultTaxRate:0.10}}")
+    private BigDecimal partTaxRate;
+
+    @Value("${com.apexev.pricing.serviceTaxRate:${com.apexev.pricing.defaultTaxRate:0.10}}")
+    private BigDecimal serviceTaxRate;
+
+    @Value("${com.apexev.pricing.catalogCheckIntervalMs:5000}")
+    private long catalogCheckIntervalMs;
+
+    @Value("${com.apexev.pricing.quotationCacheSize:5000}")
+    private long quotationCacheSize;
+
+    @Value("${com.apexev.pricing.quotationCacheTtlMs:600000}")
+    private long quotationCacheTtlMs;
+
+    // thay cả map khi catalog đổi (không clear) -> lần nạp đang chạy dở chỉ ghi vào map cũ đã bỏ
+    private volatile Map<Long, CatalogItem> parts = new ConcurrentHashMap<>();
+    private volatile Map<Long, CatalogItem> services = new ConcurrentHashMap<>();
+    private volatile CatalogFingerprint partsFingerprint;
+    private volatile CatalogFingerprint servicesFingerprint;
+    private volatile long lastCatalogCheck;
+    private final Object catalogLock = new Object();
+
+    private Cache<Long, PricedQuotation> quotationCache;
+
+    @PostConstruct
+    public void init() {
+        this.quotationCache = Caffeine.newBuilder()
+                .maximumSize(quotationCacheSize)
+                .expireAfterWrite(Duration.ofMillis(quotationCacheTtlMs))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, quotationCache, "quotationCache");
+    }
+
+    @Override
+    public Map<CatalogKey, CatalogItem> resolve(Collection<CatalogKey> keys) {
+        refreshCatalogIfChanged();
+        return lookup(keys);
+    }
+
+    @Override
+    public PricedQuotation priceOrder(Long orderId) {
+        refreshCatalogIfChanged();
+        // loader không được gọi refreshCatalogIfChanged (invalidateAll trong lúc đang compute cùng cache)
+        return quotationCache.get(orderId, id -> priceItems(serviceOrderItemRepository.findByServiceOrderId(id)));
+    }
+
+    @Override
+    public PricedQuotation price(Collection<ServiceOrderItem> items) {
+        refreshCatalogIfChanged();
+        return priceItems(items);
+    }
+
+    @Override
+    public Map<Long, PricedQuotation> priceAll(Map<Long, ? extends Collection<ServiceOrderItem>> itemsByOrderId) {
+        refreshCatalogIfChanged();
+        // 1 lần lookup cho mọi đơn: mã không có trong catalog không bị query lại theo từng đơn
+        Map<CatalogKey, CatalogItem> catalog = lookup(itemsByOrderId.values().stream()
+                .flatMap(Collection::stream)
+                .map(item -> new CatalogKey(item.getItemType(), item.getItemRefId()))
+                .toList());
+        Map<Long, PricedQuotation> result = new LinkedHashMap<>();
+        itemsByOrderId.forEach((orderId, items) -> result.put(orderId, priceItems(items, catalog)));
+        return result;
+    }
+
+    private Map<CatalogKey, CatalogItem> lookup(Collection<CatalogKey> keys) {
+        Map<OrderItemType, Set<Long>> idsByType = new EnumMap<>(OrderItemType.class);
+        for (CatalogKey key : keys) {
+            idsByType.computeIfAbsent(key.itemType(), type -> new HashSet<>()).add(key.itemRefId());
+        }
+
+        Map<CatalogKey, CatalogItem> result = new HashMap<>();
+        idsByType.forEach((type, ids) -> {
+            Map<Long, CatalogItem> catalog = type == OrderItemType.PART ? parts : services;
+            List<Long> missing = ids.stream().filter(id -> !catalog.containsKey(id)).toList();
+            if (!missing.isEmpty()) {
+                Function<Collection<Long>, List<CatalogItemView>> loader = type == OrderItemType.PART
+                        ? partRepository::findCatalogViewsByIdIn
+                        : maintenanceServiceRepository::findCatalogViewsByIdIn;
+                for (CatalogItemView view : loader.apply(missing)) {
+                    catalog.put(view.id(), new CatalogItem(view.name(), view.description(), view.price()));
+                }
+            }
+            for (Long id : ids) {
+                CatalogItem item = catalog.get(id);
+                if (item != null) {
+                    result.put(new CatalogKey(type, id), item);
+                }
+            }
+        });
+        return result;
+    }
+
+    private PricedQuotation priceItems(Collection<ServiceOrderItem> items) {
+        return priceItems(items, lookup(items.stream()
+                .map(item -> new CatalogKey(item.getItemType(), item.getItemRefId()))
+                .toList()));
+    }
+
+    private PricedQuotation priceItems(Collection<ServiceOrderItem> items, Map<CatalogKey, CatalogItem> catalog) {
+        List<PricedLine> lines = new ArrayList<>(items.size());
+        Map<OrderItemType, BigDecimal> subtotalByType = new EnumMap<>(OrderItemType.class);
+        for (ServiceOrderItem item : items) {
+            CatalogItem catalogItem = catalog.get(new CatalogKey(item.getItemType(), item.getItemRefId()));
+            // giá lấy từ item (giá chốt lúc báo), catalog chỉ cung cấp tên / mô tả
+            BigDecimal unitPrice = money(item.getUnitPrice());
+            BigDecimal lineTotal = money(unitPrice.multiply(BigDecimal.valueOf(item.getQuantity())));
+            subtotalByType.merge(item.getItemType(), lineTotal, BigDecimal::add);
+            lines.add(new PricedLine(
+                    item.getId(),
+                    item.getItemType(),
+                    item.getItemRefId(),
+                    catalogItem != null ? catalogItem.name() : "Item #" + item.getItemRefId(),
+                    catalogItem != null && catalogItem.description() != null ? catalogItem.description() : "",
+                    item.getQuantity(),
+                    unitPrice,
+                    lineTotal,
+                    item.getStatus()));
+        }
+
+        BigDecimal subtotal = money(BigDecimal.ZERO);
+        BigDecimal tax = money(BigDecimal.ZERO);
+        for (Map.Entry<OrderItemType, BigDecimal> entry : subtotalByType.entrySet()) {
+            subtotal = subtotal.add(entry.getValue());
+            tax = tax.add(money(entry.getValue().multiply(taxRate(entry.getKey()))));
+        }
+        return new PricedQuotation(List.copyOf(lines), subtotal, tax, subtotal.add(tax));
+    }
+
+    @Override
+    public void evictOrder(Long orderId) {
+        quotationCache.invalidate(orderId);
+        // request đọc chen giữa lúc ghi và commit có thể cache lại dữ liệu cũ -> xóa thêm lần nữa sau commit
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    quotationCache.invalidate(orderId);
+                }
+            });
+        }
+    }
+
+    private BigDecimal taxRate(OrderItemType type) {
+        return type == OrderItemType.PART ? partTaxRate : serviceTaxRate;
+    }
+
+    // Catalog do chỗ khác sửa (admin, instance khác) -> chỉ so dấu vân tay, tối đa 1 lần / catalogCheckIntervalMs
+    private void refreshCatalogIfChanged() {
+        if (System.currentTimeMillis() - lastCatalogCheck < catalogCheckIntervalMs) {
+            return;
+        }
+        synchronized (catalogLock) {
+            long now = System.currentTimeMillis();
+            if (now - lastCatalogCheck < catalogCheckIntervalMs) {
+                return;
+            }
+            CatalogFingerprint partsNow = partRepository.catalogFingerprint();
+            CatalogFingerprint servicesNow = maintenanceServiceRepository.catalogFingerprint();
+            boolean changed = false;
+            if (!partsNow.equals(partsFingerprint)) {
+                changed = partsFingerprint != null;
+                parts = new ConcurrentHashMap<>();
+                partsFingerprint = partsNow;
+            }
+            if (!servicesNow.equals(servicesFingerprint)) {
+                changed |= servicesFingerprint != null;
+                services = new ConcurrentHashMap<>();
+                servicesFingerprint = servicesNow;
+            }
+            if (changed) {
+                quotationCache.invalidateAll();
+                logger.debug("Catalog changed, pricing caches reset (parts={}, services={})", partsNow, servicesNow);
+            }
+            lastCatalogCheck = now;
+        }
+    }
+}
@@ -1,29 +1,61 @@
 package com.apexev.service.serviceImpl;
 
+import com.apexev.dto.projection.AppointmentView;
+import com.apexev.dto.projection.OrderStatusVersion;
+import com.apexev.dto.projection.ServiceOrderEventView;
+import com.apexev.dto.projection.ServiceOrderItemView;
+import com.apexev.dto.projection.ServiceOrderView;
 import com.apexev.dto.request.*;
 import com.apexev.dto.response.AppointmentResponse;
+import com.apexev.dto.response.BulkServiceOrderResponse;
+import com.apexev.dto.response.CursorPageResponse;
 import com.apexev.dto.response.QuotationResponse;
+import com.apexev.dto.response.ServiceOrderEventResponse;
 import com.apexev.dto.response.ServiceOrderResponse;
 import com.apexev.entity.*;
 import com.apexev.enums.AppointmentStatus;
+import com.apexev.enums.BulkOrderOperationType;
+import com.apexev.enums.BulkOrderOutcome;
 import com.apexev.enums.OrderItemStatus;
 import com.apexev.enums.OrderItemType;
 import com.apexev.enums.OrderStatus;
+import com.apexev.enums.ServiceOrderChangeType;
+import com.apexev.enums.UserRole;
+import com.apexev.event.appointment.AppointmentChangedEvent;
+import com.apexev.event.serviceOrder.ServiceOrderChangedEvent;
 import com.apexev.repository.coreBussiness.AppointmentRepository;
+import com.apexev.repository.coreBussiness.ServiceOrderEventRepository;
 import com.apexev.repository.coreBussiness.ServiceOrderItemRepository;
 import com.apexev.repository.coreBussiness.ServiceOrderRepository;
 import com.apexev.repository.userAndVehicle.UserRepository;
 import com.apexev.repository.userAndVehicle.VehicleRepository;
 import com.apexev.service.service_Interface.ServiceAdvisorService;
 import com.apexev.service.service_Interface.MailService;
+import com.apexev.service.service_Interface.PricingService;
+import com.apexev.service.service_Interface.PricingService.CatalogKey;
+import com.apexev.service.service_Interface.WorkshopCapacityService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -39,6 +71,9 @@ public class ServiceAdvisorServiceImpl implements ServiceAdvisorService {
     @Autowired
     private ServiceOrderItemRepository serviceOrderItemRepository;
 
+    @Autowired
+    private ServiceOrderEventRepository serviceOrderEventRepository;
+
     @Autowired
     private UserRepository userRepository;
 
@@ -48,36 +83,60 @@ public class ServiceAdvisorServiceImpl implements ServiceAdvisorService {
     @Autowired
     private MailService mailService;
 
+    @Autowired
+    private PricingService pricingService;
+
+    @Autowired
+    private ApplicationEventPublisher publisher;
+
+    @Autowired
+    private WorkshopCapacityService workshopCapacityService;
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private static final Set<OrderStatus> ACTIVE_STATUSES = Arrays.stream(OrderStatus.values())
+            .filter(status -> !status.isFinal())
+            .collect(Collectors.toCollection(() -> EnumSet.noneOf(OrderStatus.class)));
+
     // ========== Appointment Management ==========
 
     @Override
+    @Transactional(readOnly = true)
     public List<AppointmentResponse> getAppointmentsByAdvisor(Long advisorId) {
-        List<Appointment> appointments = appointmentRepository
-                .findByServiceAdvisorUserIdOrderByAppointmentTimeAsc(advisorId.intValue());
-        return appointments.stream()
+        return appointmentRepository.findViewsByAdvisor(advisorId.intValue()).stream()
                 .map(this::mapToAppointmentResponse)
                 .collect(Collectors.toList());
     }
 
     @Override
-    public List<AppointmentResponse> getAppointmentsByStatus(AppointmentStatus status) {
-        List<Appointment> appointments = appointmentRepository.findByStatusOrderByAppointmentTimeAsc(status);
-        return appointments.stream()
-                .map(this::mapToAppointmentResponse)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public CursorPageResponse<AppointmentResponse> getAppointmentsByStatus(AppointmentStatus status, String cursor, int size) {
+        CursorPageResponse.Cursor after = CursorPageResponse.decodeCursor(cursor);
+        Limit limit = Limit.of(pageSize(size) + 1);
+        List<AppointmentView> appointments = after == null
+                ? appointmentRepository.findPageByStatusFirst(status, limit)
+                : appointmentRepository.findPageByStatusAfter(status, after.time(), after.id(), limit);
+        return toPage(appointments, pageSize(size), AppointmentView::appointmentTime, AppointmentView::id,
+                page -> page.stream().map(this::mapToAppointmentResponse).collect(Collectors.toList()));
     }
 
     @Override
-    public List<AppointmentResponse> getAppointmentsByDateRange(LocalDateTime start, LocalDateTime end) {
-        List<Appointment> appointments = appointmentRepository.findByAppointmentTimeBetween(start, end);
-        return appointments.stream()
-                .map(this::mapToAppointmentResponse)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public CursorPageResponse<AppointmentResponse> getAppointmentsByDateRange(LocalDateTime start, LocalDateTime end, String cursor, int size) {
+        CursorPageResponse.Cursor after = CursorPageResponse.decodeCursor(cursor);
+        Limit limit = Limit.of(pageSize(size) + 1);
+        List<AppointmentView> appointments = after == null
+                ? appointmentRepository.findPageByTimeRangeFirst(start, end, limit)
+                : appointmentRepository.findPageByTimeRangeAfter(end, after.time(), after.id(), limit);
+        return toPage(appointments, pageSize(size), AppointmentView::appointmentTime, AppointmentView::id,
+                page -> page.stream().map(this::mapToAppointmentResponse).collect(Collectors.toList()));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public AppointmentResponse getAppointmentById(Long appointmentId) {
-        Appointment appointment = findAppointmentOrThrow(appointmentId);
+        AppointmentView appointment = appointmentRepository.findViewById(appointmentId)
+                .orElseThrow(() -> new RuntimeException("Appointment not found: " + appointmentId));
         return mapToAppointmentResponse(appointment);
     }
 
@@ -97,12 +156,17 @@ public class ServiceAdvisorServiceImpl implements ServiceAdvisorService {
         appointment.setStatus(AppointmentStatus.PENDING);
 
         appointment = appointmentRepository.save(appointment);
+        // giữ chỗ trong xưởng như khách tự đặt (kín lịch -> 409, rollback bản ghi vừa lưu)
+        workshopCapacityService.hold(appointment.getId(), appointment.getAppointmentTime());
+        publisher.publishEvent(new AppointmentChangedEvent(appointment.getId(), null, appointment.getAppointmentTime()));
         return mapToAppointmentResponse(appointment);
     }
 
     @Override
     public AppointmentResponse updateAppointment(Long appointmentId, UpdateAppointmentRequest request, Long advisorId) {
         Appointment appointment = findAppointmentOrThrow(appointmentId);
+        LocalDateTime previousTime = appointment.getAppointmentTime();
+        boolean wasBooked = appointment.getStatus() != AppointmentStatus.CANCELLED;
 
         if (request.getRequestedService() != null) {
             appointment.setRequestedService(request.getRequestedService());
@@ -117,7 +181,22 @@ public class ServiceAdvisorServiceImpl implements ServiceAdvisorService {
             appointment.setNotes(request.getNotes());
         }
 
+        // đổi giờ / hủy / mở lại lịch đã hủy -> cập nhật sức chứa xưởng như luồng của khách
+        LocalDateTime time = appointment.getAppointmentTime();
+        boolean booked = appointment.getStatus() != AppointmentStatus.CANCELLED;
+        boolean timeChanged = !time.equals(previousTime);
+        if (booked && (timeChanged || !wasBooked)) {
+            workshopCapacityService.hold(appointmentId, time);
+        }
+        if (timeChanged) {
+            appointment.setReminderSentAt(null); // giờ mới -> nhắc lại
+        }
+
         appointment = appointmentRepository.save(appointment);
+        if (timeChanged || booked != wasBooked) {
+            publisher.publishEvent(new AppointmentChangedEvent(appointmentId,
+                    wasBooked ? previousTime : null, booked ? time : null));
+        }
         return mapToAppointmentResponse(appointment);
     }
 
@@ -132,11 +211,16 @@ public class ServiceAdvisorServiceImpl implements ServiceAdvisorService {
     @Override
     public AppointmentResponse cancelAppointment(Long appointmentId, Long advisorId, String reason) {
         Appointment appointment = findAppointmentOrThrow(appointmentId);
+        boolean wasBooked = appointment.getStatus() != AppointmentStatus.CANCELLED;
         appointment.setStatus(AppointmentStatus.CANCELLED);
         if (reason != null) {
             appointment.setNotes((appointment.getNotes() != null ? appointment.getNotes() + "\n" : "") + "Cancelled: " + reason);
         }
         appointment = appointmentRepository.save(appointment);
+        if (wasBooked) {
+            // nhả chỗ trong xưởng sau khi commit
+            publisher.publishEvent(new AppointmentChangedEvent(appointmentId, appointment.getAppointmentTime(), null));
+        }
         return mapToAppointmentResponse(appointment);
     }
 
@@ -152,25 +236,40 @@ public class ServiceAdvisorServiceImpl implements ServiceAdvisorService {
     // ========== Service Order Management ==========
 
     @Override
-    public List<ServiceOrderResponse> getServiceOrdersByAdvisor(Long advisorId) {
-        List<ServiceOrder> orders = serviceOrderRepository.findByServiceAdvisorUserIdOrderByCreatedAtDesc(advisorId);
-        return orders.stream()
-                .map(this::mapToServiceOrderResponse)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public CursorPageResponse<ServiceOrderResponse> getServiceOrdersByAdvisor(Long advisorId, String cursor, int size) {
+        CursorPageResponse.Cursor after = CursorPageResponse.decodeCursor(cursor);
+        Limit limit = Limit.of(pageSize(size) + 1);
+        List<ServiceOrderView> orders = after == null
+                ? serviceOrderRepository.findPageByAdvisorFirst(advisorId.intValue(), limit)
+                : serviceOrderRepository.findPageByAdvisorAfter(advisorId.intValue(), after.time(), after.id(), limit);
+        return toPage(orders, pageSize(size), ServiceOrderView::createdAt, ServiceOrderView::id, this::mapToServiceOrderResponses);
     }
 
     @Override
-    public List<ServiceOrderResponse> getServiceOrdersByStatus(OrderStatus status) {
-        List<ServiceOrder> orders = serviceOrderRepository.findByStatus(status);
-        return orders.stream()
-                .map(this::mapToServiceOrderResponse)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public CursorPageResponse<ServiceOrderResponse> getServiceOrdersByStatus(OrderStatus status, String cursor, int size) {
+        CursorPageResponse.Cursor after = CursorPageResponse.decodeCursor(cursor);
+        Limit limit = Limit.of(pageSize(size) + 1);
+        List<ServiceOrderView> orders = after == null
+                ? serviceOrderRepository.findPageByStatusFirst(status, limit)
+                : serviceOrderRepository.findPageByStatusAfter(status, after.time(), after.id(), limit);
+        return toPage(orders, pageSize(size), ServiceOrderView::createdAt, ServiceOrderView::id, this::mapToServiceOrderResponses);
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public List<ServiceOrderResponse> getActiveServiceOrdersByTechnician(Long technicianId) {
+        return mapToServiceOrderResponses(serviceOrderRepository.findViewsByTechnicianAndStatusIn(
+                technicianId.intValue(), ACTIVE_STATUSES));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public ServiceOrderResponse getServiceOrderById(Long orderId) {
-        ServiceOrder order = findServiceOrderOrThrow(orderId);
-        return mapToServiceOrderResponse(order);
+        ServiceOrderView order = serviceOrderRepository.findViewById(orderId)
+                .orElseThrow(() -> new RuntimeException("Service order not found: " + orderId));
+        return mapToServiceOrderResponses(List.of(order)).get(0);
     }
 
     @Override
@@ -193,6 +292,7 @@ public class ServiceAdvisorServiceImpl implements ServiceAdvisorService {
         }
 
         order = serviceOrderRepository.save(order);
+        publishChange(order.getId(), ServiceOrderChangeType.CREATED, advisorId, null, order.getStatus());
 
         // Update appointment status
         appointment.setStatus(AppointmentStatus.COMPLETED);
@@ -221,23 +321,29 @@ public class ServiceAdvisorServiceImpl implements ServiceAdvisorService {
         }
 
         order = serviceOrderRepository.save(order);
+        publishChange(order.getId(), ServiceOrderChangeType.CREATED, advisorId, null, order.getStatus());
         return mapToServiceOrderResponse(order);
     }
 
     @Override
     public ServiceOrderResponse updateServiceOrder(Long orderId, UpdateServiceOrderRequest request, Long advisorId) {
         ServiceOrder order = findServiceOrderOrThrow(orderId);
+        checkVersion(orderId, order.getVersion(), request.getVersion());
 
         if (request.getCustomerDescription() != null) {
             order.setCustomerDescription(request.getCustomerDescription());
         }
         if (request.getAdvisorNotes() != null) {
+            publishChange(orderId, ServiceOrderChangeType.NOTES, advisorId, order.getAdvisorNotes(), request.getAdvisorNotes());
             order.setAdvisorNotes(request.getAdvisorNotes());
         }
         if (request.getTechnicianNotes() != null) {
+            publishChange(orderId, ServiceOrderChangeType.NOTES, advisorId, order.getTechnicianNotes(), request.getTechnicianNotes());
             order.setTechnicianNotes(request.getTechnicianNotes());
         }
-        if (request.getStatus() != null) {
+        if (request.getStatus() != null && request.getStatus() != order.getStatus()) {
+            checkTransition(orderId, order.getStatus(), request.getStatus());
+            publishChange(orderId, ServiceOrderChangeType.STATUS, advisorId, order.getStatus(), request.getStatus());
             order.setStatus(request.getStatus());
             if (request.getStatus() == OrderStatus.COMPLETED) {
                 order.setCompletedAt(LocalDateTime.now());
@@ -245,67 +351,254 @@ public class ServiceAdvisorServiceImpl implements ServiceAdvisorService {
         }
         if (request.getTechnicianId() != null) {
             User technician = findUserOrThrow(request.getTechnicianId());
+            publishChange(orderId, ServiceOrderChangeType.TECHNICIAN, advisorId, technicianId(order), technician.getUserId());
             order.setTechnician(technician);
         }
 
-        order = serviceOrderRepository.save(order);
+        order = saveOrConflict(order);
         return mapToServiceOrderResponse(order);
     }
 
     @Override
     public ServiceOrderResponse addAdvisorNotes(Long orderId, String advisorNotes, Long advisorId) {
         ServiceOrder order = findServiceOrderOrThrow(orderId);
+        publishChange(orderId, ServiceOrderChangeType.NOTES, advisorId, order.getAdvisorNotes(), advisorNotes);
         order.setAdvisorNotes(advisorNotes);
-        order = serviceOrderRepository.save(order);
+        order = saveOrConflict(order);
         return mapToServiceOrderResponse(order);
     }
 
     @Override
-    public ServiceOrderResponse updateServiceOrderStatus(Long orderId, OrderStatus newStatus, Long advisorId) {
-        ServiceOrder order = findServiceOrderOrThrow(orderId);
-        order.setStatus(newStatus);
-        if (newStatus == OrderStatus.COMPLETED) {
-            order.setCompletedAt(LocalDateTime.now());
+    public ServiceOrderResponse updateServiceOrderStatus(Long orderId, OrderStatus newStatus, Long advisorId, Long expectedVersion) {
+        // không nạp entity: đọc (status, version) rồi 1 câu UPDATE ... WHERE status = ? AND version = ?
+        OrderStatusVersion current = serviceOrderRepository.findStatusVersionById(orderId)
+                .orElseThrow(() -> new RuntimeException("Service order not found: " + orderId));
+        checkVersion(orderId, current.version(), expectedVersion);
+        if (current.status() == newStatus) {
+            return getServiceOrderById(orderId); // gửi lại cùng yêu cầu -> không đổi gì
         }
-        order = serviceOrderRepository.save(order);
-        return mapToServiceOrderResponse(order);
+        checkTransition(orderId, current.status(), newStatus);
+
+        LocalDateTime completedAt = newStatus == OrderStatus.COMPLETED ? LocalDateTime.now() : null;
+        if (serviceOrderRepository.transitionStatus(orderId, current.status(), newStatus, current.version(), completedAt) == 0) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Service order " + orderId + " was changed by someone else, reload and retry");
+        }
+        publishChange(orderId, ServiceOrderChangeType.STATUS, advisorId, current.status(), newStatus);
+        return getServiceOrderById(orderId);
     }
 
     @Override
     public ServiceOrderResponse assignTechnicianToOrder(Long orderId, Long technicianId, Long advisorId) {
         ServiceOrder order = findServiceOrderOrThrow(orderId);
         User technician = findUserOrThrow(technicianId);
+        publishChange(orderId, ServiceOrderChangeType.TECHNICIAN, advisorId, technicianId(order), technician.getUserId());
         order.setTechnician(technician);
-        order = serviceOrderRepository.save(order);
+        order = saveOrConflict(order);
         return mapToServiceOrderResponse(order);
     }
 
+    // 1 thao tác đã áp trong bộ nhớ, chờ ghi xong mới bắn event
+    private record BulkChange(int index, Long orderId, ServiceOrderChangeType type, Object fromValue, Object toValue) {
+    }
+
+    @Override
+    public BulkServiceOrderResponse applyBulkOperations(BulkServiceOrderRequest request, Long advisorId) {
+        List<BulkServiceOrderRequest.Operation> operations = request.getOperations();
+
+        // đọc 1 lần (status, version) của mọi đơn và các KTV hợp lệ
+        Map<Long, OrderStatusVersion> snapshots = serviceOrderRepository.findStatusVersionsByIdIn(operations.stream()
+                        .map(BulkServiceOrderRequest.Operation::getOrderId)
+                        .collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(OrderStatusVersion::id, Function.identity()));
+        Set<Integer> requestedTechnicians = operations.stream()
+                .map(BulkServiceOrderRequest.Operation::getTechnicianId)
+                .filter(Objects::nonNull)
+                .map(Long::intValue)
+                .collect(Collectors.toSet());
+        Set<Integer> technicians = requestedTechnicians.isEmpty() ? Set.of()
+                : new HashSet<>(userRepository.findIdsByIdInAndRole(requestedTechnicians, UserRole.TECHNICIAN));
+
+        // áp lần lượt trong bộ nhớ -> trạng thái / KTV cuối cùng của từng đơn
+        Map<Long, OrderStatus> targetStatus = new HashMap<>();
+        Map<Long, Integer> targetTechnician = new HashMap<>();
+        List<BulkChange> changes = new ArrayList<>();
+        List<BulkServiceOrderResponse.Result> results = new ArrayList<>(operations.size());
+        for (BulkServiceOrderRequest.Operation op : operations) {
+            Long orderId = op.getOrderId();
+            OrderStatusVersion snapshot = snapshots.get(orderId);
+            BulkServiceOrderResponse.Result result = new BulkServiceOrderResponse.Result(
+                    orderId, op.getType(), BulkOrderOutcome.OK, null, null, null);
+            results.add(result);
+            if (snapshot == null) {
+                reject(result, BulkOrderOutcome.NOT_FOUND, "Service order not found");
+            } else if (op.getVersion() != null && !op.getVersion().equals(snapshot.version())) {
+                reject(result, BulkOrderOutcome.CONFLICT, "Service order was changed by someone else, reload and retry");
+            } else if (op.getType() == BulkOrderOperationType.STATUS) {
+                OrderStatus current = targetStatus.getOrDefault(orderId, snapshot.status());
+                if (op.getStatus() == null) {
+                    reject(result, BulkOrderOutcome.INVALID, "status is required");
+                } else if (op.getStatus() != current) {
+                    if (current.canTransitionTo(op.getStatus())) {
+                        targetStatus.put(orderId, op.getStatus());
+                        changes.add(new BulkChange(results.size() - 1, orderId, ServiceOrderChangeType.STATUS, current, op.getStatus()));
+                    } else {
+                        reject(result, BulkOrderOutcome.CONFLICT, "Cannot move from " + current + " to " + op.getStatus());
+                    }
+                }
+            } else if (op.getTechnicianId() == null) {
+                reject(result, BulkOrderOutcome.INVALID, "technicianId is required");
+            } else if (!technicians.contains(op.getTechnicianId().intValue())) {
+                reject(result, BulkOrderOutcome.NOT_FOUND, "Technician not found");
+            } else if (targetStatus.getOrDefault(orderId, snapshot.status()).isFinal()) {
+                reject(result, BulkOrderOutcome.CONFLICT, "Service order is already closed");
+            } else {
+                Integer current = targetTechnician.getOrDefault(orderId, snapshot.technicianId());
+                Integer technicianId = op.getTechnicianId().intValue();
+                if (!technicianId.equals(current)) {
+                    targetTechnician.put(orderId, technicianId);
+                    changes.add(new BulkChange(results.size() - 1, orderId, ServiceOrderChangeType.TECHNICIAN, current, technicianId));
+                }
+            }
+        }
+
+        // ghi theo tập: 1 UPDATE cho mỗi cặp (from, to) trạng thái / KTV, không phụ thuộc số đơn.
+        // Đổi KTV ghi trước: chuyển sang COMPLETED / CANCELLED trong cùng lô không chặn việc đổi KTV đã duyệt ở trên
+        // key null = đơn chưa có KTV (HashMap nhận key null)
+        Map<Integer, Map<Integer, List<Long>>> reassignments = new HashMap<>();
+        targetTechnician.forEach((orderId, to) -> {
+            Integer from = snapshots.get(orderId).technicianId();
+            if (!to.equals(from)) {
+                reassignments.computeIfAbsent(from, t -> new HashMap<>())
+                        .computeIfAbsent(to, t -> new ArrayList<>()).add(orderId);
+            }
+        });
+        reassignments.forEach((from, byTarget) -> byTarget.forEach((to, orderIds) -> {
+            User technician = userRepository.getReferenceById(to);
+            if (from != null) {
+                serviceOrderRepository.reassignTechnician(orderIds, userRepository.getReferenceById(from), technician,
+                        OrderStatus.finalStatuses());
+            } else {
+                serviceOrderRepository.assignTechnician(orderIds, technician, OrderStatus.finalStatuses());
+            }
+        }));
+        Map<OrderStatus, Map<OrderStatus, List<Long>>> transitions = new HashMap<>();
+        targetStatus.forEach((orderId, to) -> {
+            OrderStatus from = snapshots.get(orderId).status();
+            if (from != to) {
+                transitions.computeIfAbsent(from, s -> new HashMap<>()).computeIfAbsent(to, s -> new ArrayList<>()).add(orderId);
+            }
+        });
+        LocalDateTime now = LocalDateTime.now();
+        transitions.forEach((from, byTarget) -> byTarget.forEach((to, orderIds) ->
+                serviceOrderRepository.transitionStatuses(orderIds, from, to, to == OrderStatus.COMPLETED ? now : null)));
+
+        // đọc lại 1 lần: đơn bị người khác đổi trạng thái / KTV giữa lúc đọc và ghi thì UPDATE không khớp -> CONFLICT
+        Map<Long, OrderStatusVersion> written = targetStatus.isEmpty() && targetTechnician.isEmpty() ? Map.of()
+                : serviceOrderRepository.findStatusVersionsByIdIn(snapshots.keySet()).stream()
+                .collect(Collectors.toMap(OrderStatusVersion::id, Function.identity()));
+        Set<Long> lostStatusUpdates = new HashSet<>();
+        targetStatus.forEach((orderId, to) -> {
+            OrderStatusVersion after = written.get(orderId);
+            if (after == null || after.status() != to) {
+                lostStatusUpdates.add(orderId);
+            }
+        });
+        Set<Long> lostTechnicianUpdates = new HashSet<>();
+        targetTechnician.forEach((orderId, to) -> {
+            OrderStatusVersion after = written.get(orderId);
+            if (after == null || !to.equals(after.technicianId())) {
+                lostTechnicianUpdates.add(orderId);
+            }
+        });
+        for (BulkChange change : changes) {
+            Set<Long> lostUpdates = change.type() == ServiceOrderChangeType.STATUS ? lostStatusUpdates : lostTechnicianUpdates;
+            if (lostUpdates.contains(change.orderId())) {
+                reject(results.get(change.index()), BulkOrderOutcome.CONFLICT,
+                        "Service order was changed by someone else, reload and retry");
+            } else {
+                publishChange(change.orderId(), change.type(), advisorId, change.fromValue(), change.toValue());
+            }
+        }
+
+        int succeeded = 0;
+        for (BulkServiceOrderResponse.Result result : results) {
+            OrderStatusVersion state = written.getOrDefault(result.getOrderId(), snapshots.get(result.getOrderId()));
+            if (state != null) {
+                result.setStatus(state.status());
+                result.setVersion(state.version());
+            }
+            if (result.getOutcome() == BulkOrderOutcome.OK) {
+                succeeded++;
+            }
+        }
+        return new BulkServiceOrderResponse(succeeded, results.size() - succeeded, results);
+    }
+
+    private static void reject(BulkServiceOrderResponse.Result result, BulkOrderOutcome outcome, String message) {
+        result.setOutcome(outcome);
+        result.setMessage(message);
+    }
+
     // ========== Quotation Management ==========
 
     @Override
     public QuotationResponse createQuotation(Long orderId, SendQuotationRequest request, Long advisorId) {
         ServiceOrder order = findServiceOrderOrThrow(orderId);
+        if (order.getOrderItems() == null) {
+            order.setOrderItems(new HashSet<>());
+        }
 
-        // Clear existing items and create new ones
-        if (order.getOrderItems() != null) {
-            serviceOrderItemRepository.deleteAll(order.getOrderItems());
+        // Khớp dòng báo giá theo (loại, mã tham chiếu): chỉ UPDATE dòng đổi, INSERT dòng mới, DELETE dòng bị bỏ
+        Map<CatalogKey, ServiceOrderItem> existing = new HashMap<>();
+        for (ServiceOrderItem item : order.getOrderItems()) {
+            existing.put(new CatalogKey(item.getItemType(), item.getItemRefId()), item);
         }
 
-        List<ServiceOrderItem> items = new ArrayList<>();
+        Map<CatalogKey, SendQuotationRequest.QuotationItemRequest> requested = new LinkedHashMap<>();
         for (SendQuotationRequest.QuotationItemRequest itemReq : request.getItems()) {
-            ServiceOrderItem item = new ServiceOrderItem();
-            item.setServiceOrder(order);
-            item.setItemType(OrderItemType.valueOf(itemReq.getItemType()));
-            item.setItemRefId(itemReq.getItemRefId());
-            item.setQuantity(itemReq.getQuantity());
-            item.setUnitPrice(BigDecimal.valueOf(itemReq.getUnitPrice()));
-            item.setStatus(OrderItemStatus.REQUESTED);
-            items.add(item);
+            CatalogKey key = new CatalogKey(parseItemType(itemReq.getItemType()), itemReq.getItemRefId());
+            if (requested.putIfAbsent(key, itemReq) != null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Duplicate quotation line: " + key.itemType() + " #" + key.itemRefId());
+            }
         }
-
-        serviceOrderItemRepository.saveAll(items);
-
-        return getQuotationByOrderId(orderId);
+        // tên / giá niêm yết của mọi dòng lấy 1 lần từ catalog
+        Map<CatalogKey, PricingService.CatalogItem> catalog = pricingService.resolve(requested.keySet());
+
+        Map<CatalogKey, ServiceOrderItem> lines = new LinkedHashMap<>();
+        for (Map.Entry<CatalogKey, SendQuotationRequest.QuotationItemRequest> entry : requested.entrySet()) {
+            CatalogKey key = entry.getKey();
+            SendQuotationRequest.QuotationItemRequest itemReq = entry.getValue();
+            BigDecimal unitPrice = resolveUnitPrice(key, itemReq, catalog.get(key));
+            ServiceOrderItem item = existing.remove(key);
+            if (item == null) {
+                item = new ServiceOrderItem();
+                item.setServiceOrder(order);
+                item.setItemType(key.itemType());
+                item.setItemRefId(key.itemRefId());
+                item.setQuantity(itemReq.getQuantity());
+                item.setUnitPrice(unitPrice);
+                item.setStatus(OrderItemStatus.REQUESTED);
+                order.getOrderItems().add(item);
+            } else if (item.getQuantity() != itemReq.getQuantity() || item.getUnitPrice().compareTo(unitPrice) != 0) {
+                // dòng không đổi thì giữ nguyên trạng thái khách đã duyệt, không sinh UPDATE
+                item.setQuantity(itemReq.getQuantity());
+                item.setUnitPrice(unitPrice);
+                item.setStatus(OrderItemStatus.REQUESTED);
+            }
+            lines.put(key, item);
+        }
+        // orphanRemoval xóa các dòng không còn trong báo giá khi flush
+        order.getOrderItems().removeAll(existing.values());
+        serviceOrderRepository.flush();
+        pricingService.evictOrder(orderId);
+
+        QuotationResponse response = buildQuotationResponse(toView(order), pricingService.price(lines.values()));
+        response.setAdditionalNotes(request.getAdditionalNotes());
+        publishChange(orderId, ServiceOrderChangeType.ITEMS, advisorId, null, response.getTotalAmount());
+        return response;
     }
 
     @Override
@@ -315,63 +608,57 @@ public class ServiceAdvisorServiceImpl implements ServiceAdvisorService {
 
     @Override
     public QuotationResponse sendQuotationToCustomer(Long orderId, Long advisorId) {
-        ServiceOrder order = findServiceOrderOrThrow(orderId);
         QuotationResponse quotation = getQuotationByOrderId(orderId);
 
         // Build email content
         String emailBody = buildQuotationEmail(quotation);
 
-        // Send email
-        mailService.sendEmail(
-                order.getCustomer().getEmail(),
+        // Ghi vào outbox cùng transaction, MailOutboxDispatcher gửi sau khi commit
+        mailService.enqueueEmail(
+                quotation.getCustomerEmail(),
                 "Service Quotation - Order #" + orderId,
-                emailBody, null
+                emailBody
         );
+        publishChange(orderId, ServiceOrderChangeType.QUOTATION_SENT, advisorId, null, quotation.getTotalAmount());
 
         return quotation;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public QuotationResponse getQuotationByOrderId(Long orderId) {
-        ServiceOrder order = findServiceOrderOrThrow(orderId);
-        List<ServiceOrderItem> items = serviceOrderItemRepository.findByServiceOrderId(orderId);
+        ServiceOrderView order = serviceOrderRepository.findViewById(orderId)
+                .orElseThrow(() -> new RuntimeException("Service order not found: " + orderId));
+        return buildQuotationResponse(order, pricingService.priceOrder(orderId));
+    }
 
+    private QuotationResponse buildQuotationResponse(ServiceOrderView order, PricingService.PricedQuotation priced) {
         QuotationResponse response = new QuotationResponse();
-        response.setServiceOrderId(orderId);
-        response.setCustomerId(order.getCustomer().getUserId().longValue());
-        response.setCustomerName(order.getCustomer().getFullName());
-        response.setCustomerEmail(order.getCustomer().getEmail());
-        response.setVehicleLicensePlate(order.getVehicle().getLicensePlate());
-        response.setVehicleModel(order.getVehicle().getModel());
+        response.setServiceOrderId(order.id());
+        response.setCustomerId(order.customerId().longValue());
+        response.setCustomerName(order.customerName());
+        response.setCustomerEmail(order.customerEmail());
+        response.setVehicleLicensePlate(order.vehicleLicensePlate());
+        response.setVehicleModel(order.vehicleModel());
         response.setQuotationDate(LocalDateTime.now());
         response.setSentToCustomer(false);
 
-        List<QuotationResponse.QuotationItemResponse> quotationItems = items.stream()
-                .map(item -> {
-                    QuotationResponse.QuotationItemResponse itemResponse = new QuotationResponse.QuotationItemResponse();
-                    itemResponse.setItemId(item.getId());
-                    itemResponse.setItemType(item.getItemType().name());
-                    itemResponse.setItemName("Item #" + item.getItemRefId());
-                    itemResponse.setItemDescription("");
-                    itemResponse.setQuantity(item.getQuantity());
-                    itemResponse.setUnitPrice(item.getUnitPrice().doubleValue());
-                    itemResponse.setLineTotal(item.getUnitPrice().doubleValue() * item.getQuantity());
-                    itemResponse.setStatus(item.getStatus().name());
-                    return itemResponse;
-                })
+        List<QuotationResponse.QuotationItemResponse> quotationItems = priced.lines().stream()
+                .map(line -> new QuotationResponse.QuotationItemResponse(
+                        line.itemId(),
+                        line.itemType().name(),
+                        line.itemName(),
+                        line.itemDescription(),
+                        line.quantity(),
+                        line.unitPrice(),
+                        line.lineTotal(),
+                        line.status().name()))
                 .collect(Collectors.toList());
 
         response.setItems(quotationItems);
-
-        double subtotal = quotationItems.stream()
-                .mapToDouble(QuotationResponse.QuotationItemResponse::getLineTotal)
-                .sum();
-        double tax = subtotal * 0.1; // 10% tax
-        double total = subtotal + tax;
-
-        response.setSubtotal(subtotal);
-        response.setTax(tax);
-        response.setTotalAmount(total);
+        response.setSubtotal(priced.subtotal());
+        response.setTax(priced.tax());
+        response.setTotalAmount(priced.total());
 
         return response;
     }
@@ -379,24 +666,119 @@ public class ServiceAdvisorServiceImpl implements ServiceAdvisorService {
     // ========== Progress Tracking ==========
 
     @Override
+    @Transactional(readOnly = true)
     public ServiceOrderResponse trackServiceProgress(Long orderId) {
         return getServiceOrderById(orderId);
     }
 
     @Override
-    public List<String> getServiceOrderHistory(Long orderId) {
-        ServiceOrder order = findServiceOrderOrThrow(orderId);
-        List<String> history = new ArrayList<>();
-        history.add("Order created at: " + order.getCreatedAt());
-        history.add("Current status: " + order.getStatus());
-        if (order.getCompletedAt() != null) {
-            history.add("Completed at: " + order.getCompletedAt());
+    @Transactional(readOnly = true)
+    public CursorPageResponse<ServiceOrderEventResponse> getServiceOrderHistory(Long orderId, String cursor, int size) {
+        if (!serviceOrderRepository.existsById(orderId)) {
+            throw new RuntimeException("Service order not found: " + orderId);
         }
-        return history;
+        // cursor = (thời điểm, seq) của event cuối trang, chỉ seq dùng để seek
+        CursorPageResponse.Cursor after = CursorPageResponse.decodeCursor(cursor);
+        List<ServiceOrderEventView> events = serviceOrderEventRepository.findPage(orderId,
+                after == null ? 0 : after.id(), Limit.of(pageSize(size) + 1));
+        return toPage(events, pageSize(size), ServiceOrderEventView::occurredAt, ServiceOrderEventView::seq,
+                page -> page.stream().map(this::mapToServiceOrderEventResponse).collect(Collectors.toList()));
     }
 
     // ========== Helper Methods ==========
 
+    private void checkTransition(Long orderId, OrderStatus from, OrderStatus to) {
+        if (!from.canTransitionTo(to)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Service order " + orderId + " cannot move from " + from + " to " + to);
+        }
+    }
+
+    // expectedVersion = version client đang xem; null thì bỏ qua
+    private void checkVersion(Long orderId, long currentVersion, Long expectedVersion) {
+        if (expectedVersion != null && expectedVersion != currentVersion) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Service order " + orderId + " was changed by someone else, reload and retry");
+        }
+    }
+
+    // flush ngay để sửa chồng bị phát hiện ở đây (409) thay vì lúc commit (500)
+    private ServiceOrder saveOrConflict(ServiceOrder order) {
+        try {
+            return serviceOrderRepository.saveAndFlush(order);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Service order " + order.getId() + " was changed by someone else, reload and retry");
+        }
+    }
+
+    // ghi timeline + đẩy SSE sau khi transaction commit
+    private void publishChange(Long orderId, ServiceOrderChangeType type, Long actorId, Object fromValue, Object toValue) {
+        publisher.publishEvent(new ServiceOrderChangedEvent(orderId, type, actorId,
+                fromValue != null ? fromValue.toString() : null,
+                toValue != null ? toValue.toString() : null));
+    }
+
+    // lấy id từ proxy, không nạp kỹ thuật viên cũ
+    private Integer technicianId(ServiceOrder order) {
+        return order.getTechnician() != null ? order.getTechnician().getUserId() : null;
+    }
+
+    private ServiceOrderEventResponse mapToServiceOrderEventResponse(ServiceOrderEventView event) {
+        return new ServiceOrderEventResponse(
+                event.seq(),
+                event.eventType(),
+                event.fromValue(),
+                event.toValue(),
+                event.actorId() != null ? event.actorId().longValue() : null,
+                event.actorName(),
+                event.occurredAt());
+    }
+
+    private int pageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    // rows lấy dư 1 dòng để biết còn trang sau hay không; cursor = (thời gian, id) của dòng cuối trang
+    private <E, R> CursorPageResponse<R> toPage(List<E> rows, int size,
+                                                Function<E, LocalDateTime> timeOf, Function<E, Long> idOf,
+                                                Function<List<E>, List<R>> mapper) {
+        boolean hasMore = rows.size() > size;
+        List<E> page = hasMore ? rows.subList(0, size) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            E last = page.get(page.size() - 1);
+            nextCursor = CursorPageResponse.encodeCursor(timeOf.apply(last), idOf.apply(last));
+        }
+        return new CursorPageResponse<>(mapper.apply(page), nextCursor, hasMore, page.size());
+    }
+
+    // Không gửi đơn giá -> lấy giá niêm yết trong catalog; làm tròn về scale của cột unit_price
+    // để báo giá gửi lại y hệt so khớp được với giá đã lưu
+    private BigDecimal resolveUnitPrice(CatalogKey key, SendQuotationRequest.QuotationItemRequest itemReq,
+                                        PricingService.CatalogItem catalogItem) {
+        if (catalogItem == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Catalog item not found: " + key.itemType() + " #" + key.itemRefId());
+        }
+        if (itemReq.getUnitPrice() != null) {
+            return PricingService.money(BigDecimal.valueOf(itemReq.getUnitPrice()));
+        }
+        if (catalogItem.price() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "No list price for " + key.itemType() + " #" + key.itemRefId() + ", unitPrice is required");
+        }
+        return PricingService.money(catalogItem.price());
+    }
+
+    private OrderItemType parseItemType(String itemType) {
+        try {
+            return OrderItemType.valueOf(itemType);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid item type: " + itemType);
+        }
+    }
+
     private Appointment findAppointmentOrThrow(Long id) {
         return appointmentRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Appointment not found: " + id));
@@ -418,90 +800,164 @@ public class ServiceAdvisorServiceImpl implements ServiceAdvisorService {
     }
 
     private AppointmentResponse mapToAppointmentResponse(Appointment appointment) {
+        return mapToAppointmentResponse(new AppointmentView(
+                appointment.getId(),
+                appointment.getCustomer().getUserId(),
+                appointment.getCustomer().getFullName(),
+                appointment.getCustomer().getEmail(),
+                appointment.getCustomer().getPhone(),
+                appointment.getVehicle().getId(),
+                appointment.getVehicle().getLicensePlate(),
+                appointment.getVehicle().getModel(),
+                appointment.getVehicle().getBrand(),
+                appointment.getRequestedService(),
+                appointment.getAppointmentTime(),
+                appointment.getStatus(),
+                appointment.getNotes(),
+                appointment.getServiceAdvisor() != null ? appointment.getServiceAdvisor().getUserId() : null,
+                appointment.getServiceAdvisor() != null ? appointment.getServiceAdvisor().getFullName() : null,
+                appointment.getCreatedAt(),
+                appointment.getServiceOrder() != null ? appointment.getServiceOrder().getId() : null,
+                appointment.getUpdatedAt() != null ? appointment.getUpdatedAt() : appointment.getCreatedAt()));
+    }
+
+    private AppointmentResponse mapToAppointmentResponse(AppointmentView appointment) {
         AppointmentResponse response = new AppointmentResponse();
-        response.setId(appointment.getId());
-        response.setCustomerId(appointment.getCustomer().getUserId().longValue());
-        response.setCustomerName(appointment.getCustomer().getFullName());
-        response.setCustomerEmail(appointment.getCustomer().getEmail());
-        response.setCustomerPhone(appointment.getCustomer().getPhone());
-        response.setVehicleId(appointment.getVehicle().getId());
-        response.setVehicleLicensePlate(appointment.getVehicle().getLicensePlate());
-        response.setVehicleModel(appointment.getVehicle().getModel());
-        response.setVehicleBrand(appointment.getVehicle().getBrand());
-        response.setRequestedService(appointment.getRequestedService());
-        response.setAppointmentTime(appointment.getAppointmentTime());
-        response.setStatus(appointment.getStatus());
-        response.setNotes(appointment.getNotes());
-        response.setCreatedAt(appointment.getCreatedAt());
-
-        if (appointment.getServiceAdvisor() != null) {
-            response.setServiceAdvisorId(appointment.getServiceAdvisor().getUserId().longValue());
-            response.setServiceAdvisorName(appointment.getServiceAdvisor().getFullName());
-        }
-
-        if (appointment.getServiceOrder() != null) {
-            response.setServiceOrderId(appointment.getServiceOrder().getId());
+        response.setId(appointment.id());
+        response.setCustomerId(appointment.customerId().longValue());
+        response.setCustomerName(appointment.customerName());
+        response.setCustomerEmail(appointment.customerEmail());
+        response.setCustomerPhone(appointment.customerPhone());
+        response.setVehicleId(appointment.vehicleId());
+        response.setVehicleLicensePlate(appointment.vehicleLicensePlate());
+        response.setVehicleModel(appointment.vehicleModel());
+        response.setVehicleBrand(appointment.vehicleBrand());
+        response.setRequestedService(appointment.requestedService());
+        response.setAppointmentTime(appointment.appointmentTime());
+        response.setStatus(appointment.status());
+        response.setNotes(appointment.notes());
+        response.setCreatedAt(appointment.createdAt());
+
+        if (appointment.serviceAdvisorId() != null) {
+            response.setServiceAdvisorId(appointment.serviceAdvisorId().longValue());
+            response.setServiceAdvisorName(appointment.serviceAdvisorName());
         }
 
+        response.setServiceOrderId(appointment.serviceOrderId());
+
         return response;
     }
 
+    // Sau khi ghi (tạo / cập nhật đơn) thì entity đã có sẵn trong persistence context -> map từ entity
     private ServiceOrderResponse mapToServiceOrderResponse(ServiceOrder order) {
-        ServiceOrderResponse response = new ServiceOrderResponse();
-        response.setId(order.getId());
-        response.setCustomerId(order.getCustomer().getUserId().longValue());
-        response.setCustomerName(order.getCustomer().getFullName());
-        response.setCustomerEmail(order.getCustomer().getEmail());
-        response.setCustomerPhone(order.getCustomer().getPhone());
-        response.setVehicleId(order.getVehicle().getId());
-        response.setVehicleLicensePlate(order.getVehicle().getLicensePlate());
-        response.setVehicleModel(order.getVehicle().getModel());
-        response.setVehicleBrand(order.getVehicle().getBrand());
-        response.setStatus(order.getStatus());
-        response.setCustomerDescription(order.getCustomerDescription());
-        response.setAdvisorNotes(order.getAdvisorNotes());
-        response.setTechnicianNotes(order.getTechnicianNotes());
-        response.setCreatedAt(order.getCreatedAt());
-        response.setCompletedAt(order.getCompletedAt());
+        List<ServiceOrderItem> items = serviceOrderItemRepository.findByServiceOrderId(order.getId());
+        return mapToServiceOrderResponse(toView(order), pricingService.price(items));
+    }
 
-        if (order.getServiceAdvisor() != null) {
-            response.setServiceAdvisorId(order.getServiceAdvisor().getUserId().longValue());
-            response.setServiceAdvisorName(order.getServiceAdvisor().getFullName());
+    private ServiceOrderView toView(ServiceOrder order) {
+        return new ServiceOrderView(
+                order.getId(),
+                order.getCustomer().getUserId(),
+                order.getCustomer().getFullName(),
+                order.getCustomer().getEmail(),
+                order.getCustomer().getPhone(),
+                order.getVehicle().getId(),
+                order.getVehicle().getLicensePlate(),
+                order.getVehicle().getModel(),
+                order.getVehicle().getBrand(),
+                order.getStatus(),
+                order.getCustomerDescription(),
+                order.getAdvisorNotes(),
+                order.getTechnicianNotes(),
+                order.getServiceAdvisor() != null ? order.getServiceAdvisor().getUserId() : null,
+                order.getServiceAdvisor() != null ? order.getServiceAdvisor().getFullName() : null,
+                order.getTechnician() != null ? order.getTechnician().getUserId() : null,
+                order.getTechnician() != null ? order.getTechnician().getFullName() : null,
+                order.getAppointment() != null ? order.getAppointment().getId() : null,
+                order.getCreatedAt(),
+                order.getCompletedAt(),
+                order.getVersion());
+    }
+
+    // Map cả danh sách: item của mọi đơn được lấy bằng 1 query rồi chia theo order_id, tên lấy từ catalog 1 lần cho cả trang
+    private List<ServiceOrderResponse> mapToServiceOrderResponses(List<ServiceOrderView> orders) {
+        if (orders.isEmpty()) {
+            return new ArrayList<>();
         }
+        Map<Long, List<ServiceOrderItem>> itemsByOrderId = new LinkedHashMap<>();
+        orders.forEach(order -> itemsByOrderId.put(order.id(), new ArrayList<>()));
+        serviceOrderItemRepository.findViewsByServiceOrderIdIn(itemsByOrderId.keySet())
+                .forEach(item -> itemsByOrderId.get(item.serviceOrderId()).add(toItem(item)));
+        Map<Long, PricingService.PricedQuotation> pricedByOrderId = pricingService.priceAll(itemsByOrderId);
+        return orders.stream()
+                .map(order -> mapToServiceOrderResponse(order, pricedByOrderId.get(order.id())))
+                .collect(Collectors.toList());
+    }
+
+    // chỉ để tính giá, không gắn vào persistence context
+    private static ServiceOrderItem toItem(ServiceOrderItemView view) {
+        ServiceOrderItem item = new ServiceOrderItem();
+        item.setId(view.id());
+        item.setItemType(view.itemType());
+        item.setItemRefId(view.itemRefId());
+        item.setQuantity(view.quantity());
+        item.setUnitPrice(view.unitPrice());
+        item.setStatus(view.status());
+        return item;
+    }
 
-        if (order.getTechnician() != null) {
-            response.setTechnicianId(order.getTechnician().getUserId().longValue());
-            response.setTechnicianName(order.getTechnician().getFullName());
+    private ServiceOrderResponse mapToServiceOrderResponse(ServiceOrderView order, PricingService.PricedQuotation priced) {
+        ServiceOrderResponse response = new ServiceOrderResponse();
+        response.setId(order.id());
+        response.setCustomerId(order.customerId().longValue());
+        response.setCustomerName(order.customerName());
+        response.setCustomerEmail(order.customerEmail());
+        response.setCustomerPhone(order.customerPhone());
+        response.setVehicleId(order.vehicleId());
+        response.setVehicleLicensePlate(order.vehicleLicensePlate());
+        response.setVehicleModel(order.vehicleModel());
+        response.setVehicleBrand(order.vehicleBrand());
+        response.setStatus(order.status());
+        response.setCustomerDescription(order.customerDescription());
+        response.setAdvisorNotes(order.advisorNotes());
+        response.setTechnicianNotes(order.technicianNotes());
+        response.setCreatedAt(order.createdAt());
+        response.setCompletedAt(order.completedAt());
+        response.setVersion(order.version());
+
+        if (order.serviceAdvisorId() != null) {
+            response.setServiceAdvisorId(order.serviceAdvisorId().longValue());
+            response.setServiceAdvisorName(order.serviceAdvisorName());
         }
 
-        if (order.getAppointment() != null) {
-            response.setAppointmentId(order.getAppointment().getId());
+        if (order.technicianId() != null) {
+            response.setTechnicianId(order.technicianId().longValue());
+            response.setTechnicianName(order.technicianName());
         }
 
-        // Map order items
-        List<ServiceOrderItem> items = serviceOrderItemRepository.findByServiceOrderId(order.getId());
-        List<ServiceOrderResponse.ServiceOrderItemResponse> itemResponses = items.stream()
-                .map(item -> {
+        response.setAppointmentId(order.appointmentId());
+
+        // Map order items: tên / thành tiền lấy từ báo giá, cùng cách tính với getQuotationByOrderId
+        List<ServiceOrderResponse.ServiceOrderItemResponse> itemResponses = priced.lines().stream()
+                .map(line -> {
                     ServiceOrderResponse.ServiceOrderItemResponse itemResponse = 
                             new ServiceOrderResponse.ServiceOrderItemResponse();
-                    itemResponse.setItemId(item.getId());
-                    itemResponse.setItemType(item.getItemType().name());
-                    itemResponse.setItemRefId(item.getItemRefId());
-                    itemResponse.setItemName("Item #" + item.getItemRefId());
-                    itemResponse.setQuantity(item.getQuantity());
-                    itemResponse.setUnitPrice(item.getUnitPrice().doubleValue());
-                    itemResponse.setStatus(item.getStatus().name());
+                    itemResponse.setItemId(line.itemId());
+                    itemResponse.setItemType(line.itemType().name());
+                    itemResponse.setItemRefId(line.itemRefId());
+                    itemResponse.setItemName(line.itemName());
+                    itemResponse.setQuantity(line.quantity());
+                    itemResponse.setUnitPrice(line.unitPrice());
+                    itemResponse.setLineTotal(line.lineTotal());
+                    itemResponse.setStatus(line.status().name());
                     return itemResponse;
                 })
                 .collect(Collectors.toList());
 
         response.setOrderItems(itemResponses);
 
-        // Calculate estimated total
-        double total = itemResponses.stream()
-                .mapToDouble(item -> item.getUnitPrice() * item.getQuantity())
-                .sum();
-        response.setEstimatedTotal(total);
+        // Tổng tạm tính đã gồm thuế, khớp totalAmount của báo giá
+        response.setEstimatedTotal(priced.total());
 
         return response;
     }
@@ -0,0 +1,305 @@
+package com.apexev.service.serviceImpl;
+
+import com.apexev.dto.response.ServiceOrderProgressResponse;
+import com.apexev.dto.response.ServiceOrderResponse;
+import com.apexev.enums.ServiceOrderChangeType;
+import com.apexev.repository.coreBussiness.ServiceOrderRepository;
+import com.apexev.service.service_Interface.ServiceAdvisorService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Luồng SSE tiến độ đơn dịch vụ, thay cho việc client poll /track.
+ * <ul>
+ *     <li>Subscriber gom theo đơn; đơn không có ai theo dõi thì thay đổi không tốn gì</li>
+ *     <li>Nhiều thay đổi liên tiếp của 1 đơn gộp thành 1 lần đọc trạng thái, dùng chung cho mọi subscriber của đơn</li>
+ *     <li>Gửi chạy trên senderThreads thread riêng, mỗi đơn cố định 1 thread: không giữ thread request của advisor,
+ *     event của 1 đơn đến client đúng thứ tự (snapshot đầu tiên luôn đi trước các thay đổi)</li>
+ *     <li>Client không đọc (1 lần ghi kéo dài quá sendTimeoutMs) bị bỏ ở lần heartbeat kế tiếp; lần ghi bị treo
+ *     chỉ làm chậm các đơn cùng thread cho tới khi container báo lỗi ghi</li>
+ *     <li>Heartbeat mỗi heartbeatMs để proxy không cắt kết nối; không có thay đổi nào trong idleTimeoutMs
+ *     hoặc quá maxLifetimeMs thì đóng, EventSource tự kết nối lại</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class ServiceOrderProgressStream {
+
+    @Autowired
+    private ServiceAdvisorService serviceAdvisorService;
+
+    @Autowired
+    private ServiceOrderRepository serviceOrderRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${com.apexev.orderStream.maxConnections:5000}")
+    private int maxConnections;
+
+    @Value("${com.apexev.orderStream.maxPerOrder:20}")
+    private int maxPerOrder;
+
+    @Value("${com.apexev.orderStream.idleTimeoutMs:1800000}")
+    private long idleTimeoutMs;
+
+    @Value("${com.apexev.orderStream.maxLifetimeMs:3600000}")
+    private long maxLifetimeMs;
+
+    @Value("${com.apexev.orderStream.reconnectMs:5000}")
+    private long reconnectMs;
+
+    @Value("${com.apexev.orderStream.senderThreads:4}")
+    private int senderThreads;
+
+    @Value("${com.apexev.orderStream.sendTimeoutMs:10000}")
+    private long sendTimeoutMs;
+
+    private final ConcurrentHashMap<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    // đơn -> các loại thay đổi chưa gửi; có mặt trong map = đã có 1 lượt gửi đang chờ
+    private final ConcurrentHashMap<Long, Set<ServiceOrderChangeType>> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private ExecutorService[] senders;
+    private Counter pushedCounter;
+    private Counter stalledCounter;
+
+    private static final class Subscriber {
+        final SseEmitter emitter;
+        volatile boolean snapshotSent;
+        volatile long lastEventAt = System.currentTimeMillis();
+        volatile long sendingSince; // 0 = không đang ghi
+        volatile boolean dropped; // bị bỏ vì ghi quá lâu
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        senders = new ExecutorService[Math.max(1, senderThreads)];
+        for (int i = 0; i < senders.length; i++) {
+            String name = "order-progress-stream-" + i;
+            senders[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        Gauge.builder("order.progress.subscribers", connections, AtomicInteger::get)
+                .description("Open service-order progress streams")
+                .register(meterRegistry);
+        pushedCounter = meterRegistry.counter("order.progress.pushed");
+        stalledCounter = meterRegistry.counter("order.progress.stalled");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ExecutorService sender : senders) {
+            sender.shutdownNow();
+        }
+        subscribers.values().forEach(subs -> subs.forEach(sub -> sub.emitter.complete()));
+    }
+
+    /**
+     * Mở luồng tiến độ của 1 đơn; snapshot hiện tại được gửi ngay sau khi kết nối
+     */
+    public SseEmitter subscribe(Long orderId) {
+        if (!serviceOrderRepository.existsById(orderId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Service order not found: " + orderId);
+        }
+        if (connections.incrementAndGet() > maxConnections) {
+            connections.decrementAndGet();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many open progress streams");
+        }
+
+        Subscriber sub = new Subscriber(new SseEmitter(maxLifetimeMs));
+        boolean[] added = {false};
+        subscribers.compute(orderId, (id, subs) -> {
+            if (subs == null) {
+                subs = ConcurrentHashMap.newKeySet();
+            }
+            if (subs.size() < maxPerOrder) {
+                added[0] = subs.add(sub);
+            }
+            return subs.isEmpty() ? null : subs;
+        });
+        if (!added[0]) {
+            connections.decrementAndGet();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Too many open progress streams for order " + orderId);
+        }
+
+        sub.emitter.onCompletion(() -> remove(orderId, sub));
+        sub.emitter.onTimeout(sub.emitter::complete);
+        sub.emitter.onError(e -> remove(orderId, sub));
+        // snapshot đi qua cùng hàng đợi với thay đổi -> không lọt thay đổi nào xảy ra ngay lúc kết nối
+        schedule(orderId, null);
+        return sub.emitter;
+    }
+
+    /**
+     * Báo đơn vừa thay đổi (gọi sau commit)
+     */
+    public void publish(Long orderId, ServiceOrderChangeType changeType) {
+        if (subscribers.containsKey(orderId)) {
+            schedule(orderId, changeType);
+        }
+    }
+
+    private void schedule(Long orderId, ServiceOrderChangeType changeType) {
+        boolean[] first = {false};
+        pending.compute(orderId, (id, changes) -> {
+            if (changes == null) {
+                changes = EnumSet.noneOf(ServiceOrderChangeType.class);
+                first[0] = true;
+            }
+            if (changeType != null) {
+                changes.add(changeType);
+            }
+            return changes;
+        });
+        if (first[0]) {
+            sender(orderId).execute(() -> push(orderId));
+        }
+    }
+
+    private ExecutorService sender(Long orderId) {
+        return senders[stripe(orderId)];
+    }
+
+    private int stripe(Long orderId) {
+        return Math.floorMod(orderId.hashCode(), senders.length);
+    }
+
+    private void push(Long orderId) {
+        Set<ServiceOrderChangeType> changes = pending.remove(orderId);
+        Set<Subscriber> subs = subscribers.get(orderId);
+        if (subs == null || subs.isEmpty()) {
+            return;
+        }
+        ServiceOrderResponse order;
+        try {
+            order = serviceAdvisorService.trackServiceProgress(orderId);
+        } catch (RuntimeException e) {
+            log.warn("Cannot load progress of service order {}: {}", orderId, e.getMessage());
+            subs.forEach(sub -> sub.emitter.complete());
+            return;
+        }
+
+        ServiceOrderProgressResponse progress = new ServiceOrderProgressResponse(changes, order);
+        for (Subscriber sub : subs) {
+            boolean snapshot = !sub.snapshotSent;
+            if (!snapshot && changes.isEmpty()) {
+                continue; // lượt này chỉ để gửi snapshot cho subscriber mới
+            }
+            SseEmitter.SseEventBuilder event = SseEmitter.event()
+                    .name(snapshot ? "snapshot" : "progress")
+                    .data(snapshot ? new ServiceOrderProgressResponse(Set.of(), order) : progress, MediaType.APPLICATION_JSON);
+            if (snapshot) {
+                event.reconnectTime(reconnectMs);
+            }
+            if (send(orderId, sub, event)) {
+                sub.snapshotSent = true;
+                sub.lastEventAt = System.currentTimeMillis();
+                pushedCounter.increment();
+            }
+        }
+    }
+
+    // scheduler chỉ bỏ subscriber ghi quá lâu (không gọi emitter: lần ghi đang treo giữ lock của nó),
+    // ping / đóng kết nối rảnh chạy trên thread gửi của từng đơn
+    @Scheduled(fixedRateString = "${com.apexev.orderStream.heartbeatMs:15000}")
+    public void heartbeat() {
+        long stalledBefore = System.currentTimeMillis() - sendTimeoutMs;
+        subscribers.forEach((orderId, subs) -> subs.forEach(sub -> {
+            long since = sub.sendingSince;
+            if (since != 0 && since < stalledBefore) {
+                sub.dropped = true;
+                if (remove(orderId, sub)) {
+                    stalledCounter.increment();
+                    log.warn("Dropping stalled progress stream of service order {}", orderId);
+                }
+            }
+        }));
+        for (int i = 0; i < senders.length; i++) {
+            int stripe = i;
+            senders[i].execute(() -> sweep(stripe));
+        }
+    }
+
+    private void sweep(int stripe) {
+        long idleBefore = System.currentTimeMillis() - idleTimeoutMs;
+        subscribers.forEach((orderId, subs) -> subs.forEach(sub -> {
+            if (stripe(orderId) != stripe) {
+                return;
+            }
+            if (sub.lastEventAt < idleBefore) {
+                remove(orderId, sub);
+                sub.emitter.complete();
+            } else {
+                send(orderId, sub, SseEmitter.event().comment("ping"));
+            }
+        }));
+    }
+
+    private boolean send(Long orderId, Subscriber sub, SseEmitter.SseEventBuilder event) {
+        if (sub.dropped) {
+            return false;
+        }
+        sub.sendingSince = System.currentTimeMillis();
+        try {
+            sub.emitter.send(event);
+        } catch (IOException e) {
+            // client đã ngắt kết nối
+            remove(orderId, sub);
+            sub.emitter.completeWithError(e);
+            return false;
+        } catch (IllegalStateException e) {
+            // emitter đã đóng (timeout / complete) nhưng callback chưa kịp chạy
+            remove(orderId, sub);
+            return false;
+        } finally {
+            sub.sendingSince = 0;
+        }
+        if (sub.dropped) {
+            // heartbeat đã bỏ subscriber trong lúc ghi treo -> đóng hẳn
+            sub.emitter.complete();
+            return false;
+        }
+        return true;
+    }
+
+    private boolean remove(Long orderId, Subscriber sub) {
+        boolean[] removed = {false};
+        subscribers.computeIfPresent(orderId, (id, subs) -> {
+            if (subs.remove(sub)) {
+                connections.decrementAndGet();
+                removed[0] = true;
+            }
+            return subs.isEmpty() ? null : subs;
+        });
+        return removed[0];
+    }
+}
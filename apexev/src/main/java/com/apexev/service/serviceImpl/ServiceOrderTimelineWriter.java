@@ -0,0 +1,243 @@
+package com.apexev.service.serviceImpl;
+
+import com.apexev.dto.projection.OrderSeq;
+import com.apexev.entity.ServiceOrderEvent;
+import com.apexev.entity.ServiceOrderEventOutbox;
+import com.apexev.event.serviceOrder.ServiceOrderChangedEvent;
+import com.apexev.repository.coreBussiness.ServiceOrderEventOutboxRepository;
+import com.apexev.repository.coreBussiness.ServiceOrderEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ghi timeline đơn dịch vụ (service_order_events) ở nền, qua bảng outbox service_order_event_outbox.
+ * <ul>
+ *     <li>Thao tác trên đơn chỉ INSERT 1 dòng outbox trong chính transaction của nó (trước commit): commit thì
+ *     thay đổi chắc chắn có trong timeline, rollback thì không; không chờ cấp seq / không khóa theo đơn</li>
+ *     <li>Mỗi flushIntervalMs lấy tối đa batchSize dòng outbox cũ nhất, khóa lại (FOR UPDATE), cấp seq
+ *     (1 query lấy seq cuối của các đơn trong lô), INSERT timeline theo JDBC batch và xóa outbox trong cùng 1 transaction</li>
+ *     <li>Nhiều instance cùng flush thì chờ nhau trên khóa outbox, dòng đã được instance khác ghi thì bỏ qua;
+ *     trùng (order_id, seq) thì đọc lại seq và thử lại</li>
+ *     <li>Vẫn vi phạm ràng buộc sau maxConflictRetries lần thì tách lô theo đơn, chỉ bỏ event của đơn lỗi (log id đơn)</li>
+ *     <li>DB lỗi thì outbox giữ nguyên, lượt sau ghi lại; app chết giữa chừng cũng không mất event</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ServiceOrderTimelineWriter {
+
+    private static final int MAX_VALUE_LENGTH = 500;
+
+    private final ServiceOrderEventRepository serviceOrderEventRepository;
+    private final ServiceOrderEventOutboxRepository outboxRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${com.apexev.orderTimeline.batchSize:200}")
+    private int batchSize;
+
+    @Value("${com.apexev.orderTimeline.maxConflictRetries:3}")
+    private int maxConflictRetries;
+
+    // giới hạn số lô mỗi lượt để 1 lượt không chạy mãi khi outbox bị dồn nhiều
+    @Value("${com.apexev.orderTimeline.maxBatchesPerRun:50}")
+    private int maxBatchesPerRun;
+
+    private enum Outcome {
+        WRITTEN,
+        CONFLICT, // vẫn vi phạm ràng buộc sau maxConflictRetries lần thử lại
+        FAILED // lỗi DB khác, ghi lại ở lượt sau
+    }
+
+    private final AtomicLong queued = new AtomicLong();
+    private Counter writtenCounter;
+    private Counter droppedCounter;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("order.timeline.queued", queued, AtomicLong::get)
+                .description("Timeline events waiting in the outbox")
+                .register(meterRegistry);
+        writtenCounter = meterRegistry.counter("order.timeline.written");
+        droppedCounter = meterRegistry.counter("order.timeline.dropped");
+    }
+
+    /**
+     * Ghi event vào outbox, trong transaction đang chạy nếu có (gọi trước commit)
+     */
+    public void append(ServiceOrderChangedEvent event) {
+        ServiceOrderEventOutbox row = new ServiceOrderEventOutbox();
+        row.setOrderId(event.getOrderId());
+        row.setEventType(event.getChangeType());
+        row.setFromValue(event.getFromValue());
+        row.setToValue(event.getToValue());
+        row.setActorId(event.getActorId());
+        row.setOccurredAt(event.getOccurredAt());
+        outboxRepository.save(row);
+    }
+
+    @Scheduled(fixedDelayString = "${com.apexev.orderTimeline.flushIntervalMs:500}")
+    public void scheduledFlush() {
+        flush();
+    }
+
+    /**
+     * Ghi các event đang chờ trong outbox
+     *
+     * @return số event đã ghi
+     */
+    synchronized int flush() {
+        int written = 0;
+        try {
+            List<Long> retry = new ArrayList<>();
+            for (int i = 0; i < maxBatchesPerRun && retry.isEmpty(); i++) {
+                List<Long> batch = transactionTemplate.execute(status -> outboxRepository.findOldestIds(Limit.of(batchSize)));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                written += write(batch, retry);
+                if (batch.size() < batchSize) {
+                    break;
+                }
+            }
+            queued.set(outboxRepository.count());
+        } catch (RuntimeException e) {
+            log.warn("Cannot read the timeline outbox, will retry: {}", e.getMessage());
+        }
+        return written;
+    }
+
+    /**
+     * Ghi 1 lô; lô vẫn vi phạm ràng buộc thì ghi lại từng đơn trong transaction riêng
+     *
+     * @param batch id các dòng outbox
+     * @param retry nhận id các dòng chưa ghi được vì lỗi DB khác (vẫn nằm trong outbox, lượt sau ghi lại)
+     * @return số event đã ghi
+     */
+    private int write(List<Long> batch, List<Long> retry) {
+        int[] written = new int[1];
+        Outcome outcome = tryWrite(batch, written);
+        if (outcome == Outcome.WRITTEN) {
+            return written[0];
+        }
+        if (outcome == Outcome.FAILED) {
+            retry.addAll(batch);
+            return 0;
+        }
+
+        // giữ thứ tự event trong từng đơn
+        Map<Long, List<Long>> byOrder = new LinkedHashMap<>();
+        transactionTemplate.execute(status -> outboxRepository.findAllById(batch)).stream()
+                .sorted(Comparator.comparing(ServiceOrderEventOutbox::getOccurredAt).thenComparing(ServiceOrderEventOutbox::getId))
+                .forEach(row -> byOrder.computeIfAbsent(row.getOrderId(), id -> new ArrayList<>()).add(row.getId()));
+        List<Long> droppedOrders = new ArrayList<>();
+        for (Map.Entry<Long, List<Long>> entry : byOrder.entrySet()) {
+            List<Long> ids = entry.getValue();
+            if (!retry.isEmpty()) {
+                retry.addAll(ids); // DB đã lỗi ở đơn trước -> để lượt sau
+                continue;
+            }
+            // lô chỉ có 1 đơn thì đã biết kết quả
+            outcome = byOrder.size() == 1 ? Outcome.CONFLICT : tryWrite(ids, written);
+            if (outcome == Outcome.FAILED || outcome == Outcome.CONFLICT && !drop(ids)) {
+                retry.addAll(ids);
+            } else if (outcome == Outcome.CONFLICT) {
+                droppedOrders.add(entry.getKey());
+            }
+        }
+        if (!droppedOrders.isEmpty()) {
+            log.error("Dropped timeline events of service orders {} after {} constraint violations", droppedOrders, maxConflictRetries + 1);
+        }
+        return written[0];
+    }
+
+    /**
+     * Khóa các dòng outbox, ghi timeline và xóa outbox trong 1 transaction
+     *
+     * @param written cộng thêm số event đã ghi (dòng instance khác đã ghi thì không tính)
+     */
+    private Outcome tryWrite(List<Long> ids, int[] written) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                int count = transactionTemplate.execute(status -> {
+                    List<ServiceOrderEventOutbox> rows = outboxRepository.lockAll(ids);
+                    insert(rows);
+                    outboxRepository.deleteAllInBatch(rows);
+                    return rows.size();
+                });
+                writtenCounter.increment(count);
+                written[0] += count;
+                return Outcome.WRITTEN;
+            } catch (DataIntegrityViolationException e) {
+                if (attempt > maxConflictRetries) {
+                    log.debug("Timeline write of {} events still violates a constraint: {}", ids.size(), e.getMessage());
+                    return Outcome.CONFLICT;
+                }
+            } catch (RuntimeException e) {
+                log.warn("Cannot write {} timeline events, will retry: {}", ids.size(), e.getMessage());
+                return Outcome.FAILED;
+            }
+        }
+    }
+
+    // bỏ hẳn event của đơn lỗi để chúng không chặn outbox mãi
+    private boolean drop(List<Long> ids) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> outboxRepository.deleteAllByIdInBatch(ids));
+            droppedCounter.increment(ids.size());
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("Cannot drop {} timeline events, will retry: {}", ids.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    private void insert(List<ServiceOrderEventOutbox> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Set<Long> orderIds = new HashSet<>();
+        batch.forEach(event -> orderIds.add(event.getOrderId()));
+        Map<Long, Long> lastSeq = new HashMap<>();
+        for (OrderSeq orderSeq : serviceOrderEventRepository.findLastSeqs(orderIds)) {
+            lastSeq.put(orderSeq.orderId(), orderSeq.seq());
+        }
+
+        List<ServiceOrderEvent> rows = new ArrayList<>(batch.size());
+        for (ServiceOrderEventOutbox event : batch) {
+            ServiceOrderEvent row = new ServiceOrderEvent();
+            row.setOrderId(event.getOrderId());
+            row.setSeq(lastSeq.merge(event.getOrderId(), 1L, Long::sum));
+            row.setEventType(event.getEventType());
+            row.setFromValue(truncate(event.getFromValue()));
+            row.setToValue(truncate(event.getToValue()));
+            row.setActorId(event.getActorId() != null ? event.getActorId().intValue() : null);
+            row.setOccurredAt(event.getOccurredAt());
+            rows.add(row);
+        }
+        serviceOrderEventRepository.saveAll(rows);
+        // INSERT trước DELETE outbox: lỗi ràng buộc nổ ra ở đây chứ không phải lúc commit
+        serviceOrderEventRepository.flush();
+    }
+
+    private static String truncate(String value) {
+        if (value == null) {
+            return null;
+        }
+        return value.length() <= MAX_VALUE_LENGTH ? value : value.substring(0, MAX_VALUE_LENGTH);
+    }
+}
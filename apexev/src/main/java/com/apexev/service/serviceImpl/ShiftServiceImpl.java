@@ -12,6 +12,7 @@ import com.apexev.repository.hr.ShiftAssignmentRepository;
 import com.apexev.repository.hr.ShiftRepository;
 import com.apexev.repository.userAndVehicle.UserRepository;
 import com.apexev.service.service_Interface.ShiftService;
+import com.apexev.service.service_Interface.WorkshopCapacityService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -29,6 +30,7 @@ public class ShiftServiceImpl implements ShiftService {
     private final ShiftAssignmentRepository assignmentRepository;
     private final UserRepository userRepository;
     private final LeaveRequestRepository leaveRequestRepository;
+    private final WorkshopCapacityService workshopCapacityService;
 
     @Transactional
     public ShiftResponse createShift(CreateShiftRequest request, Integer createdBy) {
@@ -70,6 +72,7 @@ public class ShiftServiceImpl implements ShiftService {
 
             assignmentRepository.save(assignment);
         }
+        workshopCapacityService.onShiftsChanged(shift.getStartTime(), shift.getEndTime());
     }
 
     private void checkStaffConflicts(Integer staffId, LocalDateTime startTime, LocalDateTime endTime) {
@@ -107,6 +110,7 @@ public class ShiftServiceImpl implements ShiftService {
         Shift shift = shiftRepository.findById(shiftId)
                 .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy ca làm việc"));
         shiftRepository.delete(shift);
+        workshopCapacityService.onShiftsChanged(shift.getStartTime(), shift.getEndTime());
     }
 
     private ShiftResponse mapToResponse(Shift shift) {
@@ -0,0 +1,115 @@
+package com.apexev.service.serviceImpl;
+
+import com.apexev.dto.response.ServiceOrderResponse;
+import com.apexev.dto.response.TechnicianQueueResponse;
+import com.apexev.enums.ServiceOrderChangeType;
+import com.apexev.event.serviceOrder.ServiceOrderChangedEvent;
+import com.apexev.repository.coreBussiness.ServiceOrderRepository;
+import com.apexev.service.service_Interface.ServiceAdvisorService;
+import com.apexev.service.service_Interface.TechnicianQueueService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hàng đợi công việc của KTV cho tablet xưởng (refresh vài giây 1 lần).
+ * <ul>
+ *     <li>Mỗi KTV 1 snapshot trong RAM (2 query khi nạp: đơn theo index (technician_id, status) + item)</li>
+ *     <li>Snapshot bị bỏ khi 1 đơn trong đó đổi, hoặc khi đơn được giao cho KTV (ServiceOrderChangedEvent sau commit);
+ *     TTL ngắn để bắt thay đổi từ instance khác</li>
+ *     <li>ETag = hash nội dung JSON, tablet gửi If-None-Match -> 304 không đụng DB, không serialize</li>
+ * </ul>
+ */
+@Service
+public class TechnicianQueueServiceImpl implements TechnicianQueueService {
+
+    private static final ObjectMapper JSON = JsonMapper.builder().findAndAddModules().build();
+
+    @Autowired
+    private ServiceAdvisorService serviceAdvisorService;
+
+    @Autowired
+    private ServiceOrderRepository serviceOrderRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${com.apexev.technicianQueue.cacheSize:2000}")
+    private long cacheSize;
+
+    @Value("${com.apexev.technicianQueue.ttlMs:30000}")
+    private long ttlMs;
+
+    private Cache<Integer, Queue> queueCache;
+    // đơn -> snapshot đang chứa đơn đó; giữ chính snapshot (không chỉ id KTV) để snapshot cũ bị bỏ
+    // không xóa nhầm liên kết của snapshot mới nạp lại
+    private final ConcurrentHashMap<Long, Queue> queueByOrder = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        this.queueCache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .removalListener((Integer technicianId, Queue queue, RemovalCause cause) -> {
+                    if (queue != null) {
+                        queue.response().getOrders().forEach(order -> queueByOrder.remove(order.getId(), queue));
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, queueCache, "technicianQueueCache");
+    }
+
+    @Override
+    public Queue getQueue(Long technicianId) {
+        return queueCache.get(technicianId.intValue(), this::load);
+    }
+
+    private Queue load(Integer technicianId) {
+        TechnicianQueueResponse response = new TechnicianQueueResponse(technicianId.longValue(),
+                serviceAdvisorService.getActiveServiceOrdersByTechnician(technicianId.longValue()));
+        Queue queue = new Queue(response, etag(response));
+        for (ServiceOrderResponse order : response.getOrders()) {
+            queueByOrder.put(order.getId(), queue);
+        }
+        return queue;
+    }
+
+    @Override
+    public void onOrderChanged(ServiceOrderChangedEvent event) {
+        if (queueCache.estimatedSize() == 0) {
+            return;
+        }
+        Queue current = queueByOrder.get(event.getOrderId());
+        if (current != null) {
+            queueCache.invalidate(current.response().getTechnicianId().intValue());
+        }
+        // đơn mới / vừa giao KTV: chưa nằm trong snapshot nào -> bỏ snapshot của KTV nhận đơn
+        if (event.getChangeType() == ServiceOrderChangeType.TECHNICIAN && event.getToValue() != null) {
+            queueCache.invalidate(Integer.valueOf(event.getToValue()));
+        } else if (event.getChangeType() == ServiceOrderChangeType.CREATED) {
+            serviceOrderRepository.findTechnicianIdById(event.getOrderId()).ifPresent(queueCache::invalidate);
+        }
+    }
+
+    private static String etag(TechnicianQueueResponse response) {
+        try {
+            return "\"" + DigestUtils.md5DigestAsHex(JSON.writeValueAsBytes(response)) + "\"";
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize technician queue", e);
+        }
+    }
+}
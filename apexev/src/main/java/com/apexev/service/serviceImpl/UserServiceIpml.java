@@ -4,6 +4,7 @@ import com.apexev.dto.request.userAndVehicleRequest.UserUpdateRequest;
 import com.apexev.dto.response.userAndVehicleResponse.UserResponse;
 import com.apexev.entity.User;
 import com.apexev.enums.UserRole;
+import com.apexev.event.user.UserChangedEvent;
 import com.apexev.event.user.UserRegisterEvent;
 import com.apexev.exception.UserAlreadyExistsException;
 import com.apexev.repository.userAndVehicle.UserRepository;
@@ -20,6 +21,8 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -157,13 +160,19 @@ public class UserServiceIpml implements UserService {
             }
         }
         userRepository.save(user);
+        publisher.publishEvent(new UserChangedEvent(id));
     }
 
     public void updateUserStatus(Integer id, boolean isActive) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
         user.setActive(isActive); // Use setter for isActive
+        if (!isActive) {
+            // khóa tài khoản -> mọi token đã phát hành (kể cả access token chưa hết hạn) mất hiệu lực ngay
+            user.setTokensValidAfter(Instant.now().truncatedTo(ChronoUnit.SECONDS));
+        }
         userRepository.save(user);
+        publisher.publishEvent(new UserChangedEvent(id, user.getTokensValidAfter()));
     }
 
     //Change password for user
@@ -177,5 +186,24 @@ public class UserServiceIpml implements UserService {
 
         user.setPasswordHash(passwordEncoder.encode(newPassword));
         userRepository.save(user);
+        publisher.publishEvent(new UserChangedEvent(id));
+    }
+
+    // Ghi lại hash mới (đã encode sẵn) khi đổi cost factor của BCrypt
+    public void updatePasswordHash(Integer id, String encodedPassword) {
+        User user = userRepository.findById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+        user.setPasswordHash(encodedPassword);
+        userRepository.save(user);
+        publisher.publishEvent(new UserChangedEvent(id));
+    }
+
+    // Đăng xuất mọi nơi: token phát hành trước mốc này (access lẫn refresh) đều bị từ chối
+    public void revokeAllSessions(Integer id) {
+        User user = userRepository.findById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+        user.setTokensValidAfter(Instant.now().truncatedTo(ChronoUnit.SECONDS));
+        userRepository.save(user);
+        publisher.publishEvent(new UserChangedEvent(id, user.getTokensValidAfter()));
     }
 }
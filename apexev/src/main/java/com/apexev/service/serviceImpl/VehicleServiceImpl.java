@@ -6,34 +6,31 @@ import com.apexev.entity.User;
 import com.apexev.entity.Vehicle;
 import com.apexev.enums.AppointmentStatus;
 import com.apexev.enums.UserRole;
+import com.apexev.mapper.VehicleMapper;
 import com.apexev.repository.coreBussiness.AppointmentRepository;
 import com.apexev.repository.userAndVehicle.VehicleRepository;
 import com.apexev.service.service_Interface.VehicleService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class VehicleServiceImpl implements VehicleService {
     private final VehicleRepository vehicleRepository;
     private final AppointmentRepository appointmentRepository;
-    private final ModelMapper modelMapper;
+    private final VehicleMapper vehicleMapper;
 
     @Override
     public List<VehicleResponse> getMyVehicles(User loggedInUser) { // trả về phải là 1 list data được chuẩn hóa -> VehicleResponse
         // 1. lấy danh sách xe từ db theo id của user
         List<Vehicle> vehicles = vehicleRepository.findByCustomerUserId(loggedInUser.getUserId());
-        // 2. danh sách nên dùng stream để map sang danh sách response
-        return vehicles.stream() // đặt lên băng chuyền
-                .map(vehicle -> modelMapper.map(vehicle, VehicleResponse.class)) //mapper
-                .collect(Collectors.toList()); // đóng gói
+        // 2. map sang danh sách response
+        return vehicleMapper.toResponses(vehicles);
     }
 
     @Override
@@ -41,7 +38,7 @@ public class VehicleServiceImpl implements VehicleService {
         // 1. ktra xe có tồn tại và ktra quyền sở hữu
         Vehicle vehicle = findVehicleAndCheckOwnership(vehicleId, loggedInUser);
         // 2. map và trả về
-        return modelMapper.map(vehicle, VehicleResponse.class);
+        return vehicleMapper.toResponse(vehicle);
     }
 
     @Override
@@ -52,13 +49,13 @@ public class VehicleServiceImpl implements VehicleService {
         });
         // 2. chuyển request người dung gửi -> form vehicle
         // mục đích chuyển data thô của người dùng thành entity Vehicle để ứng dụng có thể hiểu -> chuẩn hóa dữ liệu
-        Vehicle newVehicle = modelMapper.map(request, Vehicle.class);
+        Vehicle newVehicle = vehicleMapper.toEntity(request);
         // 3. gán chủ sở hữu xe -> tức là người đang đăng nhập để tạo thông tin xe
         newVehicle.setCustomer(loggedInUser);
         // 4. Lưu và db
         Vehicle savedVehicle = vehicleRepository.save(newVehicle);
         // 5. map và trả về
-        return modelMapper.map(savedVehicle, VehicleResponse.class);
+        return vehicleMapper.toResponse(savedVehicle);
     }
 
     @Override
@@ -72,23 +69,23 @@ public class VehicleServiceImpl implements VehicleService {
                 throw new IllegalArgumentException("Biển số xe " + request.getLicensePlate() + " đã tồn tại.");
             }
         });
-        // 3. Dùng ModelMapper để cập nhật các trường từ Request -> Entity
+        // 3. Dùng VehicleMapper để cập nhật các trường từ Request -> Entity
         // tức là lưu data từ request vào existingVehicle
-        modelMapper.map(request, existingVehicle);
+        vehicleMapper.update(request, existingVehicle);
         // 4. lưu lại và map
         Vehicle updatedVehicle = vehicleRepository.save(existingVehicle);
-        return modelMapper.map(updatedVehicle, VehicleResponse.class);
+        return vehicleMapper.toResponse(updatedVehicle);
 
         // giải thích bước 3
         /*
-        modelMapper.map() -> có 2 cách : map(source, Class): Tạo một đối tượng mới (dùng cho create).
-                                         map(source, destination): Cập nhật một đối tượng đã tồn tại (dùng cho update).
+        vehicleMapper -> có 2 cách : toEntity(request): Tạo một đối tượng mới (dùng cho create).
+                                     update(request, destination): Cập nhật một đối tượng đã tồn tại (dùng cho update).
         dòng code ở bước 3 tương đương với:
             existingVehicle.setLicensePlate(request.getLicensePlate());
             existingVehicle.setBrand(request.getBrand());
             existingVehicle.setModel(request.getModel());
             existingVehicle.setYearManufactured(request.getYearManufactured());
-        => modelMapper hỗ trợ chuyển đổi response và update cũng khá hay
+        => MapStruct sinh đúng đoạn code này lúc compile (VehicleMapperImpl), thiếu / thừa field thì compile lỗi
          */
     }
 
@@ -0,0 +1,578 @@
+package com.apexev.service.serviceImpl;
+
+import com.apexev.dto.projection.AppointmentSlot;
+import com.apexev.dto.projection.StaffLeave;
+import com.apexev.dto.projection.StaffShiftInterval;
+import com.apexev.dto.response.coreBussinessResponse.AvailabilityResponse;
+import com.apexev.event.appointment.AppointmentChangedEvent;
+import com.apexev.repository.coreBussiness.AppointmentRepository;
+import com.apexev.repository.coreBussiness.WorkshopDayLockRepository;
+import com.apexev.repository.hr.LeaveRequestRepository;
+import com.apexev.repository.hr.ShiftAssignmentRepository;
+import com.apexev.service.service_Interface.WorkshopCapacityService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sức chứa xưởng theo giờ, giữ trong RAM để đặt lịch / tìm giờ trống không phải query.
+ * <ul>
+ *     <li>Mỗi ngày chia thành các ô slotMinutes; mỗi ô có sức chứa (số KTV có ca phủ trọn ô, không nghỉ phép,
+ *     tối đa bays khoang) và số lịch đang chiếm. Ngày chưa xếp ca nào chỉ giới hạn theo số khoang</li>
+ *     <li>Ngày được nạp 1 lần khi có người hỏi tới (3 query theo khoảng: lịch hẹn, ca, nghỉ phép),
+ *     sau đó cập nhật từng lịch theo sự kiện đặt / dời / hủy</li>
+ *     <li>Kiểm tra + giữ chỗ chạy trong transaction đặt lịch: RAM loại nhanh giờ đã kín, sau đó khóa dòng
+ *     workshop_day_locks của các ngày lịch chiếm (FOR UPDATE, giữ tới khi commit / rollback) và đếm lại lịch
+ *     đã commit trong DB -> nhiều instance đặt cùng giờ thì lần lượt từng transaction, không vượt sức chứa.
+ *     DB nói kín mà RAM chưa biết thì đánh dấu ngày đó để nạp lại; commit thì chỗ giữ thành chính thức,
+ *     rollback thì trả lại</li>
+ *     <li>Giờ trống của mỗi ngày tính sẵn thành bitmap (bit i = bắt đầu lịch ở ô i còn chỗ), đọc không cần lock;
+ *     ngày nào có lịch / ca thay đổi thì bỏ bitmap của ngày đó và ngày trước (lịch cuối ngày tràn sang)</li>
+ *     <li>Mỗi refreshIntervalMs đối chiếu các ngày đã nạp với DB (lịch do instance khác đặt, ca / nghỉ phép bị sửa),
+ *     mỗi dải ngày liền nhau 1 lần đọc; lịch vừa đổi ở instance này sau lúc đọc DB thì giữ bản trong RAM</li>
+ *     <li>Chỉ nhận đặt lịch / tìm giờ trống từ hôm nay tới horizonDays ngày sau, nên số ngày giữ trong RAM có giới hạn</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WorkshopCapacityServiceImpl implements WorkshopCapacityService {
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final AppointmentRepository appointmentRepository;
+    private final ShiftAssignmentRepository shiftAssignmentRepository;
+    private final LeaveRequestRepository leaveRequestRepository;
+    private final WorkshopDayLockRepository workshopDayLockRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${com.apexev.capacity.slotMinutes:30}")
+    private int slotMinutes;
+
+    // thời gian 1 lịch hẹn chiếm xưởng
+    @Value("${com.apexev.capacity.appointmentMinutes:60}")
+    private int appointmentMinutes;
+
+    // số khoang sửa chữa; 0 = chỉ giới hạn theo số KTV
+    @Value("${com.apexev.capacity.bays:4}")
+    private int bays;
+
+    @Value("${com.apexev.capacity.searchDays:14}")
+    private int searchDays;
+
+    // đặt lịch xa nhất bao nhiêu ngày tới
+    @Value("${com.apexev.capacity.horizonDays:60}")
+    private int horizonDays;
+
+    private final Object lock = new Object();
+    // các field dưới đây chỉ đọc / ghi khi giữ lock
+    private final Map<LocalDate, DayIndex> days = new HashMap<>();
+    private final Map<Long, LocalDateTime> bookings = new HashMap<>();
+    private final Set<Long> held = new HashSet<>(); // giữ chỗ trong transaction chưa kết thúc
+    private final Map<Long, Long> changedAt = new HashMap<>(); // id lịch -> seq lần đổi gần nhất ở instance này
+    private final Map<LocalDate, Long> staleAt = new HashMap<>(); // ngày có ca / nghỉ phép vừa đổi -> seq lúc đánh dấu
+    private long seq;
+    private long lastRefreshSeq;
+    // ngày -> giờ bắt đầu còn trống; ghi / xóa khi giữ lock, BitSet đã đưa vào map thì không sửa nữa
+    private final Map<LocalDate, BitSet> freeStarts = new ConcurrentHashMap<>();
+
+    private int slotsPerDay;
+    // transaction riêng, READ COMMITTED: thấy lịch instance khác vừa commit dù transaction đặt lịch đã đọc DB từ trước
+    private TransactionTemplate committedReads;
+    private Counter rejectedCounter;
+    private Counter bitmapCounter;
+
+    // 1 ngày: sức chứa và số lịch đang chiếm của từng ô
+    private static final class DayIndex {
+        final int[] capacity;
+        final int[] booked;
+
+        DayIndex(int[] capacity) {
+            this.capacity = capacity;
+            this.booked = new int[capacity.length];
+        }
+    }
+
+    @FunctionalInterface
+    private interface SlotVisitor {
+        // false = dừng duyệt
+        boolean visit(LocalDate day, int slot);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (slotMinutes <= 0 || MINUTES_PER_DAY % slotMinutes != 0) {
+            throw new IllegalStateException("com.apexev.capacity.slotMinutes must divide a day, got " + slotMinutes);
+        }
+        slotsPerDay = MINUTES_PER_DAY / slotMinutes;
+        committedReads = new TransactionTemplate(transactionManager);
+        committedReads.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        committedReads.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        rejectedCounter = meterRegistry.counter("appointment.capacity.rejected");
+        bitmapCounter = meterRegistry.counter("appointment.capacity.bitmaps.built");
+    }
+
+    @Override
+    public void hold(Long appointmentId, LocalDateTime time) {
+        if (!bookable(time.toLocalDate())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Chỉ nhận đặt lịch từ hôm nay đến " + horizonDays + " ngày tới");
+        }
+        ensureLoaded(time.toLocalDate(), time.plusMinutes(appointmentMinutes).toLocalDate());
+        Map<Long, Integer> capacity = new HashMap<>();
+        synchronized (lock) {
+            // dời lịch: chỗ cũ của chính lịch này không tính là bận
+            LocalDateTime current = bookings.get(appointmentId);
+            if (current != null) {
+                adjust(current, -1);
+            }
+            boolean fits = fits(time);
+            if (current != null) {
+                adjust(current, 1);
+            }
+            if (!fits) {
+                reject(time);
+            }
+            forEachSlot(time, (day, slot) -> {
+                capacity.put(slotKey(day, slot), days.get(day).capacity[slot]);
+                return true;
+            });
+        }
+        if (!fitsInDatabase(appointmentId, time, capacity)) {
+            // lịch do instance khác đặt mà RAM chưa thấy -> lần hỏi tới ngày đó đọc lại
+            markStale(time.toLocalDate(), lastCoveredDay(time));
+            reject(time);
+        }
+        synchronized (lock) {
+            apply(appointmentId, time);
+            held.add(appointmentId);
+        }
+    }
+
+    @Override
+    public boolean isAvailable(LocalDateTime time) {
+        if (!bookable(time.toLocalDate())) {
+            return false;
+        }
+        ensureLoaded(time.toLocalDate(), time.plusMinutes(appointmentMinutes).toLocalDate());
+        synchronized (lock) {
+            return fits(time);
+        }
+    }
+
+    @Override
+    public List<LocalDateTime> findFreeSlots(LocalDateTime from, int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime start = alignUp(from.isBefore(now) ? now : from);
+        LocalDate day = start.toLocalDate();
+        LocalDate last = min(day.plusDays(searchDays - 1), lastBookableDay());
+        List<LocalDateTime> free = new ArrayList<>(limit);
+        if (day.isAfter(last)) {
+            return free;
+        }
+        prepare(day, last);
+        int firstSlot = minuteOfDay(start) / slotMinutes;
+        for (; !day.isAfter(last) && free.size() < limit; day = day.plusDays(1), firstSlot = 0) {
+            BitSet bits = freeStarts(day);
+            for (int slot = bits.nextSetBit(firstSlot); slot >= 0 && free.size() < limit; slot = bits.nextSetBit(slot + 1)) {
+                free.add(day.atStartOfDay().plusMinutes((long) slot * slotMinutes));
+            }
+        }
+        return free;
+    }
+
+    @Override
+    public AvailabilityResponse getAvailability(LocalDate from, LocalDate to) {
+        // ngoài [hôm nay, horizon] không có giờ trống -> không nạp
+        LocalDate last = min(to, lastBookableDay());
+        if (!from.isAfter(last)) {
+            prepare(max(from, LocalDate.now()), last);
+        }
+        LocalDateTime firstFree = alignUp(LocalDateTime.now());
+        List<AvailabilityResponse.Day> result = new ArrayList<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            List<LocalTime> slots = new ArrayList<>();
+            // giờ đã qua không trả về (không lưu vào bitmap vì đổi theo đồng hồ)
+            int firstSlot = day.isBefore(firstFree.toLocalDate()) ? slotsPerDay
+                    : day.isAfter(firstFree.toLocalDate()) ? 0 : minuteOfDay(firstFree) / slotMinutes;
+            if (firstSlot < slotsPerDay && !day.isAfter(last)) {
+                BitSet bits = freeStarts(day);
+                for (int slot = bits.nextSetBit(firstSlot); slot >= 0; slot = bits.nextSetBit(slot + 1)) {
+                    slots.add(LocalTime.MIN.plusMinutes((long) slot * slotMinutes));
+                }
+            }
+            result.add(new AvailabilityResponse.Day(day, slots));
+        }
+        return new AvailabilityResponse(slotMinutes, appointmentMinutes, result);
+    }
+
+    @Override
+    public void onShiftsChanged(LocalDateTime start, LocalDateTime end) {
+        // chỉ đánh dấu, lần hỏi tới ngày đó mới đọc lại (không query trong afterCommit)
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    markStale(start.toLocalDate(), end.toLocalDate());
+                }
+            });
+        } else {
+            markStale(start.toLocalDate(), end.toLocalDate());
+        }
+    }
+
+    @Override
+    public void onCommitted(AppointmentChangedEvent event) {
+        synchronized (lock) {
+            held.remove(event.getAppointmentId());
+            if (event.getAppointmentTime() == null) {
+                apply(event.getAppointmentId(), null); // hủy: nhả chỗ
+            } else {
+                changedAt.put(event.getAppointmentId(), ++seq);
+            }
+        }
+    }
+
+    @Override
+    public void onRolledBack(AppointmentChangedEvent event) {
+        synchronized (lock) {
+            if (held.remove(event.getAppointmentId())) {
+                apply(event.getAppointmentId(), event.getPreviousTime()); // trả về chỗ cũ (hoặc bỏ hẳn nếu lịch mới)
+            }
+        }
+    }
+
+    // Đối chiếu các ngày đã nạp với DB (mỗi dải ngày liền nhau 1 lần đọc, không đọc ngày nằm giữa 2 dải), bỏ ngày đã qua
+    @Scheduled(fixedDelayString = "${com.apexev.capacity.refreshIntervalMs:60000}",
+            initialDelayString = "${com.apexev.capacity.refreshIntervalMs:60000}")
+    public void refresh() {
+        List<LocalDate[]> runs = new ArrayList<>();
+        synchronized (lock) {
+            LocalDateTime horizon = LocalDate.now().minusDays(1).atStartOfDay();
+            days.keySet().removeIf(day -> day.isBefore(horizon.toLocalDate()));
+            staleAt.keySet().removeIf(day -> !days.containsKey(day));
+            freeStarts.keySet().removeIf(day -> !days.containsKey(day));
+            bookings.values().removeIf(time -> time.plusMinutes(appointmentMinutes).isBefore(horizon));
+            // thay đổi trước lần đối chiếu trước đã commit / rollback xong -> DB đã phản ánh
+            changedAt.values().removeIf(changed -> changed <= lastRefreshSeq);
+            LocalDate[] run = null;
+            for (LocalDate day : new TreeSet<>(days.keySet())) {
+                if (run != null && run[1].plusDays(1).equals(day)) {
+                    run[1] = day;
+                } else {
+                    run = new LocalDate[]{day, day};
+                    runs.add(run);
+                }
+            }
+        }
+        if (runs.isEmpty()) {
+            return;
+        }
+        // seq lúc bắt đầu đọc dải đầu tiên: mọi thay đổi trước đó đều đã có trong DB
+        long readSeq = Long.MAX_VALUE;
+        for (LocalDate[] run : runs) {
+            readSeq = Math.min(readSeq, load(run[0], run[1]));
+        }
+        synchronized (lock) {
+            lastRefreshSeq = readSeq;
+        }
+    }
+
+    /**
+     * Khóa các ngày lịch chiếm rồi đếm lại lịch đã commit trong DB, chạy trong transaction đặt lịch.
+     * Mọi instance đều khóa trước khi đếm nên lịch đặt song song cho cùng ngày chờ nhau tới khi commit.
+     *
+     * @param capacity sức chứa của từng ô lịch chiếm (theo slotKey), lấy từ RAM
+     */
+    private boolean fitsInDatabase(Long appointmentId, LocalDateTime time, Map<Long, Integer> capacity) {
+        List<LocalDate> covered = time.toLocalDate().datesUntil(lastCoveredDay(time).plusDays(1)).toList();
+        // ngày đầu tiên có người đặt: tạo dòng khóa ở transaction riêng, khóa dòng đã commit ở transaction đặt lịch
+        committedReads.executeWithoutResult(status -> {
+            Set<LocalDate> missing = new HashSet<>(covered);
+            workshopDayLockRepository.findAllById(covered).forEach(row -> missing.remove(row.getBookingDate()));
+            missing.forEach(workshopDayLockRepository::insertIgnore);
+        });
+        workshopDayLockRepository.lockAll(covered);
+
+        List<AppointmentSlot> slots = committedReads.execute(status -> appointmentRepository.findSlotsBetween(
+                time.minusMinutes(appointmentMinutes + slotMinutes), time.plusMinutes(appointmentMinutes)));
+        Map<Long, Integer> booked = new HashMap<>();
+        for (AppointmentSlot other : slots) {
+            if (!other.id().equals(appointmentId)) {
+                forEachSlot(other.appointmentTime(), (day, slot) -> {
+                    booked.merge(slotKey(day, slot), 1, Integer::sum);
+                    return true;
+                });
+            }
+        }
+        return capacity.entrySet().stream().allMatch(entry -> booked.getOrDefault(entry.getKey(), 0) < entry.getValue());
+    }
+
+    private void reject(LocalDateTime time) {
+        rejectedCounter.increment();
+        throw new ResponseStatusException(HttpStatus.CONFLICT,
+                "Xưởng đã kín lịch lúc " + time + ", vui lòng chọn giờ khác");
+    }
+
+    private void markStale(LocalDate first, LocalDate last) {
+        synchronized (lock) {
+            long now = ++seq;
+            for (LocalDate day = first; !day.isAfter(last); day = day.plusDays(1)) {
+                if (days.containsKey(day)) {
+                    staleAt.put(day, now);
+                }
+                freeStarts.remove(day);
+                freeStarts.remove(day.minusDays(1));
+            }
+        }
+    }
+
+    // ngày của ô cuối cùng mà lịch bắt đầu lúc start chiếm
+    private LocalDate lastCoveredDay(LocalDateTime start) {
+        return start.plusMinutes(appointmentMinutes - 1).toLocalDate();
+    }
+
+    private long slotKey(LocalDate day, int slot) {
+        return day.toEpochDay() * slotsPerDay + slot;
+    }
+
+    private void ensureLoaded(LocalDate first, LocalDate last) {
+        LocalDate from = null;
+        LocalDate to = null;
+        synchronized (lock) {
+            for (LocalDate day = first; !day.isAfter(last); day = day.plusDays(1)) {
+                if (!days.containsKey(day) || staleAt.containsKey(day)) {
+                    from = from == null ? day : from;
+                    to = day;
+                }
+            }
+        }
+        if (from != null) {
+            load(from, to);
+        }
+    }
+
+    /**
+     * Đọc DB cho [first, last] (ngoài lock) rồi thay sức chứa và đối chiếu lịch hẹn trong RAM.
+     *
+     * @return seq lúc bắt đầu đọc
+     */
+    private long load(LocalDate first, LocalDate last) {
+        long readSeq;
+        synchronized (lock) {
+            readSeq = seq;
+        }
+        LocalDateTime start = first.atStartOfDay();
+        LocalDateTime end = last.plusDays(1).atStartOfDay();
+        // lịch bắt đầu cuối ngày hôm trước vẫn chiếm các ô đầu ngày
+        LocalDateTime bookingsFrom = start.minusMinutes(appointmentMinutes);
+        List<AppointmentSlot> slots = appointmentRepository.findSlotsBetween(bookingsFrom, end);
+        List<StaffShiftInterval> shifts = shiftAssignmentRepository.findTechnicianIntervals(start, end);
+        List<StaffLeave> leaves = leaveRequestRepository.findApprovedLeaves(first, last);
+        synchronized (lock) {
+            for (LocalDate day = first; !day.isAfter(last); day = day.plusDays(1)) {
+                days.put(day, new DayIndex(capacity(day, shifts, leaves)));
+                if (staleAt.getOrDefault(day, Long.MAX_VALUE) <= readSeq) {
+                    staleAt.remove(day);
+                }
+            }
+            reconcile(bookingsFrom, end, slots, readSeq);
+            days.values().forEach(index -> Arrays.fill(index.booked, 0));
+            bookings.values().forEach(time -> adjust(time, 1));
+            freeStarts.clear();
+        }
+        log.debug("Workshop capacity loaded for {}..{} ({} appointments, {} shifts)", first, last, slots.size(), shifts.size());
+        return readSeq;
+    }
+
+    // nạp 1 lần cho cả khoảng ngày chưa có bitmap, thay vì từng ngày một
+    private void prepare(LocalDate first, LocalDate last) {
+        for (LocalDate day = first; !day.isAfter(last); day = day.plusDays(1)) {
+            if (!freeStarts.containsKey(day)) {
+                ensureLoaded(day, last.plusDays(1));
+                return;
+            }
+        }
+    }
+
+    private boolean bookable(LocalDate day) {
+        return !day.isBefore(LocalDate.now()) && !day.isAfter(lastBookableDay());
+    }
+
+    private LocalDate lastBookableDay() {
+        return LocalDate.now().plusDays(horizonDays);
+    }
+
+    private static LocalDate min(LocalDate a, LocalDate b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static LocalDate max(LocalDate a, LocalDate b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    private BitSet freeStarts(LocalDate day) {
+        BitSet cached = freeStarts.get(day);
+        if (cached != null) {
+            return cached;
+        }
+        LocalDate next = day.plusDays(1);
+        ensureLoaded(day, next);
+        synchronized (lock) {
+            BitSet bits = new BitSet(slotsPerDay);
+            LocalDateTime dayStart = day.atStartOfDay();
+            for (int slot = 0; slot < slotsPerDay; slot++) {
+                if (fits(dayStart.plusMinutes((long) slot * slotMinutes))) {
+                    bits.set(slot);
+                }
+            }
+            // ngày bị bỏ / đánh dấu cũ giữa lúc nạp và lúc tính -> dùng 1 lần, không cache
+            if (days.containsKey(day) && days.containsKey(next) && !staleAt.containsKey(day) && !staleAt.containsKey(next)) {
+                freeStarts.put(day, bits);
+            }
+            bitmapCounter.increment();
+            return bits;
+        }
+    }
+
+    // DB là chuẩn, trừ lịch đang giữ chỗ hoặc vừa đổi ở instance này sau lúc đọc
+    private void reconcile(LocalDateTime start, LocalDateTime end, List<AppointmentSlot> slots, long readSeq) {
+        bookings.entrySet().removeIf(entry -> !entry.getValue().isBefore(start) && entry.getValue().isBefore(end)
+                && !changedLocally(entry.getKey(), readSeq));
+        for (AppointmentSlot slot : slots) {
+            if (!changedLocally(slot.id(), readSeq)) {
+                bookings.put(slot.id(), slot.appointmentTime());
+            }
+        }
+    }
+
+    private boolean changedLocally(Long appointmentId, long readSeq) {
+        return held.contains(appointmentId) || changedAt.getOrDefault(appointmentId, Long.MIN_VALUE) > readSeq;
+    }
+
+    private int[] capacity(LocalDate day, List<StaffShiftInterval> shifts, List<StaffLeave> leaves) {
+        LocalDateTime dayStart = day.atStartOfDay();
+        LocalDateTime dayEnd = dayStart.plusDays(1);
+        Set<Integer> onLeave = new HashSet<>();
+        for (StaffLeave leave : leaves) {
+            if (!leave.startDate().isAfter(day) && !leave.endDate().isBefore(day)) {
+                onLeave.add(leave.staffId());
+            }
+        }
+
+        boolean rostered = false;
+        Map<Integer, boolean[]> coverage = new HashMap<>();
+        for (StaffShiftInterval shift : shifts) {
+            if (!shift.startTime().isBefore(dayEnd) || !shift.endTime().isAfter(dayStart)) {
+                continue;
+            }
+            rostered = true;
+            if (onLeave.contains(shift.staffId())) {
+                continue;
+            }
+            long from = Math.max(0, Duration.between(dayStart, shift.startTime()).toMinutes());
+            long to = Math.min(MINUTES_PER_DAY, Duration.between(dayStart, shift.endTime()).toMinutes());
+            // chỉ tính ô nằm trọn trong ca
+            int firstSlot = (int) ((from + slotMinutes - 1) / slotMinutes);
+            int lastSlot = (int) (to / slotMinutes);
+            boolean[] covered = coverage.computeIfAbsent(shift.staffId(), id -> new boolean[slotsPerDay]);
+            Arrays.fill(covered, Math.min(firstSlot, lastSlot), lastSlot, true);
+        }
+
+        int[] capacity = new int[slotsPerDay];
+        if (!rostered) {
+            Arrays.fill(capacity, bays > 0 ? bays : Integer.MAX_VALUE);
+            return capacity;
+        }
+        // 1 KTV có nhiều ca chồng nhau vẫn chỉ tính 1
+        for (boolean[] covered : coverage.values()) {
+            for (int i = 0; i < slotsPerDay; i++) {
+                if (covered[i]) {
+                    capacity[i]++;
+                }
+            }
+        }
+        if (bays > 0) {
+            for (int i = 0; i < slotsPerDay; i++) {
+                capacity[i] = Math.min(capacity[i], bays);
+            }
+        }
+        return capacity;
+    }
+
+    private boolean fits(LocalDateTime start) {
+        return forEachSlot(start, (day, slot) -> {
+            DayIndex index = days.get(day);
+            return index != null && index.booked[slot] < index.capacity[slot];
+        });
+    }
+
+    // đổi chỗ của 1 lịch (time null = bỏ chỗ)
+    private void apply(Long appointmentId, LocalDateTime time) {
+        LocalDateTime current = time == null ? bookings.remove(appointmentId) : bookings.put(appointmentId, time);
+        if (current != null) {
+            adjust(current, -1);
+        }
+        if (time != null) {
+            adjust(time, 1);
+        }
+        changedAt.put(appointmentId, ++seq);
+    }
+
+    private void adjust(LocalDateTime start, int delta) {
+        forEachSlot(start, (day, slot) -> {
+            DayIndex index = days.get(day);
+            if (index != null) {
+                index.booked[slot] += delta;
+            }
+            freeStarts.remove(day);
+            freeStarts.remove(day.minusDays(1));
+            return true;
+        });
+    }
+
+    // các ô mà 1 lịch bắt đầu lúc start chiếm, có thể tràn sang ngày sau
+    private boolean forEachSlot(LocalDateTime start, SlotVisitor visitor) {
+        int minute = minuteOfDay(start);
+        int firstSlot = minute / slotMinutes;
+        int endSlot = (minute + appointmentMinutes + slotMinutes - 1) / slotMinutes;
+        LocalDate day = start.toLocalDate();
+        for (int i = firstSlot; i < endSlot; i++) {
+            if (!visitor.visit(day.plusDays(i / slotsPerDay), i % slotsPerDay)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // làm tròn lên mốc ô gần nhất
+    private LocalDateTime alignUp(LocalDateTime time) {
+        int minute = minuteOfDay(time);
+        boolean aligned = minute % slotMinutes == 0 && time.getSecond() == 0 && time.getNano() == 0;
+        int slotMinute = aligned ? minute : (minute / slotMinutes + 1) * slotMinutes;
+        return time.toLocalDate().atStartOfDay().plusMinutes(slotMinute);
+    }
+
+    private static int minuteOfDay(LocalDateTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+}
@@ -0,0 +1,58 @@
+package com.apexev.service.service_Interface;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Optional;
+
+public interface AppointmentCalendarService {
+
+    // lịch .ics của cố vấn hoặc của khách hàng
+    enum Owner {
+        ADVISOR,
+        CUSTOMER
+    }
+
+    // ETag + Last-Modified (epoch ms, -1 nếu lịch trống) tính từ 1 query gộp, chưa đọc dòng nào
+    record Version(String etag, long lastModified) {
+    }
+
+    // lịch mà 1 feed token trỏ tới
+    record FeedOwner(Owner owner, Integer userId) {
+    }
+
+    /**
+     * Get the current version of a calendar feed, for If-None-Match / If-Modified-Since checks
+     * @param owner Whose appointments the feed lists
+     * @param userId The advisor's or customer's user ID
+     * @return ETag and last modification time of the feed
+     */
+    Version getVersion(Owner owner, Integer userId);
+
+    /**
+     * Write the calendar feed as iCalendar (RFC 5545), streaming appointments from the database row by row
+     * @param owner Whose appointments the feed lists
+     * @param userId The advisor's or customer's user ID
+     * @param writer The response writer
+     */
+    void writeCalendar(Owner owner, Integer userId, Writer writer) throws IOException;
+
+    /**
+     * Issue a new feed token for subscribing to the user's calendar without a Bearer token; the previous token stops working
+     * @param userId The advisor's or customer's user ID
+     * @return The token, shown once (only its hash is stored)
+     */
+    String issueFeedToken(Integer userId);
+
+    /**
+     * Revoke the user's feed token, subscribed calendar apps get 404 from then on
+     * @param userId The user ID
+     */
+    void revokeFeedToken(Integer userId);
+
+    /**
+     * Resolve a feed token from a subscription URL
+     * @param feedToken The token from the URL
+     * @return Whose calendar the token opens; empty if unknown, revoked, or the account is locked
+     */
+    Optional<FeedOwner> resolveFeedToken(String feedToken);
+}
@@ -3,8 +3,11 @@ package com.apexev.service.service_Interface;
 import com.apexev.dto.request.coreBussinessRequest.AppointmentRequest;
 import com.apexev.dto.request.coreBussinessRequest.RescheduleAppointmentRequest;
 import com.apexev.dto.response.coreBussinessResponse.AppointmentResponse;
+import com.apexev.dto.response.coreBussinessResponse.AvailabilityResponse;
 import com.apexev.entity.User;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface AppointmentService {
@@ -15,6 +18,12 @@ public interface AppointmentService {
 
     AppointmentResponse cancelAppointment (Long appointmentId, User loggedInUser);
 
+    // các giờ còn trống gần nhất từ thời điểm from (theo sức chứa xưởng)
+    List<LocalDateTime> getFreeSlots (LocalDateTime from, int limit);
+
+    // giờ trống theo từng ngày trong [from, to] cho trang đặt lịch
+    AvailabilityResponse getAvailability (LocalDate from, LocalDate to);
+
     // cố vấn dịch vụ xác nhận lịch hẹn, kiểu gọi điện xác nhận xong rồi mới confirm
     AppointmentResponse confirmAppointment (Long appointmentId, User loggedInUser);
 
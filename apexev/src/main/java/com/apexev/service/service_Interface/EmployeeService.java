@@ -1,7 +1,9 @@
 package com.apexev.service.service_Interface;
 
+import com.apexev.dto.request.RegisterStaffRequest;
 import com.apexev.dto.request.UpdateStaffProfileRequest;
 import com.apexev.dto.response.StaffProfileResponse;
+import com.apexev.dto.response.coreBussinessResponse.BulkImportResponse;
 
 import java.util.List;
 
@@ -11,4 +13,6 @@ public interface EmployeeService {
     StaffProfileResponse getStaffById(Integer staffId);
 
     StaffProfileResponse updateStaffProfile(Integer staffId, UpdateStaffProfileRequest request);
+
+    BulkImportResponse registerStaffBatch(List<RegisterStaffRequest> rows);
 }
@@ -4,4 +4,7 @@ import org.springframework.web.multipart.MultipartFile;
 
 public interface MailService {
     String sendEmail(String toWho, String subject, String body, MultipartFile[] files);
+
+    // Ghi email vào outbox trong transaction hiện tại, gửi nền sau khi commit (không chờ SMTP)
+    void enqueueEmail(String toWho, String subject, String body);
 }
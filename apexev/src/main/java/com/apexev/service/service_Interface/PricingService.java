@@ -0,0 +1,75 @@
+package com.apexev.service.service_Interface;
+
+import com.apexev.entity.ServiceOrderItem;
+import com.apexev.enums.OrderItemStatus;
+import com.apexev.enums.OrderItemType;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface PricingService {
+
+    // unit_price / tổng tiền lưu DECIMAL(10,2)
+    int MONEY_SCALE = 2;
+
+    // 1 dòng catalog: PART -> Part, SERVICE -> MaintenanceService
+    record CatalogKey(OrderItemType itemType, Long itemRefId) {
+    }
+
+    record CatalogItem(String name, String description, BigDecimal price) {
+    }
+
+    record PricedLine(Long itemId, OrderItemType itemType, Long itemRefId, String itemName, String itemDescription,
+                      int quantity, BigDecimal unitPrice, BigDecimal lineTotal, OrderItemStatus status) {
+    }
+
+    record PricedQuotation(List<PricedLine> lines, BigDecimal subtotal, BigDecimal tax, BigDecimal total) {
+    }
+
+    /**
+     * Resolve name / list price for many catalog entries at once
+     * (at most 1 query per item type for entries not cached yet)
+     * @param keys Catalog entries to resolve
+     * @return Found entries; unknown keys are absent from the map
+     */
+    Map<CatalogKey, CatalogItem> resolve(Collection<CatalogKey> keys);
+
+    /**
+     * Price the current items of a service order, cached until the order's items change
+     * @param orderId The service order ID
+     * @return Priced lines and totals
+     */
+    PricedQuotation priceOrder(Long orderId);
+
+    /**
+     * Price the given items (not cached)
+     * @param items Order items, in display order
+     * @return Priced lines and totals
+     */
+    PricedQuotation price(Collection<ServiceOrderItem> items);
+
+    /**
+     * Price the items of many orders at once (not cached), resolving the catalog in a single pass
+     * @param itemsByOrderId Order items per service order ID, in display order
+     * @return Priced lines and totals per service order ID
+     */
+    Map<Long, PricedQuotation> priceAll(Map<Long, ? extends Collection<ServiceOrderItem>> itemsByOrderId);
+
+    /**
+     * Drop the cached quotation of an order after its items were changed
+     * @param orderId The service order ID
+     */
+    void evictOrder(Long orderId);
+
+    /**
+     * Round an amount to the money column scale (2 decimals, HALF_UP)
+     * @param value Amount at any scale
+     * @return Amount as stored in the database
+     */
+    static BigDecimal money(BigDecimal value) {
+        return value.setScale(MONEY_SCALE, RoundingMode.HALF_UP);
+    }
+}
@@ -1,11 +1,15 @@
 package com.apexev.service.service_Interface;
 
+import com.apexev.dto.request.BulkServiceOrderRequest;
 import com.apexev.dto.request.CreateAppointmentRequest;
 import com.apexev.dto.request.CreateServiceOrderRequest;
 import com.apexev.dto.request.UpdateAppointmentRequest;
 import com.apexev.dto.request.UpdateServiceOrderRequest;
 import com.apexev.dto.request.SendQuotationRequest;
 import com.apexev.dto.response.AppointmentResponse;
+import com.apexev.dto.response.BulkServiceOrderResponse;
+import com.apexev.dto.response.CursorPageResponse;
+import com.apexev.dto.response.ServiceOrderEventResponse;
 import com.apexev.dto.response.ServiceOrderResponse;
 import com.apexev.dto.response.QuotationResponse;
 import com.apexev.enums.AppointmentStatus;
@@ -26,19 +30,23 @@ public interface ServiceAdvisorService {
     List<AppointmentResponse> getAppointmentsByAdvisor(Long advisorId);
     
     /**
-     * Get appointments by status
+     * Get appointments by status, ordered by appointment time (keyset pagination)
      * @param status The appointment status
-     * @return List of appointments
+     * @param cursor Cursor returned by the previous page, null for the first page
+     * @param size Page size
+     * @return One page of appointments
      */
-    List<AppointmentResponse> getAppointmentsByStatus(AppointmentStatus status);
+    CursorPageResponse<AppointmentResponse> getAppointmentsByStatus(AppointmentStatus status, String cursor, int size);
     
     /**
-     * Get appointments within a date range
+     * Get appointments within a date range, ordered by appointment time (keyset pagination)
      * @param start Start date time
      * @param end End date time
-     * @return List of appointments
+     * @param cursor Cursor returned by the previous page, null for the first page
+     * @param size Page size
+     * @return One page of appointments
      */
-    List<AppointmentResponse> getAppointmentsByDateRange(LocalDateTime start, LocalDateTime end);
+    CursorPageResponse<AppointmentResponse> getAppointmentsByDateRange(LocalDateTime start, LocalDateTime end, String cursor, int size);
     
     /**
      * Get appointment details by ID
@@ -92,18 +100,29 @@ public interface ServiceAdvisorService {
     // ========== Service Order Management (Service Intake) ==========
     
     /**
-     * Get all service orders assigned to a specific service advisor
+     * Get service orders assigned to a specific service advisor, newest first (keyset pagination)
      * @param advisorId The service advisor's user ID
-     * @return List of service orders
+     * @param cursor Cursor returned by the previous page, null for the first page
+     * @param size Page size
+     * @return One page of service orders
      */
-    List<ServiceOrderResponse> getServiceOrdersByAdvisor(Long advisorId);
+    CursorPageResponse<ServiceOrderResponse> getServiceOrdersByAdvisor(Long advisorId, String cursor, int size);
+
+    /**
+     * Get the open (not completed / cancelled) service orders assigned to a technician, oldest first
+     * @param technicianId The technician's user ID
+     * @return Active service orders with their items
+     */
+    List<ServiceOrderResponse> getActiveServiceOrdersByTechnician(Long technicianId);
     
     /**
-     * Get service orders by status
+     * Get service orders by status, newest first (keyset pagination)
      * @param status The order status
-     * @return List of service orders
+     * @param cursor Cursor returned by the previous page, null for the first page
+     * @param size Page size
+     * @return One page of service orders
      */
-    List<ServiceOrderResponse> getServiceOrdersByStatus(OrderStatus status);
+    CursorPageResponse<ServiceOrderResponse> getServiceOrdersByStatus(OrderStatus status, String cursor, int size);
     
     /**
      * Get service order details by ID
@@ -150,11 +169,12 @@ public interface ServiceAdvisorService {
     /**
      * Update service order status
      * @param orderId The service order ID
-     * @param newStatus New status
+     * @param newStatus New status, must be reachable from the current one (see OrderStatus#canTransitionTo)
      * @param advisorId The service advisor updating status
+     * @param expectedVersion Version the caller last saw, null to only check the current status
      * @return Updated service order
      */
-    ServiceOrderResponse updateServiceOrderStatus(Long orderId, OrderStatus newStatus, Long advisorId);
+    ServiceOrderResponse updateServiceOrderStatus(Long orderId, OrderStatus newStatus, Long advisorId, Long expectedVersion);
     
     /**
      * Assign technician to service order
@@ -164,6 +184,16 @@ public interface ServiceAdvisorService {
      * @return Updated service order
      */
     ServiceOrderResponse assignTechnicianToOrder(Long orderId, Long technicianId, Long advisorId);
+
+    /**
+     * Apply many status changes / technician assignments in one transaction using set-based updates.
+     * Operations are applied in request order (several may target the same order); a failed operation
+     * does not roll back the others
+     * @param request Operations to apply
+     * @param advisorId The service advisor applying them
+     * @return One result per operation, in request order
+     */
+    BulkServiceOrderResponse applyBulkOperations(BulkServiceOrderRequest request, Long advisorId);
     
     // ========== Quotation Management ==========
     
@@ -210,9 +240,11 @@ public interface ServiceAdvisorService {
     ServiceOrderResponse trackServiceProgress(Long orderId);
     
     /**
-     * Get service order history with status changes
+     * Get the timeline of a service order (status changes, technician assignments, quotations, notes), oldest first
      * @param orderId The service order ID
-     * @return Service order history
+     * @param cursor nextCursor of the previous page, null for the first page
+     * @param size Page size
+     * @return One page of the order timeline
      */
-    List<String> getServiceOrderHistory(Long orderId);
+    CursorPageResponse<ServiceOrderEventResponse> getServiceOrderHistory(Long orderId, String cursor, int size);
 }
@@ -0,0 +1,24 @@
+package com.apexev.service.service_Interface;
+
+import com.apexev.dto.response.TechnicianQueueResponse;
+import com.apexev.event.serviceOrder.ServiceOrderChangedEvent;
+
+public interface TechnicianQueueService {
+
+    // hàng đợi + ETag tính từ nội dung (giống nhau giữa các instance / lần nạp lại nếu nội dung không đổi)
+    record Queue(TechnicianQueueResponse response, String etag) {
+    }
+
+    /**
+     * Get the work queue of a technician, served from memory until one of its orders changes
+     * @param technicianId The technician's user ID
+     * @return Active orders and their ETag
+     */
+    Queue getQueue(Long technicianId);
+
+    /**
+     * Drop the cached queues affected by a committed order change
+     * @param event The order change
+     */
+    void onOrderChanged(ServiceOrderChangedEvent event);
+}
@@ -19,4 +19,6 @@ public interface UserService {
     void updateUserId(Integer id, UserUpdateRequest userUpdateRequest);
     void updateUserStatus(Integer id, boolean isActive);
     void changePassword(Integer id, String oldPassword, String newPassword);
+    void updatePasswordHash(Integer id, String encodedPassword);
+    void revokeAllSessions(Integer id);
 }
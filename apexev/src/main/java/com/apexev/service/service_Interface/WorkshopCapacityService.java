@@ -0,0 +1,56 @@
+package com.apexev.service.service_Interface;
+
+import com.apexev.dto.response.coreBussinessResponse.AvailabilityResponse;
+import com.apexev.event.appointment.AppointmentChangedEvent;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface WorkshopCapacityService {
+
+    /**
+     * Hold a slot for an appointment inside the current transaction, moving it if it already had one.
+     * The hold becomes permanent on commit and is undone on rollback (via {@link AppointmentChangedEvent})
+     * @param appointmentId The appointment ID
+     * @param time Requested start time
+     * @throws org.springframework.web.server.ResponseStatusException 400 when the day is outside the booking horizon,
+     * 409 when the workshop is full at that time
+     */
+    void hold(Long appointmentId, LocalDateTime time);
+
+    /**
+     * Check whether one more appointment fits at the given time
+     * @param time Start time
+     * @return true when the day is inside the booking horizon and every covered slot still has a free technician / bay
+     */
+    boolean isAvailable(LocalDateTime time);
+
+    /**
+     * Find the earliest start times that still have room
+     * @param from Search from this time (never earlier than now)
+     * @param limit Maximum number of slots
+     * @return Free start times, ascending, aligned to the slot grid, never past the booking horizon
+     */
+    List<LocalDateTime> findFreeSlots(LocalDateTime from, int limit);
+
+    /**
+     * Open start times of every day in a range, served from per-day bitmaps
+     * that are rebuilt only after a booking or roster change touches that day
+     * @param from First day
+     * @param to Last day (inclusive)
+     * @return Free start times per day; times already past and days beyond the booking horizon are left empty
+     */
+    AvailabilityResponse getAvailability(LocalDate from, LocalDate to);
+
+    /**
+     * Reload technician capacity of the days covered by a roster change
+     * @param start Start of the changed range
+     * @param end End of the changed range
+     */
+    void onShiftsChanged(LocalDateTime start, LocalDateTime end);
+
+    void onCommitted(AppointmentChangedEvent event);
+
+    void onRolledBack(AppointmentChangedEvent event);
+}
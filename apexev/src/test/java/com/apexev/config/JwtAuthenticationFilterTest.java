@@ -0,0 +1,103 @@
+package com.apexev.config;
+
+import com.apexev.enums.UserRole;
+import com.apexev.security.jwt.JwtUtils;
+import com.apexev.security.jwt.RefreshTokenRevocationIndex;
+import com.apexev.security.services.UserDetailsImpl;
+import com.apexev.security.services.UserDetailsServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+// Access token có đủ claim -> dựng principal từ token, không query DB; token cũ thiếu claim -> đọc user như trước
+class JwtAuthenticationFilterTest {
+
+    private static final UserDetailsImpl ADVISOR = UserDetailsImpl.build(7, "0900000007", "advisor@apexev.com",
+            "Lê Cố Vấn", UserRole.SERVICE_ADVISOR, true);
+
+    private final UserDetailsServiceImpl userDetailsService = Mockito.mock(UserDetailsServiceImpl.class);
+    private final RefreshTokenRevocationIndex revocationIndex = Mockito.mock(RefreshTokenRevocationIndex.class);
+    private final JwtUtils jwtUtils = new JwtUtils();
+    private final JwtAuthenticationFilter filter = new JwtAuthenticationFilter();
+
+    @BeforeEach
+    void setup() {
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecretString", "test-secret-test-secret-test-secret-0123");
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpiryTime", 60_000L);
+        ReflectionTestUtils.setField(jwtUtils, "jwtRefreshExpiryTime", 600_000L);
+        ReflectionTestUtils.setField(jwtUtils, "claimsAuthEnabled", true);
+        ReflectionTestUtils.setField(jwtUtils, "verifiedCacheSize", 100L);
+        ReflectionTestUtils.setField(jwtUtils, "meterRegistry", new SimpleMeterRegistry());
+        jwtUtils.init();
+        ReflectionTestUtils.setField(filter, "jwtUtils", jwtUtils);
+        ReflectionTestUtils.setField(filter, "userDetailsService", userDetailsService);
+        ReflectionTestUtils.setField(filter, "revocationIndex", revocationIndex);
+    }
+
+    @AfterEach
+    void cleanup() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void accessTokenWithEmbeddedClaimsAuthenticatesWithoutLoadingTheUser() throws Exception {
+        String token = jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(ADVISOR, null, ADVISOR.getAuthorities()));
+
+        Authentication authentication = filter(token);
+
+        UserDetailsImpl principal = (UserDetailsImpl) authentication.getPrincipal();
+        assertEquals(7, principal.getId());
+        assertEquals("advisor@apexev.com", principal.getEmail());
+        assertEquals("Lê Cố Vấn", principal.getFullName());
+        assertEquals("ROLE_SERVICE_ADVISOR", authentication.getAuthorities().iterator().next().getAuthority());
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void tokenWithoutClaimsOrWithClaimsAuthDisabledFallsBackToTheDatabase() throws Exception {
+        when(userDetailsService.loadUserByUsername("0900000007")).thenReturn(ADVISOR);
+
+        // token phát hành trước khi có claim uid / role / active
+        Authentication authentication = filter(jwtUtils.generateTokenFromUsername("0900000007"));
+        assertSame(ADVISOR, authentication.getPrincipal());
+        verify(userDetailsService).loadUserByUsername("0900000007");
+
+        SecurityContextHolder.clearContext();
+        ReflectionTestUtils.setField(jwtUtils, "claimsAuthEnabled", false);
+        String token = jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(ADVISOR, null, ADVISOR.getAuthorities()));
+        assertSame(ADVISOR, filter(token).getPrincipal());
+        verify(userDetailsService, times(2)).loadUserByUsername("0900000007");
+    }
+
+    @Test
+    void tokensIssuedBeforeTheCutoffOrForADisabledUserAreNotAuthenticated() throws Exception {
+        UserDetailsImpl disabled = UserDetailsImpl.build(8, "0900000008", null, "Khách", UserRole.CUSTOMER, false);
+        assertNull(filter(jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(disabled, null, disabled.getAuthorities()))));
+
+        when(revocationIndex.isCutOff(eq(7), any())).thenReturn(true);
+        assertNull(filter(jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(ADVISOR, null, ADVISOR.getAuthorities()))));
+        verifyNoInteractions(userDetailsService);
+    }
+
+    private Authentication filter(String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/appointments/my-appointment-advisor");
+        request.addHeader("Authorization", "Bearer " + token);
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        assertNotNull(chain.getRequest());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
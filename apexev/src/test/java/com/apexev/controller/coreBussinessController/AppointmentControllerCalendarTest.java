@@ -0,0 +1,111 @@
+package com.apexev.controller.coreBussinessController;
+
+import com.apexev.enums.UserRole;
+import com.apexev.security.services.UserDetailsImpl;
+import com.apexev.service.service_Interface.AppointmentCalendarService;
+import com.apexev.service.service_Interface.AppointmentCalendarService.FeedOwner;
+import com.apexev.service.service_Interface.AppointmentCalendarService.Owner;
+import com.apexev.service.service_Interface.AppointmentCalendarService.Version;
+import com.apexev.service.service_Interface.AppointmentService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.method.annotation.AuthenticationPrincipalArgumentResolver;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.Writer;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Principal thật là UserDetailsImpl (do JwtAuthenticationFilter đặt), không phải entity User
+class AppointmentControllerCalendarTest {
+
+    private static final Version VERSION = new Version("\"advisor-7-2-1700000000.0\"", 1_700_000_000_000L);
+
+    private final AppointmentCalendarService calendarService = Mockito.mock(AppointmentCalendarService.class);
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setup() throws Exception {
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(new AppointmentController(Mockito.mock(AppointmentService.class), calendarService))
+                .setCustomArgumentResolvers(new AuthenticationPrincipalArgumentResolver())
+                .build();
+        UserDetailsImpl principal = UserDetailsImpl.build(7, "0900000007", "advisor@apexev.com", "Lê Cố Vấn",
+                UserRole.SERVICE_ADVISOR, true);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+        when(calendarService.getVersion(any(), any())).thenReturn(VERSION);
+        doAnswer(invocation -> {
+            invocation.<Writer>getArgument(2).write("BEGIN:VCALENDAR\r\nEND:VCALENDAR\r\n");
+            return null;
+        }).when(calendarService).writeCalendar(any(), any(), any());
+    }
+
+    @AfterEach
+    void cleanup() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void calendarIsWrittenForTheLoggedInUserWithValidators() throws Exception {
+        mockMvc.perform(get("/api/appointments/my-appointment-advisor.ics"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, VERSION.etag()))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(content().contentType("text/calendar;charset=UTF-8"))
+                .andExpect(content().string("BEGIN:VCALENDAR\r\nEND:VCALENDAR\r\n"));
+        verify(calendarService).writeCalendar(eq(Owner.ADVISOR), eq(7), any());
+
+        mockMvc.perform(get("/api/appointments/my-appointment-customer.ics"))
+                .andExpect(status().isOk());
+        verify(calendarService).writeCalendar(eq(Owner.CUSTOMER), eq(7), any());
+    }
+
+    @Test
+    void matchingIfNoneMatchReturns304WithoutWritingTheCalendar() throws Exception {
+        mockMvc.perform(get("/api/appointments/my-appointment-advisor.ics")
+                        .header(HttpHeaders.IF_NONE_MATCH, VERSION.etag()))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        verify(calendarService).getVersion(Owner.ADVISOR, 7);
+        verify(calendarService, never()).writeCalendar(any(), any(), any());
+    }
+
+    @Test
+    void subscribedFeedIsResolvedFromTheTokenInTheUrl() throws Exception {
+        when(calendarService.issueFeedToken(7)).thenReturn("Zm9vYmFyLXRva2Vu");
+        mockMvc.perform(post("/api/appointments/calendar-feed"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.feedUrl").value("http://localhost/api/appointments/calendar/Zm9vYmFyLXRva2Vu.ics"));
+
+        // ứng dụng lịch không gửi Authorization
+        SecurityContextHolder.clearContext();
+        when(calendarService.resolveFeedToken("Zm9vYmFyLXRva2Vu")).thenReturn(Optional.of(new FeedOwner(Owner.ADVISOR, 7)));
+        mockMvc.perform(get("/api/appointments/calendar/Zm9vYmFyLXRva2Vu.ics"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, VERSION.etag()))
+                .andExpect(content().string("BEGIN:VCALENDAR\r\nEND:VCALENDAR\r\n"));
+        verify(calendarService).writeCalendar(eq(Owner.ADVISOR), eq(7), any());
+
+        mockMvc.perform(get("/api/appointments/calendar/Zm9vYmFyLXRva2Vu.ics")
+                        .header(HttpHeaders.IF_NONE_MATCH, VERSION.etag()))
+                .andExpect(status().isNotModified());
+
+        when(calendarService.resolveFeedToken("revoked")).thenReturn(Optional.empty());
+        mockMvc.perform(get("/api/appointments/calendar/revoked.ics"))
+                .andExpect(status().isNotFound());
+        verify(calendarService, times(1)).writeCalendar(any(), any(), any());
+    }
+}
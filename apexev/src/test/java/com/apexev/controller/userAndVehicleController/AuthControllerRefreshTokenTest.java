@@ -0,0 +1,187 @@
+package com.apexev.controller.userAndVehicleController;
+
+import com.apexev.dto.request.userAndVehicleRequest.RefreshRequest;
+import com.apexev.entity.RevokedToken;
+import com.apexev.entity.User;
+import com.apexev.enums.UserRole;
+import com.apexev.event.user.listener.UserChangedEventListener;
+import com.apexev.repository.userAndVehicle.RevokedTokenRepository;
+import com.apexev.repository.userAndVehicle.UserRepository;
+import com.apexev.security.jwt.JwtUtils;
+import com.apexev.security.jwt.RefreshTokenRevocationIndex;
+import com.apexev.security.services.UserDetailsImpl;
+import com.apexev.security.services.UserDetailsServiceImpl;
+import com.apexev.service.service_Interface.EmployeeService;
+import com.apexev.service.serviceImpl.UserServiceIpml;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.apexev.service.serviceImpl.JpaTestFixtures.persistUser;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Rotation refresh token: mỗi token dùng 1 lần, bảng revoked_tokens quyết định khi nhiều instance cùng nhận 1 token
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({AuthController.class, JwtUtils.class, RefreshTokenRevocationIndex.class, UserDetailsServiceImpl.class,
+        UserServiceIpml.class, UserChangedEventListener.class, SimpleMeterRegistry.class})
+// mỗi thao tác tự commit như trong app thật
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AuthControllerRefreshTokenTest {
+
+    @Autowired
+    private AuthController authController;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private RefreshTokenRevocationIndex revocationIndex;
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @MockitoBean
+    private AuthenticationManager authenticationManager;
+
+    @MockitoBean
+    private EmployeeService employeeService;
+
+    @MockitoBean
+    private PasswordEncoder passwordEncoder;
+
+    @Test
+    void rotationIssuesANewPairAndRefusesTheRotatedToken() {
+        UserDetailsImpl principal = createCustomer();
+        String refreshToken = refreshTokenFor(principal);
+
+        ResponseEntity<?> rotated = refresh(refreshToken);
+        assertEquals(HttpStatus.OK, rotated.getStatusCode());
+        Map<?, ?> body = (Map<?, ?>) rotated.getBody();
+        String newRefreshToken = (String) body.get("refreshToken");
+        assertNotNull(body.get("accessToken"));
+        assertNotEquals(refreshToken, newRefreshToken);
+        assertTrue(revokedTokenRepository.existsById(jwtUtils.verifyJwtToken(refreshToken).getId()));
+
+        // token cũ dùng lại -> bị từ chối, token mới vẫn dùng được đúng 1 lần
+        assertEquals(HttpStatus.UNAUTHORIZED, refresh(refreshToken).getStatusCode());
+        assertEquals(HttpStatus.OK, refresh(newRefreshToken).getStatusCode());
+        assertEquals(HttpStatus.UNAUTHORIZED, refresh(newRefreshToken).getStatusCode());
+    }
+
+    @Test
+    void tokenRotatedOnAnotherInstanceIsRefusedBeforeTheIndexSyncs() {
+        UserDetailsImpl principal = createCustomer();
+        String refreshToken = refreshTokenFor(principal);
+        Claims claims = jwtUtils.verifyJwtToken(refreshToken);
+
+        // instance khác có index riêng trong RAM, chỉ dùng chung DB
+        RefreshTokenRevocationIndex otherInstance = newIndex();
+        assertTrue(otherInstance.revoke(claims.getId(), principal.getId(), claims.getExpiration()));
+
+        assertFalse(revocationIndex.isRevoked(claims.getId()));
+        assertEquals(HttpStatus.UNAUTHORIZED, refresh(refreshToken).getStatusCode());
+        // DB báo trùng khóa -> index của instance này cũng ghi nhận token đã bị thu hồi
+        assertTrue(revocationIndex.isRevoked(claims.getId()));
+    }
+
+    @Test
+    void logoutAllCutsOffEveryOlderRefreshToken() {
+        UserDetailsImpl principal = createCustomer();
+        String first = refreshTokenFor(principal);
+        String second = refreshTokenFor(principal);
+
+        assertEquals(HttpStatus.OK, authController.logoutAll(principal).getStatusCode());
+
+        assertNotNull(userRepository.findById(principal.getId()).orElseThrow().getTokensValidAfter());
+        assertEquals(HttpStatus.UNAUTHORIZED, refresh(first).getStatusCode());
+        assertEquals(HttpStatus.UNAUTHORIZED, refresh(second).getStatusCode());
+    }
+
+    @Test
+    void bloomFilterHasNoFalseNegativesAfterPurge() {
+        Integer userId = createCustomer().getId();
+        Date live = new Date(System.currentTimeMillis() + 3_600_000);
+        Date expired = new Date(System.currentTimeMillis() - 1_000);
+        List<String> liveJtis = new ArrayList<>();
+        List<String> expiredJtis = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            String liveJti = UUID.randomUUID().toString();
+            String expiredJti = UUID.randomUUID().toString();
+            assertTrue(revocationIndex.revoke(liveJti, userId, live));
+            assertTrue(revocationIndex.revoke(expiredJti, userId, expired));
+            liveJtis.add(liveJti);
+            expiredJtis.add(expiredJti);
+        }
+
+        revocationIndex.purgeExpired();
+
+        // filter dựng lại chỉ từ token còn hạn: không được sót token nào
+        liveJtis.forEach(jti -> assertTrue(revocationIndex.isRevoked(jti), jti));
+        expiredJtis.forEach(jti -> assertFalse(revocationIndex.isRevoked(jti), jti));
+        assertTrue(revokedTokenRepository.findByExpiresAtAfter(Instant.now()).stream()
+                .map(RevokedToken::getJti)
+                .toList()
+                .containsAll(liveJtis));
+        assertFalse(revokedTokenRepository.existsById(expiredJtis.get(0)));
+    }
+
+    private UserDetailsImpl createCustomer() {
+        User user = transactionTemplate.execute(status -> persistUser(entityManager, UserRole.CUSTOMER));
+        return UserDetailsImpl.build(user);
+    }
+
+    private String refreshTokenFor(UserDetailsImpl principal) {
+        return jwtUtils.generateRefreshToken(new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    private ResponseEntity<?> refresh(String refreshToken) {
+        RefreshRequest request = new RefreshRequest();
+        request.setRefreshToken(refreshToken);
+        return authController.refreshAccessToken(request);
+    }
+
+    private RefreshTokenRevocationIndex newIndex() {
+        RefreshTokenRevocationIndex index = new RefreshTokenRevocationIndex();
+        ReflectionTestUtils.setField(index, "revokedTokenRepository", revokedTokenRepository);
+        ReflectionTestUtils.setField(index, "userRepository", userRepository);
+        ReflectionTestUtils.setField(index, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(index, "expectedInsertions", 1000);
+        ReflectionTestUtils.setField(index, "jwtRefreshExpiryTime", 604_800_000L);
+        index.init();
+        return index;
+    }
+}
@@ -0,0 +1,125 @@
+package com.apexev.security.crypto;
+
+import com.apexev.controller.userAndVehicleController.AuthController;
+import com.apexev.entity.User;
+import com.apexev.enums.UserRole;
+import com.apexev.security.jwt.JwtUtils;
+import com.apexev.security.services.UserDetailsImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Pool hash 1 thread, hàng đợi 1: đang bận kín -> login trả 503 + Retry-After ngay, không giữ thread của Tomcat
+class BoundedPasswordEncoderTest {
+
+    private static final String LOGIN = "{\"emailOrPhone\":\"0900000011\",\"password\":\"secret\"}";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private BoundedPasswordEncoder passwordEncoder;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setup() {
+        // "slow" giữ thread của pool tới khi test nhả ra; mật khẩu lưu dạng thô thay cho BCrypt
+        PasswordEncoder delegate = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                return rawPassword.toString();
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                if ("slow".contentEquals(rawPassword)) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return rawPassword.toString().equals(encodedPassword);
+            }
+        };
+        passwordEncoder = new BoundedPasswordEncoder(delegate, 1, 1, 10_000, 7, meterRegistry);
+
+        User user = new User();
+        user.setUserId(11);
+        user.setPhone("0900000011");
+        user.setFullName("Khách");
+        user.setPasswordHash("secret");
+        user.setRole(UserRole.CUSTOMER);
+        UserDetailsService userDetailsService = username -> UserDetailsImpl.build(user);
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider(userDetailsService);
+        provider.setPasswordEncoder(passwordEncoder);
+
+        JwtUtils jwtUtils = Mockito.mock(JwtUtils.class);
+        when(jwtUtils.generateJwtToken(any())).thenReturn("access");
+        when(jwtUtils.generateRefreshToken(any())).thenReturn("refresh");
+        AuthController authController = new AuthController();
+        ReflectionTestUtils.setField(authController, "authenticationManager", new ProviderManager(provider));
+        ReflectionTestUtils.setField(authController, "jwtUtils", jwtUtils);
+        mockMvc = MockMvcBuilders.standaloneSetup(authController).build();
+    }
+
+    @AfterEach
+    void cleanup() {
+        release.countDown();
+        passwordEncoder.shutdown();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void saturatedHashingPoolAnswers503WithRetryAfter() throws Exception {
+        mockMvc.perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON).content(LOGIN))
+                .andExpect(status().isOk());
+
+        // 1 yêu cầu đang chạy + 1 đang chờ = kín pool
+        CompletableFuture<Boolean> running = CompletableFuture.supplyAsync(() -> passwordEncoder.matches("slow", "x"));
+        awaitGauge("password.hashing.active", 1);
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> passwordEncoder.matches("slow", "x"));
+        awaitGauge("password.hashing.queue.depth", 1);
+
+        mockMvc.perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON).content(LOGIN))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "7"));
+        assertEquals(1.0, meterRegistry.get("password.hashing.rejected").counter().count());
+
+        // hết bận -> login lại bình thường
+        release.countDown();
+        assertFalse(running.get(5, TimeUnit.SECONDS));
+        assertFalse(queued.get(5, TimeUnit.SECONDS));
+        mockMvc.perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON).content(LOGIN))
+                .andExpect(status().isOk());
+    }
+
+    private void awaitGauge(String name, double value) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (meterRegistry.get(name).gauge().value() != value) {
+            assertTrue(System.currentTimeMillis() < deadline, name);
+            Thread.sleep(10);
+        }
+    }
+}
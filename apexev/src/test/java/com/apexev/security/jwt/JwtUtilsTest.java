@@ -0,0 +1,78 @@
+package com.apexev.security.jwt;
+
+import com.apexev.enums.UserRole;
+import com.apexev.security.services.UserDetailsImpl;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Cache token đã verify: chỉ bỏ qua HMAC cho đúng token đã verify, hết hạn thì không còn được trả từ cache
+class JwtUtilsTest {
+
+    private static final String SECRET = "test-secret-test-secret-test-secret-0123";
+    private static final UserDetailsImpl CUSTOMER = UserDetailsImpl.build(9, "0900000009", "customer@apexev.com",
+            "Nguyễn Văn A", UserRole.CUSTOMER, true);
+
+    private JwtUtils jwtUtils;
+
+    @BeforeEach
+    void setup() {
+        jwtUtils = newJwtUtils(SECRET, 60_000L);
+    }
+
+    @Test
+    void verifiedTokenIsServedFromTheCacheUntilItExpires() throws InterruptedException {
+        JwtUtils shortLived = newJwtUtils(SECRET, 2_000L);
+        String token = accessToken(shortLived);
+
+        Claims claims = shortLived.verifyJwtToken(token);
+        assertNotNull(claims);
+        assertSame(claims, shortLived.verifyJwtToken(token)); // lần 2 không parse lại
+
+        // exp làm tròn theo giây -> chờ quá 2s chắc chắn đã hết hạn
+        Thread.sleep(2_100);
+        assertNull(shortLived.verifyJwtToken(token));
+        assertNull(shortLived.verifyJwtToken(token));
+    }
+
+    @Test
+    void tamperedOrForeignTokenIsNeverServedFromTheCache() {
+        String token = accessToken(jwtUtils);
+        assertNotNull(jwtUtils.verifyJwtToken(token));
+
+        // sửa payload, giữ chữ ký cũ
+        String[] parts = token.split("\\.");
+        char last = parts[1].charAt(parts[1].length() - 1);
+        String tampered = parts[0] + "." + parts[1].substring(0, parts[1].length() - 1) + (last == 'A' ? 'B' : 'A') + "." + parts[2];
+        assertNull(jwtUtils.verifyJwtToken(tampered));
+        assertNull(jwtUtils.verifyJwtToken(tampered));
+
+        // cùng claim nhưng ký bằng khóa khác
+        String foreign = accessToken(newJwtUtils("another-secret-another-secret-0123456789", 60_000L));
+        assertNull(jwtUtils.verifyJwtToken(foreign));
+
+        // token gốc vẫn hợp lệ
+        assertEquals(9, jwtUtils.verifyJwtToken(token).get(JwtUtils.CLAIM_USER_ID, Integer.class));
+    }
+
+    private static String accessToken(JwtUtils jwtUtils) {
+        return jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(CUSTOMER, null, CUSTOMER.getAuthorities()));
+    }
+
+    private static JwtUtils newJwtUtils(String secret, long expiryMs) {
+        JwtUtils jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecretString", secret);
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpiryTime", expiryMs);
+        ReflectionTestUtils.setField(jwtUtils, "jwtRefreshExpiryTime", 600_000L);
+        ReflectionTestUtils.setField(jwtUtils, "claimsAuthEnabled", true);
+        ReflectionTestUtils.setField(jwtUtils, "verifiedCacheSize", 100L);
+        ReflectionTestUtils.setField(jwtUtils, "meterRegistry", new SimpleMeterRegistry());
+        jwtUtils.init();
+        return jwtUtils;
+    }
+}
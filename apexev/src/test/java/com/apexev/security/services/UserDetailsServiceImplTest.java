@@ -0,0 +1,92 @@
+package com.apexev.security.services;
+
+import com.apexev.entity.User;
+import com.apexev.enums.UserRole;
+import com.apexev.event.user.listener.UserChangedEventListener;
+import com.apexev.security.jwt.RefreshTokenRevocationIndex;
+import com.apexev.service.serviceImpl.UserServiceIpml;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CompletableFuture;
+
+import static com.apexev.service.serviceImpl.JpaTestFixtures.persistUser;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+// Principal cache: đổi mật khẩu / khóa tài khoản có hiệu lực ngay dưới cả 3 key (id, email, sđt)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({UserDetailsServiceImpl.class, UserServiceIpml.class, UserChangedEventListener.class,
+        RefreshTokenRevocationIndex.class, SimpleMeterRegistry.class})
+// mỗi thao tác tự commit như trong app thật
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserDetailsServiceImplTest {
+
+    @Autowired
+    private UserDetailsServiceImpl userDetailsService;
+
+    @Autowired
+    private UserServiceIpml userService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @MockitoBean
+    private PasswordEncoder passwordEncoder;
+
+    @Test
+    void passwordChangeAndDeactivationEvictThePrincipalUnderEveryKey() {
+        User user = transactionTemplate.execute(status -> persistUser(entityManager, UserRole.CUSTOMER));
+        Integer id = user.getUserId();
+
+        // nạp theo email -> cache dưới cả id và sđt
+        UserDetailsImpl cached = (UserDetailsImpl) userDetailsService.loadUserByUsername(user.getEmail());
+        assertSame(cached, userDetailsService.loadUserById(id));
+        assertSame(cached, userDetailsService.loadUserByUsername(user.getPhone()));
+
+        when(passwordEncoder.matches("old", "hash")).thenReturn(true);
+        when(passwordEncoder.encode("new")).thenReturn("new-hash");
+        userService.changePassword(id, "old", "new");
+        assertEquals("new-hash", userDetailsService.loadUserByUsername(user.getEmail()).getPassword());
+        assertEquals("new-hash", userDetailsService.loadUserByUsername(user.getPhone()).getPassword());
+        assertEquals("new-hash", userDetailsService.loadUserById(id).getPassword());
+
+        userService.updateUserStatus(id, false);
+        assertFalse(userDetailsService.loadUserByUsername(user.getPhone()).isEnabled());
+        assertFalse(userDetailsService.loadUserByUsername(user.getEmail()).isEnabled());
+        assertFalse(userDetailsService.loadUserById(id).isEnabled());
+    }
+
+    @Test
+    void principalCachedAgainBeforeCommitIsEvictedAfterCommit() {
+        User user = transactionTemplate.execute(status -> persistUser(entityManager, UserRole.CUSTOMER));
+        Integer id = user.getUserId();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.find(User.class, id).setPasswordHash("rotated");
+            entityManager.flush();
+            userDetailsService.evictUser(id);
+            // request khác đọc chen trước khi commit -> cache lại principal cũ
+            assertEquals("hash", CompletableFuture.supplyAsync(() -> userDetailsService.loadUserById(id).getPassword()).join());
+        });
+
+        assertEquals("rotated", userDetailsService.loadUserByUsername(user.getEmail()).getPassword());
+        assertEquals("rotated", userDetailsService.loadUserById(id).getPassword());
+    }
+}
@@ -0,0 +1,203 @@
+package com.apexev.service.serviceImpl;
+
+import com.apexev.entity.Appointment;
+import com.apexev.entity.User;
+import com.apexev.entity.Vehicle;
+import com.apexev.enums.AppointmentStatus;
+import com.apexev.enums.UserRole;
+import com.apexev.service.service_Interface.AppointmentCalendarService;
+import com.apexev.service.service_Interface.AppointmentCalendarService.FeedOwner;
+import com.apexev.service.service_Interface.AppointmentCalendarService.Owner;
+import com.apexev.service.service_Interface.AppointmentCalendarService.Version;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static com.apexev.service.serviceImpl.JpaTestFixtures.persistUser;
+import static com.apexev.service.serviceImpl.JpaTestFixtures.persistVehicle;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Lịch .ics: version chỉ tốn 1 query gộp, nội dung đọc dần từ cursor theo đúng RFC 5545 (escape, gấp dòng 75 byte)
+@DataJpaTest(properties = {
+        "com.apexev.calendar.timeZone=Asia/Ho_Chi_Minh"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(AppointmentCalendarServiceImpl.class)
+// dữ liệu tự commit như trong app thật
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AppointmentCalendarServiceTest {
+
+    @Autowired
+    private AppointmentCalendarService calendarService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void feedIsVersionedByOneAggregateQueryAndStreamedAsICalendar() throws IOException {
+        User advisor = transactionTemplate.execute(tx -> persistUser(entityManager, UserRole.SERVICE_ADVISOR, "Lê Cố Vấn"));
+        User otherAdvisor = transactionTemplate.execute(tx -> persistUser(entityManager, UserRole.SERVICE_ADVISOR, "Phạm Cố Vấn"));
+        Vehicle vehicle = transactionTemplate.execute(tx ->
+                persistVehicle(entityManager, persistUser(entityManager, UserRole.CUSTOMER, "Nguyễn Văn A"), "51K-123.45"));
+        User customer = vehicle.getCustomer();
+        LocalDate day = LocalDate.now().plusDays(3);
+
+        Long first = persistAppointment(vehicle, advisor, day.atTime(9, 0), AppointmentStatus.CONFIRMED,
+                "Thay lốp; cân bằng, đảo lốp\nKhách đợi tại chỗ, cần làm xong trước giờ trưa vì phải đi công tác xa");
+        persistAppointment(vehicle, advisor, day.atTime(14, 30), AppointmentStatus.PENDING, null);
+        persistAppointment(vehicle, advisor, LocalDateTime.now().minusDays(120), AppointmentStatus.COMPLETED, null);
+        persistAppointment(vehicle, otherAdvisor, day.atTime(10, 0), AppointmentStatus.CONFIRMED, null);
+
+        // version: 1 query gộp, không nạp entity nào
+        Statistics statistics = statistics();
+        statistics.clear();
+        Version version = calendarService.getVersion(Owner.ADVISOR, advisor.getUserId());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertTrue(version.lastModified() > 0);
+        assertEquals(version, calendarService.getVersion(Owner.ADVISOR, advisor.getUserId()));
+
+        String ics = write(Owner.ADVISOR, advisor.getUserId());
+        assertTrue(ics.startsWith("BEGIN:VCALENDAR\r\nVERSION:2.0\r\n"), ics);
+        assertTrue(ics.endsWith("END:VCALENDAR\r\n"), ics);
+        assertEquals(2, count(ics, "BEGIN:VEVENT")); // lịch quá cửa sổ và lịch cố vấn khác không có
+        // 9h giờ Việt Nam = 2h UTC, mỗi lịch 60 phút
+        String date = day.toString().replace("-", "");
+        assertTrue(ics.contains("DTSTART:" + date + "T020000Z\r\nDTEND:" + date + "T030000Z\r\n"), ics);
+        assertTrue(ics.contains("UID:appointment-" + first + "@apexev\r\n"));
+        assertTrue(ics.contains("SUMMARY:51K-123.45 - Nguyễn Văn A\r\n"));
+        assertTrue(ics.contains("STATUS:TENTATIVE\r\n"));
+        // escape ; , xuống dòng, dòng dài được gấp (CRLF + dấu cách) trong giới hạn 75 byte
+        String unfolded = ics.replace("\r\n ", "");
+        assertTrue(unfolded.contains("DESCRIPTION:Dịch vụ: Thay lốp\\; cân bằng\\, đảo lốp\\nKhách đợi tại chỗ\\, cần"), unfolded);
+        assertNotEquals(ics, unfolded);
+        Arrays.stream(ics.split("\r\n")).forEach(line ->
+                assertTrue(line.getBytes(StandardCharsets.UTF_8).length <= 75, line));
+
+        // khách hàng: lịch của mọi cố vấn, tiêu đề theo xe
+        String customerIcs = write(Owner.CUSTOMER, customer.getUserId());
+        assertEquals(3, count(customerIcs, "BEGIN:VEVENT"));
+        assertTrue(customerIcs.contains("SUMMARY:Bảo dưỡng xe 51K-123.45\r\n"));
+        assertTrue(customerIcs.replace("\r\n ", "").contains("Cố vấn: Phạm Cố Vấn"), customerIcs);
+
+        // sửa 1 lịch -> version đổi
+        transactionTemplate.executeWithoutResult(status ->
+                entityManager.find(Appointment.class, first).setStatus(AppointmentStatus.CANCELLED));
+        Version changed = calendarService.getVersion(Owner.ADVISOR, advisor.getUserId());
+        assertNotEquals(version.etag(), changed.etag());
+        assertTrue(changed.lastModified() >= version.lastModified());
+        assertTrue(write(Owner.ADVISOR, advisor.getUserId()).contains("STATUS:CANCELLED\r\n"));
+
+        // dời lịch -> DTSTAMP / LAST-MODIFIED theo lần sửa (updatedAt, giờ hệ thống), ứng dụng lịch cập nhật event;
+        // UPDATE bằng JPQL để cố định updatedAt (DTSTAMP chỉ chính xác tới giây)
+        LocalDateTime rescheduledAt = LocalDateTime.now().plusMinutes(5).withNano(0);
+        transactionTemplate.executeWithoutResult(status -> entityManager
+                .createQuery("UPDATE Appointment a SET a.appointmentTime = :time, a.updatedAt = :updatedAt WHERE a.id = :id")
+                .setParameter("time", day.plusDays(1).atTime(9, 0))
+                .setParameter("updatedAt", rescheduledAt)
+                .setParameter("id", first)
+                .executeUpdate());
+        String stamp = rescheduledAt.atZone(ZoneId.systemDefault()).withZoneSameInstant(ZoneOffset.UTC)
+                .format(DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'"));
+        String event = event(write(Owner.ADVISOR, advisor.getUserId()), first);
+        assertTrue(event.contains("\r\nDTSTAMP:" + stamp + "\r\n"), event);
+        assertTrue(event.contains("\r\nLAST-MODIFIED:" + stamp + "\r\n"), event);
+
+        // chưa có lịch nào
+        assertEquals(-1, calendarService.getVersion(Owner.CUSTOMER, advisor.getUserId()).lastModified());
+        assertEquals(0, count(write(Owner.CUSTOMER, advisor.getUserId()), "BEGIN:VEVENT"));
+    }
+
+    @Test
+    void feedTokenOpensOnlyItsOwnersCalendarUntilReissuedOrRevoked() {
+        User advisor = transactionTemplate.execute(tx -> persistUser(entityManager, UserRole.SERVICE_ADVISOR));
+        User customer = transactionTemplate.execute(tx -> persistUser(entityManager, UserRole.CUSTOMER));
+        User technician = transactionTemplate.execute(tx -> persistUser(entityManager, UserRole.TECHNICIAN));
+
+        String advisorToken = calendarService.issueFeedToken(advisor.getUserId());
+        String customerToken = calendarService.issueFeedToken(customer.getUserId());
+        assertEquals(Optional.of(new FeedOwner(Owner.ADVISOR, advisor.getUserId())), calendarService.resolveFeedToken(advisorToken));
+        assertEquals(Optional.of(new FeedOwner(Owner.CUSTOMER, customer.getUserId())), calendarService.resolveFeedToken(customerToken));
+        // chỉ lưu hash
+        assertNotEquals(advisorToken, entityManager.find(User.class, advisor.getUserId()).getCalendarFeedTokenHash());
+        assertEquals(Optional.empty(), calendarService.resolveFeedToken(calendarService.issueFeedToken(technician.getUserId())));
+        assertEquals(Optional.empty(), calendarService.resolveFeedToken("unknown"));
+
+        // cấp lại -> URL cũ hết hiệu lực
+        String reissued = calendarService.issueFeedToken(advisor.getUserId());
+        assertEquals(Optional.empty(), calendarService.resolveFeedToken(advisorToken));
+        assertTrue(calendarService.resolveFeedToken(reissued).isPresent());
+
+        calendarService.revokeFeedToken(advisor.getUserId());
+        assertEquals(Optional.empty(), calendarService.resolveFeedToken(reissued));
+
+        // tài khoản bị khóa
+        transactionTemplate.executeWithoutResult(status -> entityManager.find(User.class, customer.getUserId()).setActive(false));
+        assertEquals(Optional.empty(), calendarService.resolveFeedToken(customerToken));
+    }
+
+    private static String event(String ics, Long appointmentId) {
+        int start = ics.indexOf("UID:appointment-" + appointmentId + "@apexev");
+        return ics.substring(start, ics.indexOf("END:VEVENT", start));
+    }
+
+    private String write(Owner owner, Integer userId) throws IOException {
+        StringWriter writer = new StringWriter();
+        calendarService.writeCalendar(owner, userId, writer);
+        return writer.toString();
+    }
+
+    private static int count(String text, String token) {
+        int count = 0;
+        for (int i = text.indexOf(token); i >= 0; i = text.indexOf(token, i + token.length())) {
+            count++;
+        }
+        return count;
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private Long persistAppointment(Vehicle vehicle, User advisor, LocalDateTime time, AppointmentStatus status, String requestedService) {
+        return transactionTemplate.execute(tx -> {
+            Appointment appointment = new Appointment();
+            appointment.setCustomer(entityManager.getReference(User.class, vehicle.getCustomer().getUserId()));
+            appointment.setVehicle(entityManager.getReference(Vehicle.class, vehicle.getId()));
+            appointment.setServiceAdvisor(entityManager.getReference(User.class, advisor.getUserId()));
+            appointment.setAppointmentTime(time);
+            appointment.setStatus(status);
+            appointment.setRequestedService(requestedService == null ? "Bảo dưỡng định kỳ" : requestedService);
+            entityManager.persist(appointment);
+            return appointment.getId();
+        });
+    }
+}
@@ -0,0 +1,134 @@
+package com.apexev.service.serviceImpl;
+
+import com.apexev.entity.Appointment;
+import com.apexev.entity.MailOutbox;
+import com.apexev.entity.User;
+import com.apexev.entity.Vehicle;
+import com.apexev.enums.AppointmentStatus;
+import com.apexev.enums.UserRole;
+import com.apexev.repository.coreBussiness.AppointmentRepository;
+import com.apexev.repository.supportAndSystem.MailOutboxRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static com.apexev.service.serviceImpl.JpaTestFixtures.persistUser;
+import static com.apexev.service.serviceImpl.JpaTestFixtures.persistVehicle;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Nhắc lịch theo khúc 2 lịch: chỉ lịch CONFIRMED trong 24h tới, mỗi lịch nhắc đúng 1 lần
+@DataJpaTest(properties = {
+        "spring.mail.from=noreply@apexev.com",
+        "com.apexev.appointmentReminder.chunkSize=2",
+        "com.apexev.appointmentReminder.intervalMs=3600000", // chỉ chạy khi test gọi
+        "com.apexev.mailOutbox.pollIntervalMs=3600000"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({AppointmentReminderJob.class, MailServiceImpl.class, SimpleMeterRegistry.class,
+        AppointmentReminderJobTest.MailConfig.class})
+// mỗi khúc tự commit như trong app thật
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AppointmentReminderJobTest {
+
+    @TestConfiguration
+    static class MailConfig {
+        @Bean
+        JavaMailSenderImpl javaMailSender() {
+            return new JavaMailSenderImpl(); // chỉ dùng để ghi outbox, không gửi
+        }
+    }
+
+    @Autowired
+    private AppointmentReminderJob reminderJob;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private MailOutboxRepository mailOutboxRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void confirmedAppointmentsInTheWindowAreRemindedOnceInChunks() {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        Vehicle vehicle = vehicle("Trần <Thị> B");
+        List<Long> due = List.of(
+                appointment(vehicle, now.plusHours(2), AppointmentStatus.CONFIRMED),
+                appointment(vehicle, now.plusHours(2), AppointmentStatus.CONFIRMED), // trùng giờ -> keyset theo id
+                appointment(vehicle, now.plusHours(5), AppointmentStatus.CONFIRMED),
+                appointment(vehicle, now.plusHours(23), AppointmentStatus.CONFIRMED),
+                appointment(vehicle, now.plusHours(23).plusMinutes(30), AppointmentStatus.CONFIRMED));
+        Long pending = appointment(vehicle, now.plusHours(3), AppointmentStatus.PENDING);
+        Long tooFar = appointment(vehicle, now.plusHours(30), AppointmentStatus.CONFIRMED);
+        Long past = appointment(vehicle, now.minusHours(1), AppointmentStatus.CONFIRMED);
+
+        assertEquals(5, reminderJob.remind(now));
+
+        List<MailOutbox> mails = mailOutboxRepository.findAll();
+        assertEquals(5, mails.size());
+        MailOutbox mail = mails.get(0);
+        assertEquals(vehicle.getCustomer().getEmail(), mail.getRecipient());
+        assertTrue(mail.getSubject().startsWith("Nhắc lịch hẹn bảo dưỡng lúc "), mail.getSubject());
+        assertTrue(mail.getBody().contains("Trần &lt;Thị&gt; B"), mail.getBody()); // giá trị được escape
+        assertTrue(mail.getBody().contains(vehicle.getLicensePlate()));
+        due.forEach(id -> assertNotNull(reminderSentAt(id), "reminder for " + id));
+        List.of(pending, tooFar, past).forEach(id -> assertNull(reminderSentAt(id)));
+        assertEquals(5, meterRegistry.get("appointment.reminder.queued").counter().count());
+
+        // lượt sau (hoặc sau khi khởi động lại) không nhắc lại lịch đã nhắc
+        assertEquals(0, reminderJob.remind(now.plusMinutes(5)));
+        assertEquals(5, mailOutboxRepository.count());
+
+        // lịch tới gần cửa sổ thì được nhắc ở lượt sau
+        assertEquals(1, reminderJob.remind(now.plusHours(7)));
+        assertNotNull(reminderSentAt(tooFar));
+        assertEquals(6, mailOutboxRepository.count());
+    }
+
+    private LocalDateTime reminderSentAt(Long id) {
+        return appointmentRepository.findById(id).orElseThrow().getReminderSentAt();
+    }
+
+    private Long appointment(Vehicle vehicle, LocalDateTime time, AppointmentStatus status) {
+        return transactionTemplate.execute(tx -> {
+            Appointment appointment = new Appointment();
+            appointment.setCustomer(entityManager.getReference(User.class, vehicle.getCustomer().getUserId()));
+            appointment.setVehicle(entityManager.getReference(Vehicle.class, vehicle.getId()));
+            appointment.setAppointmentTime(time);
+            appointment.setStatus(status);
+            appointment.setRequestedService("Bảo dưỡng định kỳ");
+            entityManager.persist(appointment);
+            return appointment.getId();
+        });
+    }
+
+    private Vehicle vehicle(String customerName) {
+        return transactionTemplate.execute(tx ->
+                persistVehicle(entityManager, persistUser(entityManager, UserRole.CUSTOMER, customerName)));
+    }
+}
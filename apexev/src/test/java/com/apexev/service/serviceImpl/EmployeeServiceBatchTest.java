@@ -0,0 +1,134 @@
+package com.apexev.service.serviceImpl;
+
+import com.apexev.dto.request.RegisterStaffRequest;
+import com.apexev.dto.response.coreBussinessResponse.BulkImportResponse;
+import com.apexev.entity.StaffProfile;
+import com.apexev.entity.User;
+import com.apexev.enums.UserRole;
+import com.apexev.repository.userAndVehicle.UserRepository;
+import com.apexev.security.crypto.BoundedPasswordEncoder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+import static com.apexev.service.serviceImpl.JpaTestFixtures.persistUser;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+
+// Đăng ký nhân viên hàng loạt: dòng trùng báo theo dòng, dòng hợp lệ vào DB kèm staff_profiles; trùng lúc insert -> 409 cả lô
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({EmployeeServiceImpl.class, LocalValidatorFactoryBean.class, EmployeeServiceBatchTest.PasswordConfig.class})
+// lô được insert trong transaction riêng như trong app thật
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class EmployeeServiceBatchTest {
+
+    @TestConfiguration
+    static class PasswordConfig {
+        @Bean
+        BoundedPasswordEncoder passwordEncoder() {
+            return new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), 2, 8, 10_000, 2, new SimpleMeterRegistry());
+        }
+    }
+
+    @Autowired
+    private EmployeeServiceImpl employeeService;
+
+    @Autowired
+    private BoundedPasswordEncoder passwordEncoder;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @MockitoSpyBean
+    private UserRepository userRepository;
+
+    @Test
+    void duplicatesAreReportedPerRowAndValidRowsAreInsertedWithTheirProfiles() {
+        User existing = transactionTemplate.execute(status -> persistUser(entityManager, UserRole.TECHNICIAN));
+
+        BulkImportResponse response = employeeService.registerStaffBatch(List.of(
+                row("Kỹ thuật viên A", "ktv.a@apexev.com", "0981000001", "technician"),
+                row("Kỹ thuật viên B", "KTV.A@apexev.com", "0981000002", "TECHNICIAN"), // trùng email trong lô
+                row("Cố vấn C", "covan.c@apexev.com", "0981000001", "SERVICE_ADVISOR"),  // trùng sđt trong lô
+                row("Cố vấn D", existing.getEmail(), "0981000004", "SERVICE_ADVISOR"),   // email đã có trong DB
+                row("Cố vấn E", "covan.e@apexev.com", existing.getPhone(), "SERVICE_ADVISOR"),
+                row("Khách F", "khach.f@apexev.com", "0981000006", "CUSTOMER"),
+                row("Cố vấn G", "covan.g@apexev.com", "0981000007", "service_advisor")));
+
+        assertEquals(7, response.getTotalRecords());
+        assertEquals(List.of("ktv.a@apexev.com", "covan.g@apexev.com"), response.getSuccessUsers());
+        assertEquals(List.of(2, 3, 4, 5, 6), response.getErrors().stream().map(BulkImportResponse.ImportError::getRow).toList());
+        assertEquals(List.of("email", "phone", "email", "phone", "role"),
+                response.getErrors().stream().map(BulkImportResponse.ImportError::getField).toList());
+
+        User technician = userByEmail("ktv.a@apexev.com");
+        assertEquals(UserRole.TECHNICIAN, technician.getRole());
+        assertTrue(passwordEncoder.matches("matkhau123", technician.getPasswordHash()));
+        StaffProfile profile = entityManager.find(StaffProfile.class, technician.getUserId());
+        assertEquals("TECHNICIAN" + technician.getUserId(), profile.getEmployeeCode());
+        assertEquals(12, profile.getAnnualLeaveBalance());
+        User advisor = userByEmail("covan.g@apexev.com");
+        assertEquals(UserRole.SERVICE_ADVISOR, advisor.getRole());
+        assertNotNull(entityManager.find(StaffProfile.class, advisor.getUserId()));
+    }
+
+    @Test
+    void emailRegisteredBetweenTheCheckAndTheInsertAnswers409AndInsertsNothing() {
+        User existing = transactionTemplate.execute(status -> persistUser(entityManager, UserRole.TECHNICIAN));
+        // lúc kiểm tra chưa thấy user này (request khác commit ngay sau đó)
+        doReturn(List.of()).when(userRepository).findEmailsAndPhonesIn(any(), any());
+        long before = userRepository.count();
+        long profilesBefore = countProfiles();
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> employeeService.registerStaffBatch(List.of(
+                row("Kỹ thuật viên H", "ktv.h@apexev.com", "0982000001", "TECHNICIAN"),
+                row("Kỹ thuật viên I", existing.getEmail(), "0982000002", "TECHNICIAN"))));
+
+        assertEquals(HttpStatus.CONFLICT, e.getStatusCode());
+        assertEquals(before, userRepository.count());
+        assertEquals(profilesBefore, countProfiles());
+    }
+
+    private long countProfiles() {
+        return entityManager.createQuery("SELECT COUNT(s) FROM StaffProfile s", Long.class).getSingleResult();
+    }
+
+    private User userByEmail(String email) {
+        return entityManager.createQuery("SELECT u FROM User u WHERE u.email = :email", User.class)
+                .setParameter("email", email)
+                .getSingleResult();
+    }
+
+    private static RegisterStaffRequest row(String fullName, String email, String phone, String role) {
+        RegisterStaffRequest row = new RegisterStaffRequest();
+        row.setFullName(fullName);
+        row.setEmail(email);
+        row.setPhone(phone);
+        row.setPassword("matkhau123");
+        row.setRole(role);
+        return row;
+    }
+}
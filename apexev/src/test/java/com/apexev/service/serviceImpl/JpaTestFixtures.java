@@ -0,0 +1,47 @@
+package com.apexev.service.serviceImpl;
+
+import com.apexev.entity.User;
+import com.apexev.entity.Vehicle;
+import com.apexev.enums.UserRole;
+import jakarta.persistence.EntityManager;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// User / xe mẫu cho các test JPA, gọi trong transaction đang mở; email, số điện thoại, biển số không trùng nhau
+public final class JpaTestFixtures {
+
+    private static final AtomicInteger SEQ = new AtomicInteger();
+
+    private JpaTestFixtures() {
+    }
+
+    public static User persistUser(EntityManager entityManager, UserRole role) {
+        return persistUser(entityManager, role, null);
+    }
+
+    public static User persistUser(EntityManager entityManager, UserRole role, String fullName) {
+        int seq = SEQ.incrementAndGet();
+        User user = new User();
+        user.setFullName(fullName != null ? fullName : "User " + seq);
+        user.setEmail(role.name().toLowerCase() + seq + "@apexev.com");
+        user.setPhone(String.format("09%08d", seq));
+        user.setPasswordHash("hash");
+        user.setRole(role);
+        entityManager.persist(user);
+        return user;
+    }
+
+    public static Vehicle persistVehicle(EntityManager entityManager, User customer) {
+        return persistVehicle(entityManager, customer, "51A-" + SEQ.incrementAndGet());
+    }
+
+    public static Vehicle persistVehicle(EntityManager entityManager, User customer, String licensePlate) {
+        Vehicle vehicle = new Vehicle();
+        vehicle.setLicensePlate(licensePlate);
+        vehicle.setModel("VF8");
+        vehicle.setBrand("VinFast");
+        vehicle.setCustomer(customer);
+        entityManager.persist(vehicle);
+        return vehicle;
+    }
+}
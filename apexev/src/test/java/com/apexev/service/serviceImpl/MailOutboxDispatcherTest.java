@@ -0,0 +1,131 @@
+package com.apexev.service.serviceImpl;
+
+import com.apexev.entity.MailOutbox;
+import com.apexev.enums.MailOutboxStatus;
+import com.apexev.repository.supportAndSystem.MailOutboxRepository;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Outbox + dispatcher gửi tới SMTP chạy trong JVM (GreenMail), không cần mail server thật
+@DataJpaTest(properties = {
+        "spring.mail.from=noreply@apexev.com",
+        "com.apexev.mailOutbox.batchSize=2",
+        "com.apexev.mailOutbox.initialBackoffMs=60000"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({MailServiceImpl.class, MailOutboxDispatcher.class, SimpleMeterRegistry.class, MailOutboxDispatcherTest.SmtpConfig.class})
+// mỗi enqueue tự commit như trong app thật, dispatcher mới thấy được dữ liệu
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class MailOutboxDispatcherTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @TestConfiguration
+    static class SmtpConfig {
+        @Bean
+        JavaMailSenderImpl javaMailSender() {
+            JavaMailSenderImpl sender = new JavaMailSenderImpl();
+            sender.setHost("127.0.0.1");
+            sender.setPort(ServerSetupTest.SMTP.getPort());
+            return sender;
+        }
+    }
+
+    @Autowired
+    private MailServiceImpl mailService;
+
+    @Autowired
+    private MailOutboxDispatcher dispatcher;
+
+    @Autowired
+    private MailOutboxRepository mailOutboxRepository;
+
+    @Autowired
+    private JavaMailSenderImpl javaMailSender;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    void cleanup() {
+        mailOutboxRepository.deleteAll();
+        javaMailSender.setPort(ServerSetupTest.SMTP.getPort());
+    }
+
+    @Test
+    void queuedEmailsAreSentInBatchesByTheDispatcher() throws Exception {
+        mailService.enqueueEmail("a@apexev.com", "Báo giá #1", "Nội dung 1");
+        mailService.enqueueEmail("b@apexev.com", "Báo giá #2", "Nội dung 2");
+        mailService.enqueueEmail("c@apexev.com", "Báo giá #3", "Nội dung 3");
+        assertEquals(0, greenMail.getReceivedMessages().length);
+        double sentBefore = meterRegistry.get("mail.outbox.sent").counter().count();
+
+        assertEquals(3, dispatcher.dispatch(Instant.now()));
+
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertEquals(3, received.length);
+        assertEquals("Báo giá #1", received[0].getSubject());
+        mailOutboxRepository.findAll().forEach(mail -> {
+            assertEquals(MailOutboxStatus.SENT, mail.getStatus());
+            assertEquals(1, mail.getAttempts());
+        });
+        assertEquals(3, meterRegistry.get("mail.outbox.sent").counter().count() - sentBefore);
+        assertEquals(0, meterRegistry.get("mail.outbox.pending").gauge().value());
+    }
+
+    @Test
+    void failedDeliveryIsRetriedAfterBackoff() {
+        mailService.enqueueEmail("a@apexev.com", "Báo giá #1", "Nội dung 1");
+        javaMailSender.setPort(1); // SMTP không kết nối được
+        Instant now = Instant.now();
+
+        assertEquals(1, dispatcher.dispatch(now));
+
+        MailOutbox mail = single();
+        assertEquals(MailOutboxStatus.PENDING, mail.getStatus());
+        assertEquals(1, mail.getAttempts());
+        assertTrue(mail.getNextAttemptAt().isAfter(now.plusSeconds(29)), "backoff: " + mail.getNextAttemptAt());
+        assertTrue(mail.getLastError() != null);
+        assertEquals(1, meterRegistry.get("mail.outbox.pending").gauge().value());
+
+        // chưa tới hạn thử lại
+        javaMailSender.setPort(ServerSetupTest.SMTP.getPort());
+        assertEquals(0, dispatcher.dispatch(now.plusSeconds(1)));
+
+        assertEquals(1, dispatcher.dispatch(now.plus(1, ChronoUnit.HOURS)));
+        assertEquals(MailOutboxStatus.SENT, single().getStatus());
+        assertEquals(2, single().getAttempts());
+        assertEquals(1, greenMail.getReceivedMessages().length);
+    }
+
+    private MailOutbox single() {
+        List<MailOutbox> all = mailOutboxRepository.findAll();
+        assertEquals(1, all.size());
+        return all.get(0);
+    }
+}
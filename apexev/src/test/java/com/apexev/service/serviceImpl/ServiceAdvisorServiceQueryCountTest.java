@@ -0,0 +1,325 @@
+package com.apexev.service.serviceImpl;
+
+import com.apexev.dto.request.SendQuotationRequest;
+import com.apexev.dto.response.CursorPageResponse;
+import com.apexev.dto.response.QuotationResponse;
+import com.apexev.dto.response.ServiceOrderResponse;
+import com.apexev.entity.MaintenanceService;
+import com.apexev.entity.Part;
+import com.apexev.entity.ServiceOrder;
+import com.apexev.entity.ServiceOrderItem;
+import com.apexev.entity.User;
+import com.apexev.entity.Vehicle;
+import com.apexev.enums.OrderItemStatus;
+import com.apexev.enums.OrderItemType;
+import com.apexev.enums.OrderStatus;
+import com.apexev.enums.UserRole;
+import com.apexev.service.service_Interface.MailService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.apexev.service.serviceImpl.JpaTestFixtures.persistUser;
+import static com.apexev.service.serviceImpl.JpaTestFixtures.persistVehicle;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Danh sách đơn phải chạy số query cố định, không tăng theo số đơn (không N+1)
+@DataJpaTest(properties = {
+        "com.apexev.pricing.catalogCheckIntervalMs=60000"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({ServiceAdvisorServiceImpl.class, PricingServiceImpl.class, WorkshopCapacityServiceImpl.class, SimpleMeterRegistry.class})
+class ServiceAdvisorServiceQueryCountTest {
+
+    @Autowired
+    private ServiceAdvisorServiceImpl serviceAdvisorService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private MailService mailService;
+
+    private Statistics statistics;
+    // itemRefId của 2 item mỗi đơn do createOrders tạo (trỏ vào catalog nếu đã gọi createCatalog)
+    private Long serviceRefId = 1L;
+    private Long partRefId = 1L;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void serviceOrdersByStatusUseConstantNumberOfQueries() {
+        createCatalog();
+        createOrders(1);
+        // lần đầu nạp catalog vào cache
+        serviceAdvisorService.getServiceOrdersByStatus(OrderStatus.RECEPTION, null, 50);
+        long queriesForOneOrder = countQueries(() -> serviceAdvisorService.getServiceOrdersByStatus(OrderStatus.RECEPTION, null, 50));
+
+        createOrders(20);
+        statistics.clear();
+        List<ServiceOrderResponse> responses = serviceAdvisorService.getServiceOrdersByStatus(OrderStatus.RECEPTION, null, 50).getItems();
+        long queriesForManyOrders = statistics.getPrepareStatementCount();
+
+        assertEquals(21, responses.size());
+        assertEquals(2, queriesForOneOrder); // 1 query đơn (join user, xe) + 1 query item
+        assertEquals(queriesForOneOrder, queriesForManyOrders);
+        responses.forEach(response -> {
+            assertEquals(List.of("Bảo dưỡng định kỳ", "Má phanh trước"), response.getOrderItems().stream()
+                    .map(ServiceOrderResponse.ServiceOrderItemResponse::getItemName).toList());
+            assertEquals(new BigDecimal("200.00"), response.getOrderItems().get(1).getLineTotal());
+            assertEquals(new BigDecimal("385.00"), response.getEstimatedTotal()); // khớp totalAmount của báo giá
+        });
+    }
+
+    @Test
+    void serviceOrdersByAdvisorUseConstantNumberOfQueries() {
+        createCatalog();
+        User advisor = createOrders(15);
+        // lần đầu nạp catalog vào cache
+        serviceAdvisorService.getServiceOrdersByAdvisor(advisor.getUserId().longValue(), null, 50);
+        long queries = countQueries(() -> serviceAdvisorService.getServiceOrdersByAdvisor(advisor.getUserId().longValue(), null, 50));
+        assertEquals(2, queries);
+    }
+
+    @Test
+    void keysetPagesCoverEveryOrderOnce() {
+        User advisor = createOrders(7);
+        Set<Long> seen = new HashSet<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            CursorPageResponse<ServiceOrderResponse> page =
+                    serviceAdvisorService.getServiceOrdersByAdvisor(advisor.getUserId().longValue(), cursor, 3);
+            page.getItems().forEach(order -> assertTrue(seen.add(order.getId())));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(7, seen.size());
+        assertEquals(3, pages);
+    }
+
+    @Test
+    void quotationUpdateOnlyWritesChangedLines() {
+        Long secondPartId = createCatalog();
+        createOrders(1);
+        Long orderId = entityManager.createQuery("SELECT o.id FROM ServiceOrder o", Long.class).getSingleResult();
+        Set<Long> originalIds = new HashSet<>(entityManager
+                .createQuery("SELECT i.id FROM ServiceOrderItem i", Long.class).getResultList());
+
+        statistics.clear();
+        QuotationResponse quotation = serviceAdvisorService.updateQuotation(orderId, quotationRequest(
+                quotationLine("SERVICE", serviceRefId, 1, 150.0), // không đổi
+                quotationLine("PART", partRefId, 3, 100.0),       // đổi số lượng
+                quotationLine("PART", secondPartId, 1, 50.0)      // dòng mới
+        ), null);
+
+        assertEquals(1, statistics.getEntityUpdateCount());
+        assertEquals(1, statistics.getEntityInsertCount());
+        assertEquals(0, statistics.getEntityDeleteCount());
+        assertEquals(3, quotation.getItems().size());
+        assertTrue(quotation.getItems().stream().map(QuotationResponse.QuotationItemResponse::getItemId)
+                .toList().containsAll(originalIds));
+        assertEquals(new BigDecimal("500.00"), quotation.getSubtotal());
+
+        statistics.clear();
+        quotation = serviceAdvisorService.updateQuotation(orderId, quotationRequest(
+                quotationLine("SERVICE", serviceRefId, 1, 150.0),
+                quotationLine("PART", partRefId, 3, 100.0)
+        ), null);
+
+        assertEquals(0, statistics.getEntityUpdateCount());
+        assertEquals(0, statistics.getEntityInsertCount());
+        assertEquals(1, statistics.getEntityDeleteCount());
+        assertEquals(new BigDecimal("450.00"), quotation.getSubtotal());
+    }
+
+    @Test
+    void resendingTheSameQuotationKeepsApprovedLines() {
+        createCatalog();
+        createOrders(1);
+        Long orderId = entityManager.createQuery("SELECT o.id FROM ServiceOrder o", Long.class).getSingleResult();
+        // đơn giá client gửi nhiều hơn 2 chữ số thập phân -> lưu 100.00
+        SendQuotationRequest request = quotationRequest(
+                quotationLine("SERVICE", serviceRefId, 1, 150.0),
+                quotationLine("PART", partRefId, 3, 99.999)
+        );
+        serviceAdvisorService.updateQuotation(orderId, request, null);
+        entityManager.createQuery("UPDATE ServiceOrderItem i SET i.status = :status")
+                .setParameter("status", OrderItemStatus.APPROVED)
+                .executeUpdate();
+        entityManager.clear();
+        long version = entityManager.find(ServiceOrder.class, orderId).getVersion();
+        entityManager.clear();
+
+        statistics.clear();
+        QuotationResponse quotation = serviceAdvisorService.updateQuotation(orderId, request, null);
+        entityManager.flush();
+
+        assertEquals(0, statistics.getEntityUpdateCount());
+        assertEquals(new BigDecimal("100.00"), quotation.getItems().get(1).getUnitPrice());
+        entityManager.clear();
+        assertEquals(version, entityManager.find(ServiceOrder.class, orderId).getVersion());
+        assertEquals(List.of(OrderItemStatus.APPROVED, OrderItemStatus.APPROVED), entityManager
+                .createQuery("SELECT i.status FROM ServiceOrderItem i ORDER BY i.id", OrderItemStatus.class)
+                .getResultList());
+    }
+
+    @Test
+    void quotationIsPricedFromCatalogAndCachedUntilItemsChange() {
+        Long secondPartId = createCatalog();
+        createOrders(1);
+        Long orderId = entityManager.createQuery("SELECT o.id FROM ServiceOrder o", Long.class).getSingleResult();
+
+        QuotationResponse quotation = serviceAdvisorService.getQuotationByOrderId(orderId);
+        assertEquals(List.of("Bảo dưỡng định kỳ", "Má phanh trước"),
+                quotation.getItems().stream().map(QuotationResponse.QuotationItemResponse::getItemName).toList());
+        assertEquals(new BigDecimal("350.00"), quotation.getSubtotal());
+        assertEquals(new BigDecimal("35.00"), quotation.getTax());
+        assertEquals(new BigDecimal("385.00"), quotation.getTotalAmount());
+
+        // lần 2 chỉ còn 1 query header (đơn + khách + xe), item và catalog lấy từ cache
+        entityManager.clear();
+        assertEquals(1, countQueries(() -> serviceAdvisorService.getQuotationByOrderId(orderId)));
+
+        // dòng mới không gửi đơn giá -> lấy giá niêm yết, cache báo giá của đơn bị xóa
+        serviceAdvisorService.updateQuotation(orderId, quotationRequest(
+                quotationLine("SERVICE", serviceRefId, 1, 150.0),
+                quotationLine("PART", partRefId, 2, 100.0),
+                quotationLine("PART", secondPartId, 1, null)
+        ), null);
+        quotation = serviceAdvisorService.getQuotationByOrderId(orderId);
+        assertEquals(3, quotation.getItems().size());
+        assertEquals(new BigDecimal("49.90"), quotation.getItems().get(2).getUnitPrice());
+        assertEquals(new BigDecimal("399.90"), quotation.getSubtotal());
+        assertEquals(new BigDecimal("39.99"), quotation.getTax());
+    }
+
+    @Test
+    void quotationRejectsUnknownCatalogItem() {
+        createCatalog();
+        createOrders(1);
+        Long orderId = entityManager.createQuery("SELECT o.id FROM ServiceOrder o", Long.class).getSingleResult();
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> serviceAdvisorService.updateQuotation(orderId, quotationRequest(
+                        quotationLine("PART", 999_999L, 1, 100.0)
+                ), null));
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+    }
+
+    @Test
+    void quotationRejectsDuplicateLines() {
+        createCatalog();
+        createOrders(1);
+        Long orderId = entityManager.createQuery("SELECT o.id FROM ServiceOrder o", Long.class).getSingleResult();
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> serviceAdvisorService.updateQuotation(orderId, quotationRequest(
+                        quotationLine("PART", partRefId, 1, 100.0),
+                        quotationLine("PART", partRefId, 2, 100.0)
+                ), null));
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+    }
+
+    private SendQuotationRequest quotationRequest(SendQuotationRequest.QuotationItemRequest... lines) {
+        SendQuotationRequest request = new SendQuotationRequest();
+        request.setItems(List.of(lines));
+        return request;
+    }
+
+    private SendQuotationRequest.QuotationItemRequest quotationLine(String type, Long refId, int quantity, Double unitPrice) {
+        SendQuotationRequest.QuotationItemRequest line = new SendQuotationRequest.QuotationItemRequest();
+        line.setItemType(type);
+        line.setItemRefId(refId);
+        line.setQuantity(quantity);
+        line.setUnitPrice(unitPrice);
+        return line;
+    }
+
+    private long countQueries(Runnable action) {
+        statistics.clear();
+        action.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    // Tạo count đơn (mỗi đơn 1 khách, 1 xe, 2 item) của cùng 1 cố vấn + 1 KTV, rồi xóa persistence context
+    private User createOrders(int count) {
+        User advisor = persistUser(entityManager, UserRole.SERVICE_ADVISOR);
+        User technician = persistUser(entityManager, UserRole.TECHNICIAN);
+        for (int i = 0; i < count; i++) {
+            User customer = persistUser(entityManager, UserRole.CUSTOMER);
+            Vehicle vehicle = persistVehicle(entityManager, customer);
+
+            ServiceOrder order = new ServiceOrder();
+            order.setCustomer(customer);
+            order.setVehicle(vehicle);
+            order.setServiceAdvisor(advisor);
+            order.setTechnician(technician);
+            entityManager.persist(order);
+            persistItem(order, OrderItemType.SERVICE, serviceRefId, 1, "150.00");
+            persistItem(order, OrderItemType.PART, partRefId, 2, "100.00");
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return advisor;
+    }
+
+    private void persistItem(ServiceOrder order, OrderItemType type, Long refId, int quantity, String unitPrice) {
+        ServiceOrderItem item = new ServiceOrderItem();
+        item.setServiceOrder(order);
+        item.setItemType(type);
+        item.setItemRefId(refId);
+        item.setQuantity(quantity);
+        item.setUnitPrice(new BigDecimal(unitPrice));
+        entityManager.persist(item);
+    }
+
+    // 1 gói dịch vụ + 2 phụ tùng; item của createOrders trỏ vào gói dịch vụ và phụ tùng đầu, trả về id phụ tùng thứ 2
+    private Long createCatalog() {
+        MaintenanceService service = new MaintenanceService();
+        service.setServiceName("Bảo dưỡng định kỳ");
+        service.setBasePrice(new BigDecimal("150.00"));
+        entityManager.persist(service);
+        Part brakePad = persistPart("Má phanh trước", "MP-001", "100.00");
+        Part wiper = persistPart("Gạt mưa", "GM-001", "49.90");
+        serviceRefId = service.getId();
+        partRefId = brakePad.getId();
+        return wiper.getId();
+    }
+
+    private Part persistPart(String name, String sku, String price) {
+        Part part = new Part();
+        part.setPartName(name);
+        part.setSku(sku);
+        part.setPrice(new BigDecimal(price));
+        entityManager.persist(part);
+        return part;
+    }
+}
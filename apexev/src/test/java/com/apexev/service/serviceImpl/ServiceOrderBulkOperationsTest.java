@@ -0,0 +1,218 @@
+package com.apexev.service.serviceImpl;
+
+import com.apexev.dto.request.BulkServiceOrderRequest;
+import com.apexev.dto.response.BulkServiceOrderResponse;
+import com.apexev.dto.response.ServiceOrderResponse;
+import com.apexev.entity.ServiceOrder;
+import com.apexev.entity.User;
+import com.apexev.entity.Vehicle;
+import com.apexev.enums.BulkOrderOperationType;
+import com.apexev.enums.BulkOrderOutcome;
+import com.apexev.enums.OrderStatus;
+import com.apexev.enums.UserRole;
+import com.apexev.event.serviceOrder.ServiceOrderChangedEvent;
+import com.apexev.repository.userAndVehicle.UserRepository;
+import com.apexev.service.service_Interface.MailService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.apexev.service.serviceImpl.JpaTestFixtures.persistUser;
+import static com.apexev.service.serviceImpl.JpaTestFixtures.persistVehicle;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+// Thao tác hàng loạt: số câu SQL không tăng theo số đơn, thao tác lỗi không làm hỏng các thao tác khác
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@RecordApplicationEvents
+@Import({ServiceAdvisorServiceImpl.class, PricingServiceImpl.class, WorkshopCapacityServiceImpl.class, SimpleMeterRegistry.class})
+class ServiceOrderBulkOperationsTest {
+
+    @Autowired
+    private ServiceAdvisorServiceImpl serviceAdvisorService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private MailService mailService;
+
+    @MockitoSpyBean
+    private UserRepository userRepository;
+
+    @Autowired
+    private ApplicationEvents events;
+
+    @Test
+    void bulkOperationsUseConstantNumberOfStatements() {
+        User advisor = persistUser(entityManager, UserRole.SERVICE_ADVISOR);
+        User technician = persistUser(entityManager, UserRole.TECHNICIAN);
+        List<Long> orderIds = createOrders(advisor, 100);
+
+        List<BulkServiceOrderRequest.Operation> operations = new ArrayList<>();
+        for (Long orderId : orderIds) {
+            operations.add(status(orderId, OrderStatus.INSPECTION));
+            operations.add(assign(orderId, technician.getUserId().longValue()));
+        }
+        operations.add(status(orderIds.get(0), OrderStatus.IN_PROGRESS)); // 2 bước trên cùng 1 đơn
+        operations.add(status(orderIds.get(1), OrderStatus.COMPLETED));   // INSPECTION -> COMPLETED không hợp lệ
+        operations.add(status(-1L, OrderStatus.INSPECTION));
+        operations.add(assign(orderIds.get(2), advisor.getUserId().longValue())); // không phải KTV
+        BulkServiceOrderRequest.Operation stale = status(orderIds.get(3), OrderStatus.CANCELLED);
+        stale.setVersion(7L);
+        operations.add(stale);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        BulkServiceOrderResponse response = serviceAdvisorService.applyBulkOperations(request(operations), advisor.getUserId().longValue());
+
+        // đọc đơn + KTV, 2 UPDATE trạng thái (RECEPTION->INSPECTION, RECEPTION->IN_PROGRESS), 1 UPDATE KTV, đọc lại
+        assertEquals(6, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(201, response.getSucceeded());
+        assertEquals(4, response.getFailed());
+
+        List<BulkServiceOrderResponse.Result> results = response.getResults();
+        assertEquals(operations.size(), results.size());
+        assertEquals(BulkOrderOutcome.OK, results.get(200).getOutcome());
+        assertEquals(OrderStatus.IN_PROGRESS, results.get(200).getStatus());
+        assertEquals(BulkOrderOutcome.CONFLICT, results.get(201).getOutcome());
+        assertEquals(BulkOrderOutcome.NOT_FOUND, results.get(202).getOutcome());
+        assertEquals(BulkOrderOutcome.NOT_FOUND, results.get(203).getOutcome());
+        assertEquals(BulkOrderOutcome.CONFLICT, results.get(204).getOutcome());
+
+        entityManager.clear();
+        ServiceOrderResponse first = serviceAdvisorService.getServiceOrderById(orderIds.get(0));
+        assertEquals(OrderStatus.IN_PROGRESS, first.getStatus());
+        assertEquals(technician.getUserId().longValue(), first.getTechnicianId());
+        assertEquals(2L, first.getVersion()); // 1 lần đổi trạng thái + 1 lần phân công
+        assertEquals(OrderStatus.INSPECTION, serviceAdvisorService.getServiceOrderById(orderIds.get(1)).getStatus());
+        assertEquals(OrderStatus.INSPECTION, serviceAdvisorService.getServiceOrderById(orderIds.get(3)).getStatus());
+        assertNotNull(results.get(0).getVersion());
+    }
+
+    @Test
+    void concurrentStatusChangeIsReportedAsConflict() {
+        User advisor = persistUser(entityManager, UserRole.SERVICE_ADVISOR);
+        List<Long> orderIds = createOrders(advisor, 2);
+        // advisor khác đã chuyển đơn thứ 2 sau khi client đọc
+        serviceAdvisorService.updateServiceOrderStatus(orderIds.get(1), OrderStatus.INSPECTION, advisor.getUserId().longValue(), null);
+
+        BulkServiceOrderRequest.Operation first = status(orderIds.get(0), OrderStatus.CANCELLED);
+        first.setVersion(0L);
+        BulkServiceOrderRequest.Operation second = status(orderIds.get(1), OrderStatus.CANCELLED);
+        second.setVersion(0L);
+        BulkServiceOrderResponse response = serviceAdvisorService.applyBulkOperations(request(List.of(first, second)),
+                advisor.getUserId().longValue());
+
+        assertEquals(BulkOrderOutcome.OK, response.getResults().get(0).getOutcome());
+        assertEquals(BulkOrderOutcome.CONFLICT, response.getResults().get(1).getOutcome());
+        assertEquals(OrderStatus.INSPECTION, response.getResults().get(1).getStatus());
+    }
+
+    @Test
+    void technicianChangesKeepThePreviousTechnicianAndDetectConcurrentChanges() {
+        User advisor = persistUser(entityManager, UserRole.SERVICE_ADVISOR);
+        User previous = persistUser(entityManager, UserRole.TECHNICIAN);
+        User next = persistUser(entityManager, UserRole.TECHNICIAN);
+        User other = persistUser(entityManager, UserRole.TECHNICIAN);
+        List<Long> orderIds = createOrders(advisor, 3);
+        entityManager.createQuery("UPDATE ServiceOrder o SET o.technician = :technician WHERE o.id IN :ids")
+                .setParameter("technician", previous)
+                .setParameter("ids", orderIds)
+                .executeUpdate();
+        // sau khi đọc snapshot: advisor khác đổi KTV đơn thứ 2, hủy đơn thứ 3
+        doAnswer(invocation -> {
+            entityManager.createQuery("UPDATE ServiceOrder o SET o.technician = :technician, o.version = o.version + 1 WHERE o.id = :id")
+                    .setParameter("technician", other)
+                    .setParameter("id", orderIds.get(1))
+                    .executeUpdate();
+            entityManager.createQuery("UPDATE ServiceOrder o SET o.status = :status, o.version = o.version + 1 WHERE o.id = :id")
+                    .setParameter("status", OrderStatus.CANCELLED)
+                    .setParameter("id", orderIds.get(2))
+                    .executeUpdate();
+            return List.of(next.getUserId());
+        }).when(userRepository).findIdsByIdInAndRole(any(), any());
+
+        Long nextId = next.getUserId().longValue();
+        BulkServiceOrderResponse response = serviceAdvisorService.applyBulkOperations(request(List.of(
+                assign(orderIds.get(0), nextId), assign(orderIds.get(1), nextId), assign(orderIds.get(2), nextId))),
+                advisor.getUserId().longValue());
+
+        assertEquals(List.of(BulkOrderOutcome.OK, BulkOrderOutcome.CONFLICT, BulkOrderOutcome.CONFLICT),
+                response.getResults().stream().map(BulkServiceOrderResponse.Result::getOutcome).toList());
+        entityManager.clear();
+        assertEquals(next.getUserId().longValue(), serviceAdvisorService.getServiceOrderById(orderIds.get(0)).getTechnicianId());
+        assertEquals(other.getUserId().longValue(), serviceAdvisorService.getServiceOrderById(orderIds.get(1)).getTechnicianId());
+        assertEquals(previous.getUserId().longValue(), serviceAdvisorService.getServiceOrderById(orderIds.get(2)).getTechnicianId());
+
+        // chỉ đơn ghi thành công mới vào timeline, kèm KTV cũ
+        List<ServiceOrderChangedEvent> published = events.stream(ServiceOrderChangedEvent.class).toList();
+        assertEquals(1, published.size());
+        assertEquals(orderIds.get(0), published.get(0).getOrderId());
+        assertEquals(previous.getUserId().toString(), published.get(0).getFromValue());
+        assertEquals(next.getUserId().toString(), published.get(0).getToValue());
+    }
+
+    private static BulkServiceOrderRequest request(List<BulkServiceOrderRequest.Operation> operations) {
+        BulkServiceOrderRequest request = new BulkServiceOrderRequest();
+        request.setOperations(operations);
+        return request;
+    }
+
+    private static BulkServiceOrderRequest.Operation status(Long orderId, OrderStatus status) {
+        BulkServiceOrderRequest.Operation op = new BulkServiceOrderRequest.Operation();
+        op.setOrderId(orderId);
+        op.setType(BulkOrderOperationType.STATUS);
+        op.setStatus(status);
+        return op;
+    }
+
+    private static BulkServiceOrderRequest.Operation assign(Long orderId, Long technicianId) {
+        BulkServiceOrderRequest.Operation op = new BulkServiceOrderRequest.Operation();
+        op.setOrderId(orderId);
+        op.setType(BulkOrderOperationType.ASSIGN_TECHNICIAN);
+        op.setTechnicianId(technicianId);
+        return op;
+    }
+
+    private List<Long> createOrders(User advisor, int count) {
+        User customer = persistUser(entityManager, UserRole.CUSTOMER);
+        Vehicle vehicle = persistVehicle(entityManager, customer);
+
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ServiceOrder order = new ServiceOrder();
+            order.setCustomer(customer);
+            order.setVehicle(vehicle);
+            order.setServiceAdvisor(advisor);
+            entityManager.persist(order);
+            orderIds.add(order.getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return orderIds;
+    }
+}
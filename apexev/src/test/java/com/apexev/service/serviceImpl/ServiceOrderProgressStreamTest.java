@@ -0,0 +1,169 @@
+package com.apexev.service.serviceImpl;
+
+import com.apexev.controller.coreBussinessController.ServiceAdvisorController;
+import com.apexev.dto.response.ServiceOrderResponse;
+import com.apexev.enums.OrderStatus;
+import com.apexev.enums.ServiceOrderChangeType;
+import com.apexev.repository.coreBussiness.ServiceOrderRepository;
+import com.apexev.service.service_Interface.ServiceAdvisorService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Luồng SSE qua controller thật: snapshot trước progress, gộp thay đổi liên tiếp, giới hạn kết nối, đóng luồng rảnh
+class ServiceOrderProgressStreamTest {
+
+    private final ServiceAdvisorService serviceAdvisorService = Mockito.mock(ServiceAdvisorService.class);
+    private final ServiceOrderRepository serviceOrderRepository = Mockito.mock(ServiceOrderRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ServiceOrderProgressStream stream = new ServiceOrderProgressStream();
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setup() {
+        ReflectionTestUtils.setField(stream, "serviceAdvisorService", serviceAdvisorService);
+        ReflectionTestUtils.setField(stream, "serviceOrderRepository", serviceOrderRepository);
+        ReflectionTestUtils.setField(stream, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(stream, "maxConnections", 3);
+        ReflectionTestUtils.setField(stream, "maxPerOrder", 2);
+        ReflectionTestUtils.setField(stream, "idleTimeoutMs", 60_000L);
+        ReflectionTestUtils.setField(stream, "maxLifetimeMs", 60_000L);
+        ReflectionTestUtils.setField(stream, "reconnectMs", 5_000L);
+        ReflectionTestUtils.setField(stream, "senderThreads", 2);
+        ReflectionTestUtils.setField(stream, "sendTimeoutMs", 10_000L);
+        stream.init();
+
+        ServiceAdvisorController controller = new ServiceAdvisorController();
+        ReflectionTestUtils.setField(controller, "serviceOrderProgressStream", stream);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+
+        when(serviceOrderRepository.existsById(any())).thenReturn(true);
+        when(serviceAdvisorService.trackServiceProgress(any())).thenAnswer(invocation -> order(invocation.getArgument(0)));
+    }
+
+    @AfterEach
+    void cleanup() {
+        stream.shutdown();
+    }
+
+    @Test
+    void snapshotComesFirstAndBackToBackChangesAreCoalesced() throws Exception {
+        // snapshot đang đọc trạng thái thì có 2 thay đổi -> gộp thành 1 event progress, đọc trạng thái 1 lần
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(serviceAdvisorService.trackServiceProgress(1L)).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return order(1L);
+        });
+
+        MvcResult result = open(1L);
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        stream.publish(1L, ServiceOrderChangeType.STATUS);
+        stream.publish(1L, ServiceOrderChangeType.ITEMS);
+        stream.publish(2L, ServiceOrderChangeType.STATUS); // không ai theo dõi -> bỏ qua
+        release.countDown();
+
+        // đếm sau khi ghi xong cả event
+        waitFor(() -> meterRegistry.get("order.progress.pushed").counter().count() == 2);
+        String body = content(result);
+        assertTrue(body.indexOf("event:snapshot") < body.indexOf("event:progress"), body);
+        assertTrue(body.contains("retry:5000"), body);
+        assertEquals(1, count(body, "event:progress"), body);
+        assertTrue(body.contains("\"STATUS\"") && body.contains("\"ITEMS\""), body);
+        verify(serviceAdvisorService, times(2)).trackServiceProgress(1L);
+        verify(serviceAdvisorService, never()).trackServiceProgress(2L);
+    }
+
+    @Test
+    void perOrderAndGlobalCapsAnswer503() throws Exception {
+        open(1L);
+        open(1L);
+        mockMvc.perform(get("/api/service-advisor/service-orders/{orderId}/stream", 1L))
+                .andExpect(status().isServiceUnavailable());
+
+        open(2L);
+        mockMvc.perform(get("/api/service-advisor/service-orders/{orderId}/stream", 3L))
+                .andExpect(status().isServiceUnavailable());
+        assertEquals(3, subscribers());
+
+        when(serviceOrderRepository.existsById(4L)).thenReturn(false);
+        mockMvc.perform(get("/api/service-advisor/service-orders/{orderId}/stream", 4L))
+                .andExpect(status().isNotFound());
+        assertEquals(3, subscribers());
+    }
+
+    @Test
+    void heartbeatPingsActiveStreamsAndClosesIdleOnes() throws Exception {
+        MvcResult result = open(1L);
+        waitFor(() -> content(result).contains("event:snapshot"));
+
+        stream.heartbeat();
+        waitFor(() -> content(result).contains(":ping"));
+        assertEquals(1, subscribers());
+
+        // không có thay đổi nào trong idleTimeoutMs -> đóng, nhả chỗ cho kết nối mới
+        ReflectionTestUtils.setField(stream, "idleTimeoutMs", -1L);
+        stream.heartbeat();
+        waitFor(() -> subscribers() == 0);
+        assertEquals(0, meterRegistry.get("order.progress.stalled").counter().count());
+    }
+
+    private MvcResult open(Long orderId) throws Exception {
+        return mockMvc.perform(get("/api/service-advisor/service-orders/{orderId}/stream", orderId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    private double subscribers() {
+        return meterRegistry.get("order.progress.subscribers").gauge().value();
+    }
+
+    private static ServiceOrderResponse order(Long id) {
+        ServiceOrderResponse order = new ServiceOrderResponse();
+        order.setId(id);
+        order.setStatus(OrderStatus.IN_PROGRESS);
+        return order;
+    }
+
+    private static String content(MvcResult result) {
+        try {
+            return result.getResponse().getContentAsString();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int count(String text, String token) {
+        int count = 0;
+        for (int i = text.indexOf(token); i >= 0; i = text.indexOf(token, i + token.length())) {
+            count++;
+        }
+        return count;
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met within 5s");
+            Thread.sleep(10);
+        }
+    }
+}
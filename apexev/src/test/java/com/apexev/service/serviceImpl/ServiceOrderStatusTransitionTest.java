@@ -0,0 +1,118 @@
+package com.apexev.service.serviceImpl;
+
+import com.apexev.dto.request.UpdateServiceOrderRequest;
+import com.apexev.dto.response.ServiceOrderResponse;
+import com.apexev.entity.ServiceOrder;
+import com.apexev.entity.User;
+import com.apexev.entity.Vehicle;
+import com.apexev.enums.OrderStatus;
+import com.apexev.enums.UserRole;
+import com.apexev.service.service_Interface.MailService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.web.server.ResponseStatusException;
+
+import static com.apexev.service.serviceImpl.JpaTestFixtures.persistUser;
+import static com.apexev.service.serviceImpl.JpaTestFixtures.persistVehicle;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Chuyển trạng thái theo bảng OrderStatus + optimistic lock: sửa chồng bị từ chối (409) thay vì ghi đè
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({ServiceAdvisorServiceImpl.class, PricingServiceImpl.class, WorkshopCapacityServiceImpl.class, SimpleMeterRegistry.class})
+class ServiceOrderStatusTransitionTest {
+
+    @Autowired
+    private ServiceAdvisorServiceImpl serviceAdvisorService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @MockitoBean
+    private MailService mailService;
+
+    private Long orderId;
+    private Long advisorId;
+
+    @BeforeEach
+    void setUp() {
+        User advisor = persistUser(entityManager, UserRole.SERVICE_ADVISOR, "advisor");
+        User customer = persistUser(entityManager, UserRole.CUSTOMER, "customer");
+        Vehicle vehicle = persistVehicle(entityManager, customer);
+
+        ServiceOrder order = new ServiceOrder();
+        order.setCustomer(customer);
+        order.setVehicle(vehicle);
+        order.setServiceAdvisor(advisor);
+        entityManager.persist(order);
+        entityManager.flush();
+        entityManager.clear();
+        orderId = order.getId();
+        advisorId = advisor.getUserId().longValue();
+    }
+
+    @Test
+    void statusFollowsTransitionTableAndBumpsVersion() {
+        ServiceOrderResponse inspection = serviceAdvisorService.updateServiceOrderStatus(orderId, OrderStatus.INSPECTION, advisorId, 0L);
+        assertEquals(OrderStatus.INSPECTION, inspection.getStatus());
+        assertEquals(1L, inspection.getVersion());
+
+        serviceAdvisorService.updateServiceOrderStatus(orderId, OrderStatus.WAITING_FOR_PARTS, advisorId, 1L);
+        serviceAdvisorService.updateServiceOrderStatus(orderId, OrderStatus.IN_PROGRESS, advisorId, null);
+        ServiceOrderResponse completed = serviceAdvisorService.updateServiceOrderStatus(orderId, OrderStatus.COMPLETED, advisorId, 3L);
+
+        assertEquals(OrderStatus.COMPLETED, completed.getStatus());
+        assertEquals(4L, completed.getVersion());
+        assertNotNull(completed.getCompletedAt());
+        assertConflict(() -> serviceAdvisorService.updateServiceOrderStatus(orderId, OrderStatus.IN_PROGRESS, advisorId, null));
+    }
+
+    @Test
+    void invalidTransitionIsRejected() {
+        assertConflict(() -> serviceAdvisorService.updateServiceOrderStatus(orderId, OrderStatus.COMPLETED, advisorId, null));
+
+        ServiceOrderResponse order = serviceAdvisorService.getServiceOrderById(orderId);
+        assertEquals(OrderStatus.RECEPTION, order.getStatus());
+        assertEquals(0L, order.getVersion());
+        assertNull(order.getCompletedAt());
+    }
+
+    @Test
+    void secondWriterOnStaleVersionGetsConflict() {
+        // 2 advisor cùng mở đơn ở version 0
+        serviceAdvisorService.updateServiceOrderStatus(orderId, OrderStatus.INSPECTION, advisorId, 0L);
+        assertConflict(() -> serviceAdvisorService.updateServiceOrderStatus(orderId, OrderStatus.CANCELLED, advisorId, 0L));
+
+        UpdateServiceOrderRequest notes = new UpdateServiceOrderRequest();
+        notes.setAdvisorNotes("Rửa xe trước khi giao");
+        notes.setVersion(0L);
+        assertConflict(() -> serviceAdvisorService.updateServiceOrder(orderId, notes, advisorId));
+
+        assertEquals(OrderStatus.INSPECTION, serviceAdvisorService.getServiceOrderById(orderId).getStatus());
+    }
+
+    @Test
+    void repeatedRequestIsANoOp() {
+        serviceAdvisorService.updateServiceOrderStatus(orderId, OrderStatus.INSPECTION, advisorId, null);
+        ServiceOrderResponse again = serviceAdvisorService.updateServiceOrderStatus(orderId, OrderStatus.INSPECTION, advisorId, null);
+        assertEquals(1L, again.getVersion());
+    }
+
+    private void assertConflict(Runnable action) {
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, action::run);
+        assertEquals(HttpStatus.CONFLICT, e.getStatusCode());
+    }
+}
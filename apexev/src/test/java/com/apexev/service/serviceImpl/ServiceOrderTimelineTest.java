@@ -0,0 +1,164 @@
+package com.apexev.service.serviceImpl;
+
+import com.apexev.dto.response.CursorPageResponse;
+import com.apexev.dto.response.ServiceOrderEventResponse;
+import com.apexev.entity.ServiceOrder;
+import com.apexev.entity.User;
+import com.apexev.entity.Vehicle;
+import com.apexev.enums.OrderStatus;
+import com.apexev.enums.ServiceOrderChangeType;
+import com.apexev.enums.UserRole;
+import com.apexev.event.serviceOrder.ServiceOrderChangedEvent;
+import com.apexev.event.serviceOrder.listener.ServiceOrderChangedEventListener;
+import com.apexev.repository.coreBussiness.ServiceOrderEventOutboxRepository;
+import com.apexev.repository.coreBussiness.ServiceOrderEventRepository;
+import com.apexev.service.service_Interface.MailService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.apexev.service.serviceImpl.JpaTestFixtures.persistUser;
+import static com.apexev.service.serviceImpl.JpaTestFixtures.persistVehicle;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// Timeline: outbox ghi cùng transaction với thao tác, ghi nền sang service_order_events, đọc theo trang (order_id, seq)
+@DataJpaTest(properties = {
+        "com.apexev.orderTimeline.batchSize=2",
+        "com.apexev.orderTimeline.maxConflictRetries=1",
+        "com.apexev.orderTimeline.flushIntervalMs=3600000" // chỉ flush khi test gọi
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({ServiceAdvisorServiceImpl.class, PricingServiceImpl.class, WorkshopCapacityServiceImpl.class, ServiceOrderTimelineWriter.class,
+        ServiceOrderProgressStream.class, TechnicianQueueServiceImpl.class, ServiceOrderChangedEventListener.class, SimpleMeterRegistry.class})
+// mỗi thao tác tự commit như trong app thật, listener BEFORE_COMMIT / AFTER_COMMIT mới chạy
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ServiceOrderTimelineTest {
+
+    @Autowired
+    private ServiceAdvisorServiceImpl serviceAdvisorService;
+
+    @Autowired
+    private ServiceOrderTimelineWriter timelineWriter;
+
+    @Autowired
+    private ServiceOrderEventRepository serviceOrderEventRepository;
+
+    @Autowired
+    private ServiceOrderEventOutboxRepository outboxRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @MockitoBean
+    private MailService mailService;
+
+    @Test
+    void changesAreWrittenInBackgroundAndReadInSeqOrder() {
+        Long[] ids = transactionTemplate.execute(status -> createOrder());
+        Long orderId = ids[0];
+        Long advisorId = ids[1];
+        Long technicianId = ids[2];
+        long before = serviceOrderEventRepository.count();
+        long pending = outboxRepository.count();
+
+        serviceAdvisorService.updateServiceOrderStatus(orderId, OrderStatus.INSPECTION, advisorId, null);
+        serviceAdvisorService.assignTechnicianToOrder(orderId, technicianId, advisorId);
+        serviceAdvisorService.addAdvisorNotes(orderId, "Khách báo tiếng kêu ở bánh trước", advisorId);
+        serviceAdvisorService.updateServiceOrderStatus(orderId, OrderStatus.IN_PROGRESS, advisorId, null);
+        serviceAdvisorService.updateServiceOrderStatus(orderId, OrderStatus.COMPLETED, advisorId, null);
+
+        // thao tác không chờ ghi timeline, nhưng thay đổi đã nằm trong outbox (đã commit, app chết cũng không mất)
+        assertEquals(before, serviceOrderEventRepository.count());
+        assertEquals(pending + 5, outboxRepository.count());
+        assertEquals(5, timelineWriter.flush());
+        assertEquals(0, outboxRepository.count());
+
+        List<ServiceOrderEventResponse> events = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            CursorPageResponse<ServiceOrderEventResponse> page = serviceAdvisorService.getServiceOrderHistory(orderId, cursor, 2);
+            events.addAll(page.getItems());
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), events.stream().map(ServiceOrderEventResponse::getSeq).toList());
+        assertEquals(List.of(ServiceOrderChangeType.STATUS, ServiceOrderChangeType.TECHNICIAN, ServiceOrderChangeType.NOTES,
+                        ServiceOrderChangeType.STATUS, ServiceOrderChangeType.STATUS),
+                events.stream().map(ServiceOrderEventResponse::getEventType).toList());
+        ServiceOrderEventResponse first = events.get(0);
+        assertEquals("RECEPTION", first.getFromValue());
+        assertEquals("INSPECTION", first.getToValue());
+        assertEquals(advisorId, first.getActorId());
+        assertEquals("Advisor", first.getActorName());
+        assertNull(events.get(1).getFromValue());
+        assertEquals(technicianId.toString(), events.get(1).getToValue());
+        assertEquals("COMPLETED", events.get(4).getToValue());
+    }
+
+    @Test
+    void rolledBackChangesAreNotRecorded() {
+        Long[] ids = transactionTemplate.execute(status -> createOrder());
+        transactionTemplate.executeWithoutResult(status -> {
+            serviceAdvisorService.updateServiceOrderStatus(ids[0], OrderStatus.CANCELLED, ids[1], null);
+            status.setRollbackOnly();
+        });
+
+        assertEquals(0, outboxRepository.count());
+        assertEquals(0, timelineWriter.flush());
+        assertEquals(0, serviceAdvisorService.getServiceOrderHistory(ids[0], null, 20).getItems().size());
+    }
+
+    @Test
+    void aRowThatKeepsViolatingConstraintsOnlyDropsItsOwnOrder() {
+        Long[] ids = transactionTemplate.execute(status -> createOrder());
+        Long broken = ids[0] + 1_000_000;
+        long before = serviceOrderEventRepository.count();
+        // event_type NOT NULL -> lô {broken, ids[0]} lỗi mãi, tách theo đơn thì đơn ids[0] vẫn được ghi
+        timelineWriter.append(new ServiceOrderChangedEvent(broken, null, null, null, null));
+        timelineWriter.append(new ServiceOrderChangedEvent(ids[0], ServiceOrderChangeType.NOTES, ids[1], null, "Ghi chú"));
+        timelineWriter.append(new ServiceOrderChangedEvent(ids[0], ServiceOrderChangeType.STATUS, ids[1], "RECEPTION", "INSPECTION"));
+
+        assertEquals(2, timelineWriter.flush());
+        assertEquals(List.of(1L, 2L), serviceAdvisorService.getServiceOrderHistory(ids[0], null, 20).getItems().stream()
+                .map(ServiceOrderEventResponse::getSeq).toList());
+        assertEquals(before + 2, serviceOrderEventRepository.count());
+        assertEquals(0, outboxRepository.count()); // event lỗi đã bị bỏ khỏi outbox
+        assertEquals(0, timelineWriter.flush());
+    }
+
+    // {orderId, advisorId, technicianId}
+    private Long[] createOrder() {
+        User advisor = persistUser(entityManager, UserRole.SERVICE_ADVISOR, "Advisor");
+        User technician = persistUser(entityManager, UserRole.TECHNICIAN, "Technician");
+        User customer = persistUser(entityManager, UserRole.CUSTOMER, "Customer");
+        Vehicle vehicle = persistVehicle(entityManager, customer);
+
+        ServiceOrder order = new ServiceOrder();
+        order.setCustomer(customer);
+        order.setVehicle(vehicle);
+        order.setServiceAdvisor(advisor);
+        order.setStatus(OrderStatus.RECEPTION);
+        entityManager.persist(order);
+        return new Long[]{order.getId(), advisor.getUserId().longValue(), technician.getUserId().longValue()};
+    }
+}
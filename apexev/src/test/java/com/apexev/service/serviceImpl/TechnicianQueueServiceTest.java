@@ -0,0 +1,130 @@
+package com.apexev.service.serviceImpl;
+
+import com.apexev.dto.response.ServiceOrderResponse;
+import com.apexev.entity.ServiceOrder;
+import com.apexev.entity.User;
+import com.apexev.entity.Vehicle;
+import com.apexev.enums.OrderStatus;
+import com.apexev.enums.ServiceOrderChangeType;
+import com.apexev.enums.UserRole;
+import com.apexev.event.serviceOrder.ServiceOrderChangedEvent;
+import com.apexev.event.serviceOrder.listener.ServiceOrderChangedEventListener;
+import com.apexev.service.service_Interface.MailService;
+import com.apexev.service.service_Interface.TechnicianQueueService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static com.apexev.service.serviceImpl.JpaTestFixtures.persistUser;
+import static com.apexev.service.serviceImpl.JpaTestFixtures.persistVehicle;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+// Hàng đợi KTV phục vụ từ RAM, chỉ nạp lại khi 1 đơn liên quan đổi (event sau commit)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({ServiceAdvisorServiceImpl.class, PricingServiceImpl.class, WorkshopCapacityServiceImpl.class, TechnicianQueueServiceImpl.class,
+        ServiceOrderTimelineWriter.class, ServiceOrderProgressStream.class, ServiceOrderChangedEventListener.class,
+        SimpleMeterRegistry.class})
+// mỗi thao tác tự commit như trong app thật, listener AFTER_COMMIT mới chạy
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TechnicianQueueServiceTest {
+
+    @Autowired
+    private ServiceAdvisorServiceImpl serviceAdvisorService;
+
+    @Autowired
+    private TechnicianQueueService technicianQueueService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @MockitoBean
+    private MailService mailService;
+
+    @Test
+    void queueIsServedFromMemoryUntilOneOfItsOrdersChanges() {
+        long[] ids = transactionTemplate.execute(status -> fixture());
+        long technicianId = ids[0];
+        long advisorId = ids[1];
+        long openOrder = ids[2];
+        long otherTechniciansOrder = ids[3];
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        TechnicianQueueService.Queue first = technicianQueueService.getQueue(technicianId);
+        assertEquals(List.of(openOrder), orderIds(first)); // đơn đã COMPLETED không nằm trong hàng đợi
+
+        statistics.clear();
+        TechnicianQueueService.Queue cached = technicianQueueService.getQueue(technicianId);
+        assertSame(first, cached);
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        // sự kiện không làm đổi nội dung -> nạp lại nhưng ETag giữ nguyên
+        technicianQueueService.onOrderChanged(new ServiceOrderChangedEvent(openOrder, ServiceOrderChangeType.ITEMS, advisorId, null, null));
+        assertEquals(first.etag(), technicianQueueService.getQueue(technicianId).etag());
+
+        // giao thêm đơn cho KTV -> snapshot của KTV nhận đơn bị bỏ
+        serviceAdvisorService.assignTechnicianToOrder(otherTechniciansOrder, technicianId, advisorId);
+        TechnicianQueueService.Queue assigned = technicianQueueService.getQueue(technicianId);
+        assertEquals(List.of(openOrder, otherTechniciansOrder), orderIds(assigned));
+        assertNotEquals(first.etag(), assigned.etag());
+
+        // đổi trạng thái 1 đơn trong hàng đợi
+        serviceAdvisorService.updateServiceOrderStatus(openOrder, OrderStatus.INSPECTION, advisorId, null);
+        assertEquals(OrderStatus.INSPECTION, technicianQueueService.getQueue(technicianId).response().getOrders().get(0).getStatus());
+
+        serviceAdvisorService.updateServiceOrderStatus(openOrder, OrderStatus.CANCELLED, advisorId, null);
+        assertEquals(List.of(otherTechniciansOrder), orderIds(technicianQueueService.getQueue(technicianId)));
+    }
+
+    private static List<Long> orderIds(TechnicianQueueService.Queue queue) {
+        return queue.response().getOrders().stream().map(ServiceOrderResponse::getId).toList();
+    }
+
+    // {technicianId, advisorId, đơn đang mở của KTV, đơn của KTV khác}
+    private long[] fixture() {
+        User technician = persistUser(entityManager, UserRole.TECHNICIAN);
+        User otherTechnician = persistUser(entityManager, UserRole.TECHNICIAN);
+        User advisor = persistUser(entityManager, UserRole.SERVICE_ADVISOR);
+        User customer = persistUser(entityManager, UserRole.CUSTOMER);
+        Vehicle vehicle = persistVehicle(entityManager, customer);
+
+        ServiceOrder open = persistOrder(customer, vehicle, advisor, technician, OrderStatus.RECEPTION);
+        persistOrder(customer, vehicle, advisor, technician, OrderStatus.COMPLETED);
+        ServiceOrder other = persistOrder(customer, vehicle, advisor, otherTechnician, OrderStatus.RECEPTION);
+        return new long[]{technician.getUserId(), advisor.getUserId(), open.getId(), other.getId()};
+    }
+
+    private ServiceOrder persistOrder(User customer, Vehicle vehicle, User advisor, User technician, OrderStatus status) {
+        ServiceOrder order = new ServiceOrder();
+        order.setCustomer(customer);
+        order.setVehicle(vehicle);
+        order.setServiceAdvisor(advisor);
+        order.setTechnician(technician);
+        order.setStatus(status);
+        entityManager.persist(order);
+        return order;
+    }
+}
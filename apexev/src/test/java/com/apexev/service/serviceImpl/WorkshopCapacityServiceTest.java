@@ -0,0 +1,351 @@
+package com.apexev.service.serviceImpl;
+
+import com.apexev.dto.request.CreateAppointmentRequest;
+import com.apexev.dto.request.UpdateAppointmentRequest;
+import com.apexev.dto.request.coreBussinessRequest.AppointmentRequest;
+import com.apexev.dto.request.coreBussinessRequest.RescheduleAppointmentRequest;
+import com.apexev.dto.response.coreBussinessResponse.AvailabilityResponse;
+import com.apexev.entity.Appointment;
+import com.apexev.entity.Shift;
+import com.apexev.entity.ShiftAssignment;
+import com.apexev.entity.User;
+import com.apexev.entity.Vehicle;
+import com.apexev.enums.AppointmentStatus;
+import com.apexev.enums.UserRole;
+import com.apexev.event.appointment.listener.AppointmentChangedEventListener;
+import com.apexev.mapper.AppointmentMapperImpl;
+import com.apexev.repository.coreBussiness.AppointmentRepository;
+import com.apexev.service.service_Interface.MailService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.apexev.service.serviceImpl.JpaTestFixtures.persistUser;
+import static com.apexev.service.serviceImpl.JpaTestFixtures.persistVehicle;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Sức chứa xưởng: 2 KTV ca 8h-12h, mỗi lịch chiếm 60 phút trên lưới 30 phút
+@DataJpaTest(properties = {
+        "com.apexev.capacity.bays=3",
+        "com.apexev.capacity.horizonDays=30",
+        "com.apexev.capacity.refreshIntervalMs=3600000" // chỉ đối chiếu khi test gọi
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({AppointmentServiceImpl.class, WorkshopCapacityServiceImpl.class, AppointmentChangedEventListener.class,
+        ServiceAdvisorServiceImpl.class, PricingServiceImpl.class, AppointmentMapperImpl.class, SimpleMeterRegistry.class})
+// mỗi thao tác tự commit như trong app thật, listener AFTER_COMMIT / AFTER_ROLLBACK mới chạy
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class WorkshopCapacityServiceTest {
+
+    @Autowired
+    private AppointmentServiceImpl appointmentService;
+
+    @Autowired
+    private WorkshopCapacityServiceImpl capacityService;
+
+    @Autowired
+    private ServiceAdvisorServiceImpl advisorService;
+
+    @MockitoBean
+    private MailService mailService;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void bookingsAreLimitedByTechniciansOnShift() {
+        LocalDate day = LocalDate.now().plusDays(2);
+        User customer = rosteredCustomer(day);
+        Long vehicleId = vehicleIdOf(customer);
+
+        Long first = book(customer, vehicleId, day.atTime(9, 0));
+        Long second = book(customer, vehicleId, day.atTime(9, 0));
+
+        // 9h30-10h30 chồng lên 2 lịch 9h -> hết KTV, bản ghi vừa lưu bị rollback
+        long before = appointmentRepository.count();
+        assertConflict(() -> book(customer, vehicleId, day.atTime(9, 30)));
+        assertEquals(before, appointmentRepository.count());
+
+        // 8h30 chiếm ô 9h đã đầy; 11h30 chiếm ô 12h đã hết ca
+        assertEquals(List.of(day.atTime(8, 0), day.atTime(10, 0), day.atTime(10, 30), day.atTime(11, 0)),
+                capacityService.findFreeSlots(day.atTime(7, 45), 10).stream()
+                        .filter(time -> time.toLocalDate().equals(day)).toList());
+        // ngày chưa xếp ca chỉ giới hạn theo số khoang
+        assertTrue(capacityService.isAvailable(day.plusDays(20).atTime(3, 0)));
+
+        // hủy -> nhả chỗ sau commit
+        appointmentService.cancelAppointment(first, customer);
+        Long moved = book(customer, vehicleId, day.atTime(9, 30));
+
+        book(customer, vehicleId, day.atTime(10, 0));
+
+        // dời 9h -> 9h30: ô 10h đã kín -> 409, giữ nguyên giờ cũ
+        assertConflict(() -> reschedule(customer, second, day.atTime(9, 30)));
+        assertEquals(day.atTime(9, 0), appointmentRepository.findById(second).orElseThrow().getAppointmentTime());
+        assertFalse(capacityService.isAvailable(day.atTime(9, 30)));
+        // chỗ cũ của chính lịch được dời không tính là bận
+        reschedule(customer, moved, day.atTime(9, 0));
+        reschedule(customer, second, day.atTime(10, 30));
+        assertTrue(capacityService.isAvailable(day.atTime(9, 30)));
+    }
+
+    @Test
+    void rolledBackBookingReleasesItsHoldAndOtherInstancesBookingsAreCounted() {
+        LocalDate day = LocalDate.now().plusDays(3);
+        User customer = rosteredCustomer(day);
+        Long vehicleId = vehicleIdOf(customer);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            book(customer, vehicleId, day.atTime(9, 0));
+            book(customer, vehicleId, day.atTime(9, 0));
+            assertFalse(capacityService.isAvailable(day.atTime(9, 0))); // đang giữ chỗ trong transaction
+            status.setRollbackOnly();
+        });
+        assertTrue(capacityService.isAvailable(day.atTime(9, 0)));
+
+        // instance khác ghi thẳng vào DB -> chỉ thấy sau lượt đối chiếu
+        transactionTemplate.executeWithoutResult(status -> {
+            User owner = entityManager.find(User.class, customer.getUserId());
+            Vehicle vehicle = entityManager.find(Vehicle.class, vehicleId);
+            for (int i = 0; i < 2; i++) {
+                Appointment appointment = new Appointment();
+                appointment.setCustomer(owner);
+                appointment.setVehicle(vehicle);
+                appointment.setAppointmentTime(day.atTime(10, 0));
+                entityManager.persist(appointment);
+            }
+        });
+        assertTrue(capacityService.isAvailable(day.atTime(10, 0)));
+        // đặt lịch vẫn đếm lại trên DB dưới khóa ngày -> không vượt sức chứa, ngày đó được nạp lại
+        long before = appointmentRepository.count();
+        assertConflict(() -> book(customer, vehicleId, day.atTime(10, 0)));
+        assertEquals(before, appointmentRepository.count());
+        assertFalse(capacityService.isAvailable(day.atTime(10, 0)));
+        assertTrue(capacityService.isAvailable(day.atTime(9, 0)));
+
+        transactionTemplate.executeWithoutResult(status -> entityManager
+                .createQuery("DELETE FROM Appointment a WHERE a.appointmentTime = :time")
+                .setParameter("time", day.atTime(10, 0))
+                .executeUpdate());
+        capacityService.refresh();
+        assertTrue(capacityService.isAvailable(day.atTime(10, 0)));
+    }
+
+    @Test
+    void availabilityIsServedFromDayBitmapsUntilTheDayChanges() {
+        LocalDate day = LocalDate.now().plusDays(4);
+        User customer = rosteredCustomer(day);
+        Long vehicleId = vehicleIdOf(customer);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        assertEquals(times(8, 0, 8, 30, 9, 0, 9, 30, 10, 0, 10, 30, 11, 0), slotsOf(appointmentService.getAvailability(day, day)));
+
+        statistics.clear();
+        AvailabilityResponse cached = appointmentService.getAvailability(day, day);
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(times(8, 0, 8, 30, 9, 0, 9, 30, 10, 0, 10, 30, 11, 0), slotsOf(cached));
+
+        book(customer, vehicleId, day.atTime(9, 0));
+        book(customer, vehicleId, day.atTime(9, 0));
+        assertEquals(times(8, 0, 10, 0, 10, 30, 11, 0), slotsOf(appointmentService.getAvailability(day, day)));
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> appointmentService.getAvailability(day, day.minusDays(1)));
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+        // bắt đầu trong quá khứ hoặc sau horizon -> 400; kết thúc sau horizon thì chỉ để trống các ngày đó
+        LocalDate today = LocalDate.now();
+        for (LocalDate from : List.of(today.minusDays(1), today.plusDays(31))) {
+            e = assertThrows(ResponseStatusException.class, () -> appointmentService.getAvailability(from, from.plusDays(2)));
+            assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+        }
+        assertEquals(3, appointmentService.getAvailability(today.plusDays(28), today.plusDays(30)).getDays().size());
+    }
+
+    @Test
+    void advisorBookingsAndChangesGoThroughTheCapacityEngine() {
+        LocalDate day = LocalDate.now().plusDays(5);
+        User customer = rosteredCustomer(day);
+        Long vehicleId = vehicleIdOf(customer);
+        Long advisorId = transactionTemplate.execute(status -> persistUser(entityManager, UserRole.SERVICE_ADVISOR)).getUserId().longValue();
+
+        Long first = book(customer, vehicleId, day.atTime(9, 0));
+        Long second = book(customer, vehicleId, day.atTime(9, 0));
+
+        // cố vấn đặt hộ vào giờ đã kín -> 409, không lưu
+        long before = appointmentRepository.count();
+        assertConflict(() -> advisorBook(customer, vehicleId, advisorId, day.atTime(9, 0)));
+        assertEquals(before, appointmentRepository.count());
+        Long advisorBooked = advisorBook(customer, vehicleId, advisorId, day.atTime(11, 0));
+
+        // cố vấn đổi giờ: chiếm chỗ mới, nhả chỗ cũ ngay sau commit, nhắc lịch lại
+        transactionTemplate.executeWithoutResult(status ->
+                entityManager.find(Appointment.class, first).setReminderSentAt(LocalDateTime.now()));
+        advisorUpdate(first, day.atTime(11, 0), null, advisorId);
+        assertFalse(capacityService.isAvailable(day.atTime(11, 0)));
+        assertTrue(capacityService.isAvailable(day.atTime(9, 0)));
+        assertNull(appointmentRepository.findById(first).orElseThrow().getReminderSentAt());
+        assertConflict(() -> advisorUpdate(second, day.atTime(11, 0), null, advisorId));
+
+        // hủy qua cancel hoặc qua update status=CANCELLED -> nhả chỗ không cần đợi refresh
+        advisorService.cancelAppointment(advisorBooked, advisorId, "Khách bận");
+        assertTrue(capacityService.isAvailable(day.atTime(11, 0)));
+        Long third = book(customer, vehicleId, day.atTime(9, 0));
+        assertFalse(capacityService.isAvailable(day.atTime(9, 0)));
+        advisorUpdate(third, null, AppointmentStatus.CANCELLED, advisorId);
+        assertTrue(capacityService.isAvailable(day.atTime(9, 0)));
+    }
+
+    @Test
+    void onlyDaysInsideTheHorizonAreLoadedAndRefreshSkipsGaps() {
+        LocalDate today = LocalDate.now();
+        User customer = rosteredCustomer(today.plusDays(26));
+        Long vehicleId = vehicleIdOf(customer);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        // ngoài horizon: đặt lịch -> 400 không lưu, không có giờ trống, không nạp ngày nào
+        long before = appointmentRepository.count();
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> book(customer, vehicleId, today.plusDays(31).atTime(9, 0)));
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+        assertEquals(before, appointmentRepository.count());
+        statistics.clear();
+        assertEquals(List.of(), capacityService.findFreeSlots(today.plusDays(31).atStartOfDay(), 5));
+        assertFalse(capacityService.isAvailable(today.plusDays(45).atTime(9, 0)));
+        List<AvailabilityResponse.Day> far = capacityService.getAvailability(today.plusDays(31), today.plusYears(1)).getDays();
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertTrue(far.stream().allMatch(d -> d.getSlots().isEmpty()));
+
+        // 2 dải ngày đã nạp (26, 29): đối chiếu đọc từng dải, không nạp ngày 27-28 ở giữa
+        assertTrue(capacityService.isAvailable(today.plusDays(26).atTime(9, 0)));
+        assertTrue(capacityService.isAvailable(today.plusDays(29).atTime(9, 0)));
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < 3; i++) {
+                Appointment appointment = new Appointment();
+                appointment.setCustomer(entityManager.find(User.class, customer.getUserId()));
+                appointment.setVehicle(entityManager.find(Vehicle.class, vehicleId));
+                appointment.setAppointmentTime(today.plusDays(29).atTime(9, 0));
+                entityManager.persist(appointment);
+            }
+        });
+        capacityService.refresh();
+        assertFalse(capacityService.isAvailable(today.plusDays(29).atTime(9, 0)));
+        statistics.clear();
+        assertTrue(capacityService.isAvailable(today.plusDays(27).atTime(9, 0)));
+        assertEquals(3, statistics.getPrepareStatementCount());
+
+        // khoảng chồng lên horizon: chỉ ngày trong horizon có giờ trống
+        List<AvailabilityResponse.Day> edge = capacityService.getAvailability(today.plusDays(30), today.plusDays(31)).getDays();
+        assertEquals(2, edge.size());
+        assertFalse(edge.get(0).getSlots().isEmpty());
+        assertTrue(edge.get(1).getSlots().isEmpty());
+    }
+
+    private static List<LocalTime> slotsOf(AvailabilityResponse availability) {
+        return availability.getDays().get(0).getSlots();
+    }
+
+    private static List<LocalTime> times(int... hourMinutes) {
+        List<LocalTime> times = new ArrayList<>();
+        for (int i = 0; i < hourMinutes.length; i += 2) {
+            times.add(LocalTime.of(hourMinutes[i], hourMinutes[i + 1]));
+        }
+        return times;
+    }
+
+    private Long book(User customer, Long vehicleId, LocalDateTime time) {
+        AppointmentRequest request = new AppointmentRequest();
+        request.setVehicleId(vehicleId);
+        request.setAppointmentTime(time);
+        request.setRequestedService("Bảo dưỡng định kỳ");
+        return appointmentService.createAppointment(request, customer).getId();
+    }
+
+    private Long advisorBook(User customer, Long vehicleId, Long advisorId, LocalDateTime time) {
+        CreateAppointmentRequest request = new CreateAppointmentRequest();
+        request.setCustomerId(customer.getUserId().longValue());
+        request.setVehicleId(vehicleId);
+        request.setAppointmentTime(time);
+        request.setRequestedService("Bảo dưỡng định kỳ");
+        return advisorService.createAppointment(request, advisorId).getId();
+    }
+
+    private void advisorUpdate(Long appointmentId, LocalDateTime time, AppointmentStatus status, Long advisorId) {
+        UpdateAppointmentRequest request = new UpdateAppointmentRequest();
+        request.setAppointmentTime(time);
+        request.setStatus(status);
+        advisorService.updateAppointment(appointmentId, request, advisorId);
+    }
+
+    private void reschedule(User customer, Long appointmentId, LocalDateTime time) {
+        RescheduleAppointmentRequest request = new RescheduleAppointmentRequest();
+        request.setNewAppointmentTime(time);
+        appointmentService.rescheduleAppointment(appointmentId, request, customer);
+    }
+
+    private static void assertConflict(Runnable action) {
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, action::run);
+        assertEquals(HttpStatus.CONFLICT, e.getStatusCode());
+    }
+
+    private Long vehicleIdOf(User customer) {
+        return entityManager.createQuery("SELECT v.id FROM Vehicle v WHERE v.customer.userId = :id", Long.class)
+                .setParameter("id", customer.getUserId())
+                .getSingleResult();
+    }
+
+    // xếp ca như ShiftServiceImpl: commit rồi báo engine đọc lại ngày đó
+    private User rosteredCustomer(LocalDate day) {
+        User customer = transactionTemplate.execute(status -> fixture(day));
+        capacityService.onShiftsChanged(day.atTime(8, 0), day.atTime(12, 0));
+        return customer;
+    }
+
+    // 2 KTV ca 8h-12h ngày day, 1 khách có 1 xe
+    private User fixture(LocalDate day) {
+        Shift shift = new Shift();
+        shift.setName("Ca sáng");
+        shift.setStartTime(day.atTime(8, 0));
+        shift.setEndTime(day.atTime(12, 0));
+        entityManager.persist(shift);
+        for (int i = 0; i < 2; i++) {
+            ShiftAssignment assignment = new ShiftAssignment();
+            assignment.setShift(shift);
+            assignment.setStaff(persistUser(entityManager, UserRole.TECHNICIAN));
+            entityManager.persist(assignment);
+        }
+
+        User customer = persistUser(entityManager, UserRole.CUSTOMER);
+        persistVehicle(entityManager, customer);
+        return customer;
+    }
+}